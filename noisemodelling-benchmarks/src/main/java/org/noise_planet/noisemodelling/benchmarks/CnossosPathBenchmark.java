@@ -0,0 +1,115 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.benchmarks;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutProfile;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.noise_planet.noisemodelling.propagation.AttenuationParameters;
+import org.noise_planet.noisemodelling.propagation.SceneWithAttenuation;
+import org.noise_planet.noisemodelling.propagation.cnossos.AttenuationCnossos;
+import org.noise_planet.noisemodelling.propagation.cnossos.AttenuationContext;
+import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPath;
+import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPathBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CNOSSOS-EU stages of the propagation: the conversion of the cut profiles into propagation paths and the attenuation
+ * of the paths (homogeneous and favorable conditions). The profiles are computed once between random street locations
+ * of the synthetic scenes. The score is the time of all the profiles of the scene. Run with the profiler
+ * {@code -prof gc} to compare the allocation rate of the attenuation with a new context per path and with the context
+ * reused by the computation thread.
+ * @author Nicolas Fortin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CnossosPathBenchmark {
+    static final int PROFILE_COUNT = 256;
+    static final double GROUND_ATTENUATION = 0.5;
+
+    @Param({"FLAT", "DEM", "BUILDINGS", "CITY"})
+    public SyntheticScene.Kind kind;
+
+    private final List<CutProfile> cutProfiles = new ArrayList<>();
+    private final List<CnossosPath> paths = new ArrayList<>();
+    private SceneWithAttenuation scene;
+    private AttenuationParameters parameters;
+    private AttenuationContext.Cache contexts;
+
+    @Setup
+    public void setUp() {
+        SyntheticScene syntheticScene = new SyntheticScene(kind, 10);
+        ProfileBuilder profileBuilder = syntheticScene.makeProfileBuilder();
+        scene = new SceneWithAttenuation(profileBuilder);
+        parameters = scene.defaultCnossosParameters;
+        contexts = new AttenuationContext.Cache();
+        Random random = new Random(SyntheticScene.DEFAULT_SEED);
+        List<Coordinate> sources = syntheticScene.getStreetLocations(PROFILE_COUNT, SyntheticScene.SOURCE_HEIGHT,
+                random);
+        List<Coordinate> receivers = syntheticScene.getStreetLocations(PROFILE_COUNT,
+                SyntheticScene.RECEIVER_HEIGHT, random);
+        for (int i = 0; i < PROFILE_COUNT; i++) {
+            CutProfile cutProfile = profileBuilder.getProfile(sources.get(i), receivers.get(i), GROUND_ATTENUATION,
+                    false);
+            cutProfiles.add(cutProfile);
+            CnossosPath path = CnossosPathBuilder.computeCnossosPathFromCutProfile(cutProfile, false,
+                    profileBuilder.exactFrequencyArray, GROUND_ATTENUATION);
+            if (path != null) {
+                paths.add(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void computeCnossosPath(Blackhole blackhole) {
+        for (CutProfile cutProfile : cutProfiles) {
+            blackhole.consume(CnossosPathBuilder.computeCnossosPathFromCutProfile(cutProfile, false,
+                    scene.profileBuilder.exactFrequencyArray, GROUND_ATTENUATION));
+        }
+    }
+
+    /**
+     * Attenuation with a new context created for each path, to compare with the context reused by the thread
+     */
+    @Benchmark
+    public void computeCnossosAttenuationNewContext(Blackhole blackhole) {
+        for (CnossosPath path : paths) {
+            blackhole.consume(AttenuationCnossos.computeCnossosAttenuation(parameters, path, scene, false));
+        }
+    }
+
+    @Benchmark
+    public void computeCnossosAttenuation(Blackhole blackhole) {
+        for (CnossosPath path : paths) {
+            blackhole.consume(AttenuationCnossos.computeCnossosAttenuation(contexts.get(parameters), path, scene,
+                    false));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.benchmarks;
+
+import org.noise_planet.noisemodelling.emission.LineSource;
+import org.noise_planet.noisemodelling.emission.directivity.DiscreteDirectivitySphere;
+import org.noise_planet.noisemodelling.emission.directivity.cnossos.RailwayCnossosDirectivitySphere;
+import org.noise_planet.noisemodelling.emission.road.cnossos.RoadCnossos;
+import org.noise_planet.noisemodelling.emission.road.cnossos.RoadCnossosParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source side of the computation: the CNOSSOS-EU road emission of random traffic and the lookup of a discrete
+ * directivity sphere at random angles. The score is the time of one road section or of one direction.
+ * @author Nicolas Fortin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmissionBenchmark {
+    static final int SAMPLE_COUNT = 256;
+    static final int[] FREQUENCIES = new int[]{63, 125, 250, 500, 1000, 2000, 4000, 8000};
+
+    /** Interpolation of the directivity sphere, 0 for the closest record and 1 for the bilinear interpolation */
+    @Param({"0", "1"})
+    public int interpolation;
+
+    private final List<RoadCnossosParameters> roads = new ArrayList<>();
+    private DiscreteDirectivitySphere directivitySphere;
+    private final double[] theta = new double[SAMPLE_COUNT];
+    private final double[] phi = new double[SAMPLE_COUNT];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SyntheticScene.DEFAULT_SEED);
+        String[] roadSurfaces = new String[]{"NL01", "NL05", "FR_R2", "DEF"};
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            double speed = 30 + random.nextInt(10) * 10;
+            roads.add(new RoadCnossosParameters(speed, speed, speed * 0.8, speed, speed,
+                    random.nextDouble() * 2000, random.nextDouble() * 100, random.nextDouble() * 200,
+                    random.nextDouble() * 50, random.nextDouble() * 50, FREQUENCIES[i % FREQUENCIES.length],
+                    10 + random.nextDouble() * 10, roadSurfaces[i % roadSurfaces.length], 0, 0,
+                    random.nextDouble() * 200, 1 + random.nextInt(2)));
+        }
+        // Sphere sampled every 5 degrees, as in the directivity tables of the train sources
+        double[] frequencies = new double[FREQUENCIES.length];
+        for (int i = 0; i < FREQUENCIES.length; i++) {
+            frequencies[i] = FREQUENCIES[i];
+        }
+        directivitySphere = new DiscreteDirectivitySphere(1, frequencies);
+        RailwayCnossosDirectivitySphere railwayDirectivity = new RailwayCnossosDirectivitySphere(
+                new LineSource("TRACTIONB"));
+        for (int yaw = 0; yaw < 360; yaw += 5) {
+            double recordPhi = Math.toRadians(yaw);
+            for (int pitch = -85; pitch < 90; pitch += 5) {
+                double recordTheta = Math.toRadians(pitch);
+                directivitySphere.addDirectivityRecord(recordTheta, recordPhi,
+                        railwayDirectivity.getAttenuationArray(frequencies, recordPhi, recordTheta));
+            }
+        }
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            theta[i] = (random.nextDouble() - 0.5) * Math.PI;
+            phi[i] = random.nextDouble() * 2 * Math.PI;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_COUNT)
+    public void roadCnossosEvaluate(Blackhole blackhole) throws IOException {
+        for (RoadCnossosParameters road : roads) {
+            blackhole.consume(RoadCnossos.evaluate(road));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_COUNT)
+    public void directivityGetRecord(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            blackhole.consume(directivitySphere.getRecord(theta[i], phi[i], interpolation));
+        }
+    }
+}
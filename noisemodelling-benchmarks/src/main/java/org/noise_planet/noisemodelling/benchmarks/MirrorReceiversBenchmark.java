@@ -0,0 +1,81 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.benchmarks;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.noise_planet.noisemodelling.pathfinder.path.MirrorReceiversCompute;
+import org.noise_planet.noisemodelling.pathfinder.path.Scene;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.Wall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image receivers of the reflections on the walls of the dense buildings of the synthetic city. The score is the time
+ * of one receiver.
+ * @author Nicolas Fortin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MirrorReceiversBenchmark {
+    static final int RECEIVER_COUNT = 32;
+
+    @Param({"1", "2"})
+    public int reflectionOrder;
+
+    private Scene scene;
+    private List<Coordinate> receivers;
+    private final List<List<Wall>> receiverWalls = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        SyntheticScene syntheticScene = new SyntheticScene(SyntheticScene.Kind.CITY, 10);
+        ProfileBuilder profileBuilder = syntheticScene.makeProfileBuilder();
+        scene = new Scene(profileBuilder);
+        Random random = new Random(SyntheticScene.DEFAULT_SEED);
+        receivers = syntheticScene.getStreetLocations(RECEIVER_COUNT, SyntheticScene.RECEIVER_HEIGHT, random);
+        // Walls in the propagation distance, as fetched by the path finder before computing the image receivers
+        for (Coordinate receiver : receivers) {
+            Envelope envelope = new Envelope(receiver);
+            envelope.expandBy(scene.maxSrcDist);
+            receiverWalls.add(profileBuilder.getWallsIn(envelope));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECEIVER_COUNT)
+    public void mirrorReceivers(Blackhole blackhole) {
+        for (int i = 0; i < RECEIVER_COUNT; i++) {
+            blackhole.consume(new MirrorReceiversCompute(receiverWalls.get(i), receivers.get(i), reflectionOrder,
+                    scene.maxSrcDist, scene.maxRefDist));
+        }
+    }
+}
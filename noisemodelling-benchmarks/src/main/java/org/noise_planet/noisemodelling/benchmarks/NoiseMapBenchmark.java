@@ -0,0 +1,90 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.benchmarks;
+
+import org.h2.Driver;
+import org.h2gis.api.EmptyProgressVisitor;
+import org.h2gis.functions.factory.H2GISFunctions;
+import org.h2gis.utilities.JDBCUtilities;
+import org.noise_planet.noisemodelling.jdbc.NoiseMapByReceiverMaker;
+import org.noise_planet.noisemodelling.jdbc.input.SceneDatabaseInputSettings;
+import org.noise_planet.noisemodelling.propagation.AttenuationParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end noise map of the synthetic scene stored in an in-memory H2GIS database: loading of the cells,
+ * propagation, attenuation and writing of the receiver levels. The score is the time of the whole computation.
+ * @author Nicolas Fortin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NoiseMapBenchmark {
+    static final double RECEIVER_SPACING = 10;
+
+    @Param({"BUILDINGS", "CITY"})
+    public SyntheticScene.Kind kind;
+
+    @Param({"1"})
+    public int reflectionOrder;
+
+    private Connection connection;
+
+    @Setup
+    public void setUp() throws SQLException {
+        Driver.load();
+        // The database is kept until the connection is closed
+        connection = JDBCUtilities.wrapConnection(DriverManager.getConnection("jdbc:h2:mem:"
+                + NoiseMapBenchmark.class.getSimpleName() + kind, "sa", "sa"));
+        H2GISFunctions.load(connection);
+        new SyntheticScene(kind, 4).createTables(connection, new AttenuationParameters(false).getFrequencies(),
+                RECEIVER_SPACING);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public void noiseMap() throws SQLException {
+        NoiseMapByReceiverMaker noiseMapByReceiverMaker = new NoiseMapByReceiverMaker("BUILDINGS", "ROADS",
+                "RECEIVERS");
+        noiseMapByReceiverMaker.setInputMode(SceneDatabaseInputSettings.INPUT_MODE.INPUT_MODE_LW_DEN);
+        noiseMapByReceiverMaker.setHeightField("HEIGHT");
+        if (kind.terrain) {
+            noiseMapByReceiverMaker.setDemTable("DEM");
+        }
+        noiseMapByReceiverMaker.setSoundReflectionOrder(reflectionOrder);
+        noiseMapByReceiverMaker.setMaximumPropagationDistance(500);
+        noiseMapByReceiverMaker.run(connection, new EmptyProgressVisitor());
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.benchmarks;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cut profiles between random street locations of the synthetic scenes. The score is the time of one profile.
+ * @author Nicolas Fortin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProfileBuilderBenchmark {
+    static final int PROFILE_COUNT = 256;
+
+    @Param({"FLAT", "DEM", "BUILDINGS", "CITY"})
+    public SyntheticScene.Kind kind;
+
+    private ProfileBuilder profileBuilder;
+    private List<Coordinate> sources;
+    private List<Coordinate> receivers;
+
+    @Setup
+    public void setUp() {
+        SyntheticScene scene = new SyntheticScene(kind, 10);
+        profileBuilder = scene.makeProfileBuilder();
+        Random random = new Random(SyntheticScene.DEFAULT_SEED);
+        sources = scene.getStreetLocations(PROFILE_COUNT, SyntheticScene.SOURCE_HEIGHT, random);
+        receivers = scene.getStreetLocations(PROFILE_COUNT, SyntheticScene.RECEIVER_HEIGHT, random);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROFILE_COUNT)
+    public void getProfile(Blackhole blackhole) {
+        for (int i = 0; i < PROFILE_COUNT; i++) {
+            blackhole.consume(profileBuilder.getProfile(sources.get(i), receivers.get(i)));
+        }
+    }
+}
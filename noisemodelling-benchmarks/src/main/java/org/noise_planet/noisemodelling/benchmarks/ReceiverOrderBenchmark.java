@@ -0,0 +1,97 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.benchmarks;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.noise_planet.noisemodelling.pathfinder.utils.geometry.HilbertCurve;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Receivers evaluated in the order of the receivers table against the order of the Hilbert curve used by
+ * {@link org.noise_planet.noisemodelling.pathfinder.AdaptiveReceiverScheduler}. The ground altitude is fetched with the
+ * triangle hint shared by consecutive receivers, as done when the receivers heights are converted to altitudes, and
+ * the profiles are cut from each receiver to the sources. The score is the time of one receiver.
+ * @author Nicolas Fortin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiverOrderBenchmark {
+    static final int RECEIVER_COUNT = 4096;
+    static final int SOURCE_COUNT = 4;
+
+    @Param({"DEM", "CITY"})
+    public SyntheticScene.Kind kind;
+
+    @Param({"ORIGINAL", "HILBERT"})
+    public String order;
+
+    private ProfileBuilder profileBuilder;
+    private final List<Coordinate> receivers = new ArrayList<>();
+    private List<Coordinate> sources;
+
+    @Setup
+    public void setUp() {
+        SyntheticScene scene = new SyntheticScene(kind, 10);
+        profileBuilder = scene.makeProfileBuilder();
+        Random random = new Random(SyntheticScene.DEFAULT_SEED);
+        List<Coordinate> tableReceivers = scene.getStreetLocations(RECEIVER_COUNT, SyntheticScene.RECEIVER_HEIGHT,
+                random);
+        sources = scene.getStreetLocations(SOURCE_COUNT, SyntheticScene.SOURCE_HEIGHT, random);
+        if (order.equals("HILBERT")) {
+            for (int index : HilbertCurve.sort(tableReceivers)) {
+                receivers.add(tableReceivers.get(index));
+            }
+        } else {
+            receivers.addAll(tableReceivers);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECEIVER_COUNT)
+    public void getZGround(Blackhole blackhole) {
+        AtomicInteger triangleHint = new AtomicInteger(-1);
+        for (Coordinate receiver : receivers) {
+            blackhole.consume(profileBuilder.getZGround(receiver, triangleHint));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECEIVER_COUNT)
+    public void getProfile(Blackhole blackhole) {
+        for (Coordinate receiver : receivers) {
+            for (Coordinate source : sources) {
+                blackhole.consume(profileBuilder.getProfile(source, receiver));
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.benchmarks;
+
+import org.noise_planet.noisemodelling.jdbc.utils.CompactLongSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set of the processed receivers of a noise map: the primary keys of a receivers table are added cell by cell, in
+ * the order of the spatial queries, and the receivers on the cell borders are looked up again by the next cells.
+ * The score is the time to fill the set. Run with {@code -prof gc}, the normalized allocation rate
+ * (gc.alloc.rate.norm) is the heap used by the set.
+ * @author Nicolas Fortin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+public class ReceiverSetBenchmark {
+    /** Number of receivers of a cell */
+    static final int CELL_SIZE = 50000;
+
+    @Param({"HASH_SET", "COMPACT"})
+    public String setType;
+
+    @Param({"10000000"})
+    public int receiverCount;
+
+    /** Primary keys in the loading order */
+    private long[] primaryKeys;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SyntheticScene.DEFAULT_SEED);
+        primaryKeys = new long[receiverCount];
+        for (int i = 0; i < receiverCount; i++) {
+            primaryKeys[i] = i + 1;
+        }
+        // Shuffle the keys inside each cell, the spatial index does not return them in the primary key order
+        for (int start = 0; start < receiverCount; start += CELL_SIZE) {
+            int end = Math.min(receiverCount, start + CELL_SIZE);
+            for (int i = end - 1; i > start; i--) {
+                int j = start + random.nextInt(i - start + 1);
+                long swap = primaryKeys[i];
+                primaryKeys[i] = primaryKeys[j];
+                primaryKeys[j] = swap;
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<Long> fillSet() {
+        Set<Long> receivers = setType.equals("COMPACT") ? new CompactLongSet() : new HashSet<>();
+        for (int i = 0; i < receiverCount; i++) {
+            receivers.add(primaryKeys[i]);
+            // Border receivers already processed by the previous cell
+            if (i % CELL_SIZE == 0 && i > 0) {
+                receivers.add(primaryKeys[i - 1]);
+            }
+        }
+        return receivers;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.benchmarks;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.noise_planet.noisemodelling.pathfinder.PathFinder;
+import org.noise_planet.noisemodelling.pathfinder.path.Scene;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Left and right lateral diffraction paths around the dense buildings of the synthetic city. The score is the time of
+ * one source-receiver pair.
+ * @author Nicolas Fortin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SideHullBenchmark {
+    static final int PAIR_COUNT = 64;
+
+    private ProfileBuilder profileBuilder;
+    private PathFinder pathFinder;
+    private List<Coordinate> receivers;
+    private List<Coordinate> sources;
+
+    @Setup
+    public void setUp() {
+        SyntheticScene syntheticScene = new SyntheticScene(SyntheticScene.Kind.CITY, 10);
+        profileBuilder = syntheticScene.makeProfileBuilder();
+        pathFinder = new PathFinder(new Scene(profileBuilder));
+        Random random = new Random(SyntheticScene.DEFAULT_SEED);
+        receivers = syntheticScene.getStreetLocations(PAIR_COUNT, SyntheticScene.RECEIVER_HEIGHT, random);
+        sources = syntheticScene.getStreetLocations(PAIR_COUNT, SyntheticScene.SOURCE_HEIGHT, random);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public void sideHull(Blackhole blackhole) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            blackhole.consume(pathFinder.computeSideHull(true, sources.get(i), receivers.get(i), profileBuilder));
+            blackhole.consume(pathFinder.computeSideHull(false, sources.get(i), receivers.get(i), profileBuilder));
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.benchmarks;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKTWriter;
+import org.noise_planet.noisemodelling.pathfinder.OpenSimplex2S;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible synthetic scene: a grid of city blocks split in buildings of random heights, separated by streets
+ * holding the road sources, over a terrain generated with the {@link OpenSimplex2S} noise. The same seed always
+ * produces the same scene, so the benchmark results of two versions can be compared.
+ * @author Nicolas Fortin
+ */
+public class SyntheticScene {
+    /** Kind of scene, the benchmarks are run for each of them */
+    public enum Kind {
+        /** Flat ground without obstacle */
+        FLAT(false, false),
+        /** Terrain without obstacle */
+        DEM(true, false),
+        /** Dense buildings on a flat ground */
+        BUILDINGS(false, true),
+        /** Dense buildings on a terrain */
+        CITY(true, true);
+
+        public final boolean terrain;
+        public final boolean buildings;
+
+        Kind(boolean terrain, boolean buildings) {
+            this.terrain = terrain;
+            this.buildings = buildings;
+        }
+    }
+
+    public static final long DEFAULT_SEED = 42;
+    /** Side of a city block (m) */
+    public static final double BLOCK_SIZE = 80;
+    /** Width of the streets between the blocks (m) */
+    public static final double STREET_WIDTH = 20;
+    /** Number of buildings along each side of a block */
+    public static final int BUILDINGS_PER_BLOCK_SIDE = 3;
+    /** Distance between two DEM points (m) */
+    public static final double DEM_SPACING = 10;
+    /** Maximum elevation difference of the terrain (m) */
+    public static final double TERRAIN_AMPLITUDE = 40;
+    /** Horizontal scale of the terrain undulations (m) */
+    public static final double TERRAIN_SCALE = 600;
+    /** Height of the receivers and of the road sources above the ground (m) */
+    public static final double RECEIVER_HEIGHT = 4;
+    public static final double SOURCE_HEIGHT = 0.05;
+
+    private final GeometryFactory factory = new GeometryFactory();
+    private final Kind kind;
+    private final int blockCount;
+    private final long seed;
+    private final List<Polygon> buildings = new ArrayList<>();
+    private final List<Double> buildingHeights = new ArrayList<>();
+    private final List<LineString> roads = new ArrayList<>();
+
+    /**
+     * @param kind Obstacles and terrain of the scene
+     * @param blockCount Number of city blocks along each axis
+     * @param seed Seed of the random generators
+     */
+    public SyntheticScene(Kind kind, int blockCount, long seed) {
+        this.kind = kind;
+        this.blockCount = blockCount;
+        this.seed = seed;
+        generate();
+    }
+
+    /**
+     * @param kind Obstacles and terrain of the scene
+     * @param blockCount Number of city blocks along each axis
+     */
+    public SyntheticScene(Kind kind, int blockCount) {
+        this(kind, blockCount, DEFAULT_SEED);
+    }
+
+    private void generate() {
+        Random random = new Random(seed);
+        double step = BLOCK_SIZE + STREET_WIDTH;
+        if (kind.buildings) {
+            for (int i = 0; i < blockCount; i++) {
+                for (int j = 0; j < blockCount; j++) {
+                    addBlockBuildings(STREET_WIDTH + i * step, STREET_WIDTH + j * step, random);
+                }
+            }
+        }
+        // One road at the middle of each street
+        double size = getSize();
+        for (int i = 0; i <= blockCount; i++) {
+            double position = STREET_WIDTH / 2 + i * step;
+            roads.add(makeRoad(new Coordinate(position, 0), new Coordinate(position, size)));
+            roads.add(makeRoad(new Coordinate(0, position), new Coordinate(size, position)));
+        }
+    }
+
+    private void addBlockBuildings(double blockX, double blockY, Random random) {
+        double lotSize = BLOCK_SIZE / BUILDINGS_PER_BLOCK_SIDE;
+        for (int lotX = 0; lotX < BUILDINGS_PER_BLOCK_SIDE; lotX++) {
+            for (int lotY = 0; lotY < BUILDINGS_PER_BLOCK_SIDE; lotY++) {
+                // Leave some lots empty, like courtyards and parks
+                if (random.nextDouble() < 0.15) {
+                    continue;
+                }
+                double minX = blockX + lotX * lotSize + random.nextDouble() * 2;
+                double minY = blockY + lotY * lotSize + random.nextDouble() * 2;
+                double maxX = blockX + (lotX + 1) * lotSize - 1 - random.nextDouble() * 4;
+                double maxY = blockY + (lotY + 1) * lotSize - 1 - random.nextDouble() * 4;
+                buildings.add(factory.createPolygon(new Coordinate[]{new Coordinate(minX, minY),
+                        new Coordinate(maxX, minY), new Coordinate(maxX, maxY), new Coordinate(minX, maxY),
+                        new Coordinate(minX, minY)}));
+                buildingHeights.add(6 + random.nextDouble() * 24);
+            }
+        }
+    }
+
+    private LineString makeRoad(Coordinate from, Coordinate to) {
+        // Split the road every 20 meters, the height is relative to the ground
+        int segmentCount = (int) Math.ceil(from.distance(to) / 20);
+        Coordinate[] coordinates = new Coordinate[segmentCount + 1];
+        for (int i = 0; i <= segmentCount; i++) {
+            coordinates[i] = new Coordinate(from.x + (to.x - from.x) * i / segmentCount,
+                    from.y + (to.y - from.y) * i / segmentCount, SOURCE_HEIGHT);
+        }
+        return factory.createLineString(coordinates);
+    }
+
+    /**
+     * @return Side length of the scene (m)
+     */
+    public double getSize() {
+        return STREET_WIDTH + blockCount * (BLOCK_SIZE + STREET_WIDTH);
+    }
+
+    /**
+     * @return Extent of the scene
+     */
+    public Envelope getEnvelope() {
+        return new Envelope(0, getSize(), 0, getSize());
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public List<Polygon> getBuildings() {
+        return buildings;
+    }
+
+    /**
+     * @return Roads, the Z coordinate is the height of the sources above the ground
+     */
+    public List<LineString> getRoads() {
+        return roads;
+    }
+
+    /**
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return Ground elevation at this location, 0 if the scene has no terrain
+     */
+    public double getGroundElevation(double x, double y) {
+        if (!kind.terrain) {
+            return 0;
+        }
+        // Two octaves of noise in [-1, 1]
+        double noise = OpenSimplex2S.noise2(seed, x / TERRAIN_SCALE, y / TERRAIN_SCALE) * 0.75 +
+                OpenSimplex2S.noise2(seed + 1, 4 * x / TERRAIN_SCALE, 4 * y / TERRAIN_SCALE) * 0.25;
+        return (noise + 1) / 2 * TERRAIN_AMPLITUDE;
+    }
+
+    /**
+     * @return Points of the digital elevation model, empty if the scene has no terrain
+     */
+    public List<Coordinate> getTopographicPoints() {
+        List<Coordinate> points = new ArrayList<>();
+        if (!kind.terrain) {
+            return points;
+        }
+        int count = (int) Math.ceil(getSize() / DEM_SPACING);
+        for (int i = 0; i <= count; i++) {
+            for (int j = 0; j <= count; j++) {
+                double x = i * DEM_SPACING;
+                double y = j * DEM_SPACING;
+                points.add(new Coordinate(x, y, getGroundElevation(x, y)));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * @param count Number of locations
+     * @param height Height above the ground (m)
+     * @param random Random generator
+     * @return Locations in the streets
+     */
+    public List<Coordinate> getStreetLocations(int count, double height, Random random) {
+        List<Coordinate> locations = new ArrayList<>(count);
+        double step = BLOCK_SIZE + STREET_WIDTH;
+        for (int i = 0; i < count; i++) {
+            double along = random.nextDouble() * getSize();
+            double across = random.nextInt(blockCount + 1) * step + random.nextDouble() * STREET_WIDTH;
+            double x = i % 2 == 0 ? along : across;
+            double y = i % 2 == 0 ? across : along;
+            locations.add(new Coordinate(x, y, getGroundElevation(x, y) + height));
+        }
+        return locations;
+    }
+
+    /**
+     * @return A finished profile builder holding the buildings and the terrain of the scene
+     */
+    public ProfileBuilder makeProfileBuilder() {
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        for (int i = 0; i < buildings.size(); i++) {
+            profileBuilder.addBuilding(buildings.get(i), buildingHeights.get(i), i + 1);
+        }
+        for (Coordinate point : getTopographicPoints()) {
+            profileBuilder.addTopographicPoint(point);
+        }
+        profileBuilder.finishFeeding();
+        return profileBuilder;
+    }
+
+    /**
+     * Create the tables of the scene: BUILDINGS (THE_GEOM, HEIGHT), DEM (THE_GEOM), ROADS (THE_GEOM and sound power
+     * levels LW[D|E|N][frequency]) and RECEIVERS (THE_GEOM, height relative to the ground)
+     * @param connection Connection to a spatial database
+     * @param frequencies Frequencies of the sound power levels of the roads
+     * @param receiverSpacing Distance between two receivers along the streets
+     * @throws SQLException Sql exception instance
+     */
+    public void createTables(Connection connection, List<Integer> frequencies, double receiverSpacing)
+            throws SQLException {
+        WKTWriter writer = new WKTWriter(3);
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS BUILDINGS, DEM, ROADS, RECEIVERS");
+            st.execute("CREATE TABLE BUILDINGS(PK SERIAL PRIMARY KEY, THE_GEOM GEOMETRY(POLYGON, 2154), HEIGHT REAL)");
+            st.execute("CREATE TABLE DEM(PK SERIAL PRIMARY KEY, THE_GEOM GEOMETRY(POINTZ, 2154))");
+            st.execute("CREATE TABLE RECEIVERS(PK SERIAL PRIMARY KEY, THE_GEOM GEOMETRY(POINTZ, 2154))");
+            StringBuilder roadsTable = new StringBuilder("CREATE TABLE ROADS(PK SERIAL PRIMARY KEY, " +
+                    "THE_GEOM GEOMETRY(LINESTRINGZ, 2154)");
+            for (String period : new String[]{"D", "E", "N"}) {
+                for (int frequency : frequencies) {
+                    roadsTable.append(", LW").append(period).append(frequency).append(" REAL");
+                }
+            }
+            st.execute(roadsTable.append(")").toString());
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO BUILDINGS(THE_GEOM, HEIGHT) VALUES (ST_GEOMFROMTEXT(?, 2154), ?)")) {
+            for (int i = 0; i < buildings.size(); i++) {
+                ps.setString(1, writer.write(buildings.get(i)));
+                ps.setDouble(2, buildingHeights.get(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO DEM(THE_GEOM) VALUES (ST_GEOMFROMTEXT(?, 2154))")) {
+            for (Coordinate point : getTopographicPoints()) {
+                ps.setString(1, writer.write(factory.createPoint(point)));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        StringBuilder insertRoad = new StringBuilder("INSERT INTO ROADS VALUES (DEFAULT, ST_GEOMFROMTEXT(?, 2154)");
+        for (int i = 0; i < 3 * frequencies.size(); i++) {
+            insertRoad.append(", ?");
+        }
+        Random random = new Random(seed);
+        try (PreparedStatement ps = connection.prepareStatement(insertRoad.append(")").toString())) {
+            for (LineString road : roads) {
+                ps.setString(1, writer.write(road));
+                // Traffic noise like spectrum, quieter in the evening and at night
+                double level = 85 + random.nextDouble() * 10;
+                int column = 2;
+                for (double periodOffset : new double[]{0, -3, -8}) {
+                    for (int frequency : frequencies) {
+                        double aWeighting = -10 * Math.log10(1 + Math.pow(1000.0 / frequency, 2));
+                        ps.setDouble(column++, level + periodOffset + aWeighting);
+                    }
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO RECEIVERS(THE_GEOM) VALUES (ST_GEOMFROMTEXT(?, 2154))")) {
+            double step = BLOCK_SIZE + STREET_WIDTH;
+            int countAlongStreet = (int) (getSize() / receiverSpacing);
+            for (int i = 0; i <= blockCount; i++) {
+                // Receivers on the sidewalk, along the facades
+                double position = i * step + 2;
+                for (int j = 0; j <= countAlongStreet; j++) {
+                    double along = j * receiverSpacing;
+                    ps.setString(1, writer.write(factory.createPoint(new Coordinate(position, along,
+                            RECEIVER_HEIGHT))));
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+}
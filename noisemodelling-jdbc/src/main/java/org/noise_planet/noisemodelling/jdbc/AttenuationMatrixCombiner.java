@@ -0,0 +1,450 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc;
+
+import org.h2gis.utilities.JDBCUtilities;
+import org.noise_planet.noisemodelling.jdbc.output.AttenuationMatrixReader;
+import org.noise_planet.noisemodelling.pathfinder.ThreadPool;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicatorsFunctions.dBToW;
+import static org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicatorsFunctions.sumArray;
+import static org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicatorsFunctions.wToDb;
+
+/**
+ * Apply the sound power of the sources of an emission table to an attenuation matrix file computed with
+ * {@link NoiseMapDatabaseParameters#setAttenuationMatrixFile(File)}. The noise level of each receiver is evaluated for
+ * each period of the emission table without running again the propagation.
+ * The receivers are split in chunks evaluated by several threads, the results are given in the receiver order.
+ * The emission of a period is combined with the attenuation computed with the atmospheric settings of the same period
+ * if available, or with the default atmospheric settings.
+ * @author Nicolas Fortin
+ */
+public class AttenuationMatrixCombiner {
+    public static final int DEFAULT_RECEIVERS_PER_TASK = 2000;
+    static final int BATCH_MAX_SIZE = 500;
+
+    private final File attenuationMatrixFile;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private int receiversPerTask = DEFAULT_RECEIVERS_PER_TASK;
+    private String sourceIdField = "IDSOURCE";
+    private String periodField = "PERIOD";
+    private String lwFrequencyPrepend = "LW";
+
+    /**
+     * @param attenuationMatrixFile File written by the noise map computation in attenuation mode
+     */
+    public AttenuationMatrixCombiner(File attenuationMatrixFile) {
+        this.attenuationMatrixFile = attenuationMatrixFile;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @param threadCount Number of threads used to evaluate the receivers levels
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    public int getReceiversPerTask() {
+        return receiversPerTask;
+    }
+
+    /**
+     * @param receiversPerTask Number of receivers evaluated by a thread before giving back the results
+     */
+    public void setReceiversPerTask(int receiversPerTask) {
+        this.receiversPerTask = Math.max(1, receiversPerTask);
+    }
+
+    /**
+     * @param sourceIdField Field of the emission table that contains the source identifier
+     */
+    public void setSourceIdField(String sourceIdField) {
+        this.sourceIdField = sourceIdField;
+    }
+
+    /**
+     * @param periodField Field of the emission table that contains the period
+     */
+    public void setPeriodField(String periodField) {
+        this.periodField = periodField;
+    }
+
+    /**
+     * @param lwFrequencyPrepend Prefix of the sound power fields of the emission table (ex. LW for LW63)
+     */
+    public void setLwFrequencyPrepend(String lwFrequencyPrepend) {
+        this.lwFrequencyPrepend = lwFrequencyPrepend;
+    }
+
+    /**
+     * Read the sound power of the sources
+     * @param connection Database connection
+     * @param emissionTable Table with the source identifier, the period and the sound power in dB for each frequency
+     *                      band of the attenuation matrix
+     * @param frequencies Frequency bands of the attenuation matrix
+     * @return Sound power of the sources for each period
+     * @throws SQLException Error while reading the table or missing frequency band
+     */
+    public Map<String, PeriodEmission> fetchEmission(Connection connection, String emissionTable, int[] frequencies)
+            throws SQLException {
+        List<String> fields = JDBCUtilities.getColumnNames(connection, emissionTable);
+        StringBuilder query = new StringBuilder("SELECT ");
+        query.append(sourceIdField);
+        query.append(", ");
+        query.append(periodField);
+        for (int frequency : frequencies) {
+            String field = lwFrequencyPrepend + frequency;
+            if(fields.stream().noneMatch(f -> f.equalsIgnoreCase(field))) {
+                throw new SQLException(String.format(Locale.ROOT, "Table %s does not contain the field %s",
+                        emissionTable, field));
+            }
+            query.append(", ");
+            query.append(field);
+        }
+        query.append(" FROM ");
+        query.append(emissionTable);
+        Map<String, List<SourceEmission>> rowsPerPeriod = new TreeMap<>();
+        try(Statement st = connection.createStatement();
+            ResultSet rs = st.executeQuery(query.toString())) {
+            while (rs.next()) {
+                double[] wj = new double[frequencies.length];
+                for (int idFrequency = 0; idFrequency < frequencies.length; idFrequency++) {
+                    wj[idFrequency] = dBToW(rs.getDouble(3 + idFrequency));
+                }
+                rowsPerPeriod.computeIfAbsent(rs.getString(2), k -> new ArrayList<>())
+                        .add(new SourceEmission(rs.getLong(1), wj));
+            }
+        }
+        Map<String, PeriodEmission> emission = new TreeMap<>();
+        for (Map.Entry<String, List<SourceEmission>> entry : rowsPerPeriod.entrySet()) {
+            emission.put(entry.getKey(), new PeriodEmission(entry.getValue(), frequencies.length));
+        }
+        return emission;
+    }
+
+    /**
+     * Evaluate the noise level of each receiver and each period of the emission table, then store the levels into a
+     * new table with the same columns as {@link NoiseMapDatabaseParameters#receiversLevelTable}
+     * @param connection Database connection
+     * @param emissionTable Sound power of the sources (source identifier, period, sound power for each frequency band)
+     * @param outputTable Table to create, it is dropped if it already exists
+     * @return Number of rows inserted
+     * @throws SQLException Error while reading or writing tables
+     * @throws IOException Error while reading the attenuation matrix file
+     */
+    public long run(Connection connection, String emissionTable, String outputTable) throws SQLException, IOException {
+        try(AttenuationMatrixReader reader = new AttenuationMatrixReader(attenuationMatrixFile)) {
+            int[] frequencies = reader.getFrequencies();
+            Map<String, PeriodEmission> emission = fetchEmission(connection, emissionTable, frequencies);
+            List<Integer> frequencyList = new ArrayList<>(frequencies.length);
+            for (int frequency : frequencies) {
+                frequencyList.add(frequency);
+            }
+            List<Double> exactFrequencies = new ArrayList<>();
+            List<Double> aWeighting = new ArrayList<>();
+            ProfileBuilder.initializeFrequencyArrayFromReference(frequencyList, exactFrequencies, aWeighting);
+            double[] aWeightingArray = aWeighting.stream().mapToDouble(Double::doubleValue).toArray();
+            try(Statement st = connection.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS " + outputTable);
+                StringBuilder sb = new StringBuilder("CREATE TABLE ");
+                sb.append(outputTable);
+                sb.append("(IDRECEIVER bigint NOT NULL, PERIOD VARCHAR NOT NULL");
+                for (int frequency : frequencies) {
+                    sb.append(", ");
+                    sb.append(lwFrequencyPrepend);
+                    sb.append(frequency);
+                    sb.append(" REAL");
+                }
+                sb.append(", LAEQ REAL, LEQ REAL)");
+                st.execute(sb.toString());
+            }
+            String insert = "INSERT INTO " + outputTable + " VALUES (?, ?" +
+                    ", ?".repeat(frequencies.length) + ", ?, ?)";
+            long[] rowCount = new long[] {0};
+            try(PreparedStatement ps = connection.prepareStatement(insert)) {
+                int[] batchSize = new int[] {0};
+                combine(reader, emission, (receiverPk, period, levels) -> {
+                    int parameterIndex = 1;
+                    ps.setLong(parameterIndex++, receiverPk);
+                    ps.setString(parameterIndex++, period);
+                    for (double level : levels) {
+                        ps.setDouble(parameterIndex++, level);
+                    }
+                    ps.setDouble(parameterIndex++, wToDb(sumArray(dBToW(sumArray(levels, aWeightingArray)))));
+                    ps.setDouble(parameterIndex, wToDb(sumArray(dBToW(levels))));
+                    ps.addBatch();
+                    rowCount[0]++;
+                    if(++batchSize[0] >= BATCH_MAX_SIZE) {
+                        ps.executeBatch();
+                        batchSize[0] = 0;
+                    }
+                });
+                if(batchSize[0] > 0) {
+                    ps.executeBatch();
+                }
+            }
+            try(Statement st = connection.createStatement()) {
+                st.execute("ALTER TABLE " + outputTable + " ADD PRIMARY KEY(IDRECEIVER, PERIOD)");
+            }
+            return rowCount[0];
+        }
+    }
+
+    /**
+     * Evaluate the noise level of each receiver and each period
+     * @param reader Attenuation matrix
+     * @param emission Sound power of the sources for each period
+     * @param visitor Receive the noise levels, it is called by the calling thread in the receiver order
+     * @throws SQLException Error raised by the visitor
+     * @throws IOException Error while reading the attenuation matrix file
+     */
+    public void combine(AttenuationMatrixReader reader, Map<String, PeriodEmission> emission,
+                        ReceiverLevelVisitor visitor) throws SQLException, IOException {
+        // Blocks of a receiver are contiguous as the index is sorted by receiver
+        int blockCount = reader.getBlockCount();
+        List<int[]> tasksRange = new ArrayList<>();
+        int taskStart = 0;
+        int receiversInTask = 0;
+        for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
+            if(blockIndex == 0 || reader.getReceiverPk(blockIndex) != reader.getReceiverPk(blockIndex - 1)) {
+                if(receiversInTask == receiversPerTask) {
+                    tasksRange.add(new int[] {taskStart, blockIndex});
+                    taskStart = blockIndex;
+                    receiversInTask = 0;
+                }
+                receiversInTask++;
+            }
+        }
+        if(taskStart < blockCount) {
+            tasksRange.add(new int[] {taskStart, blockCount});
+        }
+        ThreadPool threadPool = new ThreadPool(threadCount, threadCount + 1, Long.MAX_VALUE, TimeUnit.SECONDS);
+        // Keep a limited number of pending results in order to limit the memory usage
+        Deque<Future<List<ReceiverLevel>>> pendingTasks = new ArrayDeque<>();
+        int maximumPendingTasks = threadCount * 2;
+        try {
+            for (int[] taskRange : tasksRange) {
+                if (pendingTasks.size() >= maximumPendingTasks) {
+                    visit(pendingTasks.poll(), visitor);
+                }
+                pendingTasks.add(threadPool.submit(new CombineTask(reader, emission, taskRange[0], taskRange[1])));
+            }
+            while (!pendingTasks.isEmpty()) {
+                visit(pendingTasks.poll(), visitor);
+            }
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private static void visit(Future<List<ReceiverLevel>> task, ReceiverLevelVisitor visitor)
+            throws SQLException, IOException {
+        List<ReceiverLevel> levels;
+        try {
+            levels = task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            if(ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+        for (ReceiverLevel level : levels) {
+            visitor.onReceiverLevel(level.receiverPk, level.period, level.levels);
+        }
+    }
+
+    /**
+     * Evaluate the noise levels of a range of blocks
+     */
+    private static class CombineTask implements Callable<List<ReceiverLevel>> {
+        private final AttenuationMatrixReader reader;
+        private final Map<String, PeriodEmission> emission;
+        private final int startBlock;
+        private final int endBlock;
+
+        CombineTask(AttenuationMatrixReader reader, Map<String, PeriodEmission> emission, int startBlock,
+                    int endBlock) {
+            this.reader = reader;
+            this.emission = emission;
+            this.startBlock = startBlock;
+            this.endBlock = endBlock;
+        }
+
+        @Override
+        public List<ReceiverLevel> call() throws IOException {
+            List<ReceiverLevel> results = new ArrayList<>();
+            List<String> periods = reader.getPeriods();
+            int defaultPeriodIndex = periods.indexOf("");
+            int frequencyCount = reader.getFrequencies().length;
+            AttenuationMatrixReader.Block[] blocks = new AttenuationMatrixReader.Block[periods.size()];
+            double[][] attenuationW = new double[periods.size()][];
+            boolean[] hasPeriod = new boolean[periods.size()];
+            int blockIndex = startBlock;
+            while (blockIndex < endBlock) {
+                long receiverPk = reader.getReceiverPk(blockIndex);
+                Arrays.fill(hasPeriod, false);
+                // read all the periods of this receiver
+                while (blockIndex < endBlock && reader.getReceiverPk(blockIndex) == receiverPk) {
+                    int periodIndex = reader.getPeriodIndex(blockIndex);
+                    if(blocks[periodIndex] == null) {
+                        blocks[periodIndex] = new AttenuationMatrixReader.Block();
+                    }
+                    AttenuationMatrixReader.Block block = blocks[periodIndex];
+                    reader.readBlock(blockIndex, block);
+                    int valueCount = block.sourceCount * frequencyCount;
+                    if(attenuationW[periodIndex] == null || attenuationW[periodIndex].length < valueCount) {
+                        attenuationW[periodIndex] = new double[valueCount];
+                    }
+                    for (int i = 0; i < valueCount; i++) {
+                        attenuationW[periodIndex][i] = dBToW(block.attenuation[i]);
+                    }
+                    hasPeriod[periodIndex] = true;
+                    blockIndex++;
+                }
+                for (Map.Entry<String, PeriodEmission> entry : emission.entrySet()) {
+                    int periodIndex = periods.indexOf(entry.getKey());
+                    if(periodIndex < 0 || !hasPeriod[periodIndex]) {
+                        periodIndex = defaultPeriodIndex;
+                    }
+                    if(periodIndex < 0 || !hasPeriod[periodIndex]) {
+                        continue;
+                    }
+                    double[] levels = entry.getValue().apply(blocks[periodIndex], attenuationW[periodIndex],
+                            frequencyCount);
+                    if(levels != null) {
+                        results.add(new ReceiverLevel(receiverPk, entry.getKey(), levels));
+                    }
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Noise level of a receiver for a period
+     */
+    private static class ReceiverLevel {
+        final long receiverPk;
+        final String period;
+        final double[] levels;
+
+        ReceiverLevel(long receiverPk, String period, double[] levels) {
+            this.receiverPk = receiverPk;
+            this.period = period;
+            this.levels = levels;
+        }
+    }
+
+    private static class SourceEmission {
+        final long sourcePk;
+        final double[] wj;
+
+        SourceEmission(long sourcePk, double[] wj) {
+            this.sourcePk = sourcePk;
+            this.wj = wj;
+        }
+    }
+
+    /**
+     * Sound power of all the sources for one period, sorted by source identifier
+     */
+    public static class PeriodEmission {
+        final long[] sourcePk;
+        /** Sound power in W, {@code wj[idSource * frequencyCount + idFrequency]} */
+        final double[] wj;
+
+        PeriodEmission(List<SourceEmission> sources, int frequencyCount) {
+            sources.sort((a, b) -> Long.compare(a.sourcePk, b.sourcePk));
+            sourcePk = new long[sources.size()];
+            wj = new double[sources.size() * frequencyCount];
+            for (int idSource = 0; idSource < sources.size(); idSource++) {
+                SourceEmission source = sources.get(idSource);
+                sourcePk[idSource] = source.sourcePk;
+                System.arraycopy(source.wj, 0, wj, idSource * frequencyCount, frequencyCount);
+            }
+        }
+
+        /**
+         * @return Number of sources with a sound power for this period
+         */
+        public int getSourceCount() {
+            return sourcePk.length;
+        }
+
+        /**
+         * @return Noise level in dB at the receiver or null if there is no emission for the sources of the block
+         */
+        double[] apply(AttenuationMatrixReader.Block block, double[] attenuationW, int frequencyCount) {
+            double[] levels = null;
+            for (int idSource = 0; idSource < block.sourceCount; idSource++) {
+                int emissionIndex = Arrays.binarySearch(sourcePk, block.sourcePk[idSource]);
+                if(emissionIndex < 0) {
+                    continue;
+                }
+                if(levels == null) {
+                    levels = new double[frequencyCount];
+                }
+                int offset = emissionIndex * frequencyCount;
+                for (int idFrequency = 0; idFrequency < frequencyCount; idFrequency++) {
+                    levels[idFrequency] += wj[offset + idFrequency] *
+                            attenuationW[idFrequency * block.sourceCount + idSource];
+                }
+            }
+            if(levels != null) {
+                for (int idFrequency = 0; idFrequency < frequencyCount; idFrequency++) {
+                    levels[idFrequency] = wToDb(levels[idFrequency]);
+                }
+            }
+            return levels;
+        }
+    }
+
+    /**
+     * Receive the noise levels computed by the combiner
+     */
+    @FunctionalInterface
+    public interface ReceiverLevelVisitor {
+        /**
+         * @param receiverPk Receiver identifier
+         * @param period Period of the emission
+         * @param levels Noise level in dB for each frequency band
+         * @throws SQLException Error while storing the level
+         */
+        void onReceiverLevel(long receiverPk, String period, double[] levels) throws SQLException;
+    }
+}
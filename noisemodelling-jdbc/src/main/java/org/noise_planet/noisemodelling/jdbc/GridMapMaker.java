@@ -17,6 +17,7 @@ import org.h2gis.utilities.dbtypes.DBUtils;
 import org.locationtech.jts.geom.*;
 import org.noise_planet.noisemodelling.jdbc.input.DefaultTableLoader;
 import org.noise_planet.noisemodelling.jdbc.utils.CellIndex;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ElevationGrid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +38,10 @@ public abstract class GridMapMaker {
     protected String soilTableName = "";
     // Digital elevation model table. (Contains points or triangles)
     protected String demTable = "";
+    // Digital elevation model as a regular grid, used in place of the DEM table
+    protected ElevationGrid demGrid = null;
+    // Vertical tolerance in meters of the DEM points simplification, 0 to keep all points
+    protected double demDecimationTolerance = 0;
     protected String sound_lvl_field = "DB_M";
     // True if Z of sound source and receivers are relative to the ground
     protected boolean receiverHasAbsoluteZCoordinates = false;
@@ -47,6 +52,10 @@ public abstract class GridMapMaker {
     // Soil areas are split by the provided size in order to reduce the propagation time
     protected double groundSurfaceSplitSideLength = 200;
     protected int soundReflectionOrder = 2;
+    // Maximum number of profile legs cached for each receiver, 0 to disable the cache
+    protected int profileCacheSize = 0;
+    // Maximum level difference (dB) of the equivalent sources of the far source clusters, 0 to disable
+    protected double sourceAggregationTolerance = 0;
 
     protected boolean bodyBarrier = false; // it needs to be true if train propagation is computed (multiple reflection between the train and a screen)
     public boolean verbose = true;
@@ -89,8 +98,24 @@ public abstract class GridMapMaker {
      * @return Envelope of the cell
      */
     public Envelope getCellEnv(CellIndex cellIndex) {
-        return  getCellEnv(mainEnvelope, cellIndex.getLatitudeIndex(),
-                cellIndex.getLongitudeIndex(), getCellWidth(), getCellHeight());
+        int cellGridDim = getCellGridDim();
+        double cellWidth = mainEnvelope.getWidth() / cellGridDim;
+        double cellHeight = mainEnvelope.getHeight() / cellGridDim;
+        Envelope cellEnvelope = getCellEnv(mainEnvelope, cellIndex.getLatitudeIndex(),
+                cellIndex.getLongitudeIndex(), cellWidth, cellHeight);
+        if(cellIndex.getSize() > 1) {
+            cellEnvelope = new Envelope(cellEnvelope.getMinX(), cellEnvelope.getMinX() + cellWidth * cellIndex.getSize(),
+                    cellEnvelope.getMinY(), cellEnvelope.getMinY() + cellHeight * cellIndex.getSize());
+        }
+        return cellEnvelope;
+    }
+
+    /**
+     * @return Side count of the grid of the {@link CellIndex} (same on X and Y), {@link #getGridDim()} if the
+     * computation cells are not subdivided
+     */
+    public int getCellGridDim() {
+        return gridDim;
     }
     /**
      * Compute the envelope corresping to parameters
@@ -293,6 +318,39 @@ public abstract class GridMapMaker {
         this.demTable = demTable;
     }
 
+    /**
+     * @return Digital elevation model as a regular grid or null if not set
+     */
+    public ElevationGrid getDemGrid() {
+        return demGrid;
+    }
+
+    /**
+     * Digital elevation model as a regular grid. If set the grid is used in place of the DEM table, the grid is
+     * shared by all the computation cells and is not triangulated.
+     * @see org.noise_planet.noisemodelling.jdbc.utils.AscReaderDriver#readGrid(java.io.File)
+     * @param demGrid Elevation grid or null to use the DEM table
+     */
+    public void setDemGrid(ElevationGrid demGrid) {
+        this.demGrid = demGrid;
+    }
+
+    /**
+     * @return Vertical tolerance in meters of the DEM points simplification, 0 if disabled
+     */
+    public double getDemDecimationTolerance() {
+        return demDecimationTolerance;
+    }
+
+    /**
+     * Remove the DEM points that are within this vertical tolerance of the triangulation of the other points.
+     * @see org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder#setTopographicTolerance(double)
+     * @param demDecimationTolerance Maximum vertical error in meters, 0 to keep all the DEM points
+     */
+    public void setDemDecimationTolerance(double demDecimationTolerance) {
+        this.demDecimationTolerance = demDecimationTolerance;
+    }
+
     /**
      * Field name of the {@link #sourcesTableName}HERTZ. Where HERTZ is a number [100-5000].
      * Without the hertz value.
@@ -370,6 +428,40 @@ public abstract class GridMapMaker {
         this.soundReflectionOrder = soundReflectionOrder;
     }
 
+    /**
+     * @return Maximum number of profile legs cached for each receiver, 0 if the cache is disabled
+     */
+    public int getProfileCacheSize() {
+        return profileCacheSize;
+    }
+
+    /**
+     * The profiles between reflection points and the receiver, and between the lateral diffraction points, are
+     * shared by many sources. Cache these profiles for each receiver.
+     * @see org.noise_planet.noisemodelling.pathfinder.CutProfileCache
+     * @param profileCacheSize Maximum number of profile legs cached for each receiver, 0 to disable the cache
+     */
+    public void setProfileCacheSize(int profileCacheSize) {
+        this.profileCacheSize = profileCacheSize;
+    }
+
+    /**
+     * @return Maximum level difference (dB) of the equivalent sources of the far source clusters, 0 if disabled
+     */
+    public double getSourceAggregationTolerance() {
+        return sourceAggregationTolerance;
+    }
+
+    /**
+     * Propagate the clusters of far sources as a single equivalent source when the level difference due to the
+     * geometric divergence is below the tolerance.
+     * @see org.noise_planet.noisemodelling.pathfinder.SourceAggregation
+     * @param sourceAggregationTolerance Maximum level difference in dB, 0 to propagate every source
+     */
+    public void setSourceAggregationTolerance(double sourceAggregationTolerance) {
+        this.sourceAggregationTolerance = sourceAggregationTolerance;
+    }
+
     /**
      * @return True if diffraction rays will be computed on vertical edges (around buildings)
      */
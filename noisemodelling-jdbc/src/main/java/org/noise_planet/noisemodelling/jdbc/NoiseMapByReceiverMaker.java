@@ -23,9 +23,14 @@ import org.noise_planet.noisemodelling.jdbc.input.DefaultTableLoader;
 import org.noise_planet.noisemodelling.jdbc.input.SceneDatabaseInputSettings;
 import org.noise_planet.noisemodelling.jdbc.input.SceneWithEmission;
 import org.noise_planet.noisemodelling.jdbc.output.DefaultCutPlaneProcessing;
+import org.noise_planet.noisemodelling.jdbc.output.ResultsCache;
+import org.noise_planet.noisemodelling.jdbc.utils.AdaptiveCellGrid;
 import org.noise_planet.noisemodelling.jdbc.utils.CellIndex;
+import org.noise_planet.noisemodelling.jdbc.utils.CompactLongSet;
 import org.noise_planet.noisemodelling.pathfinder.CutPlaneVisitorFactory;
 import org.noise_planet.noisemodelling.pathfinder.PathFinder;
+import org.noise_planet.noisemodelling.pathfinder.ReceiverScheduler;
+import org.noise_planet.noisemodelling.pathfinder.ThreadPool;
 import org.noise_planet.noisemodelling.pathfinder.utils.profiler.ProfilerThread;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,8 +39,11 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 /**
  * Compute noise propagation at specified receiver points.
@@ -53,6 +61,20 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
     private Logger logger = LoggerFactory.getLogger(NoiseMapByReceiverMaker.class);
     private int threadCount = 0;
     private ProfilerThread profilerThread;
+    private ReceiverScheduler receiverScheduler = null;
+    /** Number of cells loaded in advance while the current cell is evaluated, 0 to disable */
+    private int cellPrefetchDepth = 0;
+    /** Used heap in bytes over which the loading of more than one cell in advance is suspended */
+    private long cellPrefetchMaximumHeap = 0;
+    private Connection prefetchConnection = null;
+    /** Progress journal of the running computation */
+    private RunJournal runJournal = null;
+    /** Maximum number of quadtree subdivisions of the computation cells, 0 for the regular grid */
+    private int cellSubdivisionDepth = 0;
+    private double maximumCellCost = 0;
+    private long maximumCellGeometries = 0;
+    /** Estimated and measured cost of the cells of the adaptive grid */
+    private final Map<CellIndex, AdaptiveCellGrid.CellCost> cellCosts = new HashMap<>();
 
     SceneDatabaseInputSettings sceneDatabaseInputSettings = new SceneDatabaseInputSettings();
 
@@ -175,6 +197,21 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
         return tableLoader;
     }
 
+    /**
+     * @return Dispatcher of receivers to the computation threads, null to use the default scheduler of PathFinder
+     */
+    public ReceiverScheduler getReceiverScheduler() {
+        return receiverScheduler;
+    }
+
+    /**
+     * @param receiverScheduler Dispatcher of receivers to the computation threads, null to use the default scheduler
+     *                          of PathFinder
+     */
+    public void setReceiverScheduler(ReceiverScheduler receiverScheduler) {
+        this.receiverScheduler = receiverScheduler;
+    }
+
     public int getThreadCount() {
         return threadCount;
     }
@@ -197,10 +234,11 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
         Envelope cellEnvelope = getCellEnv(cellIndex);
 
         if(verbose) {
-            int ij = cellIndex.getLatitudeIndex() * gridDim + cellIndex.getLongitudeIndex() + 1;
+            int cellGridDim = getCellGridDim();
+            int ij = cellIndex.getLatitudeIndex() * cellGridDim + cellIndex.getLongitudeIndex() + 1;
             WKTWriter roundWKTWriter = new WKTWriter();
             roundWKTWriter.setPrecisionModel(new PrecisionModel(1.0));
-            logger.info("Begin processing of cell {}/{} Compute domain is:\n {}", ij, gridDim * gridDim,
+            logger.info("Begin processing of cell {}/{} Compute domain is:\n {}", ij, cellGridDim * cellGridDim,
                     roundWKTWriter.write(geometryFactory.toGeometry(cellEnvelope)));
         }
 
@@ -222,7 +260,8 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
     }
 
     /**
-     * Fetch all receivers and compute cells that contains receivers
+     * Fetch all receivers and compute cells that contains receivers.
+     * If {@link #getCellSubdivisionDepth()} is greater than 0 the cells are split according to their estimated cost.
      * @param connection
      * @return Cell index with number of receivers
      * @throws SQLException
@@ -231,6 +270,10 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
         if(mainEnvelope == null) {
             throw new IllegalStateException("Call initialize before calling searchPopulatedCells");
         }
+        cellCosts.clear();
+        if(cellSubdivisionDepth > 0) {
+            return searchAdaptiveCells(connection);
+        }
         Map<CellIndex, Integer> cellIndices = new HashMap<>();
         List<String> geometryFields = GeometryTableUtilities.getGeometryColumnNames(connection, TableLocation.parse(receiverTableName));
         String geometryField;
@@ -269,16 +312,72 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
     }
 
     /**
-     * Launch sound propagation
+     * Feed the adaptive grid with the location of the geometries of a table
+     * @param connection JDBC Connection
+     * @param tableName Table name
+     * @param consumer Called with the center of the envelope of each geometry, a long road is counted at a single
+     *                 location
+     * @throws SQLException Sql exception instance
+     */
+    private void countGeometries(Connection connection, String tableName,
+                                 LocationConsumer consumer) throws SQLException {
+        List<String> geometryFields = GeometryTableUtilities.getGeometryColumnNames(connection,
+                TableLocation.parse(tableName));
+        if(geometryFields.isEmpty()) {
+            throw new SQLException("The table " + tableName + " does not contain a Geometry field");
+        }
+        try (Statement st = connection.createStatement();
+             SpatialResultSet srs = st.executeQuery("SELECT " + geometryFields.get(0) + " FROM " + tableName)
+                     .unwrap(SpatialResultSet.class)) {
+            while (srs.next()) {
+                Geometry geometry = srs.getGeometry();
+                if(geometry != null && !geometry.isEmpty()) {
+                    Envelope envelope = geometry.getEnvelopeInternal();
+                    consumer.accept((envelope.getMinX() + envelope.getMaxX()) / 2,
+                            (envelope.getMinY() + envelope.getMaxY()) / 2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Count the receivers, sources and buildings on the fine grid, then split the cells of the regular grid
+     * according to their estimated cost
+     * @param connection JDBC Connection
+     * @return Cell index with number of receivers
+     * @throws SQLException Sql exception instance
+     */
+    private Map<CellIndex, Integer> searchAdaptiveCells(Connection connection) throws SQLException {
+        AdaptiveCellGrid adaptiveCellGrid = new AdaptiveCellGrid(mainEnvelope, gridDim, cellSubdivisionDepth);
+        logger.info("Collect all receivers, sources and buildings in order to estimate the cost of the cells");
+        countGeometries(connection, receiverTableName, adaptiveCellGrid::addReceiver);
+        if(!sourcesTableName.isEmpty()) {
+            countGeometries(connection, sourcesTableName, adaptiveCellGrid::addSource);
+        }
+        if(!getBuildingsTableName().isEmpty()) {
+            countGeometries(connection, getBuildingsTableName(), adaptiveCellGrid::addBuilding);
+        }
+        Map<CellIndex, Integer> cellIndices = new HashMap<>();
+        for (AdaptiveCellGrid.CellCost cellCost : adaptiveCellGrid.decompose(maximumPropagationDistance,
+                maximumPropagationDistance + 2 * maximumReflectionDistance, maximumCellCost,
+                maximumCellGeometries)) {
+            cellCosts.put(cellCost.getCellIndex(), cellCost);
+            cellIndices.put(cellCost.getCellIndex(), (int) cellCost.getReceiverCount());
+        }
+        logger.info("The computation area is split into {} cells", cellIndices.size());
+        return cellIndices;
+    }
+
+    /**
+     * Fetch the cell data from the database and prepare the scene for the computation of the sound propagation
      * @param connection JDBC Connection
      * @param cellIndex Computation area index
-     * @param progression Progression info
      * @param skipReceivers Do not process the receivers primary keys in this set and once included add the new receivers primary in it
-     * @return Output data instance for this cell
+     * @return Scene ready to be evaluated by {@link #evaluateCell(SceneWithEmission, ProgressVisitor)}
      * @throws SQLException Sql exception instance
      */
-    public CutPlaneVisitorFactory evaluateCell(Connection connection, CellIndex cellIndex,
-                                        ProgressVisitor progression, Set<Long> skipReceivers) throws SQLException, IOException {
+    public SceneWithEmission loadCell(Connection connection, CellIndex cellIndex, Set<Long> skipReceivers)
+            throws SQLException, IOException {
         SceneWithEmission scene = prepareCell(connection, cellIndex, skipReceivers);
 
         if(verbose) {
@@ -287,6 +386,37 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
                     scene.profileBuilder.getBuildingCount()));
         }
 
+        if(!receiverHasAbsoluteZCoordinates) {
+            PathFinder.makeReceiverRelativeZToAbsolute(scene);
+        }
+
+        if(!sourceHasAbsoluteZCoordinates) {
+            PathFinder.makeSourceRelativeZToAbsolute(scene);
+        }
+        return scene;
+    }
+
+    /**
+     * Launch sound propagation
+     * @param connection JDBC Connection
+     * @param cellIndex Computation area index
+     * @param progression Progression info
+     * @param skipReceivers Do not process the receivers primary keys in this set and once included add the new receivers primary in it
+     * @return Output data instance for this cell
+     * @throws SQLException Sql exception instance
+     */
+    public CutPlaneVisitorFactory evaluateCell(Connection connection, CellIndex cellIndex,
+                                        ProgressVisitor progression, Set<Long> skipReceivers) throws SQLException, IOException {
+        return evaluateCell(loadCell(connection, cellIndex, skipReceivers), progression);
+    }
+
+    /**
+     * Launch sound propagation on a scene built by {@link #loadCell(Connection, CellIndex, Set)}
+     * @param scene Cell data
+     * @param progression Progression info
+     * @return Output data instance for this cell
+     */
+    public CutPlaneVisitorFactory evaluateCell(SceneWithEmission scene, ProgressVisitor progression) {
         CutPlaneVisitorFactory computeRaysOut = computeRaysOutFactory.create(scene);
 
         PathFinder computeRays = new PathFinder(scene, progression);
@@ -299,16 +429,20 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
             computeRays.setThreadCount(threadCount);
         }
 
-        if(!receiverHasAbsoluteZCoordinates) {
-            computeRays.makeReceiverRelativeZToAbsolute();
-        }
-
-        if(!sourceHasAbsoluteZCoordinates) {
-            computeRays.makeSourceRelativeZToAbsolute();
+        if(receiverScheduler != null) {
+            computeRays.setReceiverScheduler(receiverScheduler);
         }
 
         computeRays.run(computeRaysOut);
 
+        if(scene.mirrorReceiversStore != null) {
+            try {
+                scene.mirrorReceiversStore.save();
+            } catch (IOException ex) {
+                logger.warn("Unable to save the image receivers of the computation area", ex);
+            }
+        }
+
         return computeRaysOut;
     }
 
@@ -333,30 +467,394 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
     }
 
     /**
-     * Run NoiseModelling with provided parameters, return when computation is done
+     * Run NoiseModelling with provided parameters, return when computation is done.
+     * If {@link NoiseMapDatabaseParameters#runJournalFile} is set, the cells already stored by a previous run using
+     * the same journal are skipped.
      */
     public void run(Connection connection, ProgressVisitor progressLogger) throws SQLException {
         initialize(connection, progressLogger);
 
-        // Set of already processed receivers
-        Set<Long> receivers = new HashSet<>();
+        // Set of already processed receivers, the primary keys are mostly consecutive so they are stored in a bitmap
+        CompactLongSet receivers = new CompactLongSet();
 
         // Fetch cell identifiers with receivers
         Map<CellIndex, Integer> cells = searchPopulatedCells(connection);
-        ProgressVisitor progressVisitor = progressLogger.subProcess(cells.size());
 
+        if(noiseMapDatabaseParameters.runJournalFile != null) {
+            if(noiseMapDatabaseParameters.receiversLevelFile != null ||
+                    noiseMapDatabaseParameters.attenuationMatrixFile != null) {
+                throw new SQLException("The run journal requires the results to be written into the tables");
+            }
+            try {
+                runJournal = RunJournal.open(noiseMapDatabaseParameters.runJournalFile, getCellGridDim(),
+                        mainEnvelope);
+            } catch (IOException ex) {
+                throw new SQLException(ex);
+            }
+        }
         try {
+            if(runJournal != null) {
+                if(runJournal.isDone()) {
+                    logger.info("The run journal {} tells that the computation is already done",
+                            noiseMapDatabaseParameters.runJournalFile);
+                    return;
+                }
+                if(runJournal.isResumed()) {
+                    cells.keySet().removeIf(runJournal::isCommitted);
+                    runJournal.addCommittedReceivers(receivers);
+                    logger.info("Resume the computation, {} cells remaining", cells.size());
+                }
+            }
+            ProgressVisitor progressVisitor = progressLogger.subProcess(cells.size());
             computeRaysOutFactory.start(progressVisitor);
-            for (CellIndex cellIndex : new TreeSet<>(cells.keySet())) {
-                // Run ray propagation
+            boolean stored = false;
+            try {
+                if(cellPrefetchDepth > 0) {
+                    runWithPrefetch(connection, new ArrayList<>(new TreeSet<>(cells.keySet())), progressVisitor,
+                            receivers);
+                } else {
+                    for (CellIndex cellIndex : new TreeSet<>(cells.keySet())) {
+                        // Run ray propagation
+                        try {
+                            processCell(cellIndex, loadCell(connection, cellIndex, receivers), progressVisitor);
+                        } catch (IOException ex) {
+                            throw new SQLException(ex);
+                        }
+                    }
+                }
+                stored = true;
+            } finally {
+                computeRaysOutFactory.stop();
+            }
+            if(stored && runJournal != null && !aborted.get() && !progressVisitor.isCanceled()) {
+                runJournal.finish();
+            }
+            if(verbose) {
+                logCellCosts();
+            }
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        } finally {
+            if(runJournal != null) {
                 try {
-                    evaluateCell(connection, cellIndex, progressVisitor, receivers);
+                    runJournal.close();
                 } catch (IOException ex) {
-                    throw new SQLException(ex);
+                    logger.warn("Unable to close the run journal", ex);
                 }
+                runJournal = null;
             }
+        }
+    }
+
+    /**
+     * Evaluate a loaded cell, measure its computation time and register it in the run journal
+     * @param cellIndex Cell index
+     * @param scene Cell data
+     * @param progressVisitor Progression info
+     * @throws IOException Unable to write the journal
+     */
+    private void processCell(CellIndex cellIndex, SceneWithEmission scene, ProgressVisitor progressVisitor)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        evaluateCell(scene, progressVisitor);
+        AdaptiveCellGrid.CellCost cellCost = cellCosts.get(cellIndex);
+        if(cellCost != null) {
+            cellCost.setComputationTime(System.currentTimeMillis() - start);
+        }
+        journalCell(cellIndex, scene);
+    }
+
+    /**
+     * Log the estimated and the measured share of the computation of each cell of the adaptive grid
+     */
+    private void logCellCosts() {
+        double totalCost = 0;
+        long totalTime = 0;
+        for (AdaptiveCellGrid.CellCost cellCost : cellCosts.values()) {
+            if(cellCost.getComputationTime() >= 0) {
+                totalCost += cellCost.getEstimatedCost();
+                totalTime += cellCost.getComputationTime();
+            }
+        }
+        if(totalCost <= 0 || totalTime <= 0) {
+            return;
+        }
+        for (CellIndex cellIndex : new TreeSet<>(cellCosts.keySet())) {
+            AdaptiveCellGrid.CellCost cellCost = cellCosts.get(cellIndex);
+            if(cellCost.getComputationTime() >= 0) {
+                logger.info(String.format(Locale.ROOT, "%s %d receivers %d sources %d buildings estimated cost " +
+                                "%.1f %% computation time %.1f %% (%d ms)", cellIndex, cellCost.getReceiverCount(),
+                        cellCost.getSourceCount(), cellCost.getBuildingCount(),
+                        cellCost.getEstimatedCost() / totalCost * 100,
+                        cellCost.getComputationTime() * 100.0 / totalTime, cellCost.getComputationTime()));
+            }
+        }
+    }
+
+    /**
+     * Register an evaluated cell in the run journal, and commit the cells whose results are stored
+     * @param cellIndex Cell index
+     * @param scene Evaluated scene
+     * @throws IOException Unable to write the journal
+     */
+    private void journalCell(CellIndex cellIndex, SceneWithEmission scene) throws IOException {
+        if(runJournal != null) {
+            runJournal.addCell(cellIndex, scene.receiversPk, computeRaysOutFactory.getResultsStoredCondition());
+            runJournal.commit();
+        }
+    }
+
+    /**
+     * @return Progress journal of the running computation, null if the computation is not running or if there is
+     * no journal
+     */
+    public RunJournal getRunJournal() {
+        return runJournal;
+    }
+
+    /**
+     * Evaluate the cells while the next cells are loaded from the database by another thread
+     * @param connection JDBC Connection, used to load the cells if no prefetch connection has been provided
+     * @param cellIndices Cells to evaluate, in this order
+     * @param progressVisitor Progression info
+     * @param skipReceivers Set of already processed receivers, only accessed by the loading thread
+     * @throws SQLException Sql exception instance
+     */
+    private void runWithPrefetch(Connection connection, List<CellIndex> cellIndices, ProgressVisitor progressVisitor,
+                                 Set<Long> skipReceivers) throws SQLException {
+        final Connection loadConnection = prefetchConnection != null ? prefetchConnection : connection;
+        // The loading thread keep at most cellPrefetchDepth scenes ready (including the one being loaded)
+        final BlockingQueue<PreparedCell> preparedCells = cellPrefetchDepth > 1 ?
+                new ArrayBlockingQueue<>(cellPrefetchDepth - 1) : new SynchronousQueue<>();
+        // Set when the cells are not consumed anymore, so the loading thread does not wait for free space
+        final AtomicBoolean computationStopped = new AtomicBoolean(false);
+        ThreadPool loaderThreadPool = new ThreadPool(1, 1, 60, TimeUnit.SECONDS);
+        Future<Boolean> loaderFuture = loaderThreadPool.submit(() -> {
+            try {
+                for (CellIndex cellIndex : cellIndices) {
+                    if (progressVisitor.isCanceled() || aborted.get()) {
+                        break;
+                    }
+                    waitForPrefetchMemory(preparedCells);
+                    if (!offerPreparedCell(preparedCells, new PreparedCell(cellIndex,
+                            loadCell(loadConnection, cellIndex, skipReceivers)), computationStopped)) {
+                        break;
+                    }
+                }
+            } finally {
+                offerPreparedCell(preparedCells, PreparedCell.END_OF_CELLS, computationStopped);
+            }
+            return true;
+        });
+        boolean done = false;
+        try {
+            while (true) {
+                long startWait = System.currentTimeMillis();
+                PreparedCell preparedCell = preparedCells.take();
+                synchronized (preparedCells) {
+                    preparedCells.notifyAll();
+                }
+                if (preparedCell == PreparedCell.END_OF_CELLS) {
+                    break;
+                }
+                if (verbose) {
+                    logger.info("Waited {} ms for the loading of the cell {}", System.currentTimeMillis() - startWait,
+                            preparedCell.cellIndex);
+                }
+                processCell(preparedCell.cellIndex, preparedCell.scene, progressVisitor);
+            }
+            // Raise the exception of the loading thread if any
+            loaderFuture.get();
+            done = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ex);
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException) {
+                throw (SQLException) ex.getCause();
+            }
+            throw new SQLException(ex.getCause());
         } finally {
-            computeRaysOutFactory.stop();
+            if (!done) {
+                computationStopped.set(true);
+                loaderFuture.cancel(true);
+            }
+            loaderThreadPool.shutdown();
+        }
+    }
+
+    /**
+     * Hand over a loaded cell to the computation. Give up if the computation has stopped, as the queue may stay full.
+     * @param preparedCells Cells loaded and not yet evaluated
+     * @param preparedCell Cell to add
+     * @param computationStopped True if the cells are not consumed anymore
+     * @return False if the cell has not been added
+     * @throws InterruptedException The loading has been cancelled
+     */
+    private static boolean offerPreparedCell(BlockingQueue<PreparedCell> preparedCells, PreparedCell preparedCell,
+                                             AtomicBoolean computationStopped) throws InterruptedException {
+        while (!preparedCells.offer(preparedCell, ResultsCache.ABORT_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+            if (computationStopped.get()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Suspend the loading of the next cell while the heap usage is over {@link #cellPrefetchMaximumHeap} and some
+     * cells are already waiting for the computation
+     * @param preparedCells Cells loaded and not yet evaluated
+     * @throws InterruptedException The computation has been stopped
+     */
+    private void waitForPrefetchMemory(BlockingQueue<PreparedCell> preparedCells) throws InterruptedException {
+        if (cellPrefetchMaximumHeap <= 0) {
+            return;
+        }
+        Runtime r = Runtime.getRuntime();
+        synchronized (preparedCells) {
+            while (!preparedCells.isEmpty() && r.totalMemory() - r.freeMemory() > cellPrefetchMaximumHeap) {
+                preparedCells.wait();
+            }
+        }
+    }
+
+    @Override
+    public int getCellGridDim() {
+        return gridDim << cellSubdivisionDepth;
+    }
+
+    /**
+     * @return Maximum number of quadtree subdivisions of the cells of the regular grid, 0 if the cells are not split
+     */
+    public int getCellSubdivisionDepth() {
+        return cellSubdivisionDepth;
+    }
+
+    /**
+     * Split the cells of the regular grid where the estimated computation cost or the number of loaded geometries
+     * is too high, in order to even out the computation time and the memory used by the cells.
+     * @see AdaptiveCellGrid
+     * @param cellSubdivisionDepth Maximum number of quadtree subdivisions of the cells of the regular grid, 0 to
+     *                             keep the regular grid. The grid dimension times 2^depth must not exceed
+     *                             {@link AdaptiveCellGrid#MAXIMUM_CELL_GRID_DIM}
+     * @throws IllegalArgumentException If the depth is negative or too large for the current grid dimension
+     */
+    public void setCellSubdivisionDepth(int cellSubdivisionDepth) {
+        // The grid dimension may be computed later, the adaptive grid checks it again
+        AdaptiveCellGrid.checkCellGridDim(Math.max(1, gridDim), cellSubdivisionDepth);
+        this.cellSubdivisionDepth = cellSubdivisionDepth;
+    }
+
+    /**
+     * @return Maximum estimated cost of a cell of the adaptive grid, 0 for the average cost of the regular grid cells
+     */
+    public double getMaximumCellCost() {
+        return maximumCellCost;
+    }
+
+    /**
+     * @param maximumCellCost Maximum estimated cost of a cell of the adaptive grid, 0 for the average cost of the
+     *                        regular grid cells
+     */
+    public void setMaximumCellCost(double maximumCellCost) {
+        this.maximumCellCost = maximumCellCost;
+    }
+
+    /**
+     * @return Maximum number of receivers, sources and buildings loaded with a cell of the adaptive grid, 0 for no
+     * limit
+     */
+    public long getMaximumCellGeometries() {
+        return maximumCellGeometries;
+    }
+
+    /**
+     * The geometries within the propagation and reflection distances of a cell are loaded with it, a cell can't be
+     * split below the size of the finest cells so this limit is not always reached.
+     * @param maximumCellGeometries Maximum number of receivers, sources and buildings loaded with a cell of the
+     *                              adaptive grid, 0 for no limit
+     */
+    public void setMaximumCellGeometries(long maximumCellGeometries) {
+        this.maximumCellGeometries = maximumCellGeometries;
+    }
+
+    /**
+     * @return Estimated cost and measured computation time of the cells of the adaptive grid, empty if the cells
+     * are not split
+     */
+    public Map<CellIndex, AdaptiveCellGrid.CellCost> getCellCosts() {
+        return cellCosts;
+    }
+
+    /**
+     * @return Number of cells loaded in advance while the current cell is evaluated, 0 if the cells are loaded and
+     * evaluated sequentially
+     */
+    public int getCellPrefetchDepth() {
+        return cellPrefetchDepth;
+    }
+
+    /**
+     * @param cellPrefetchDepth Number of cells loaded in advance while the current cell is evaluated, 0 if the cells
+     *                          are loaded and evaluated sequentially
+     */
+    public void setCellPrefetchDepth(int cellPrefetchDepth) {
+        this.cellPrefetchDepth = Math.max(0, cellPrefetchDepth);
+    }
+
+    /**
+     * @return Used heap in bytes over which the loading of more than one cell in advance is suspended.
+     * 0 for no limitation
+     */
+    public long getCellPrefetchMaximumHeap() {
+        return cellPrefetchMaximumHeap;
+    }
+
+    /**
+     * @param cellPrefetchMaximumHeap Used heap in bytes over which the loading of more than one cell in advance is
+     *                                suspended. 0 for no limitation
+     */
+    public void setCellPrefetchMaximumHeap(long cellPrefetchMaximumHeap) {
+        this.cellPrefetchMaximumHeap = cellPrefetchMaximumHeap;
+    }
+
+    /**
+     * @return Connection used to load the next cells, null if the main connection is used
+     */
+    public Connection getPrefetchConnection() {
+        return prefetchConnection;
+    }
+
+    /**
+     * The loading of the cells in advance is done by another thread, a dedicated connection avoid to concurrently
+     * use the connection of the computation thread.
+     * @param prefetchConnection Connection used to load the next cells, null to use the main connection
+     */
+    public void setPrefetchConnection(Connection prefetchConnection) {
+        this.prefetchConnection = prefetchConnection;
+    }
+
+    /**
+     * Receive the location of a geometry
+     */
+    private interface LocationConsumer {
+        void accept(double x, double y);
+    }
+
+    /**
+     * Scene of a cell ready to be evaluated
+     */
+    private static final class PreparedCell {
+        static final PreparedCell END_OF_CELLS = new PreparedCell(null, null);
+        final CellIndex cellIndex;
+        final SceneWithEmission scene;
+
+        PreparedCell(CellIndex cellIndex, SceneWithEmission scene) {
+            this.cellIndex = cellIndex;
+            this.scene = scene;
         }
     }
 
@@ -416,6 +914,15 @@ public class NoiseMapByReceiverMaker extends GridMapMaker {
          * @return an object that computes paths out for noise map computation.
          */
         CutPlaneVisitorFactory create(SceneWithEmission cellData);
+
+        /**
+         * Used by the run journal in order to commit a cell once its results are stored.
+         * @return Condition that becomes true once all the results produced until now are stored. By default the
+         * results are considered stored as soon as the evaluation of the cell is done.
+         */
+        default BooleanSupplier getResultsStoredCondition() {
+            return () -> true;
+        }
     }
 
 
@@ -10,6 +10,7 @@
 package org.noise_planet.noisemodelling.jdbc;
 
 
+import javax.sql.DataSource;
 import java.io.File;
 
 /**
@@ -77,6 +78,50 @@ public class NoiseMapDatabaseParameters {
      */
     public boolean exportReceiverPosition = false;
 
+    /**
+     * If set and if there is no emission (attenuation input mode), the attenuation between each receiver and each
+     * source is written into this binary file instead of the receivers level table
+     * @see AttenuationMatrixCombiner
+     */
+    public File attenuationMatrixFile = null;
+
+    /**
+     * If set the receivers level rows are written into this compressed columnar file instead of the receivers level
+     * table
+     * @see org.noise_planet.noisemodelling.jdbc.output.ColumnarFileReader
+     */
+    public File receiversLevelFile = null;
+
+    /**
+     * If true and the receivers level file exists, the new rows are appended to the file
+     */
+    public boolean appendReceiversLevelFile = false;
+
+    /**
+     * If set the progress of the computation is recorded into this journal file, and a stopped computation using the
+     * same journal file resumes after the last stored cell
+     * @see RunJournal
+     */
+    public File runJournalFile = null;
+
+    /**
+     * If true the results are inserted with the bulk load method of the database (COPY for PostgreSQL, CSVREAD for H2)
+     * instead of batches of INSERT queries
+     */
+    public boolean bulkInsert = false;
+
+    /**
+     * Number of threads inserting the results in the database, each thread use its own connection provided by
+     * {@link #writerDataSource}
+     */
+    public int writerCount = 1;
+
+    /**
+     * Provide the connections of the additional writing threads, required if writerCount is greater than 1. The
+     * computation throws an {@link IllegalArgumentException} if it is missing.
+     */
+    public DataSource writerDataSource = null;
+
     /**
      * @return If true the position of the receiver (with the altitude if available) will be exported into the results
      * tables
@@ -93,6 +138,117 @@ public class NoiseMapDatabaseParameters {
         this.exportReceiverPosition = exportReceiverPosition;
     }
 
+    /**
+     * @return Binary file of the attenuation between each receiver and each source, null if not exported
+     */
+    public File getAttenuationMatrixFile() {
+        return attenuationMatrixFile;
+    }
+
+    /**
+     * @param attenuationMatrixFile If set and if there is no emission (attenuation input mode), the attenuation between
+     *                              each receiver and each source is written into this binary file instead of the
+     *                              receivers level table. The levels can then be computed for any emission scenario
+     *                              with {@link AttenuationMatrixCombiner}
+     */
+    public void setAttenuationMatrixFile(File attenuationMatrixFile) {
+        this.attenuationMatrixFile = attenuationMatrixFile;
+    }
+
+    /**
+     * @return Compressed columnar file of the receivers level rows, null if the rows are inserted in the table
+     */
+    public File getReceiversLevelFile() {
+        return receiversLevelFile;
+    }
+
+    /**
+     * @param receiversLevelFile If set the receivers level rows are written into this compressed columnar file
+     *                           instead of the receivers level table. The file can be imported into a table with
+     *                           {@link org.noise_planet.noisemodelling.jdbc.output.ColumnarFileReader}
+     */
+    public void setReceiversLevelFile(File receiversLevelFile) {
+        this.receiversLevelFile = receiversLevelFile;
+    }
+
+    /**
+     * @return True if the new rows are appended to the existing receivers level file
+     */
+    public boolean isAppendReceiversLevelFile() {
+        return appendReceiversLevelFile;
+    }
+
+    /**
+     * @param appendReceiversLevelFile If true and the receivers level file exists, the new rows are appended to the
+     *                                 file. The existing file must have the same columns.
+     */
+    public void setAppendReceiversLevelFile(boolean appendReceiversLevelFile) {
+        this.appendReceiversLevelFile = appendReceiversLevelFile;
+    }
+
+    /**
+     * @return Progress journal of the computation, null if the computation cannot be resumed
+     */
+    public File getRunJournalFile() {
+        return runJournalFile;
+    }
+
+    /**
+     * @param runJournalFile If set the progress of the computation is recorded into this journal file, and a stopped
+     *                       computation using the same journal file resumes after the last stored cell. The results
+     *                       must be written into the receivers level table (not into a file).
+     */
+    public void setRunJournalFile(File runJournalFile) {
+        this.runJournalFile = runJournalFile;
+    }
+
+    /**
+     * @return True if the results are inserted with the bulk load method of the database
+     */
+    public boolean isBulkInsert() {
+        return bulkInsert;
+    }
+
+    /**
+     * @param bulkInsert If true the results are inserted with the bulk load method of the database (COPY for
+     *                   PostgreSQL, CSVREAD for H2) instead of batches of INSERT queries
+     */
+    public void setBulkInsert(boolean bulkInsert) {
+        this.bulkInsert = bulkInsert;
+    }
+
+    /**
+     * @return Number of threads inserting the results in the database
+     */
+    public int getWriterCount() {
+        return writerCount;
+    }
+
+    /**
+     * @param writerCount Number of threads inserting the results in the database. The additional threads use their
+     *                    own connection provided by {@link #setWriterDataSource(DataSource)}
+     */
+    public void setWriterCount(int writerCount) {
+        if(writerCount < 1) {
+            throw new IllegalArgumentException("The writer count must be at least 1");
+        }
+        this.writerCount = writerCount;
+    }
+
+    /**
+     * @return Provide the connections of the additional writing threads
+     */
+    public DataSource getWriterDataSource() {
+        return writerDataSource;
+    }
+
+    /**
+     * @param writerDataSource Provide the connections of the additional writing threads
+     */
+    public void setWriterDataSource(DataSource writerDataSource) {
+        this.writerDataSource = writerDataSource;
+    }
+
     /**
      * @param maximumRaysOutputCount if export rays, do not keep more than this number of rays per computation area (0 infinite)
      */
@@ -0,0 +1,353 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc;
+
+import org.locationtech.jts.geom.Envelope;
+import org.noise_planet.noisemodelling.jdbc.utils.CellIndex;
+import org.noise_planet.noisemodelling.jdbc.utils.CompactLongSet;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Durable progress journal of a {@link NoiseMapByReceiverMaker} run, so that a stopped run can be resumed.
+ * <p>
+ * A cell is committed into the journal once its results are stored by the writers: the journal line holds the cell
+ * index and the primary key ranges of the receivers of the cell, and is synced to the disk before continuing. When the
+ * run is resumed with the same journal, the committed cells are skipped, their receivers are not evaluated again and
+ * the rows of the other receivers (written by cells that were not committed) are deleted from the result tables
+ * before appending the new rows. So each receiver is written at most once.
+ * <p>
+ * The journal is a text file: a header, the computation grid, one line per committed cell and a last line when the
+ * run is done. The grid of a resumed run must be the same.
+ * @author Nicolas Fortin
+ */
+public class RunJournal implements Closeable {
+    static final String HEADER = "NOISEMODELLING_RUN_JOURNAL 2";
+    static final String GRID = "GRID";
+    static final String CELL = "CELL";
+    static final String DONE = "DONE";
+    /** Temporary table of the committed receiver ranges, used to delete the rows of the other receivers */
+    static final String RANGES_TABLE = "RUN_JOURNAL_RANGES";
+
+    private final File file;
+    private final Set<CellIndex> committedCells = new HashSet<>();
+    /** Primary key ranges {first, last} of the receivers of the committed cells */
+    private final List<long[]> committedRanges = new ArrayList<>();
+    private final List<PendingCell> pendingCells = new ArrayList<>();
+    private boolean resumed = false;
+    private boolean done = false;
+    private FileOutputStream outputStream;
+    private Writer writer;
+
+    private RunJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open the journal, read the committed cells if the file exists
+     * @param file Journal file
+     * @param gridDim Number of cells along each axis of the computation grid, see
+     *                {@link GridMapMaker#getCellGridDim()}
+     * @param mainEnvelope Extent of the computation grid
+     * @return Opened journal, must be closed
+     * @throws IOException The file cannot be read or written, or has been created with another grid
+     */
+    public static RunJournal open(File file, int gridDim, Envelope mainEnvelope) throws IOException {
+        RunJournal journal = new RunJournal(file);
+        String gridLine = String.join(" ", GRID, Integer.toString(gridDim), Double.toString(mainEnvelope.getMinX()),
+                Double.toString(mainEnvelope.getMaxX()), Double.toString(mainEnvelope.getMinY()),
+                Double.toString(mainEnvelope.getMaxY()));
+        if (file.exists()) {
+            removeIncompleteLine(file);
+        }
+        boolean exists = file.exists() && file.length() > 0;
+        if (exists) {
+            journal.read(gridLine);
+        }
+        journal.outputStream = new FileOutputStream(file, exists);
+        journal.writer = new OutputStreamWriter(journal.outputStream, StandardCharsets.UTF_8);
+        if (!exists) {
+            journal.writer.write(HEADER + "\n" + gridLine + "\n");
+            journal.sync();
+        }
+        return journal;
+    }
+
+    /**
+     * Remove the end of the file after the last line break. Each line is written at once with its line break, so an
+     * incomplete line has been interrupted by the stop of the process and was not committed.
+     * @param file Journal file
+     * @throws IOException Unable to write the file
+     */
+    static void removeIncompleteLine(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            long length = randomAccessFile.length();
+            long position = length;
+            while (position > 0) {
+                randomAccessFile.seek(position - 1);
+                if (randomAccessFile.read() == '\n') {
+                    break;
+                }
+                position--;
+            }
+            if (position < length) {
+                randomAccessFile.setLength(position);
+            }
+        }
+    }
+
+    private void read(String gridLine) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("The file " + file + " is not a run journal");
+            }
+            if (!gridLine.equals(reader.readLine())) {
+                throw new IOException("The run journal " + file + " has been created with another computation grid");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(" ");
+                if (values[0].equals(DONE)) {
+                    done = true;
+                } else if (values[0].equals(CELL) && values.length >= 4) {
+                    try {
+                        for (int i = 4; i < values.length; i++) {
+                            String[] bounds = values[i].split(":");
+                            committedRanges.add(new long[]{Long.parseLong(bounds[0]), Long.parseLong(bounds[1])});
+                        }
+                        committedCells.add(new CellIndex(Integer.parseInt(values[1]), Integer.parseInt(values[2]),
+                                Integer.parseInt(values[3])));
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                        throw new IOException("The run journal " + file + " is corrupted", ex);
+                    }
+                } else {
+                    throw new IOException("The run journal " + file + " is corrupted");
+                }
+            }
+        }
+        resumed = !committedCells.isEmpty();
+        mergeRanges(committedRanges);
+    }
+
+    /**
+     * Sort and merge the overlapping or consecutive ranges
+     * @param ranges Ranges {first, last}
+     */
+    static void mergeRanges(List<long[]> ranges) {
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        int merged = 0;
+        for (long[] range : ranges) {
+            if (merged > 0 && range[0] <= ranges.get(merged - 1)[1] + 1) {
+                long[] last = ranges.get(merged - 1);
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                ranges.set(merged++, range);
+            }
+        }
+        ranges.subList(merged, ranges.size()).clear();
+    }
+
+    /**
+     * @param primaryKeys Receivers primary keys
+     * @return Merged ranges {first, last} of the primary keys
+     */
+    static List<long[]> toRanges(Collection<Long> primaryKeys) {
+        long[] sorted = new long[primaryKeys.size()];
+        int i = 0;
+        for (long primaryKey : primaryKeys) {
+            sorted[i++] = primaryKey;
+        }
+        Arrays.sort(sorted);
+        List<long[]> ranges = new ArrayList<>();
+        for (long primaryKey : sorted) {
+            if (!ranges.isEmpty() && primaryKey <= ranges.get(ranges.size() - 1)[1] + 1) {
+                ranges.get(ranges.size() - 1)[1] = primaryKey;
+            } else {
+                ranges.add(new long[]{primaryKey, primaryKey});
+            }
+        }
+        return ranges;
+    }
+
+    private void sync() throws IOException {
+        writer.flush();
+        outputStream.getFD().sync();
+    }
+
+    /**
+     * @return True if some cells have been committed by a previous run
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * @return True if a previous run using this journal has been completed
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @param cellIndex Cell index
+     * @return True if the cell has been committed
+     */
+    public boolean isCommitted(CellIndex cellIndex) {
+        return committedCells.contains(cellIndex);
+    }
+
+    /**
+     * @return Primary key ranges {first, last} of the receivers of the cells committed by the previous runs
+     */
+    public List<long[]> getCommittedRanges() {
+        return committedRanges;
+    }
+
+    /**
+     * Add the primary keys of the receivers of the cells committed by the previous runs
+     * @param receivers Set to feed
+     */
+    public void addCommittedReceivers(CompactLongSet receivers) {
+        for (long[] range : committedRanges) {
+            receivers.addRange(range[0], range[1]);
+        }
+    }
+
+    /**
+     * Register an evaluated cell, it is committed by {@link #commit()} once its results are stored
+     * @param cellIndex Cell index
+     * @param receiversPk Primary keys of the receivers evaluated in this cell
+     * @param stored Condition that becomes true once the results of the cell are stored
+     */
+    public synchronized void addCell(CellIndex cellIndex, Collection<Long> receiversPk, BooleanSupplier stored) {
+        pendingCells.add(new PendingCell(cellIndex, toRanges(receiversPk), stored));
+    }
+
+    /**
+     * Write the registered cells whose results are stored
+     * @throws IOException Unable to write the journal
+     */
+    public synchronized void commit() throws IOException {
+        commit(false);
+    }
+
+    /**
+     * Write all the registered cells, the results of all the cells must have been stored
+     * @throws IOException Unable to write the journal
+     */
+    public synchronized void commitAll() throws IOException {
+        commit(true);
+    }
+
+    private void commit(boolean all) throws IOException {
+        boolean written = false;
+        Iterator<PendingCell> iterator = pendingCells.iterator();
+        while (iterator.hasNext()) {
+            PendingCell pendingCell = iterator.next();
+            if (all || pendingCell.stored.getAsBoolean()) {
+                StringBuilder line = new StringBuilder(CELL).append(" ")
+                        .append(pendingCell.cellIndex.getLongitudeIndex()).append(" ")
+                        .append(pendingCell.cellIndex.getLatitudeIndex()).append(" ")
+                        .append(pendingCell.cellIndex.getSize());
+                for (long[] range : pendingCell.ranges) {
+                    line.append(" ").append(range[0]).append(":").append(range[1]);
+                }
+                writer.write(line.append("\n").toString());
+                committedCells.add(pendingCell.cellIndex);
+                iterator.remove();
+                written = true;
+            }
+        }
+        if (written) {
+            sync();
+        }
+    }
+
+    /**
+     * Mark the run as done, a new run using this journal will not compute anything
+     * @throws IOException Unable to write the journal
+     */
+    public synchronized void finish() throws IOException {
+        commitAll();
+        writer.write(DONE + "\n");
+        sync();
+        done = true;
+    }
+
+    /**
+     * Delete the rows of the receivers that are not in the committed cells
+     * @param connection Connection to the database of the results
+     * @param tableName Table with an IDRECEIVER column
+     * @throws SQLException Sql exception instance
+     */
+    public void deleteUncommittedRows(Connection connection, String tableName) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + RANGES_TABLE);
+            st.execute("CREATE TABLE " + RANGES_TABLE + "(FIRSTPK BIGINT NOT NULL, LASTPK BIGINT NOT NULL)");
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + RANGES_TABLE +
+                    " VALUES (?, ?)")) {
+                for (long[] range : committedRanges) {
+                    ps.setLong(1, range[0]);
+                    ps.setLong(2, range[1]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            st.execute("CREATE INDEX ON " + RANGES_TABLE + "(FIRSTPK)");
+            st.execute("DELETE FROM " + tableName + " T WHERE NOT EXISTS (SELECT 1 FROM " + RANGES_TABLE +
+                    " R WHERE T.IDRECEIVER BETWEEN R.FIRSTPK AND R.LASTPK)");
+            st.execute("DROP TABLE " + RANGES_TABLE);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private static final class PendingCell {
+        final CellIndex cellIndex;
+        final List<long[]> ranges;
+        final BooleanSupplier stored;
+
+        PendingCell(CellIndex cellIndex, List<long[]> ranges, BooleanSupplier stored) {
+            this.cellIndex = cellIndex;
+            this.ranges = ranges;
+            this.stored = stored;
+        }
+    }
+}
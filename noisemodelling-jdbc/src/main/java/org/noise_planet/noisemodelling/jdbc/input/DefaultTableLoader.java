@@ -13,6 +13,7 @@ import org.h2gis.utilities.dbtypes.DBTypes;
 import org.h2gis.utilities.dbtypes.DBUtils;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.geom.prep.PreparedPolygon;
+import org.locationtech.jts.io.WKBWriter;
 import org.locationtech.jts.io.WKTWriter;
 import org.noise_planet.noisemodelling.emission.LineSource;
 import org.noise_planet.noisemodelling.emission.directivity.DirectivityRecord;
@@ -24,14 +25,22 @@ import org.noise_planet.noisemodelling.emission.railway.cnossos.RailWayCnossosPa
 import org.noise_planet.noisemodelling.jdbc.EmissionTableGenerator;
 import org.noise_planet.noisemodelling.jdbc.NoiseMapByReceiverMaker;
 import org.noise_planet.noisemodelling.jdbc.utils.CellIndex;
+import org.noise_planet.noisemodelling.pathfinder.path.MirrorReceiversStore;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.Building;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ElevationGrid;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilderSnapshot;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.Wall;
 import org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicatorsFunctions;
 import org.noise_planet.noisemodelling.propagation.AttenuationParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
 import java.util.*;
 
@@ -56,6 +65,10 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
 
     public static final int DEFAULT_FETCH_SIZE = 300;
     protected int fetchSize = DEFAULT_FETCH_SIZE;
+    protected GeometryTileCache geometryTileCache = null;
+    protected File profileBuilderSnapshotDirectory = null;
+    protected File mirrorReceiversDirectory = null;
+    private String inputTablesHash = null;
 
     /**
      * Attenuation and other attributes relative to direction on sphere
@@ -84,6 +97,8 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
     @Override
     public void initialize(Connection connection, NoiseMapByReceiverMaker noiseMapByReceiverMaker) throws SQLException {
         this.noiseMapByReceiverMaker = noiseMapByReceiverMaker;
+        // The input tables may have been modified since the last run
+        this.inputTablesHash = null;
         SceneDatabaseInputSettings inputSettings = noiseMapByReceiverMaker.getSceneInputSettings();
         if(inputSettings.inputMode == SceneDatabaseInputSettings.INPUT_MODE.INPUT_MODE_GUESS) {
             // Check fields to find appropriate expected data
@@ -213,6 +228,57 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
         return fetchSize;
     }
 
+    /**
+     * @return Cache of the buildings, DEM and ground areas shared between cells, null if disabled
+     */
+    public GeometryTileCache getGeometryTileCache() {
+        return geometryTileCache;
+    }
+
+    /**
+     * @param geometryTileCache Cache of the buildings, DEM and ground areas shared between cells. The neighbouring
+     *                          cells fetch envelopes are overlapping, with this cache the geometries are read only once
+     *                          from the database. Null to disable the cache.
+     */
+    public void setGeometryTileCache(GeometryTileCache geometryTileCache) {
+        this.geometryTileCache = geometryTileCache;
+    }
+
+    /**
+     * @return Folder of the processed geometries of each cell, null if disabled
+     */
+    public File getProfileBuilderSnapshotDirectory() {
+        return profileBuilderSnapshotDirectory;
+    }
+
+    /**
+     * @param profileBuilderSnapshotDirectory Folder where the processed geometries (DEM triangulation, buildings and
+     *                                        walls elevation) of each cell are stored. The next runs using the same
+     *                                        buildings, DEM and ground tables read back the files instead of processing
+     *                                        the geometries again. Null to disable.
+     */
+    public void setProfileBuilderSnapshotDirectory(File profileBuilderSnapshotDirectory) {
+        this.profileBuilderSnapshotDirectory = profileBuilderSnapshotDirectory;
+        this.inputTablesHash = null;
+    }
+
+    /**
+     * @return Folder of the image receivers of each cell, null if disabled
+     */
+    public File getMirrorReceiversDirectory() {
+        return mirrorReceiversDirectory;
+    }
+
+    /**
+     * @param mirrorReceiversDirectory Folder where the image receivers (reflection preprocessing) of each cell are
+     *                                 stored. The next runs using the same buildings, DEM and ground tables read back
+     *                                 the image receivers instead of computing them again. Null to disable.
+     */
+    public void setMirrorReceiversDirectory(File mirrorReceiversDirectory) {
+        this.mirrorReceiversDirectory = mirrorReceiversDirectory;
+        this.inputTablesHash = null;
+    }
+
     public Map<Integer, DirectivitySphere> getDirectionAttributes() {
         return directionAttributes;
     }
@@ -235,6 +301,18 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
         return frequencyValues;
     }
 
+    /**
+     * @param cellIndex Cell index
+     * @return Identifier of the cell used in the names of the cached files
+     */
+    private static String getCellFileSuffix(CellIndex cellIndex) {
+        if(cellIndex.getSize() > 1) {
+            return String.format(Locale.ROOT, "%d_%d_%d", cellIndex.getLongitudeIndex(), cellIndex.getLatitudeIndex(),
+                    cellIndex.getSize());
+        }
+        return String.format(Locale.ROOT, "%d_%d", cellIndex.getLongitudeIndex(), cellIndex.getLatitudeIndex());
+    }
+
     @Override
     public SceneWithEmission create(Connection connection, CellIndex cellIndex,
                                     Set<Long> skipReceivers) throws SQLException {
@@ -250,7 +328,30 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
         // between subdomains
         expandedCellEnvelop.expandBy(maximumPropagationDistance + 2 * maximumReflectionDistance);
 
-        ProfileBuilder profileBuilder = new ProfileBuilder();
+        ProfileBuilder profileBuilder = null;
+        File snapshotFile = null;
+        // With an elevation grid there is no triangulation to store in the snapshot
+        if(profileBuilderSnapshotDirectory != null && noiseMapByReceiverMaker.getDemGrid() == null) {
+            // Reuse the profile builder of a previous run if the geometries did not change
+            snapshotFile = new File(profileBuilderSnapshotDirectory, String.format(Locale.ROOT,
+                    "profile_builder_%s.bin", getCellFileSuffix(cellIndex)));
+            profileBuilder = ProfileBuilderSnapshot.read(snapshotFile,
+                    getProfileBuilderHash(connection, expandedCellEnvelop));
+            if(profileBuilder != null && noiseMapByReceiverMaker.isVerbose()) {
+                LOGGER.info("Load profile builder of {} from {}", cellIndex, snapshotFile);
+            }
+        }
+        if(profileBuilder == null) {
+            profileBuilder = createProfileBuilder(connection, expandedCellEnvelop);
+            if(snapshotFile != null) {
+                try {
+                    ProfileBuilderSnapshot.write(profileBuilder, snapshotFile,
+                            getProfileBuilderHash(connection, expandedCellEnvelop));
+                } catch (IOException ex) {
+                    LOGGER.warn(String.format("Unable to write the profile builder snapshot %s", snapshotFile), ex);
+                }
+            }
+        }
         profileBuilder.setFrequencyArray(frequencyArray);
         SceneWithEmission scene = new SceneWithEmission(profileBuilder, noiseMapByReceiverMaker.getSceneInputSettings());
         scene.setDirectionAttributes(directionAttributes);
@@ -258,29 +359,23 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
         scene.defaultCnossosParameters = defaultParameters;
         scene.periodSet.addAll(cnossosParametersPerPeriod.keySet());
 
-
-        // //////////////////////////////////////////////////////
-        // feed freeFieldFinder for fast intersection query
-        // optimization
-        // Fetch buildings in extendedEnvelope
-        fetchCellBuildings(connection, noiseMapByReceiverMaker.getBuildingTableParameters(), expandedCellEnvelop,
-                scene.profileBuilder, geometryFactory);
-
-        //if we have topographic points data
-        fetchCellDem(connection, expandedCellEnvelop, scene.profileBuilder);
-
-        // Fetch soil areas
-        fetchCellSoilAreas(connection, expandedCellEnvelop, scene.profileBuilder);
-
-        scene.profileBuilder.finishFeeding();
-
         scene.reflexionOrder = noiseMapByReceiverMaker.getSoundReflectionOrder();
+        scene.profileCacheSize = noiseMapByReceiverMaker.getProfileCacheSize();
+        scene.sourceAggregationTolerance = noiseMapByReceiverMaker.getSourceAggregationTolerance();
         scene.setBodyBarrier(noiseMapByReceiverMaker.isBodyBarrier());
         scene.maxRefDist = maximumReflectionDistance;
         scene.maxSrcDist = maximumPropagationDistance;
         scene.setComputeVerticalDiffraction(noiseMapByReceiverMaker.isComputeVerticalDiffraction());
         scene.setComputeHorizontalDiffraction(noiseMapByReceiverMaker.isComputeHorizontalDiffraction());
 
+        if(mirrorReceiversDirectory != null && scene.reflexionOrder > 0) {
+            // Reuse the image receivers of a previous run if the geometries did not change
+            scene.mirrorReceiversStore = new MirrorReceiversStore(new File(mirrorReceiversDirectory,
+                    String.format(Locale.ROOT, "mirror_receivers_%s.bin", getCellFileSuffix(cellIndex))),
+                    String.format(Locale.ROOT, "%s;%d;%f;%f", getProfileBuilderHash(connection, expandedCellEnvelop),
+                            scene.reflexionOrder, scene.maxSrcDist, scene.maxRefDist));
+        }
+
         // Fetch all source located in expandedCellEnvelop
         fetchCellSource(connection, expandedCellEnvelop, scene, true);
 
@@ -303,10 +398,8 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
             try (SpatialResultSet rs = st.executeQuery().unwrap(SpatialResultSet.class)) {
                 while (rs.next()) {
                     long receiverPk = rs.getLong(2);
-                    if(skipReceivers.contains(receiverPk)) {
+                    if(!skipReceivers.add(receiverPk)) {
                         continue;
-                    } else {
-                        skipReceivers.add(receiverPk);
                     }
                     Geometry pt = rs.getGeometry();
                     if(pt != null && !pt.isEmpty()) {
@@ -325,6 +418,151 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
         return scene;
     }
 
+    /**
+     * Fetch buildings, walls, digital elevation model and ground areas located in the envelope and process them.
+     * @param connection Database connection
+     * @param fetchEnvelope Envelope of the geometries to fetch
+     * @return The finished profile builder
+     * @throws SQLException if an SQL exception occurs while fetching the data.
+     */
+    protected ProfileBuilder createProfileBuilder(Connection connection, Envelope fetchEnvelope) throws SQLException {
+        GeometryFactory geometryFactory = noiseMapByReceiverMaker.getGeometryFactory();
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        ElevationGrid demGrid = noiseMapByReceiverMaker.getDemGrid();
+        if(demGrid != null) {
+            // The grid is shared by all cells, the DEM table is not fetched
+            profileBuilder.setElevationGrid(demGrid);
+        }
+        profileBuilder.setTopographicTolerance(noiseMapByReceiverMaker.getDemDecimationTolerance());
+        // //////////////////////////////////////////////////////
+        // feed freeFieldFinder for fast intersection query
+        // optimization
+        // Fetch buildings in extendedEnvelope
+        if(geometryTileCache != null) {
+            // Static geometries are shared with the neighbouring cells
+            try (GeometryTileCache.TileSet tileSet = geometryTileCache.acquire(connection, this, fetchEnvelope)) {
+                List<Building> buildings = new ArrayList<>();
+                List<Wall> walls = new ArrayList<>();
+                addBuildingRows(tileSet.buildingRows, noiseMapByReceiverMaker.getBuildingTableParameters(),
+                        fetchEnvelope, buildings, walls, geometryFactory);
+                for(Building building : buildings) {
+                    profileBuilder.addBuilding(building);
+                }
+                for (Wall wall : walls) {
+                    profileBuilder.addWall(wall);
+                }
+                if(demGrid == null && !noiseMapByReceiverMaker.getDemTable().isEmpty()) {
+                    addDemPoints(tileSet.demPoints, fetchEnvelope, profileBuilder);
+                }
+                if(!noiseMapByReceiverMaker.getSoilTableName().isEmpty()) {
+                    addSoilRows(tileSet.soilRows, fetchEnvelope, profileBuilder);
+                }
+            }
+        } else {
+            fetchCellBuildings(connection, noiseMapByReceiverMaker.getBuildingTableParameters(), fetchEnvelope,
+                    profileBuilder, geometryFactory);
+
+            //if we have topographic points data
+            if(demGrid == null) {
+                fetchCellDem(connection, fetchEnvelope, profileBuilder);
+            }
+
+            // Fetch soil areas
+            fetchCellSoilAreas(connection, fetchEnvelope, profileBuilder);
+        }
+
+        profileBuilder.finishFeeding();
+        return profileBuilder;
+    }
+
+    /**
+     * Compute the hash of the inputs of the profile builder of a cell. The content of the building, DEM and ground
+     * tables and of the elevation grid is read once, then the hash is kept for the next cells.
+     * @param connection Database connection
+     * @param fetchEnvelope Envelope of the geometries of the cell
+     * @return Hash identifying the inputs data of the cell
+     * @throws SQLException if an SQL exception occurs while reading the tables.
+     */
+    protected synchronized String getProfileBuilderHash(Connection connection, Envelope fetchEnvelope)
+            throws SQLException {
+        if(inputTablesHash == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+            BuildingTableParameters buildingTableParameters = noiseMapByReceiverMaker.getBuildingTableParameters();
+            digest.update(String.format(Locale.ROOT, "%s;%s;%f;%b;%f;%f", buildingTableParameters.heightField,
+                    buildingTableParameters.alphaFieldName, buildingTableParameters.defaultWallAbsorption,
+                    buildingTableParameters.zBuildings, groundSurfaceSplitSideLength,
+                    noiseMapByReceiverMaker.getDemDecimationTolerance()).getBytes(StandardCharsets.UTF_8));
+            updateTableHash(connection, buildingTableParameters.buildingsTableName, digest);
+            // The elevation grid is used in place of the DEM table, it gives the altitude of the walls
+            ElevationGrid demGrid = noiseMapByReceiverMaker.getDemGrid();
+            digest.update((demGrid == null ? "" : demGrid.getContentHash()).getBytes(StandardCharsets.UTF_8));
+            updateTableHash(connection, noiseMapByReceiverMaker.getDemTable(), digest);
+            updateTableHash(connection, noiseMapByReceiverMaker.getSoilTableName(), digest);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            inputTablesHash = sb.toString();
+        }
+        return String.format(Locale.ROOT, "%s;%f;%f;%f;%f", inputTablesHash, fetchEnvelope.getMinX(),
+                fetchEnvelope.getMaxX(), fetchEnvelope.getMinY(), fetchEnvelope.getMaxY());
+    }
+
+    /**
+     * Update the digest with the content of the table, read in the order of the primary key (or of all the columns
+     * if the table has no primary key) so the hash does not depend on the storage order of the rows.
+     */
+    private void updateTableHash(Connection connection, String tableName, MessageDigest digest) throws SQLException {
+        digest.update(tableName.getBytes(StandardCharsets.UTF_8));
+        if(tableName.isEmpty()) {
+            return;
+        }
+        DBTypes dbType = DBUtils.getDBType(connection.unwrap(Connection.class));
+        TableLocation tableLocation = TableLocation.parse(tableName, dbType);
+        // Primary key columns sorted by their position in the key
+        TreeMap<Short, String> keyColumns = new TreeMap<>();
+        try (ResultSet rs = connection.getMetaData().getPrimaryKeys(tableLocation.getCatalog(null),
+                tableLocation.getSchema(null), tableLocation.getTable())) {
+            while (rs.next()) {
+                keyColumns.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        StringBuilder orderBy = new StringBuilder();
+        if(keyColumns.isEmpty()) {
+            int columnCount = JDBCUtilities.getColumnNames(connection, tableName).size();
+            for (int i = 1; i <= columnCount; i++) {
+                orderBy.append(i > 1 ? ", " : "").append(i);
+            }
+        } else {
+            for (String keyColumn : keyColumns.values()) {
+                orderBy.append(orderBy.length() > 0 ? ", " : "")
+                        .append(TableLocation.quoteIdentifier(keyColumn, dbType));
+            }
+        }
+        WKBWriter wkbWriter = new WKBWriter(3);
+        try (Statement st = connection.createStatement()) {
+            st.setFetchSize(fetchSize);
+            try (ResultSet rs = st.executeQuery("SELECT * FROM " + tableName + " ORDER BY " + orderBy)) {
+                int columnCount = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    for (int i = 1; i <= columnCount; i++) {
+                        Object value = rs.getObject(i);
+                        if (value instanceof Geometry) {
+                            digest.update(wkbWriter.write((Geometry) value));
+                        } else {
+                            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * The table shall contain the following fields :
      * DIR_ID : identifier of the directivity sphere (INTEGER)
@@ -442,7 +680,25 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
                                           List<Building> buildings,
                                           List<Wall> walls,
                                           GeometryFactory geometryFactory) throws SQLException {
-        Geometry envGeo = geometryFactory.toGeometry(fetchEnvelope);
+        List<BuildingRow> buildingRows = new ArrayList<>();
+        fetchBuildingRows(connection, buildingTableParameters, fetchEnvelope, buildingRows, geometryFactory);
+        addBuildingRows(buildingRows, buildingTableParameters, fetchEnvelope, buildings, walls, geometryFactory);
+    }
+
+    /**
+     * Fetches the rows of the building table that intersects the envelope, without any processing of the geometry.
+     * @param connection      the database connection to use for querying the building data.
+     * @param buildingTableParameters Database settings for the building table
+     * @param fetchEnvelope   the envelope to fetch building data for.
+     * @param buildingRows    the list to which the fetched rows will be added.
+     * @param geometryFactory geometry factory instance with SRID set.
+     * @throws SQLException   if an SQL exception occurs while fetching the building data.
+     */
+    public static void fetchBuildingRows(Connection connection,
+                                         BuildingTableParameters buildingTableParameters,
+                                         Envelope fetchEnvelope,
+                                         List<BuildingRow> buildingRows,
+                                         GeometryFactory geometryFactory) throws SQLException {
         boolean fetchAlpha = JDBCUtilities.hasField(connection, buildingTableParameters.buildingsTableName,
                 buildingTableParameters.alphaFieldName);
         String additionalQuery = "";
@@ -477,46 +733,65 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
                     //if we don't have height of building
                     Geometry building = rs.getGeometry();
                     if(building != null) {
-                        Geometry intersectedGeometry = null;
-                        try {
-                            intersectedGeometry = building.intersection(envGeo);
-                        } catch (TopologyException ex) {
-                            WKTWriter wktWriter = new WKTWriter(3);
-                            LOGGER.error(String.format("Error with input buildings geometry\n%s\n%s",wktWriter.write(building),wktWriter.write(envGeo)), ex);
+                        if(fetchAlpha) {
+                            oldAlpha = rs.getDouble(buildingTableParameters.alphaFieldName);
                         }
-                        if(intersectedGeometry instanceof Polygon || intersectedGeometry instanceof MultiPolygon || intersectedGeometry instanceof LineString) {
-                            if(fetchAlpha) {
-                                oldAlpha = rs.getDouble(buildingTableParameters.alphaFieldName);
-                            }
+                        long pk = -1;
+                        if(columnIndex != 0) {
+                            pk = rs.getLong(columnIndex);
+                        }
+                        double height = buildingTableParameters.heightField.isEmpty() ?
+                                Double.MAX_VALUE : rs.getDouble(buildingTableParameters.heightField);
+                        buildingRows.add(new BuildingRow(building, height, oldAlpha, pk));
+                    }
+                }
+            }
+        }
+    }
 
-                            long pk = -1;
-                            if(columnIndex != 0) {
-                                pk = rs.getLong(columnIndex);
-                            }
-                            for(int i=0; i<intersectedGeometry.getNumGeometries(); i++) {
-                                Geometry geometry = intersectedGeometry.getGeometryN(i);
-                                if(geometry instanceof Polygon && !geometry.isEmpty()) {
-                                    Building poly = new Building((Polygon) geometry,
-                                            buildingTableParameters.heightField.isEmpty() ?
-                                                    Double.MAX_VALUE :
-                                                    rs.getDouble(buildingTableParameters.heightField),
-                                            oldAlpha, pk, buildingTableParameters.zBuildings);
-                                    buildings.add(poly);
-                                } else if (geometry instanceof LineString) {
-                                    // decompose linestring into segments
-                                    LineString lineString = (LineString) geometry;
-                                    Coordinate[] coordinates = lineString.getCoordinates();
-                                    for(int vertex=0; vertex < coordinates.length - 1; vertex++) {
-                                        Wall wall = new Wall(new LineSegment(coordinates[vertex], coordinates[vertex+1]),
-                                                -1, ProfileBuilder.IntersectionType.WALL);
-                                        wall.setG(oldAlpha);
-                                        wall.setPrimaryKey(pk);
-                                        wall.setHeight(buildingTableParameters.heightField.isEmpty() ?
-                                                Double.MAX_VALUE : rs.getDouble(buildingTableParameters.heightField));
-                                        walls.add(wall);
-                                    }
-                                }
-                            }
+    /**
+     * Convert building table rows into buildings and walls, geometries are cut by the fetch envelope.
+     * @param buildingRows    Rows fetched with {@link #fetchBuildingRows}
+     * @param buildingTableParameters Database settings for the building table
+     * @param fetchEnvelope   the envelope representing the cell to fetch building data for.
+     * @param buildings       the list to which the buildings will be added.
+     * @param walls Wall list to feed
+     * @param geometryFactory geometry factory instance with SRID set.
+     */
+    public static void addBuildingRows(Collection<BuildingRow> buildingRows,
+                                       BuildingTableParameters buildingTableParameters,
+                                       Envelope fetchEnvelope,
+                                       List<Building> buildings,
+                                       List<Wall> walls,
+                                       GeometryFactory geometryFactory) {
+        Geometry envGeo = geometryFactory.toGeometry(fetchEnvelope);
+        for (BuildingRow buildingRow : buildingRows) {
+            Geometry building = buildingRow.geometry;
+            Geometry intersectedGeometry = null;
+            try {
+                intersectedGeometry = building.intersection(envGeo);
+            } catch (TopologyException ex) {
+                WKTWriter wktWriter = new WKTWriter(3);
+                LOGGER.error(String.format("Error with input buildings geometry\n%s\n%s",wktWriter.write(building),wktWriter.write(envGeo)), ex);
+            }
+            if(intersectedGeometry instanceof Polygon || intersectedGeometry instanceof MultiPolygon || intersectedGeometry instanceof LineString) {
+                for(int i=0; i<intersectedGeometry.getNumGeometries(); i++) {
+                    Geometry geometry = intersectedGeometry.getGeometryN(i);
+                    if(geometry instanceof Polygon && !geometry.isEmpty()) {
+                        Building poly = new Building((Polygon) geometry, buildingRow.height,
+                                buildingRow.alpha, buildingRow.pk, buildingTableParameters.zBuildings);
+                        buildings.add(poly);
+                    } else if (geometry instanceof LineString) {
+                        // decompose linestring into segments
+                        LineString lineString = (LineString) geometry;
+                        Coordinate[] coordinates = lineString.getCoordinates();
+                        for(int vertex=0; vertex < coordinates.length - 1; vertex++) {
+                            Wall wall = new Wall(new LineSegment(coordinates[vertex], coordinates[vertex+1]),
+                                    -1, ProfileBuilder.IntersectionType.WALL);
+                            wall.setG(buildingRow.alpha);
+                            wall.setPrimaryKey(buildingRow.pk);
+                            wall.setHeight(buildingRow.height);
+                            walls.add(wall);
                         }
                     }
                 }
@@ -524,6 +799,36 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
         }
     }
 
+    /**
+     * Row of the building table, before the processing of the geometry
+     */
+    public static class BuildingRow {
+        public final Geometry geometry;
+        public final double height;
+        public final double alpha;
+        public final long pk;
+
+        public BuildingRow(Geometry geometry, double height, double alpha, long pk) {
+            this.geometry = geometry;
+            this.height = height;
+            this.alpha = alpha;
+            this.pk = pk;
+        }
+    }
+
+    /**
+     * Row of the soil table, before the split of the geometry
+     */
+    public static class SoilRow {
+        public final Geometry geometry;
+        public final double g;
+
+        public SoilRow(Geometry geometry, double g) {
+            this.geometry = geometry;
+            this.g = g;
+        }
+    }
+
     public static class BuildingTableParameters {
         public String buildingsTableName;
         public String heightField = "HEIGHT";
@@ -580,50 +885,77 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
     protected void fetchCellDem(Connection connection, Envelope fetchEnvelope, ProfileBuilder profileBuilder) throws SQLException {
         String demTable = noiseMapByReceiverMaker.getDemTable();
         if(!demTable.isEmpty()) {
-            GeometryFactory geometryFactory = noiseMapByReceiverMaker.getGeometryFactory();
-            DBTypes dbType = DBUtils.getDBType(connection.unwrap(Connection.class));
-            List<String> geomFields = getGeometryColumnNames(connection,
-                    TableLocation.parse(demTable, dbType));
-            if(geomFields.isEmpty()) {
-                throw new SQLException("Digital elevation model table \""+ demTable +"\" must exist and contain a POINT field");
-            }
-            String topoGeomName = geomFields.get(0);
-            double sumZ = 0;
-            int topoCount = 0;
-            try (PreparedStatement st = connection.prepareStatement(
-                    "SELECT " + TableLocation.quoteIdentifier(topoGeomName, dbType) + " FROM " +
-                            demTable + " WHERE " +
-                            TableLocation.quoteIdentifier(topoGeomName, dbType) + " && ?::geometry")) {
-                st.setObject(1, geometryFactory.toGeometry(fetchEnvelope));
-                try (SpatialResultSet rs = st.executeQuery().unwrap(SpatialResultSet.class)) {
-                    while (rs.next()) {
-                        Geometry pt = rs.getGeometry();
-                        if(pt != null) {
-                            Coordinate ptCoordinate = pt.getCoordinate();
-                            profileBuilder.addTopographicPoint(ptCoordinate);
-                            if(!Double.isNaN(ptCoordinate.z)) {
-                                sumZ+=ptCoordinate.z;
-                                topoCount+=1;
-                            }
-                        }
+            List<Coordinate> demPoints = new ArrayList<>();
+            fetchDemPoints(connection, fetchEnvelope, demPoints);
+            addDemPoints(demPoints, fetchEnvelope, profileBuilder);
+        }
+    }
+
+    /**
+     * Fetches digital elevation model (DEM) points located in the envelope.
+     * @param connection the database connection to use for querying the DEM data.
+     * @param fetchEnvelope  the envelope to fetch DEM data for.
+     * @param demPoints the list to which the points will be added.
+     * @throws SQLException if an SQL exception occurs while fetching the DEM data.
+     */
+    protected void fetchDemPoints(Connection connection, Envelope fetchEnvelope, List<Coordinate> demPoints) throws SQLException {
+        String demTable = noiseMapByReceiverMaker.getDemTable();
+        GeometryFactory geometryFactory = noiseMapByReceiverMaker.getGeometryFactory();
+        DBTypes dbType = DBUtils.getDBType(connection.unwrap(Connection.class));
+        List<String> geomFields = getGeometryColumnNames(connection,
+                TableLocation.parse(demTable, dbType));
+        if(geomFields.isEmpty()) {
+            throw new SQLException("Digital elevation model table \""+ demTable +"\" must exist and contain a POINT field");
+        }
+        String topoGeomName = geomFields.get(0);
+        try (PreparedStatement st = connection.prepareStatement(
+                "SELECT " + TableLocation.quoteIdentifier(topoGeomName, dbType) + " FROM " +
+                        demTable + " WHERE " +
+                        TableLocation.quoteIdentifier(topoGeomName, dbType) + " && ?::geometry")) {
+            st.setObject(1, geometryFactory.toGeometry(fetchEnvelope));
+            try (SpatialResultSet rs = st.executeQuery().unwrap(SpatialResultSet.class)) {
+                while (rs.next()) {
+                    Geometry pt = rs.getGeometry();
+                    if(pt != null) {
+                        demPoints.add(pt.getCoordinate());
                     }
                 }
-                double averageZ = 0;
-                if(topoCount > 0) {
-                    averageZ = sumZ / topoCount;
-                }
-                // add corners of envelope to guaranty topography continuity
-                Envelope extentedEnvelope = new Envelope(fetchEnvelope);
-                extentedEnvelope.expandBy(fetchEnvelope.getDiameter());
-                Coordinate[] coordinates = geometryFactory.toGeometry(extentedEnvelope).getCoordinates();
-                for (int i = 0; i < coordinates.length - 1; i++) {
-                    Coordinate coordinate = coordinates[i];
-                    profileBuilder.addTopographicPoint(new Coordinate(coordinate.x, coordinate.y, averageZ));
-                }
             }
         }
     }
 
+    /**
+     * Add the digital elevation model (DEM) points to the mesh, with the corners of the envelope in order to
+     * guaranty the topography continuity.
+     * @param demPoints DEM points located in the envelope
+     * @param fetchEnvelope  the envelope representing the cell.
+     * @param profileBuilder the profile builder mesh to which the DEM data will be added.
+     */
+    protected void addDemPoints(Collection<Coordinate> demPoints, Envelope fetchEnvelope, ProfileBuilder profileBuilder) {
+        GeometryFactory geometryFactory = noiseMapByReceiverMaker.getGeometryFactory();
+        double sumZ = 0;
+        int topoCount = 0;
+        for (Coordinate ptCoordinate : demPoints) {
+            profileBuilder.addTopographicPoint(ptCoordinate);
+            if(!Double.isNaN(ptCoordinate.z)) {
+                sumZ+=ptCoordinate.z;
+                topoCount+=1;
+            }
+        }
+        double averageZ = 0;
+        if(topoCount > 0) {
+            averageZ = sumZ / topoCount;
+        }
+        // add corners of envelope to guaranty topography continuity
+        Envelope extentedEnvelope = new Envelope(fetchEnvelope);
+        extentedEnvelope.expandBy(fetchEnvelope.getDiameter());
+        Coordinate[] coordinates = geometryFactory.toGeometry(extentedEnvelope).getCoordinates();
+        for (int i = 0; i < coordinates.length - 1; i++) {
+            Coordinate coordinate = coordinates[i];
+            profileBuilder.addTopographicPoint(new Coordinate(coordinate.x, coordinate.y, averageZ));
+        }
+    }
+
 
     /**
      * Fetches soil areas data for the specified cell envelope and adds them to the profile builder.
@@ -636,55 +968,84 @@ public class DefaultTableLoader implements NoiseMapByReceiverMaker.TableLoader {
             throws SQLException {
         String soilTableName = noiseMapByReceiverMaker.getSoilTableName();
         if(!soilTableName.isEmpty()){
-            GeometryFactory geometryFactory = noiseMapByReceiverMaker.getGeometryFactory();
-            DBTypes dbType = DBUtils.getDBType(connection.unwrap(Connection.class));
-            double startX = Math.floor(fetchEnvelope.getMinX() / groundSurfaceSplitSideLength) * groundSurfaceSplitSideLength;
-            double startY = Math.floor(fetchEnvelope.getMinY() / groundSurfaceSplitSideLength) * groundSurfaceSplitSideLength;
-            String soilGeomName = getGeometryColumnNames(connection,
-                    TableLocation.parse(soilTableName, dbType)).get(0);
-            try (PreparedStatement st = connection.prepareStatement(
-                    "SELECT " + TableLocation.quoteIdentifier(soilGeomName, dbType) + ", G FROM " +
-                            soilTableName + " WHERE " +
-                            TableLocation.quoteIdentifier(soilGeomName, dbType) + " && ?::geometry")) {
-                st.setObject(1, geometryFactory.toGeometry(fetchEnvelope));
-                try (SpatialResultSet rs = st.executeQuery().unwrap(SpatialResultSet.class)) {
-                    while (rs.next()) {
-                        Geometry mainPolygon = rs.getGeometry();
-                        if(mainPolygon != null) {
-                            for (int idPoly = 0; idPoly < mainPolygon.getNumGeometries(); idPoly++) {
-                                Geometry poly = mainPolygon.getGeometryN(idPoly);
-                                if (poly instanceof Polygon) {
-                                    PreparedPolygon preparedPolygon = new PreparedPolygon((Polygon) poly);
-                                    // Split soil by square
-                                    Envelope geoEnv = poly.getEnvelopeInternal();
-                                    double startXGeo = Math.max(startX, Math.floor(geoEnv.getMinX() / groundSurfaceSplitSideLength) * groundSurfaceSplitSideLength);
-                                    double startYGeo = Math.max(startY, Math.floor(geoEnv.getMinY() / groundSurfaceSplitSideLength) * groundSurfaceSplitSideLength);
-                                    double xCursor = startXGeo;
-                                    double g = rs.getDouble("G");
-                                    double maxX = Math.min(fetchEnvelope.getMaxX(), geoEnv.getMaxX());
-                                    double maxY = Math.min(fetchEnvelope.getMaxY(), geoEnv.getMaxY());
-                                    while (xCursor < maxX) {
-                                        double yCursor = startYGeo;
-                                        while (yCursor < maxY) {
-                                            Envelope cellEnv = new Envelope(xCursor, xCursor + groundSurfaceSplitSideLength, yCursor, yCursor + groundSurfaceSplitSideLength);
-                                            Geometry envGeom = geometryFactory.toGeometry(cellEnv);
-                                            if(preparedPolygon.intersects(envGeom)) {
-                                                try {
-                                                    Geometry inters = poly.intersection(envGeom);
-                                                    if (!inters.isEmpty() && (inters instanceof Polygon || inters instanceof MultiPolygon)) {
-                                                        builder.addGroundEffect(inters, g);
-                                                    }
-                                                } catch (TopologyException | IllegalArgumentException ex) {
-                                                    // Ignore
-                                                }
-                                            }
-                                            yCursor += groundSurfaceSplitSideLength;
-                                        }
-                                        xCursor += groundSurfaceSplitSideLength;
+            List<SoilRow> soilRows = new ArrayList<>();
+            fetchSoilRows(connection, fetchEnvelope, soilRows);
+            addSoilRows(soilRows, fetchEnvelope, builder);
+        }
+    }
+
+    /**
+     * Fetches the rows of the soil table that intersects the envelope.
+     * @param connection         the database connection to use for querying the soil areas data.
+     * @param fetchEnvelope      the envelope to fetch soil areas data for.
+     * @param soilRows           the list to which the rows will be added.
+     * @throws SQLException      if an SQL exception occurs while fetching the soil areas data.
+     */
+    protected void fetchSoilRows(Connection connection, Envelope fetchEnvelope, List<SoilRow> soilRows)
+            throws SQLException {
+        String soilTableName = noiseMapByReceiverMaker.getSoilTableName();
+        GeometryFactory geometryFactory = noiseMapByReceiverMaker.getGeometryFactory();
+        DBTypes dbType = DBUtils.getDBType(connection.unwrap(Connection.class));
+        String soilGeomName = getGeometryColumnNames(connection,
+                TableLocation.parse(soilTableName, dbType)).get(0);
+        try (PreparedStatement st = connection.prepareStatement(
+                "SELECT " + TableLocation.quoteIdentifier(soilGeomName, dbType) + ", G FROM " +
+                        soilTableName + " WHERE " +
+                        TableLocation.quoteIdentifier(soilGeomName, dbType) + " && ?::geometry")) {
+            st.setObject(1, geometryFactory.toGeometry(fetchEnvelope));
+            try (SpatialResultSet rs = st.executeQuery().unwrap(SpatialResultSet.class)) {
+                while (rs.next()) {
+                    Geometry mainPolygon = rs.getGeometry();
+                    if(mainPolygon != null) {
+                        soilRows.add(new SoilRow(mainPolygon, rs.getDouble("G")));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Split the soil areas by squares of {@link #groundSurfaceSplitSideLength} and add them to the profile builder.
+     * @param soilRows           Rows fetched with {@link #fetchSoilRows}
+     * @param fetchEnvelope      the envelope representing the cell.
+     * @param builder            the profile builder to which the soil areas data will be added.
+     */
+    protected void addSoilRows(Collection<SoilRow> soilRows, Envelope fetchEnvelope, ProfileBuilder builder) {
+        GeometryFactory geometryFactory = noiseMapByReceiverMaker.getGeometryFactory();
+        double startX = Math.floor(fetchEnvelope.getMinX() / groundSurfaceSplitSideLength) * groundSurfaceSplitSideLength;
+        double startY = Math.floor(fetchEnvelope.getMinY() / groundSurfaceSplitSideLength) * groundSurfaceSplitSideLength;
+        for (SoilRow soilRow : soilRows) {
+            Geometry mainPolygon = soilRow.geometry;
+            for (int idPoly = 0; idPoly < mainPolygon.getNumGeometries(); idPoly++) {
+                Geometry poly = mainPolygon.getGeometryN(idPoly);
+                if (poly instanceof Polygon) {
+                    PreparedPolygon preparedPolygon = new PreparedPolygon((Polygon) poly);
+                    // Split soil by square
+                    Envelope geoEnv = poly.getEnvelopeInternal();
+                    double startXGeo = Math.max(startX, Math.floor(geoEnv.getMinX() / groundSurfaceSplitSideLength) * groundSurfaceSplitSideLength);
+                    double startYGeo = Math.max(startY, Math.floor(geoEnv.getMinY() / groundSurfaceSplitSideLength) * groundSurfaceSplitSideLength);
+                    double xCursor = startXGeo;
+                    double g = soilRow.g;
+                    double maxX = Math.min(fetchEnvelope.getMaxX(), geoEnv.getMaxX());
+                    double maxY = Math.min(fetchEnvelope.getMaxY(), geoEnv.getMaxY());
+                    while (xCursor < maxX) {
+                        double yCursor = startYGeo;
+                        while (yCursor < maxY) {
+                            Envelope cellEnv = new Envelope(xCursor, xCursor + groundSurfaceSplitSideLength, yCursor, yCursor + groundSurfaceSplitSideLength);
+                            Geometry envGeom = geometryFactory.toGeometry(cellEnv);
+                            if(preparedPolygon.intersects(envGeom)) {
+                                try {
+                                    Geometry inters = poly.intersection(envGeom);
+                                    if (!inters.isEmpty() && (inters instanceof Polygon || inters instanceof MultiPolygon)) {
+                                        builder.addGroundEffect(inters, g);
                                     }
+                                } catch (TopologyException | IllegalArgumentException ex) {
+                                    // Ignore
                                 }
                             }
+                            yCursor += groundSurfaceSplitSideLength;
                         }
+                        xCursor += groundSurfaceSplitSideLength;
                     }
                 }
             }
@@ -0,0 +1,270 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+package org.noise_planet.noisemodelling.jdbc.input;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.noise_planet.noisemodelling.jdbc.NoiseMapByReceiverMaker;
+import org.noise_planet.noisemodelling.jdbc.utils.CellIndex;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keep the static geometries (buildings, digital elevation model, ground areas) fetched from the database in memory
+ * in order to share them between neighbouring computation cells. The fetch envelope of the cells are overlapping
+ * by the propagation distance, so without this cache most of the geometries are read and parsed several times.
+ * The geometries are stored in square tiles, independent of the computation cells. The least recently used tiles are
+ * released when the estimated memory usage is greater than the provided limit. Tiles used by a cell being loaded are
+ * pinned until the {@link TileSet} is closed.
+ * The cache is linked to a single set of input tables, it must not be shared between computations using other tables.
+ * @author Nicolas Fortin
+ */
+public class GeometryTileCache {
+    public static final double DEFAULT_TILE_SIZE = 500;
+    public static final long DEFAULT_MAXIMUM_MEMORY = 512L * 1024 * 1024;
+    // Rough estimation of the memory used by the JTS objects
+    private static final long COORDINATE_MEMORY = 48;
+    private static final long ROW_MEMORY = 100;
+
+    private final double tileSize;
+    private final long maximumMemory;
+    private final LinkedHashMap<CellIndex, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long estimatedMemory = 0;
+    private long tileHit = 0;
+    private long tileLoad = 0;
+
+    public GeometryTileCache() {
+        this(DEFAULT_TILE_SIZE, DEFAULT_MAXIMUM_MEMORY);
+    }
+
+    /**
+     * @param tileSize Side length of the tiles in the projection unit
+     * @param maximumMemory Maximum estimated memory in bytes of the unused tiles kept in cache
+     */
+    public GeometryTileCache(double tileSize, long maximumMemory) {
+        if(tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be greater than 0");
+        }
+        this.tileSize = tileSize;
+        this.maximumMemory = maximumMemory;
+    }
+
+    public double getTileSize() {
+        return tileSize;
+    }
+
+    public long getMaximumMemory() {
+        return maximumMemory;
+    }
+
+    /**
+     * @return Number of tiles requests that have been served without database query
+     */
+    public synchronized long getTileHit() {
+        return tileHit;
+    }
+
+    /**
+     * @return Number of tiles fetched from the database
+     */
+    public synchronized long getTileLoad() {
+        return tileLoad;
+    }
+
+    /**
+     * @return Estimated memory in bytes of the tiles kept in memory
+     */
+    public synchronized long getEstimatedMemory() {
+        return estimatedMemory;
+    }
+
+    /**
+     * @return Number of tiles kept in memory
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Fetch the geometries located in the provided envelope. Missing tiles are loaded from the database.
+     * @param connection Database connection used to fetch the missing tiles
+     * @param tableLoader Table loader that provide the queries
+     * @param fetchEnvelope Envelope of the geometries to fetch
+     * @return Geometries located in the fetch envelope, the returned instance must be closed in order to release the
+     * tiles
+     * @throws SQLException if an SQL exception occurs while fetching the tiles
+     */
+    public synchronized TileSet acquire(Connection connection, DefaultTableLoader tableLoader,
+                                        Envelope fetchEnvelope) throws SQLException {
+        int minI = (int) Math.floor(fetchEnvelope.getMinX() / tileSize);
+        int maxI = (int) Math.floor(fetchEnvelope.getMaxX() / tileSize);
+        int minJ = (int) Math.floor(fetchEnvelope.getMinY() / tileSize);
+        int maxJ = (int) Math.floor(fetchEnvelope.getMaxY() / tileSize);
+        TileSet tileSet = new TileSet();
+        try {
+            for (int j = minJ; j <= maxJ; j++) {
+                for (int i = minI; i <= maxI; i++) {
+                    CellIndex tileIndex = new CellIndex(i, j);
+                    Tile tile = tiles.get(tileIndex);
+                    if (tile == null) {
+                        tile = loadTile(connection, tableLoader, tileIndex);
+                        tiles.put(tileIndex, tile);
+                        estimatedMemory += tile.estimatedMemory;
+                        tileLoad++;
+                    } else {
+                        tileHit++;
+                    }
+                    tile.referenceCount++;
+                    tileSet.tiles.add(tile);
+                    tileSet.feed(tile, fetchEnvelope, minI, maxI, minJ, maxJ);
+                }
+            }
+        } catch (SQLException | RuntimeException ex) {
+            tileSet.close();
+            throw ex;
+        }
+        releaseMemory();
+        return tileSet;
+    }
+
+    /**
+     * Remove the least recently used tiles until the memory usage is lower than the limit
+     */
+    private void releaseMemory() {
+        Iterator<Map.Entry<CellIndex, Tile>> it = tiles.entrySet().iterator();
+        while (estimatedMemory > maximumMemory && it.hasNext()) {
+            Tile tile = it.next().getValue();
+            if (tile.referenceCount == 0) {
+                estimatedMemory -= tile.estimatedMemory;
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized void release(List<Tile> releasedTiles) {
+        for (Tile tile : releasedTiles) {
+            tile.referenceCount--;
+        }
+        releasedTiles.clear();
+        releaseMemory();
+    }
+
+    /**
+     * Remove all tiles that are not currently used
+     */
+    public synchronized void clear() {
+        tiles.values().removeIf(tile -> {
+            if (tile.referenceCount == 0) {
+                estimatedMemory -= tile.estimatedMemory;
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private Tile loadTile(Connection connection, DefaultTableLoader tableLoader, CellIndex tileIndex)
+            throws SQLException {
+        NoiseMapByReceiverMaker noiseMapByReceiverMaker = tableLoader.noiseMapByReceiverMaker;
+        GeometryFactory geometryFactory = noiseMapByReceiverMaker.getGeometryFactory();
+        Envelope tileEnvelope = new Envelope(tileIndex.getLongitudeIndex() * tileSize,
+                (tileIndex.getLongitudeIndex() + 1) * tileSize, tileIndex.getLatitudeIndex() * tileSize,
+                (tileIndex.getLatitudeIndex() + 1) * tileSize);
+        Tile tile = new Tile(tileIndex);
+        DefaultTableLoader.fetchBuildingRows(connection, noiseMapByReceiverMaker.getBuildingTableParameters(),
+                tileEnvelope, tile.buildingRows, geometryFactory);
+        if(noiseMapByReceiverMaker.getDemGrid() == null && !noiseMapByReceiverMaker.getDemTable().isEmpty()) {
+            tableLoader.fetchDemPoints(connection, tileEnvelope, tile.demPoints);
+        }
+        if(!noiseMapByReceiverMaker.getSoilTableName().isEmpty()) {
+            tableLoader.fetchSoilRows(connection, tileEnvelope, tile.soilRows);
+        }
+        long memory = tile.demPoints.size() * COORDINATE_MEMORY;
+        for (DefaultTableLoader.BuildingRow buildingRow : tile.buildingRows) {
+            memory += ROW_MEMORY + buildingRow.geometry.getNumPoints() * COORDINATE_MEMORY;
+        }
+        for (DefaultTableLoader.SoilRow soilRow : tile.soilRows) {
+            memory += ROW_MEMORY + soilRow.geometry.getNumPoints() * COORDINATE_MEMORY;
+        }
+        tile.estimatedMemory = memory;
+        return tile;
+    }
+
+    /**
+     * Geometries fetched from the database and located in a tile
+     */
+    private static class Tile {
+        final CellIndex tileIndex;
+        final List<DefaultTableLoader.BuildingRow> buildingRows = new ArrayList<>();
+        final List<Coordinate> demPoints = new ArrayList<>();
+        final List<DefaultTableLoader.SoilRow> soilRows = new ArrayList<>();
+        long estimatedMemory = 0;
+        int referenceCount = 0;
+
+        Tile(CellIndex tileIndex) {
+            this.tileIndex = tileIndex;
+        }
+    }
+
+    /**
+     * Geometries of a fetch envelope. A geometry located in several tiles is only given once.
+     */
+    public class TileSet implements AutoCloseable {
+        private final List<Tile> tiles = new ArrayList<>();
+        public final List<DefaultTableLoader.BuildingRow> buildingRows = new ArrayList<>();
+        public final List<Coordinate> demPoints = new ArrayList<>();
+        public final List<DefaultTableLoader.SoilRow> soilRows = new ArrayList<>();
+
+        /**
+         * Check if the geometry must be given by this tile. Each geometry is owned by the tile that contains the
+         * lower left corner of its envelope, clamped to the tiles range of the fetch envelope.
+         */
+        private boolean isOwner(Tile tile, Envelope envelope, int minI, int maxI, int minJ, int maxJ) {
+            int i = Math.max(minI, Math.min(maxI, (int) Math.floor(envelope.getMinX() / tileSize)));
+            int j = Math.max(minJ, Math.min(maxJ, (int) Math.floor(envelope.getMinY() / tileSize)));
+            return tile.tileIndex.getLongitudeIndex() == i && tile.tileIndex.getLatitudeIndex() == j;
+        }
+
+        private void feed(Tile tile, Envelope fetchEnvelope, int minI, int maxI, int minJ, int maxJ) {
+            for (DefaultTableLoader.BuildingRow buildingRow : tile.buildingRows) {
+                Envelope envelope = buildingRow.geometry.getEnvelopeInternal();
+                if (fetchEnvelope.intersects(envelope) && isOwner(tile, envelope, minI, maxI, minJ, maxJ)) {
+                    buildingRows.add(buildingRow);
+                }
+            }
+            for (Coordinate demPoint : tile.demPoints) {
+                Envelope envelope = new Envelope(demPoint);
+                if (fetchEnvelope.intersects(demPoint) && isOwner(tile, envelope, minI, maxI, minJ, maxJ)) {
+                    // the profile builder may update the coordinate
+                    demPoints.add(new Coordinate(demPoint));
+                }
+            }
+            for (DefaultTableLoader.SoilRow soilRow : tile.soilRows) {
+                Envelope envelope = soilRow.geometry.getEnvelopeInternal();
+                if (fetchEnvelope.intersects(envelope) && isOwner(tile, envelope, minI, maxI, minJ, maxJ)) {
+                    soilRows.add(soilRow);
+                }
+            }
+        }
+
+        /**
+         * Release the tiles, they can be removed from the cache if the memory limit is reached
+         */
+        @Override
+        public void close() {
+            release(tiles);
+        }
+    }
+}
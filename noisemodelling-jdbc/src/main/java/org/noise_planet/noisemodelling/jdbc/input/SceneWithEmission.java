@@ -160,6 +160,19 @@ public class SceneWithEmission extends SceneWithAttenuation {
         }
     }
 
+    /**
+     * @param sourcePk Source primary key
+     * @return Maximum power of the source among the periods, 0 if the source has no emission
+     */
+    @Override
+    public double getSourcePowerWeight(long sourcePk) {
+        double power = 0;
+        for (PeriodEmission periodEmission : wjSources.getOrDefault(sourcePk, new ArrayList<>())) {
+            power = Math.max(power, sumArray(periodEmission.emission));
+        }
+        return power;
+    }
+
     @Override
     public void clearSources() {
         super.clearSources();
@@ -0,0 +1,194 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read an attenuation matrix file written by {@link AttenuationMatrixWriter}. The index is loaded in memory, the
+ * blocks are read on demand with positional reads so that several threads can read the blocks at the same time.
+ * @author Nicolas Fortin
+ */
+public class AttenuationMatrixReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final int[] frequencies;
+    private final List<String> periods;
+    private final long[] receiverPk;
+    private final int[] periodIndex;
+    private final int[] sourceCount;
+    private final long[] position;
+
+    /**
+     * Open the file and load the index
+     * @param file Attenuation matrix file
+     * @throws IOException Error while reading the file or not an attenuation matrix file
+     */
+    public AttenuationMatrixReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, 3 * Integer.BYTES);
+            if (header.getInt() != AttenuationMatrixWriter.MAGIC ||
+                    header.getInt() != AttenuationMatrixWriter.VERSION) {
+                throw new IOException(String.format("%s is not an attenuation matrix file", file));
+            }
+            int frequencyCount = header.getInt();
+            ByteBuffer frequencyBuffer = read(3 * Integer.BYTES, frequencyCount * Integer.BYTES);
+            frequencies = new int[frequencyCount];
+            for (int i = 0; i < frequencyCount; i++) {
+                frequencies[i] = frequencyBuffer.getInt();
+            }
+            long footerPosition = read(channel.size() - Long.BYTES, Long.BYTES).getLong();
+            long footerSize = channel.size() - Long.BYTES - footerPosition;
+            if (footerPosition < 0 || footerSize < 0 || footerSize > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Invalid attenuation matrix file %s", file));
+            }
+            ByteBuffer footer = read(footerPosition, (int) footerSize);
+            int periodCount = footer.getInt();
+            List<String> periodList = new ArrayList<>(periodCount);
+            for (int i = 0; i < periodCount; i++) {
+                byte[] periodBytes = new byte[footer.getInt()];
+                footer.get(periodBytes);
+                periodList.add(new String(periodBytes, StandardCharsets.UTF_8));
+            }
+            periods = Collections.unmodifiableList(periodList);
+            int blockCount = footer.getInt();
+            receiverPk = new long[blockCount];
+            periodIndex = new int[blockCount];
+            sourceCount = new int[blockCount];
+            position = new long[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                receiverPk[i] = footer.getLong();
+                periodIndex[i] = footer.getInt();
+                sourceCount[i] = footer.getInt();
+                position[i] = footer.getLong();
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private ByteBuffer read(long filePosition, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(buffer, filePosition);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void readFully(ByteBuffer buffer, long filePosition) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, filePosition);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            filePosition += read;
+        }
+    }
+
+    /**
+     * @return Frequency bands of the attenuation spectrum
+     */
+    public int[] getFrequencies() {
+        return frequencies;
+    }
+
+    /**
+     * @return Periods of the atmospheric settings, empty string for the default settings
+     */
+    public List<String> getPeriods() {
+        return periods;
+    }
+
+    /**
+     * @return Number of blocks (receiver and period)
+     */
+    public int getBlockCount() {
+        return receiverPk.length;
+    }
+
+    /**
+     * @param blockIndex Block index, the blocks are sorted by receiver identifier then by period
+     * @return Receiver identifier of the block
+     */
+    public long getReceiverPk(int blockIndex) {
+        return receiverPk[blockIndex];
+    }
+
+    /**
+     * @param blockIndex Block index
+     * @return Index of the period in {@link #getPeriods()}
+     */
+    public int getPeriodIndex(int blockIndex) {
+        return periodIndex[blockIndex];
+    }
+
+    /**
+     * @param blockIndex Block index
+     * @return Number of sources of the block
+     */
+    public int getSourceCount(int blockIndex) {
+        return sourceCount[blockIndex];
+    }
+
+    /**
+     * Read a block, this method can be called by multiple threads with a different block instance
+     * @param blockIndex Block index
+     * @param block Block to fill, its arrays are reused if they are large enough
+     * @throws IOException Error while reading the file
+     */
+    public void readBlock(int blockIndex, Block block) throws IOException {
+        int count = sourceCount[blockIndex];
+        int length = count * Long.BYTES + count * frequencies.length * Float.BYTES;
+        if (block.buffer == null || block.buffer.capacity() < length) {
+            block.buffer = ByteBuffer.allocate(length);
+            block.sourcePk = new long[count];
+            block.attenuation = new float[count * frequencies.length];
+        }
+        ByteBuffer buffer = block.buffer;
+        buffer.clear();
+        buffer.limit(length);
+        readFully(buffer, position[blockIndex]);
+        buffer.flip();
+        block.receiverPk = receiverPk[blockIndex];
+        block.periodIndex = periodIndex[blockIndex];
+        block.sourceCount = count;
+        buffer.asLongBuffer().get(block.sourcePk, 0, count);
+        buffer.position(count * Long.BYTES);
+        buffer.asFloatBuffer().get(block.attenuation, 0, count * frequencies.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Attenuation of all the sources of a receiver for one period
+     */
+    public static class Block {
+        public long receiverPk;
+        public int periodIndex;
+        public int sourceCount;
+        /** Source identifiers, only the first sourceCount values are valid */
+        public long[] sourcePk = new long[0];
+        /** Attenuation in dB, {@code attenuation[idFrequency * sourceCount + idSource]} */
+        public float[] attenuation = new float[0];
+        private ByteBuffer buffer;
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Write the attenuation between each receiver and each sound source into a compact binary file. The attenuation matrix
+ * is computed once and the emission of the sources can then be applied for any number of scenarios with
+ * {@link org.noise_planet.noisemodelling.jdbc.AttenuationMatrixCombiner} without running again the propagation.
+ * <p>
+ * The file is made of one block per receiver and attenuation period. A block is stored in columns: the source
+ * identifiers, then for each frequency band the attenuation in dB of all sources (float32). The blocks are written in
+ * the order of computation, an index sorted by receiver identifier is written at the end of the file on
+ * {@link #close()}. This class is thread safe.
+ * @author Nicolas Fortin
+ */
+public class AttenuationMatrixWriter implements AutoCloseable {
+    static final int MAGIC = 0x4E4D414D; // NMAM
+    static final int VERSION = 1;
+    /** Size in bytes of an entry of the index: receiver pk, period index, source count, block position */
+    static final int INDEX_ENTRY_SIZE = Long.BYTES + 2 * Integer.BYTES + Long.BYTES;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+    private final File file;
+    private final File tmpFile;
+    private final int[] frequencies;
+    private final DataOutputStream out;
+    private long position;
+    private final Map<String, Integer> periodIndex = new HashMap<>();
+    private final List<String> periods = new ArrayList<>();
+    private long[] indexReceiverPk = new long[INITIAL_INDEX_CAPACITY];
+    private int[] indexPeriod = new int[INITIAL_INDEX_CAPACITY];
+    private int[] indexSourceCount = new int[INITIAL_INDEX_CAPACITY];
+    private long[] indexPosition = new long[INITIAL_INDEX_CAPACITY];
+    private int blockCount = 0;
+    private long attenuationCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Create the file, the content is written in a temporary file until {@link #close()} is called
+     * @param file Destination file
+     * @param frequencies Frequency bands of the attenuation spectrum
+     * @throws IOException Error while creating the file
+     */
+    public AttenuationMatrixWriter(File file, List<Integer> frequencies) throws IOException {
+        this.file = file;
+        this.tmpFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        this.frequencies = frequencies.stream().mapToInt(Integer::intValue).toArray();
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath()),
+                NoiseMapWriter.WRITER_CACHE));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(this.frequencies.length);
+        for (int frequency : this.frequencies) {
+            out.writeInt(frequency);
+        }
+        position = 3L * Integer.BYTES + (long) this.frequencies.length * Integer.BYTES;
+    }
+
+    /**
+     * @return Frequency bands of the attenuation spectrum
+     */
+    public int[] getFrequencies() {
+        return frequencies;
+    }
+
+    /**
+     * @return Number of receiver/source attenuation spectrum written
+     */
+    public synchronized long getAttenuationCount() {
+        return attenuationCount;
+    }
+
+    /**
+     * Write the attenuation of all the sources of a receiver for one period
+     * @param receiverPk Receiver identifier
+     * @param period Period of the atmospheric settings used to compute the attenuation, empty for default settings
+     * @param sourcePk Source identifiers
+     * @param attenuation Attenuation in dB, stored by frequency band then by source
+     *                    {@code attenuation[idFrequency * sourcePk.length + idSource]}
+     * @throws IOException Error while writing in the file
+     */
+    public synchronized void write(long receiverPk, String period, long[] sourcePk, float[] attenuation)
+            throws IOException {
+        if(closed) {
+            throw new IOException("The attenuation matrix file is closed");
+        }
+        if(attenuation.length != sourcePk.length * frequencies.length) {
+            throw new IllegalArgumentException("Expected " + sourcePk.length * frequencies.length +
+                    " attenuation values, got " + attenuation.length);
+        }
+        Integer idPeriod = periodIndex.get(period);
+        if(idPeriod == null) {
+            idPeriod = periods.size();
+            periods.add(period);
+            periodIndex.put(period, idPeriod);
+        }
+        if(blockCount == indexReceiverPk.length) {
+            int capacity = blockCount * 2;
+            indexReceiverPk = Arrays.copyOf(indexReceiverPk, capacity);
+            indexPeriod = Arrays.copyOf(indexPeriod, capacity);
+            indexSourceCount = Arrays.copyOf(indexSourceCount, capacity);
+            indexPosition = Arrays.copyOf(indexPosition, capacity);
+        }
+        indexReceiverPk[blockCount] = receiverPk;
+        indexPeriod[blockCount] = idPeriod;
+        indexSourceCount[blockCount] = sourcePk.length;
+        indexPosition[blockCount] = position;
+        blockCount++;
+        for (long pk : sourcePk) {
+            out.writeLong(pk);
+        }
+        for (float value : attenuation) {
+            out.writeFloat(value);
+        }
+        position += (long) sourcePk.length * Long.BYTES + (long) attenuation.length * Float.BYTES;
+        attenuationCount += sourcePk.length;
+    }
+
+    /**
+     * Write the index sorted by receiver and move the temporary file to the destination file
+     * @throws IOException Error while writing the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long footerPosition = position;
+            out.writeInt(periods.size());
+            for (String period : periods) {
+                byte[] periodBytes = period.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(periodBytes.length);
+                out.write(periodBytes);
+            }
+            int[] order = IntStream.range(0, blockCount).boxed()
+                    .sorted(Comparator.<Integer>comparingLong(i -> indexReceiverPk[i])
+                            .thenComparingInt(i -> indexPeriod[i]))
+                    .mapToInt(Integer::intValue).toArray();
+            out.writeInt(blockCount);
+            for (int i : order) {
+                out.writeLong(indexReceiverPk[i]);
+                out.writeInt(indexPeriod[i]);
+                out.writeInt(indexSourceCount[i]);
+                out.writeLong(indexPosition[i]);
+            }
+            out.writeLong(footerPosition);
+        } finally {
+            out.close();
+        }
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
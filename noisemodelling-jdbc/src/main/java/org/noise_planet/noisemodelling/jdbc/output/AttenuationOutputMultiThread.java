@@ -30,6 +30,10 @@ public class AttenuationOutputMultiThread implements CutPlaneVisitorFactory {
     public AtomicBoolean exitWhenDone = new AtomicBoolean(false);
     public AtomicBoolean aborted = new AtomicBoolean(false);
     public AtomicLong cnossosPathCount = new AtomicLong();
+    /**
+     * If not null, the attenuation of each receiver/source is written into this file
+     */
+    public AttenuationMatrixWriter attenuationMatrixWriter = null;
 
     /**
      * Create NoiseMap constructor
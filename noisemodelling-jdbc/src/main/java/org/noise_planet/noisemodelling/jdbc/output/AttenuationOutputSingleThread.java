@@ -22,12 +22,14 @@ import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutProfile;
 import org.noise_planet.noisemodelling.propagation.AttenuationParameters;
 import org.noise_planet.noisemodelling.propagation.ReceiverNoiseLevel;
 import org.noise_planet.noisemodelling.propagation.cnossos.AttenuationCnossos;
+import org.noise_planet.noisemodelling.propagation.cnossos.AttenuationContext;
 import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPath;
 import org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicatorsFunctions;
 import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPathBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.DoubleStream;
 
@@ -69,10 +71,18 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
      */
     double sumMaximumRemainingWjExpectedSplAtReceiver = 0;
 
+    /**
+     * Equivalent sources of the current receiver, key is the source index
+     */
+    Map<Integer, PathFinder.SourcePointInfo> equivalentSources = new HashMap<>();
+
     public AtomicInteger cutProfileCount = new AtomicInteger(0);
 
     ProgressVisitor progressVisitor;
 
+    /** Derived values and work arrays of the attenuation computation of this thread */
+    AttenuationContext.Cache attenuationContexts = new AttenuationContext.Cache();
+
     /**
      * Constructs a NoiseMapInStack object with a multithreaded parent NoiseMap instance.
      * This class is not thread-safe
@@ -88,7 +98,7 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
         if(wjAtReceiver.length != wjLevel.length) {
             wjAtReceiver = wjLevel.clone();
         } else {
-            wjAtReceiver = AcousticIndicatorsFunctions.sumArray(wjAtReceiver, wjLevel);
+            AcousticIndicatorsFunctions.sumArray(wjAtReceiver, wjLevel, wjAtReceiver);
         }
     }
 
@@ -97,7 +107,7 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
      * @param sourceInfo
      * @param receiverInfo
      * @param cnossosParameters
-     * @return Attenuation in dB
+     * @return Attenuation in w
      */
     private static double[] computeFastAttenuation(PathFinder.SourcePointInfo sourceInfo,
                                                    PathFinder.ReceiverPointInfo receiverInfo, AttenuationParameters cnossosParameters) {
@@ -106,13 +116,19 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
         double distance = Math.max(1.0, sourceInfo.position.distance3D(receiverInfo.position));
         // 3 dB gain as we consider source G path is equal to 0
         double attenuationDivGeom = AttenuationCnossos.getADiv(distance) - 3;
-        return AcousticIndicatorsFunctions.multiplicationArray(AcousticIndicatorsFunctions.sumArray(
-                    AttenuationCnossos.aAtm(cnossosParameters.getAlpha_atmo(), distance),
-                    attenuationDivGeom), -1);
+        double[] attenuation = AttenuationCnossos.aAtm(cnossosParameters.getAlpha_atmo(), distance);
+        for (int i = 0; i < attenuation.length; i++) {
+            attenuation[i] = dBToW(-(attenuation[i] + attenuationDivGeom));
+        }
+        return attenuation;
     }
 
+    /**
+     * @return Attenuation in w
+     */
     private double[] processAndStoreAttenuation(AttenuationParameters data, CnossosPath proPathParameters, String period) {
-        double[] attenuation = AttenuationCnossos.computeCnossosAttenuation(data, proPathParameters, multiThread.sceneWithEmission,
+        double[] attenuation = AttenuationCnossos.computeCnossosAttenuation(attenuationContexts.get(data),
+                proPathParameters, multiThread.sceneWithEmission,
                 multiThread.noiseMapDatabaseParameters.exportAttenuationMatrix);
         if(multiThread.noiseMapDatabaseParameters.exportRaysMethod == NoiseMapDatabaseParameters.ExportRaysMethods.TO_RAYS_TABLE &&
                 multiThread.noiseMapDatabaseParameters.exportAttenuationMatrix) {
@@ -120,7 +136,8 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
             cnossosPath.setTimePeriod(period);
             cnossosPaths.add(cnossosPath);
         }
-        return attenuation;
+        // The returned array is not kept by the path, convert it in place
+        return dBToW(attenuation, attenuation);
     }
 
     /**
@@ -128,16 +145,19 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
      * @param noiseLevel
      */
     private void processNoiseLevel(ReceiverNoiseLevel noiseLevel) {
+        // the attenuation matrix keeps the attenuation of each source
+        boolean mergeSources = dbSettings.isMergeSources() && !isExportAttenuationMatrix();
         int keyToUpdate = UNKNOWN_SOURCE_ID;
-        if(!dbSettings.isMergeSources()) {
+        if(!mergeSources) {
             keyToUpdate = noiseLevel.source.sourceIndex;
         }
-        TimePeriodParameters periodParameters = new TimePeriodParameters(
-                dbSettings.isMergeSources() ? new PathFinder.SourcePointInfo() : noiseLevel.source,
-                noiseLevel.period, noiseLevel.levels);
-
-        receiverAttenuationList.merge(keyToUpdate, periodParameters,
-                TimePeriodParameters::update);
+        TimePeriodParameters periodParameters = receiverAttenuationList.get(keyToUpdate);
+        if(periodParameters == null) {
+            periodParameters = new TimePeriodParameters(
+                    mergeSources ? new PathFinder.SourcePointInfo() : noiseLevel.source);
+            receiverAttenuationList.put(keyToUpdate, periodParameters);
+        }
+        periodParameters.addLevels(noiseLevel.period, noiseLevel.levels);
     }
 
     @Override
@@ -161,66 +181,89 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
                 // Copy path content in order to keep original ids for other method calls
                 this.cnossosPaths.add(cnossosPath);
             }
+            // An equivalent source gives the levels of the sources it replaces
+            PathFinder.SourcePointInfo equivalentSource = equivalentSources.get(source.id);
+            List<PathFinder.SourcePointInfo> sources = equivalentSource == null ?
+                    Collections.singletonList(new PathFinder.SourcePointInfo(source)) :
+                    equivalentSource.aggregatedSources;
+            PathFinder.ReceiverPointInfo receiverInfo = new PathFinder.ReceiverPointInfo(receiver);
             if(scene.wjSources.isEmpty()) {
                 // No emission push only attenuation for each period
                 if(!scene.cnossosParametersPerPeriod.isEmpty()) {
                     for (Map.Entry<String, AttenuationParameters> cnossosParametersEntry :
                             scene.cnossosParametersPerPeriod.entrySet()) {
-                        double[] attenuation = dBToW(processAndStoreAttenuation(cnossosParametersEntry.getValue(),
-                                cnossosPath, cnossosParametersEntry.getKey()));
-                        ReceiverNoiseLevel receiverNoiseLevel =
-                                new ReceiverNoiseLevel(new PathFinder.SourcePointInfo(source),
-                                        new PathFinder.ReceiverPointInfo(receiver), cnossosParametersEntry.getKey(),
-                                        attenuation);
-                        processNoiseLevel(receiverNoiseLevel);
+                        double[] attenuation = processAndStoreAttenuation(cnossosParametersEntry.getValue(),
+                                cnossosPath, cnossosParametersEntry.getKey());
+                        for (PathFinder.SourcePointInfo sourceInfo : sources) {
+                            processNoiseLevel(new ReceiverNoiseLevel(sourceInfo, receiverInfo,
+                                    cnossosParametersEntry.getKey(),
+                                    getSourceAttenuation(attenuation, sourceInfo, equivalentSource)));
+                        }
                     }
                 } else {
-                    double[] attenuation = dBToW(processAndStoreAttenuation(scene.defaultCnossosParameters, cnossosPath, ""));
-                    ReceiverNoiseLevel receiverNoiseLevel =
-                            new ReceiverNoiseLevel(new PathFinder.SourcePointInfo(source),
-                                    new PathFinder.ReceiverPointInfo(receiver), "",
-                                    attenuation);
-                    processNoiseLevel(receiverNoiseLevel);
+                    double[] attenuation = processAndStoreAttenuation(scene.defaultCnossosParameters, cnossosPath, "");
+                    for (PathFinder.SourcePointInfo sourceInfo : sources) {
+                        processNoiseLevel(new ReceiverNoiseLevel(sourceInfo, receiverInfo, "",
+                                getSourceAttenuation(attenuation, sourceInfo, equivalentSource)));
+                    }
                 }
             } else {
                 // Apply period attenuation to emission for each time period covered by the source emission
                 double[] defaultAttenuation = new double[0];
-                if(scene.wjSources.containsKey(sourcePk)) {
-                    ArrayList<SceneWithEmission.PeriodEmission> emissions = scene.wjSources.get(sourcePk);
-                    double[] minimalPowerForAllPeriods = new double[0];
-                    double minimalPowerSum = Double.MAX_VALUE;
+                Map<String, double[]> attenuationPerPeriod = new HashMap<>();
+                // Levels of all the sources for each period
+                Map<String, double[]> levelsPerPeriod = new HashMap<>();
+                for (PathFinder.SourcePointInfo sourceInfo : sources) {
+                    long emissionPk = equivalentSource == null ? sourcePk : sourceInfo.sourcePk;
+                    if(!scene.wjSources.containsKey(emissionPk)) {
+                        continue;
+                    }
+                    ArrayList<SceneWithEmission.PeriodEmission> emissions = scene.wjSources.get(emissionPk);
                     for (SceneWithEmission.PeriodEmission periodEmission : emissions) {
                         String period = periodEmission.period;
-                        double [] attenuation = new double[0];
-                        // look for specific atmospheric settings for this period
-                        if(scene.cnossosParametersPerPeriod.containsKey(period)) {
-                            attenuation = dBToW(processAndStoreAttenuation(scene.cnossosParametersPerPeriod.get(period),
-                                    cnossosPath, period));
-                        } else {
-                            if(defaultAttenuation.length == 0) {
-                                // None ? ok fallback to default settings
-                                defaultAttenuation = dBToW(processAndStoreAttenuation(scene.defaultCnossosParameters,
-                                        cnossosPath, ""));
+                        double [] attenuation = attenuationPerPeriod.get(period);
+                        if(attenuation == null) {
+                            // look for specific atmospheric settings for this period
+                            if (scene.cnossosParametersPerPeriod.containsKey(period)) {
+                                attenuation = processAndStoreAttenuation(
+                                        scene.cnossosParametersPerPeriod.get(period), cnossosPath, period);
+                            } else {
+                                if (defaultAttenuation.length == 0) {
+                                    // None ? ok fallback to default settings
+                                    defaultAttenuation = processAndStoreAttenuation(
+                                            scene.defaultCnossosParameters, cnossosPath, "");
+                                }
+                                attenuation = defaultAttenuation;
                             }
-                            attenuation = defaultAttenuation;
+                            attenuationPerPeriod.put(period, attenuation);
                         }
-                        double[] levels = multiplicationArray(attenuation, periodEmission.emission);
+                        double[] levels = accumulateMultiplication(new double[attenuation.length], attenuation,
+                                periodEmission.emission, getSourceCoefficient(sourceInfo, equivalentSource));
                         ReceiverNoiseLevel receiverNoiseLevel =
-                                new ReceiverNoiseLevel(new PathFinder.SourcePointInfo(source),
-                                        new PathFinder.ReceiverPointInfo(receiver), period, levels);
+                                new ReceiverNoiseLevel(sourceInfo, receiverInfo, period, levels);
                         processNoiseLevel(receiverNoiseLevel);
                         if(dbSettings.maximumError > 0) {
-                            double powerSum = sumArray(levels);
-                            if(powerSum < minimalPowerSum) {
-                                minimalPowerSum = powerSum;
-                                minimalPowerForAllPeriods = levels;
+                            double[] periodLevels = levelsPerPeriod.get(period);
+                            if(periodLevels == null) {
+                                levelsPerPeriod.put(period, levels.clone());
+                            } else {
+                                sumArray(periodLevels, levels, periodLevels);
                             }
                         }
                     }
-                    if(dbSettings.maximumError > 0) {
-                        // Add minimal power
-                        addGlobalReceiverLevel(minimalPowerForAllPeriods);
+                }
+                if(dbSettings.maximumError > 0 && !levelsPerPeriod.isEmpty()) {
+                    // Add minimal power
+                    double[] minimalPowerForAllPeriods = new double[0];
+                    double minimalPowerSum = Double.MAX_VALUE;
+                    for (double[] levels : levelsPerPeriod.values()) {
+                        double powerSum = sumArray(levels);
+                        if(powerSum < minimalPowerSum) {
+                            minimalPowerSum = powerSum;
+                            minimalPowerForAllPeriods = levels;
+                        }
                     }
+                    addGlobalReceiverLevel(minimalPowerForAllPeriods);
                 }
             }
             if(dbSettings.maximumError > 0 && !scene.wjSources.isEmpty()) {
@@ -243,10 +286,45 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
         return strategy;
     }
 
+    /**
+     * The attenuation of an equivalent source does not include the length of the line source segments it replaces
+     * @param attenuation Attenuation of the propagation path in w
+     * @param sourceInfo Source
+     * @param equivalentSource Equivalent source of the path or null
+     * @return Attenuation of the source in w
+     */
+    private static double[] getSourceAttenuation(double[] attenuation, PathFinder.SourcePointInfo sourceInfo,
+                                            PathFinder.SourcePointInfo equivalentSource) {
+        double coefficient = getSourceCoefficient(sourceInfo, equivalentSource);
+        if(coefficient != 1.0) {
+            return multiplicationArray(attenuation, coefficient);
+        }
+        return attenuation;
+    }
+
+    /**
+     * @param sourceInfo Source
+     * @param equivalentSource Equivalent source of the path or null
+     * @return Factor to apply to the attenuation of the path in w for this source
+     */
+    private static double getSourceCoefficient(PathFinder.SourcePointInfo sourceInfo,
+                                               PathFinder.SourcePointInfo equivalentSource) {
+        if(equivalentSource != null && sourceInfo.li > 1.0) {
+            return sourceInfo.li;
+        }
+        return 1.0;
+    }
+
     @Override
     public void startReceiver(PathFinder.ReceiverPointInfo receiver, Collection<PathFinder.SourcePointInfo> sourceList, AtomicInteger cutProfileCount) {
         this.cutProfileCount = cutProfileCount;
         wjAtReceiver = new double[0];
+        equivalentSources.clear();
+        for (PathFinder.SourcePointInfo sourcePointInfo : sourceList) {
+            if(!sourcePointInfo.aggregatedSources.isEmpty()) {
+                equivalentSources.put(sourcePointInfo.sourceIndex, sourcePointInfo);
+            }
+        }
         // Quickly evaluate the maximum expected power level at receiver location
         // using all nearby sources maximum emission in reflective direct field
         if(dbSettings.getMaximumError() > 0 && !multiThread.sceneWithEmission.wjSources.isEmpty()) {
@@ -254,17 +332,32 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
             final SceneWithEmission scene = multiThread.sceneWithEmission;
             for (PathFinder.SourcePointInfo sourcePointInfo : sourceList) {
                 int sourceHashCode = sourcePointInfo.getCoord().hashCode();
-                double[] attenuation = dBToW(computeFastAttenuation(sourcePointInfo, receiver, scene.defaultCnossosParameters));
-                if(scene.wjSources.containsKey(sourcePointInfo.sourcePk)) {
-                    ArrayList<SceneWithEmission.PeriodEmission> emissions = scene.wjSources.get(sourcePointInfo.sourcePk);
-                    for (SceneWithEmission.PeriodEmission periodEmission : emissions) {
-                        double[] wjAtReceiver = multiplicationArray(attenuation, periodEmission.emission);
-                        double sumPower = sumArray(wjAtReceiver);
-                        double previousPowerAtLocation = maximumWjExpectedSplAtReceiver.getOrDefault(sourceHashCode, 0.0);
-                        if(sumPower > previousPowerAtLocation) {
-                            maximumWjExpectedSplAtReceiver.put(sourceHashCode, sumPower);
+                double[] attenuation = computeFastAttenuation(sourcePointInfo, receiver, scene.defaultCnossosParameters);
+                if(sourcePointInfo.aggregatedSources.isEmpty()) {
+                    if(scene.wjSources.containsKey(sourcePointInfo.sourcePk)) {
+                        ArrayList<SceneWithEmission.PeriodEmission> emissions = scene.wjSources.get(sourcePointInfo.sourcePk);
+                        for (SceneWithEmission.PeriodEmission periodEmission : emissions) {
+                            double sumPower = multiplicationSum(attenuation, periodEmission.emission);
+                            double previousPowerAtLocation = maximumWjExpectedSplAtReceiver.getOrDefault(sourceHashCode, 0.0);
+                            if(sumPower > previousPowerAtLocation) {
+                                maximumWjExpectedSplAtReceiver.put(sourceHashCode, sumPower);
+                            }
                         }
                     }
+                } else {
+                    // Sum of the sources of the equivalent source for each period
+                    Map<String, Double> powerPerPeriod = new HashMap<>();
+                    for (PathFinder.SourcePointInfo aggregatedSource : sourcePointInfo.aggregatedSources) {
+                        double coefficient = getSourceCoefficient(aggregatedSource, sourcePointInfo);
+                        for (SceneWithEmission.PeriodEmission periodEmission :
+                                scene.wjSources.getOrDefault(aggregatedSource.sourcePk, new ArrayList<>())) {
+                            powerPerPeriod.merge(periodEmission.period,
+                                    coefficient * multiplicationSum(attenuation, periodEmission.emission),
+                                    Double::sum);
+                        }
+                    }
+                    powerPerPeriod.values().stream().max(Double::compare).ifPresent(
+                            power -> maximumWjExpectedSplAtReceiver.merge(sourceHashCode, power, Math::max));
                 }
             }
             sumMaximumRemainingWjExpectedSplAtReceiver = maximumWjExpectedSplAtReceiver.values()
@@ -273,45 +366,25 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
     }
 
     /**
-     * Pushes attenuation data into a concurrent linked deque.
-     * @param stack Stack to feed
+     * Pushes attenuation data into the results cache, wait if the cache is full.
      * @param data receiver noise level in dB
      */
-    public void pushInStack(ConcurrentLinkedDeque<ReceiverNoiseLevel> stack, ReceiverNoiseLevel data) {
-        while(multiThread.resultsCache.queueSize.get() > dbSettings.outputMaximumQueue) {
-            try {
-                Thread.sleep(10);
-            } catch (InterruptedException ex) {
-                multiThread.aborted.set(true);
-                break;
-            }
-            if(multiThread.aborted.get()) {
+    public void pushInStack(ReceiverNoiseLevel data) {
+        try {
+            if(!multiThread.resultsCache.push(data, dbSettings.outputMaximumQueue, multiThread.aborted)) {
                 progressVisitor.cancel();
-                return;
             }
+        } catch (InterruptedException ex) {
+            multiThread.aborted.set(true);
+            Thread.currentThread().interrupt();
         }
-        stack.add(data);
-        multiThread.resultsCache.queueSize.incrementAndGet();
     }
 
     /**
-     * Adds Cnossos paths to a concurrent stack while maintaining the maximum stack size.
-     * @param stack Stack to feed
+     * Adds Cnossos paths to the results cache while maintaining the maximum number of rays.
      * @param data rays
      */
-    public void pushInStack(ConcurrentLinkedDeque<CnossosPath> stack, Collection<CnossosPath> data) {
-        while(multiThread.resultsCache.queueSize.get() > dbSettings.outputMaximumQueue) {
-            try {
-                Thread.sleep(10);
-            } catch (InterruptedException ex) {
-                multiThread.aborted.set(true);
-                break;
-            }
-            if(multiThread.aborted.get()) {
-                progressVisitor.cancel();
-                return;
-            }
-        }
+    public void pushInStack(Collection<CnossosPath> data) {
         if(dbSettings.getMaximumRaysOutputCount() == 0 || multiThread.resultsCache.totalRaysInserted.get() < dbSettings.getMaximumRaysOutputCount()) {
             long newTotalRays = multiThread.resultsCache.totalRaysInserted.addAndGet(data.size());
             if(dbSettings.getMaximumRaysOutputCount() > 0 && newTotalRays > dbSettings.getMaximumRaysOutputCount()) {
@@ -330,8 +403,14 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
                     data = Collections.emptyList();
                 }
             }
-            stack.addAll(data);
-            multiThread.resultsCache.queueSize.addAndGet(data.size());
+            try {
+                if(!multiThread.resultsCache.push(data, dbSettings.outputMaximumQueue, multiThread.aborted)) {
+                    progressVisitor.cancel();
+                }
+            } catch (InterruptedException ex) {
+                multiThread.aborted.set(true);
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -352,36 +431,102 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
         if(!this.cnossosPaths.isEmpty()) {
             if(dbSettings.getExportRaysMethod() == NoiseMapDatabaseParameters.ExportRaysMethods.TO_RAYS_TABLE) {
                 // Push propagation rays
-                pushInStack(multiThread.resultsCache.cnossosPaths, this.cnossosPaths);
+                pushInStack(this.cnossosPaths);
+            }
+        }
+        if(isExportAttenuationMatrix()) {
+            writeAttenuationMatrix(receiver);
+        } else {
+            pushReceiverLevels(receiver);
+        }
+        receiverAttenuationList.clear();
+        equivalentSources.clear();
+        maximumWjExpectedSplAtReceiver.clear();
+        sumMaximumRemainingWjExpectedSplAtReceiver = 0;
+        wjAtReceiver = new double[0];
+        this.cnossosPaths.clear();
+    }
+
+    /**
+     * @return True if the attenuation of each receiver/source must be written into the attenuation matrix file
+     */
+    private boolean isExportAttenuationMatrix() {
+        return multiThread.attenuationMatrixWriter != null && multiThread.sceneWithEmission.wjSources.isEmpty();
+    }
+
+    /**
+     * Write the attenuation of all the sources of this receiver into the attenuation matrix file
+     * @param receiver Receiver
+     */
+    private void writeAttenuationMatrix(PathFinder.ReceiverPointInfo receiver) {
+        int frequencyCount = multiThread.attenuationMatrixWriter.getFrequencies().length;
+        Map<String, List<TimePeriodParameters>> sourcesPerPeriod = new HashMap<>();
+        for (TimePeriodParameters periodParameters : receiverAttenuationList.values()) {
+            for (String period : periodParameters.levelsPerPeriod.keySet()) {
+                sourcesPerPeriod.computeIfAbsent(period, k -> new ArrayList<>()).add(periodParameters);
+            }
+        }
+        try {
+            for (Map.Entry<String, List<TimePeriodParameters>> entry : sourcesPerPeriod.entrySet()) {
+                List<TimePeriodParameters> sources = entry.getValue();
+                long[] sourcePk = new long[sources.size()];
+                float[] attenuation = new float[sources.size() * frequencyCount];
+                for (int idSource = 0; idSource < sources.size(); idSource++) {
+                    TimePeriodParameters periodParameters = sources.get(idSource);
+                    sourcePk[idSource] = periodParameters.source.sourcePk;
+                    double[] levels = periodParameters.levelsPerPeriod.get(entry.getKey());
+                    for (int idFrequency = 0; idFrequency < frequencyCount; idFrequency++) {
+                        attenuation[idFrequency * sourcePk.length + idSource] =
+                                (float) AcousticIndicatorsFunctions.wToDb(levels[idFrequency]);
+                    }
+                }
+                multiThread.attenuationMatrixWriter.write(receiver.receiverPk, entry.getKey(), sourcePk, attenuation);
             }
+        } catch (IOException ex) {
+            multiThread.aborted.set(true);
+            throw new UncheckedIOException(ex);
         }
-        // Convert to dB then pushed cached entries for this receiver into multi-thread instance
+    }
 
+    /**
+     * Convert to dB then pushed cached entries for this receiver into multi-thread instance
+     * @param receiver Receiver
+     */
+    private void pushReceiverLevels(PathFinder.ReceiverPointInfo receiver) {
         boolean computeLden = isComputeLden();
         Set<String> collectedPeriod = new HashSet<>();
         for (Map.Entry<Integer, TimePeriodParameters> periodParametersEntry : receiverAttenuationList.entrySet()) {
             TimePeriodParameters periodParameters = periodParametersEntry.getValue();
+            double[] lden = new double[0];
+            if(computeLden) {
+                // Computed before the in place conversion of the period levels to dB
+                for (EmissionTableGenerator.STANDARD_PERIOD period : EmissionTableGenerator.STANDARD_PERIOD.values()) {
+                    double[] levels = periodParameters.levelsPerPeriod.get(
+                            EmissionTableGenerator.STANDARD_PERIOD_VALUE[period.ordinal()]);
+                    if(levels == null) {
+                        continue;
+                    }
+                    if(lden.length == 0) {
+                        lden = new double[levels.length];
+                    }
+                    // Apply period gain
+                    AcousticIndicatorsFunctions.accumulateMultiplication(lden, levels,
+                            EmissionTableGenerator.RATIOS[period.ordinal()]);
+                }
+            }
             for (Map.Entry<String, double[]> levelsAtPeriod : periodParameters.levelsPerPeriod.entrySet()) {
-                pushInStack(multiThread.resultsCache.receiverLevels, new ReceiverNoiseLevel(periodParameters.source,
+                // The levels of this receiver are not used anymore, convert them in place
+                pushInStack(new ReceiverNoiseLevel(periodParameters.source,
                         receiver, levelsAtPeriod.getKey(),
-                        AcousticIndicatorsFunctions.wToDb(levelsAtPeriod.getValue())));
+                        AcousticIndicatorsFunctions.wToDb(levelsAtPeriod.getValue(), levelsAtPeriod.getValue())));
                 if(dbSettings.isMergeSources()) {
                     collectedPeriod.add(levelsAtPeriod.getKey());
                 }
             }
             if(computeLden) {
-                double[] lden = new double[0];
-                for (EmissionTableGenerator.STANDARD_PERIOD period : EmissionTableGenerator.STANDARD_PERIOD.values()) {
-                    double[] levels = periodParameters.levelsPerPeriod.getOrDefault(
-                            EmissionTableGenerator.STANDARD_PERIOD_VALUE[period.ordinal()], new double[0]);
-                    // Apply period gain
-                    lden = AcousticIndicatorsFunctions.sumArray(lden,
-                            AcousticIndicatorsFunctions.multiplicationArray(levels,
-                                    EmissionTableGenerator.RATIOS[period.ordinal()]));
-                }
-                pushInStack(multiThread.resultsCache.receiverLevels, new ReceiverNoiseLevel(periodParameters.source,
+                pushInStack(new ReceiverNoiseLevel(periodParameters.source,
                         receiver, EmissionTableGenerator.DEN_PERIOD,
-                        AcousticIndicatorsFunctions.wToDb(lden)));
+                        AcousticIndicatorsFunctions.wToDb(lden, lden)));
                 if(dbSettings.isMergeSources()) {
                     collectedPeriod.add(EmissionTableGenerator.DEN_PERIOD);
                 }
@@ -397,15 +542,9 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
             double[] levels = new double[multiThread.sceneWithEmission.profileBuilder.frequencyArray.size()];
             Arrays.fill(levels, dbSettings.noSourceNoiseLevel);
             for (String period : difference) {
-                pushInStack(multiThread.resultsCache.receiverLevels,
-                        new ReceiverNoiseLevel(new PathFinder.SourcePointInfo(), receiver, period, levels));
+                pushInStack(new ReceiverNoiseLevel(new PathFinder.SourcePointInfo(), receiver, period, levels));
             }
         }
-        receiverAttenuationList.clear();
-        maximumWjExpectedSplAtReceiver.clear();
-        sumMaximumRemainingWjExpectedSplAtReceiver = 0;
-        wjAtReceiver = new double[0];
-        this.cnossosPaths.clear();
     }
 
     private boolean isComputeLden() {
@@ -441,6 +580,21 @@ public class AttenuationOutputSingleThread implements CutPlaneVisitor {
         public TimePeriodParameters() {
         }
 
+        /**
+         * Add attenuation/noise level in w to the levels of a period. The levels are copied on the first insertion
+         * then the following levels are added in place.
+         * @param period Period
+         * @param levels Levels in w, not modified
+         */
+        public void addLevels(String period, double[] levels) {
+            double[] periodLevels = levelsPerPeriod.get(period);
+            if(periodLevels == null || periodLevels.length == 0) {
+                levelsPerPeriod.put(period, levels.clone());
+            } else if(levels.length > 0) {
+                AcousticIndicatorsFunctions.sumArray(periodLevels, levels, periodLevels);
+            }
+        }
+
         /**
          * merge attenuation/noise level in w
          * @param other
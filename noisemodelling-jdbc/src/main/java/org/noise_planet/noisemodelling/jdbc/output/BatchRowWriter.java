@@ -0,0 +1,101 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Insert rows with a prepared statement executed by batches
+ */
+class BatchRowWriter implements RowWriter {
+    private final PreparedStatement preparedStatement;
+    private final int batchMaxSize;
+    private int parameterIndex = 1;
+    private int batchSize = 0;
+
+    /**
+     * @param preparedStatement Insert statement with one parameter per column
+     * @param batchMaxSize Number of rows sent at once to the database
+     */
+    BatchRowWriter(PreparedStatement preparedStatement, int batchMaxSize) {
+        this.preparedStatement = preparedStatement;
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    /**
+     * @param tableName Table to feed
+     * @param columns Columns of the table
+     * @return Insert query with one parameter per column
+     */
+    static String forgeInsertQuery(String tableName, List<String> columns) {
+        StringBuilder query = new StringBuilder("INSERT INTO ");
+        query.append(tableName);
+        query.append("(");
+        query.append(String.join(", ", columns));
+        query.append(") VALUES (?");
+        query.append(", ?".repeat(columns.size() - 1));
+        query.append(");");
+        return query.toString();
+    }
+
+    @Override
+    public void setBigint(long value) throws SQLException {
+        preparedStatement.setLong(parameterIndex++, value);
+    }
+
+    @Override
+    public void setVarchar(String value) throws SQLException {
+        preparedStatement.setString(parameterIndex++, value);
+    }
+
+    @Override
+    public void setGeometry(Geometry value) throws SQLException {
+        preparedStatement.setObject(parameterIndex++, value);
+    }
+
+    @Override
+    public void setReal(double value) throws SQLException {
+        preparedStatement.setDouble(parameterIndex++, value);
+    }
+
+    @Override
+    public void setDoublePrecision(double value) throws SQLException {
+        preparedStatement.setDouble(parameterIndex++, value);
+    }
+
+    @Override
+    public void endRow() throws SQLException {
+        preparedStatement.addBatch();
+        parameterIndex = 1;
+        batchSize++;
+        if (batchSize >= batchMaxSize) {
+            preparedStatement.executeBatch();
+            preparedStatement.clearBatch();
+            batchSize = 0;
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (batchSize > 0) {
+                preparedStatement.executeBatch();
+                batchSize = 0;
+            }
+        } finally {
+            preparedStatement.close();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Read a file written by {@link ColumnarFileWriter}, chunk by chunk, or import it into a database table.
+ * @author Nicolas Fortin
+ */
+public class ColumnarFileReader implements AutoCloseable {
+    private final DataInputStream in;
+    private final int srid;
+    private final List<String> columns;
+    private final List<ColumnarFileWriter.ColumnType> types;
+
+    /**
+     * Open the file and read the columns
+     * @param file File written by {@link ColumnarFileWriter}
+     * @throws IOException Error while reading the file or not a columnar file
+     */
+    public ColumnarFileReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()),
+                NoiseMapWriter.WRITER_CACHE));
+        try {
+            if (in.readInt() != ColumnarFileWriter.MAGIC || in.readInt() != ColumnarFileWriter.VERSION) {
+                throw new IOException(String.format("%s is not a columnar file", file));
+            }
+            srid = in.readInt();
+            int columnCount = in.readInt();
+            List<String> columnList = new ArrayList<>(columnCount);
+            List<ColumnarFileWriter.ColumnType> typeList = new ArrayList<>(columnCount);
+            ColumnarFileWriter.ColumnType[] allTypes = ColumnarFileWriter.ColumnType.values();
+            for (int i = 0; i < columnCount; i++) {
+                columnList.add(in.readUTF());
+                int type = in.readUnsignedByte();
+                if (type >= allTypes.length) {
+                    throw new IOException(String.format("Unknown column type %d in %s", type, file));
+                }
+                typeList.add(allTypes[type]);
+            }
+            columns = Collections.unmodifiableList(columnList);
+            types = Collections.unmodifiableList(typeList);
+        } catch (IOException | RuntimeException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return Column names
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return Type of each column
+     */
+    public List<ColumnarFileWriter.ColumnType> getTypes() {
+        return types;
+    }
+
+    /**
+     * @return Spatial reference identifier of the POINTZ columns
+     */
+    public int getSrid() {
+        return srid;
+    }
+
+    /**
+     * Read the next chunk
+     * @return The chunk or null if the end of the file is reached
+     * @throws IOException Error while reading the file
+     */
+    public Chunk next() throws IOException {
+        int rowCount;
+        try {
+            rowCount = in.readInt();
+        } catch (EOFException ex) {
+            return null;
+        }
+        byte[] compressedData = new byte[in.readInt()];
+        in.readFully(compressedData);
+        Chunk chunk = new Chunk(rowCount, types.size());
+        try (DataInputStream chunkIn = new DataInputStream(new BufferedInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(compressedData)), NoiseMapWriter.WRITER_CACHE))) {
+            for (int column = 0; column < types.size(); column++) {
+                switch (types.get(column)) {
+                    case BIGINT:
+                        long[] longValues = new long[rowCount];
+                        for (int row = 0; row < rowCount; row++) {
+                            longValues[row] = chunkIn.readLong();
+                        }
+                        chunk.values[column] = longValues;
+                        break;
+                    case REAL:
+                        float[] floatValues = new float[rowCount];
+                        for (int row = 0; row < rowCount; row++) {
+                            floatValues[row] = chunkIn.readFloat();
+                        }
+                        chunk.values[column] = floatValues;
+                        break;
+                    case DOUBLE:
+                        double[] doubleValues = new double[rowCount];
+                        for (int row = 0; row < rowCount; row++) {
+                            doubleValues[row] = chunkIn.readDouble();
+                        }
+                        chunk.values[column] = doubleValues;
+                        break;
+                    case VARCHAR:
+                        String[] dictionary = new String[chunkIn.readInt()];
+                        for (int i = 0; i < dictionary.length; i++) {
+                            dictionary[i] = chunkIn.readUTF();
+                        }
+                        String[] stringValues = new String[rowCount];
+                        for (int row = 0; row < rowCount; row++) {
+                            int code = chunkIn.readInt();
+                            stringValues[row] = code >= 0 ? dictionary[code] : null;
+                        }
+                        chunk.values[column] = stringValues;
+                        break;
+                    case POINTZ:
+                        double[] coordinates = new double[rowCount * 3];
+                        for (int i = 0; i < coordinates.length; i++) {
+                            coordinates[i] = chunkIn.readDouble();
+                        }
+                        chunk.values[column] = coordinates;
+                        break;
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Create the table and insert all the rows of the file
+     * @param connection Database connection, must be wrapped with
+     *                   {@link org.h2gis.utilities.JDBCUtilities#wrapConnection(Connection)} for PostGIS
+     * @param tableName Table to create
+     * @return Number of inserted rows
+     * @throws SQLException Error while creating or feeding the table
+     * @throws IOException Error while reading the file
+     */
+    public long importTable(Connection connection, String tableName) throws SQLException, IOException {
+        StringBuilder createTable = new StringBuilder("CREATE TABLE ");
+        createTable.append(tableName);
+        createTable.append("(");
+        for (int column = 0; column < columns.size(); column++) {
+            if(column > 0) {
+                createTable.append(", ");
+            }
+            createTable.append(columns.get(column));
+            switch (types.get(column)) {
+                case BIGINT:
+                    createTable.append(" BIGINT");
+                    break;
+                case REAL:
+                    createTable.append(" REAL");
+                    break;
+                case DOUBLE:
+                    createTable.append(" DOUBLE PRECISION");
+                    break;
+                case VARCHAR:
+                    createTable.append(" VARCHAR");
+                    break;
+                case POINTZ:
+                    createTable.append(" GEOMETRY(POINTZ,");
+                    createTable.append(srid);
+                    createTable.append(")");
+                    break;
+            }
+        }
+        createTable.append(")");
+        try (Statement st = connection.createStatement()) {
+            st.execute(createTable.toString());
+        }
+        GeometryFactory factory = new GeometryFactory(new PrecisionModel(), srid);
+        String insertQuery = BatchRowWriter.forgeInsertQuery(tableName, columns);
+        long rowCount = 0;
+        Chunk chunk;
+        while ((chunk = next()) != null) {
+            try (RowWriter rowWriter = new BatchRowWriter(connection.prepareStatement(insertQuery),
+                    NoiseMapWriter.getAdaptiveBatchSize(chunk.getRowCount()))) {
+                for (int row = 0; row < chunk.getRowCount(); row++) {
+                    for (int column = 0; column < columns.size(); column++) {
+                        switch (types.get(column)) {
+                            case BIGINT:
+                                rowWriter.setBigint(chunk.getLong(column, row));
+                                break;
+                            case REAL:
+                                rowWriter.setReal(chunk.getDouble(column, row));
+                                break;
+                            case DOUBLE:
+                                rowWriter.setDoublePrecision(chunk.getDouble(column, row));
+                                break;
+                            case VARCHAR:
+                                rowWriter.setVarchar(chunk.getString(column, row));
+                                break;
+                            case POINTZ:
+                                Coordinate coordinate = chunk.getCoordinate(column, row);
+                                rowWriter.setGeometry(coordinate == null ? factory.createPoint() :
+                                        factory.createPoint(coordinate));
+                                break;
+                        }
+                    }
+                    rowWriter.endRow();
+                }
+            }
+            rowCount += chunk.getRowCount();
+        }
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Rows of a chunk stored by column
+     */
+    public static class Chunk {
+        private final int rowCount;
+        private final Object[] values;
+
+        Chunk(int rowCount, int columnCount) {
+            this.rowCount = rowCount;
+            this.values = new Object[columnCount];
+        }
+
+        /**
+         * @return Number of rows in this chunk
+         */
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @param column Column index
+         * @param row Row index
+         * @return Value of a BIGINT column
+         */
+        public long getLong(int column, int row) {
+            return ((long[]) values[column])[row];
+        }
+
+        /**
+         * @param column Column index
+         * @param row Row index
+         * @return Value of a REAL or DOUBLE column
+         */
+        public double getDouble(int column, int row) {
+            if(values[column] instanceof float[]) {
+                return ((float[]) values[column])[row];
+            }
+            return ((double[]) values[column])[row];
+        }
+
+        /**
+         * @param column Column index
+         * @param row Row index
+         * @return Value of a VARCHAR column
+         */
+        public String getString(int column, int row) {
+            return ((String[]) values[column])[row];
+        }
+
+        /**
+         * @param column Column index
+         * @param row Row index
+         * @return Value of a POINTZ column, null for an empty point
+         */
+        public Coordinate getCoordinate(int column, int row) {
+            double[] coordinates = (double[]) values[column];
+            if(Double.isNaN(coordinates[row * 3])) {
+                return null;
+            }
+            return new Coordinate(coordinates[row * 3], coordinates[row * 3 + 1], coordinates[row * 3 + 2]);
+        }
+    }
+}
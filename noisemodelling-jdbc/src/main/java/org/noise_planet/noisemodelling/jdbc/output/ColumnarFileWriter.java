@@ -0,0 +1,328 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Write the rows of a result table (receivers level) into a compact binary file instead of the database.
+ * <p>
+ * The file is a header describing the columns followed by independent chunks. Each chunk is compressed and stores
+ * the rows by column: identifiers as int64, levels as float32, periods with a dictionary and the receiver position as
+ * three float64. A chunk is written each time the results of the computation are flushed, so the file can be read
+ * while being written and new chunks can be appended to an existing file with the same columns.
+ * Use {@link ColumnarFileReader} to read the file or import it into a database table. This class is thread safe.
+ * @author Nicolas Fortin
+ */
+public class ColumnarFileWriter implements AutoCloseable {
+    static final int MAGIC = 0x4E4D434F; // NMCO
+    static final int VERSION = 1;
+
+    /**
+     * Storage type of a column
+     */
+    public enum ColumnType {
+        /** int64 */
+        BIGINT,
+        /** float32 */
+        REAL,
+        /** float64 */
+        DOUBLE,
+        /** Dictionary encoded string */
+        VARCHAR,
+        /** Point with x, y and z as float64 */
+        POINTZ
+    }
+
+    private final List<String> columns;
+    private final List<ColumnType> types;
+    private final int srid;
+    private final DataOutputStream out;
+    private long rowCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Create the file or append chunks to an existing file
+     * @param file Destination file
+     * @param columns Column names
+     * @param types Type of each column
+     * @param srid Spatial reference identifier of the POINTZ columns
+     * @param append If true and the file exists, the new rows are appended to the file. The existing file must have
+     *               the same columns.
+     * @throws IOException Error while creating the file or the existing file does not have the same columns
+     */
+    public ColumnarFileWriter(File file, List<String> columns, List<ColumnType> types, int srid, boolean append)
+            throws IOException {
+        if(columns.size() != types.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " column types, got " + types.size());
+        }
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.types = Collections.unmodifiableList(new ArrayList<>(types));
+        this.srid = srid;
+        if(append && file.exists() && file.length() > 0) {
+            try (ColumnarFileReader reader = new ColumnarFileReader(file)) {
+                if(!reader.getColumns().equals(this.columns) || !reader.getTypes().equals(this.types) ||
+                        reader.getSrid() != srid) {
+                    throw new IOException(String.format("Unable to append rows to %s, the columns are not the same",
+                            file));
+                }
+            }
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath(),
+                    StandardOpenOption.APPEND), NoiseMapWriter.WRITER_CACHE));
+        } else {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath()),
+                    NoiseMapWriter.WRITER_CACHE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(srid);
+            out.writeInt(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                out.writeUTF(columns.get(i));
+                out.writeByte(types.get(i).ordinal());
+            }
+        }
+    }
+
+    /**
+     * @return Column names
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return Number of rows written by this instance
+     */
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return A new chunk, the values of each row are given in the order of the columns. The chunk is written into
+     * the file on {@link RowWriter#close()}
+     */
+    RowWriter createChunk() {
+        return new Chunk();
+    }
+
+    private synchronized void writeChunk(int chunkRowCount, byte[] compressedData) throws IOException {
+        if(closed) {
+            throw new IOException("The columnar file is closed");
+        }
+        out.writeInt(chunkRowCount);
+        out.writeInt(compressedData.length);
+        out.write(compressedData);
+        // Each chunk is fully written in order to be readable by another process
+        out.flush();
+        rowCount += chunkRowCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        out.close();
+    }
+
+    /**
+     * Rows kept in columns until the chunk is closed
+     */
+    private class Chunk implements RowWriter {
+        private final long[][] bigintColumns = new long[types.size()][];
+        private final double[][] doubleColumns = new double[types.size()][];
+        private final int[][] dictionaryColumns = new int[types.size()][];
+        private final List<Map<String, Integer>> dictionaries = new ArrayList<>(types.size());
+        private int capacity = 64;
+        private int size = 0;
+        private int columnIndex = 0;
+
+        Chunk() {
+            for (int i = 0; i < types.size(); i++) {
+                dictionaries.add(null);
+                switch (types.get(i)) {
+                    case BIGINT:
+                        bigintColumns[i] = new long[capacity];
+                        break;
+                    case REAL:
+                    case DOUBLE:
+                        doubleColumns[i] = new double[capacity];
+                        break;
+                    case VARCHAR:
+                        dictionaryColumns[i] = new int[capacity];
+                        dictionaries.set(i, new HashMap<>());
+                        break;
+                    case POINTZ:
+                        doubleColumns[i] = new double[capacity * 3];
+                        break;
+                }
+            }
+        }
+
+        private void checkType(ColumnType expected) throws SQLException {
+            if(columnIndex >= types.size() || (types.get(columnIndex) != expected &&
+                    !(expected == ColumnType.REAL && types.get(columnIndex) == ColumnType.DOUBLE) &&
+                    !(expected == ColumnType.DOUBLE && types.get(columnIndex) == ColumnType.REAL))) {
+                throw new SQLException(String.format("Unexpected value of type %s for the column %d", expected,
+                        columnIndex + 1));
+            }
+        }
+
+        @Override
+        public void setBigint(long value) throws SQLException {
+            checkType(ColumnType.BIGINT);
+            bigintColumns[columnIndex++][size] = value;
+        }
+
+        @Override
+        public void setVarchar(String value) throws SQLException {
+            checkType(ColumnType.VARCHAR);
+            Map<String, Integer> dictionary = dictionaries.get(columnIndex);
+            // -1 is a null value
+            int code = -1;
+            if(value != null) {
+                code = dictionary.computeIfAbsent(value, k -> dictionary.size());
+            }
+            dictionaryColumns[columnIndex++][size] = code;
+        }
+
+        @Override
+        public void setGeometry(Geometry value) throws SQLException {
+            checkType(ColumnType.POINTZ);
+            double[] column = doubleColumns[columnIndex++];
+            Coordinate coordinate = value instanceof Point ? value.getCoordinate() : null;
+            if(coordinate == null) {
+                column[size * 3] = Double.NaN;
+                column[size * 3 + 1] = Double.NaN;
+                column[size * 3 + 2] = Double.NaN;
+            } else {
+                column[size * 3] = coordinate.x;
+                column[size * 3 + 1] = coordinate.y;
+                column[size * 3 + 2] = coordinate.getZ();
+            }
+        }
+
+        @Override
+        public void setReal(double value) throws SQLException {
+            checkType(ColumnType.REAL);
+            doubleColumns[columnIndex++][size] = value;
+        }
+
+        @Override
+        public void setDoublePrecision(double value) throws SQLException {
+            checkType(ColumnType.DOUBLE);
+            doubleColumns[columnIndex++][size] = value;
+        }
+
+        @Override
+        public void endRow() throws SQLException {
+            if(columnIndex != types.size()) {
+                throw new SQLException(String.format("Expected %d values, got %d", types.size(), columnIndex));
+            }
+            columnIndex = 0;
+            size++;
+            if(size == capacity) {
+                capacity *= 2;
+                for (int i = 0; i < types.size(); i++) {
+                    if(bigintColumns[i] != null) {
+                        bigintColumns[i] = Arrays.copyOf(bigintColumns[i], capacity);
+                    }
+                    if(dictionaryColumns[i] != null) {
+                        dictionaryColumns[i] = Arrays.copyOf(dictionaryColumns[i], capacity);
+                    }
+                    if(doubleColumns[i] != null) {
+                        doubleColumns[i] = Arrays.copyOf(doubleColumns[i],
+                                types.get(i) == ColumnType.POINTZ ? capacity * 3 : capacity);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if(size == 0) {
+                return;
+            }
+            try {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try (DataOutputStream chunkOut = new DataOutputStream(new BufferedOutputStream(
+                        new DeflaterOutputStream(compressed, deflater), NoiseMapWriter.WRITER_CACHE))) {
+                    for (int i = 0; i < types.size(); i++) {
+                        writeColumn(chunkOut, i);
+                    }
+                } finally {
+                    deflater.end();
+                }
+                writeChunk(size, compressed.toByteArray());
+            } catch (IOException ex) {
+                throw new SQLException(ex);
+            }
+        }
+
+        private void writeColumn(DataOutputStream chunkOut, int column) throws IOException {
+            switch (types.get(column)) {
+                case BIGINT:
+                    for (int row = 0; row < size; row++) {
+                        chunkOut.writeLong(bigintColumns[column][row]);
+                    }
+                    break;
+                case REAL:
+                    for (int row = 0; row < size; row++) {
+                        chunkOut.writeFloat((float) doubleColumns[column][row]);
+                    }
+                    break;
+                case DOUBLE:
+                    for (int row = 0; row < size; row++) {
+                        chunkOut.writeDouble(doubleColumns[column][row]);
+                    }
+                    break;
+                case VARCHAR:
+                    String[] values = new String[dictionaries.get(column).size()];
+                    for (Map.Entry<String, Integer> entry : dictionaries.get(column).entrySet()) {
+                        values[entry.getValue()] = entry.getKey();
+                    }
+                    chunkOut.writeInt(values.length);
+                    for (String value : values) {
+                        chunkOut.writeUTF(value);
+                    }
+                    for (int row = 0; row < size; row++) {
+                        chunkOut.writeInt(dictionaryColumns[column][row]);
+                    }
+                    break;
+                case POINTZ:
+                    for (int row = 0; row < size * 3; row++) {
+                        chunkOut.writeDouble(doubleColumns[column][row]);
+                    }
+                    break;
+            }
+        }
+    }
+}
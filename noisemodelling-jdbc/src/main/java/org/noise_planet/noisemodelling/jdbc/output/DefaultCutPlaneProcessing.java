@@ -1,6 +1,7 @@
 package org.noise_planet.noisemodelling.jdbc.output;
 
 import org.h2gis.api.ProgressVisitor;
+import org.h2gis.utilities.JDBCUtilities;
 import org.noise_planet.noisemodelling.jdbc.NoiseMapByReceiverMaker;
 import org.noise_planet.noisemodelling.jdbc.NoiseMapDatabaseParameters;
 import org.noise_planet.noisemodelling.jdbc.input.SceneWithEmission;
@@ -10,12 +11,19 @@ import org.noise_planet.noisemodelling.pathfinder.utils.profiler.JVMMemoryMetric
 import org.noise_planet.noisemodelling.pathfinder.utils.profiler.ProfilerThread;
 import org.noise_planet.noisemodelling.pathfinder.utils.profiler.ProgressMetric;
 import org.noise_planet.noisemodelling.pathfinder.utils.profiler.ReceiverStatsMetric;
+import org.noise_planet.noisemodelling.pathfinder.utils.profiler.WorkerIdleMetric;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 public class DefaultCutPlaneProcessing implements NoiseMapByReceiverMaker.IComputeRaysOutFactory {
     public int DEFAULT_END_WRITING_THREAD_TIMEOUT = 30; // timeout for write thread stop in seconds
@@ -30,6 +38,11 @@ public class DefaultCutPlaneProcessing implements NoiseMapByReceiverMaker.ICompu
     NoiseMapByReceiverMaker noiseMapByReceiverMaker;
     ThreadPool postProcessingThreadPool = new ThreadPool();
     Future<Boolean> noiseMapWriterFuture;
+    /** Additional writers feeding the same tables, with their own connection */
+    List<Connection> poolConnections = new ArrayList<>();
+    List<Future<Boolean>> poolWriterFutures = new ArrayList<>();
+    AttenuationMatrixWriter attenuationMatrixWriter;
+    ColumnarFileWriter receiversLevelFileWriter;
 
     /**
      * @param noiseMapDatabaseParameters Database settings
@@ -49,7 +62,15 @@ public class DefaultCutPlaneProcessing implements NoiseMapByReceiverMaker.ICompu
      */
     @Override
     public CutPlaneVisitorFactory create(SceneWithEmission scene) {
-        return new AttenuationOutputMultiThread(scene, resultsCache, noiseMapDatabaseParameters, exitWhenDone, aborted);
+        AttenuationOutputMultiThread attenuationOutputMultiThread = new AttenuationOutputMultiThread(scene,
+                resultsCache, noiseMapDatabaseParameters, exitWhenDone, aborted);
+        attenuationOutputMultiThread.attenuationMatrixWriter = attenuationMatrixWriter;
+        return attenuationOutputMultiThread;
+    }
+
+    @Override
+    public BooleanSupplier getResultsStoredCondition() {
+        return resultsCache.getStoredCondition();
     }
 
     @Override
@@ -61,6 +82,7 @@ public class DefaultCutPlaneProcessing implements NoiseMapByReceiverMaker.ICompu
             profilerThread.addMetric(resultsCache);
             profilerThread.addMetric(new JVMMemoryMetric());
             profilerThread.addMetric(new ReceiverStatsMetric());
+            profilerThread.addMetric(new WorkerIdleMetric());
             profilerThread.setWriteInterval(noiseMapDatabaseParameters.CSVProfilerWriteInterval);
             profilerThread.setFlushInterval(noiseMapDatabaseParameters.CSVProfilerWriteInterval);
         }
@@ -71,6 +93,10 @@ public class DefaultCutPlaneProcessing implements NoiseMapByReceiverMaker.ICompu
      */
     @Override
     public void start(ProgressVisitor progressLogger) throws SQLException {
+        if(noiseMapDatabaseParameters.writerCount > 1 && noiseMapDatabaseParameters.writerDataSource == null) {
+            throw new IllegalArgumentException("The writer data source is required when the writer count is " +
+                    "greater than 1");
+        }
         noiseMapWriter = new NoiseMapWriter(connection, noiseMapByReceiverMaker, resultsCache, exitWhenDone, aborted);
         exitWhenDone.set(false);
         if(profilerThread != null) {
@@ -79,9 +105,36 @@ public class DefaultCutPlaneProcessing implements NoiseMapByReceiverMaker.ICompu
         }
         try {
             noiseMapWriter.init();
+            if(noiseMapDatabaseParameters.attenuationMatrixFile != null) {
+                attenuationMatrixWriter = new AttenuationMatrixWriter(noiseMapDatabaseParameters.attenuationMatrixFile,
+                        noiseMapWriter.frequencyArray);
+            }
+            if(noiseMapDatabaseParameters.receiversLevelFile != null) {
+                List<String> columns = new ArrayList<>();
+                List<ColumnarFileWriter.ColumnType> types = new ArrayList<>();
+                noiseMapWriter.forgeReceiversLevelColumns(columns, types);
+                receiversLevelFileWriter = new ColumnarFileWriter(noiseMapDatabaseParameters.receiversLevelFile,
+                        columns, types, noiseMapWriter.srid, noiseMapDatabaseParameters.appendReceiversLevelFile);
+                noiseMapWriter.receiversLevelFileWriter = receiversLevelFileWriter;
+            }
         } catch (Exception ex) {
             throw new SQLException(ex);
         }
+        // The keys are created once all the writers are done
+        boolean writerPool = noiseMapDatabaseParameters.writerCount > 1;
+        noiseMapWriter.setCreateKeys(!writerPool);
+        if(writerPool) {
+            for (int i = 1; i < noiseMapDatabaseParameters.writerCount; i++) {
+                Connection poolConnection = JDBCUtilities.wrapConnection(
+                        noiseMapDatabaseParameters.writerDataSource.getConnection());
+                poolConnections.add(poolConnection);
+                NoiseMapWriter poolWriter = new NoiseMapWriter(poolConnection, noiseMapByReceiverMaker, resultsCache,
+                        exitWhenDone, aborted);
+                poolWriter.setCreateKeys(false);
+                poolWriter.receiversLevelFileWriter = receiversLevelFileWriter;
+                poolWriterFutures.add(postProcessingThreadPool.submitBlocking(poolWriter));
+            }
+        }
         noiseMapWriterFuture = postProcessingThreadPool.submitBlocking(noiseMapWriter);
     }
 
@@ -92,10 +145,90 @@ public class DefaultCutPlaneProcessing implements NoiseMapByReceiverMaker.ICompu
     @Override
     public void stop() throws SQLException {
         exitWhenDone.set(true);
+        resultsCache.wakeUp();
+        SQLException error = null;
         try {
             noiseMapWriterFuture.get(DEFAULT_END_WRITING_THREAD_TIMEOUT, TimeUnit.SECONDS);
+            for (Future<Boolean> poolWriterFuture : poolWriterFutures) {
+                poolWriterFuture.get(DEFAULT_END_WRITING_THREAD_TIMEOUT, TimeUnit.SECONDS);
+            }
+            if(!poolWriterFutures.isEmpty()) {
+                noiseMapWriter.createKeys();
+            }
         } catch (Exception e) {
-            throw new SQLException(e);
+            error = addError(error, e);
+            // The writers that are still running must stop before their connections are closed
+            aborted.set(true);
+            resultsCache.wakeUp();
+            error = stopWriter(noiseMapWriterFuture, error);
+            for (Future<Boolean> poolWriterFuture : poolWriterFutures) {
+                error = stopWriter(poolWriterFuture, error);
+            }
+        } finally {
+            // Release the connections and the files even if the writing failed, the first error is thrown
+            for (Connection poolConnection : poolConnections) {
+                try {
+                    poolConnection.close();
+                } catch (SQLException e) {
+                    error = addError(error, e);
+                }
+            }
+            poolConnections.clear();
+            poolWriterFutures.clear();
+            if(attenuationMatrixWriter != null) {
+                try {
+                    attenuationMatrixWriter.close();
+                } catch (IOException e) {
+                    error = addError(error, e);
+                }
+            }
+            if(receiversLevelFileWriter != null) {
+                try {
+                    receiversLevelFileWriter.close();
+                } catch (IOException e) {
+                    error = addError(error, e);
+                }
+            }
+        }
+        if(error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Wait for the end of an aborted writer, the writer is interrupted if it does not stop before the timeout
+     * @param writerFuture Writer
+     * @param error First error, null if none
+     * @return The first error
+     */
+    private SQLException stopWriter(Future<Boolean> writerFuture, SQLException error) {
+        if(writerFuture.isDone()) {
+            return error;
+        }
+        try {
+            writerFuture.get(DEFAULT_END_WRITING_THREAD_TIMEOUT, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            writerFuture.cancel(true);
+        } catch (InterruptedException e) {
+            writerFuture.cancel(true);
+            Thread.currentThread().interrupt();
+            error = addError(error, e);
+        } catch (ExecutionException e) {
+            error = addError(error, e);
+        }
+        return error;
+    }
+
+    /**
+     * @param error First error, null if none
+     * @param e New error
+     * @return The first error, the next errors are added as suppressed exceptions
+     */
+    private static SQLException addError(SQLException error, Exception e) {
+        if(error == null) {
+            return e instanceof SQLException ? (SQLException) e : new SQLException(e);
         }
+        error.addSuppressed(e);
+        return error;
     }
 }
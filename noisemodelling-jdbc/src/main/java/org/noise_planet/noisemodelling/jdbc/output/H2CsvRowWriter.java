@@ -0,0 +1,126 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTWriter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Insert rows into an H2 database by writing them in a temporary csv file, then the file is loaded with a single
+ * CSVREAD query. The database must be able to read the local temporary directory (embedded database).
+ */
+class H2CsvRowWriter implements RowWriter {
+    private final Connection connection;
+    private final String tableName;
+    private final List<String> columns;
+    private final File csvFile;
+    private final Writer writer;
+    private final WKTWriter wktWriter = new WKTWriter(3);
+    private boolean firstField = true;
+
+    /**
+     * @param connection H2 connection
+     * @param tableName Table to feed
+     * @param columns Columns of the table
+     * @throws SQLException Unable to create the temporary file
+     */
+    H2CsvRowWriter(Connection connection, String tableName, List<String> columns) throws SQLException {
+        this.connection = connection;
+        this.tableName = tableName;
+        this.columns = columns;
+        try {
+            csvFile = File.createTempFile("noisemodelling_", ".csv");
+            writer = new BufferedWriter(Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8),
+                    NoiseMapWriter.WRITER_CACHE);
+            writer.write(String.join(",", columns));
+            writer.write("\n");
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    private void write(String value) throws SQLException {
+        try {
+            if (!firstField) {
+                writer.write(',');
+            }
+            firstField = false;
+            if (value != null) {
+                writer.write(value);
+            }
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    @Override
+    public void setBigint(long value) throws SQLException {
+        write(Long.toString(value));
+    }
+
+    @Override
+    public void setVarchar(String value) throws SQLException {
+        write(value == null ? null : "\"" + value.replace("\"", "\"\"") + "\"");
+    }
+
+    @Override
+    public void setGeometry(Geometry value) throws SQLException {
+        write(value == null ? null : "\"SRID=" + value.getSRID() + ";" + wktWriter.write(value) + "\"");
+    }
+
+    @Override
+    public void setReal(double value) throws SQLException {
+        write(Float.toString((float) value));
+    }
+
+    @Override
+    public void setDoublePrecision(double value) throws SQLException {
+        write(Double.toString(value));
+    }
+
+    @Override
+    public void endRow() throws SQLException {
+        try {
+            writer.write('\n');
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+        firstField = true;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            writer.close();
+            try (Statement st = connection.createStatement()) {
+                st.execute("INSERT INTO " + tableName + "(" + String.join(", ", columns) + ") SELECT * FROM CSVREAD('" +
+                        csvFile.getAbsolutePath().replace("'", "''") + "', NULL, 'charset=UTF-8')");
+            }
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        } finally {
+            if (!csvFile.delete()) {
+                csvFile.deleteOnExit();
+            }
+        }
+    }
+}
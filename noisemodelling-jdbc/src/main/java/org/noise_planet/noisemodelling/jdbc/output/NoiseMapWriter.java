@@ -12,9 +12,13 @@ package org.noise_planet.noisemodelling.jdbc.output;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
+import org.h2gis.utilities.dbtypes.DBUtils;
 import org.locationtech.jts.geom.*;
 import org.noise_planet.noisemodelling.jdbc.NoiseMapByReceiverMaker;
 import org.noise_planet.noisemodelling.jdbc.NoiseMapDatabaseParameters;
+import org.noise_planet.noisemodelling.jdbc.RunJournal;
 import org.noise_planet.noisemodelling.jdbc.input.DefaultTableLoader;
 import org.noise_planet.noisemodelling.jdbc.input.SceneDatabaseInputSettings;
 import org.noise_planet.noisemodelling.jdbc.input.SceneWithEmission;
@@ -31,13 +35,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.GZIPOutputStream;
 
@@ -49,7 +55,12 @@ import static org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicator
  */
 public class NoiseMapWriter implements Callable<Boolean> {
     static final int BATCH_MAX_SIZE = 500;
+    static final int MAXIMUM_BATCH_SIZE = 10000;
     static final int WRITER_CACHE = 65536;
+    /** Maximum number of elements moved from the results cache at once */
+    static final int DRAIN_MAX_SIZE = MAXIMUM_BATCH_SIZE;
+    /** Maximum time in milliseconds waiting for new results before checking again the computation state */
+    static final long IDLE_CHECK_INTERVAL = 500;
     AtomicBoolean exitWhenDone;
     AtomicBoolean aborted;
     Logger LOGGER = LoggerFactory.getLogger(NoiseMapWriter.class);
@@ -61,6 +72,11 @@ public class NoiseMapWriter implements Callable<Boolean> {
     Writer writer;
     ObjectWriter jsonWriter;
     int srid;
+    boolean createKeys = true;
+    /** True if the tables of a previous run are kept in order to resume it */
+    boolean resumed = false;
+    /** If set the receivers level rows are written into this file instead of the table */
+    ColumnarFileWriter receiversLevelFileWriter = null;
     public List<Integer> frequencyArray = Arrays.asList(AcousticIndicatorsFunctions.asOctaveBands(ProfileBuilder.DEFAULT_FREQUENCIES_THIRD_OCTAVE));
     public double[] aWeightingArray = Arrays.stream(
                     asOctaveBands(ProfileBuilder.DEFAULT_FREQUENCIES_A_WEIGHTING_THIRD_OCTAVE)).
@@ -94,6 +110,14 @@ public class NoiseMapWriter implements Callable<Boolean> {
         }
     }
 
+    /**
+     * @param createKeys If false the primary keys are not created at the end of the writing, used when several
+     *                   writers fill the same tables
+     */
+    public void setCreateKeys(boolean createKeys) {
+        this.createKeys = createKeys;
+    }
+
     public String propagationPathAsJSON(CnossosPath path) throws JsonProcessingException {
         return jsonWriter.writeValueAsString(path);
     }
@@ -104,182 +128,191 @@ public class NoiseMapWriter implements Callable<Boolean> {
     }
 
     /**
-     * Processes the stack of CnossosPath objects and inserts their data into the rays table.
-     * @param stack the stack of CnossosPath objects containing the data to be inserted into the rays table
+     * Number of rows sent at once to the database, larger batches are used when many rows are waiting
+     * @param rowCount Number of rows to insert
+     * @return Batch size
+     */
+    static int getAdaptiveBatchSize(int rowCount) {
+        return Math.max(BATCH_MAX_SIZE, Math.min(rowCount, MAXIMUM_BATCH_SIZE));
+    }
+
+    /**
+     * Create the destination of the inserted rows according to the database and to the settings
+     * @param tableName Table to feed
+     * @param columns Columns of the table
+     * @param rowCount Number of rows that will be inserted
+     * @return Row writer, must be closed in order to insert the last rows
+     * @throws SQLException if an SQL exception occurs while preparing the insertion
+     */
+    RowWriter createRowWriter(String tableName, List<String> columns, int rowCount) throws SQLException {
+        if(sqlFilePath != null) {
+            return new BatchRowWriter(new StringPreparedStatements(writer,
+                    BatchRowWriter.forgeInsertQuery(tableName, columns)), getAdaptiveBatchSize(rowCount));
+        }
+        if(databaseParameters.isBulkInsert()) {
+            DBTypes dbType = DBUtils.getDBType(connection.unwrap(Connection.class));
+            if(dbType == DBTypes.POSTGIS || dbType == DBTypes.POSTGRESQL) {
+                return new PostgreSQLCopyRowWriter(connection, tableName, columns);
+            } else if(dbType == DBTypes.H2 || dbType == DBTypes.H2GIS) {
+                return new H2CsvRowWriter(connection, tableName, columns);
+            }
+        }
+        return new BatchRowWriter(connection.prepareStatement(BatchRowWriter.forgeInsertQuery(tableName, columns)),
+                getAdaptiveBatchSize(rowCount));
+    }
+
+    /**
+     * Inserts the data of the CnossosPath objects into the rays table.
+     * @param rows the CnossosPath objects containing the data to be inserted into the rays table
      * @throws SQLException if an SQL exception occurs while executing the INSERT query
      */
-    void processRaysStack(ConcurrentLinkedDeque<CnossosPath> stack) throws SQLException {
+    void processRaysStack(List<CnossosPath> rows) throws SQLException {
         boolean exportPeriod = !noiseMapByReceiverMaker.getSceneInputSettings().getInputMode().
                 equals(SceneDatabaseInputSettings.INPUT_MODE.INPUT_MODE_ATTENUATION);
-        StringBuilder query = new StringBuilder("INSERT INTO " + databaseParameters.raysTable +
-                "(the_geom , IDRECEIVER , IDSOURCE");
-        if(databaseParameters.exportCnossosPathWithAttenuation) {
-            query.append(", PATH");
-        }
-        if(databaseParameters.exportAttenuationMatrix) {
-            query.append(", LEQ");
-        }
-        if(exportPeriod) {
-            query.append(", PERIOD");
-        }
-        query.append(") VALUES (?, ?, ?");
+        List<String> columns = new ArrayList<>(Arrays.asList("THE_GEOM", "IDRECEIVER", "IDSOURCE"));
         if(databaseParameters.exportCnossosPathWithAttenuation) {
-            query.append(", ?");
+            columns.add("PATH");
         }
         if(databaseParameters.exportAttenuationMatrix) {
-            query.append(", ?");
+            columns.add("LEQ");
         }
         if(exportPeriod) {
-            query.append(", ?");
+            columns.add("PERIOD");
         }
-        query.append(");");
-        // PK, GEOM, ID_RECEIVER, ID_SOURCE
-        PreparedStatement ps;
-        if(sqlFilePath == null) {
-            ps = connection.prepareStatement(query.toString());
-        } else {
-            ps = new StringPreparedStatements(writer, query.toString());
-        }
-        int batchSize = 0;
-        while(!stack.isEmpty()) {
-            CnossosPath row = stack.pop();
-            resultsCache.queueSize.decrementAndGet();
-            int parameterIndex = 1;
-            LineString lineString = row.asGeom();
-            lineString.setSRID(srid);
-            ps.setObject(parameterIndex++, lineString);
-            ps.setLong(parameterIndex++, row.getCutProfile().getReceiver().receiverPk);
-            ps.setLong(parameterIndex++, row.getCutProfile().getSource().sourcePk);
-            if(databaseParameters.exportCnossosPathWithAttenuation) {
-                String json = "";
-                try {
-                    json = propagationPathAsJSON(row);
-                } catch (IOException ex) {
-                    //ignore
+        try(RowWriter rowWriter = createRowWriter(databaseParameters.raysTable, columns, rows.size())) {
+            for (CnossosPath row : rows) {
+                LineString lineString = row.asGeom();
+                lineString.setSRID(srid);
+                rowWriter.setGeometry(lineString);
+                rowWriter.setBigint(row.getCutProfile().getReceiver().receiverPk);
+                rowWriter.setBigint(row.getCutProfile().getSource().sourcePk);
+                if(databaseParameters.exportCnossosPathWithAttenuation) {
+                    String json = "";
+                    try {
+                        json = propagationPathAsJSON(row);
+                    } catch (IOException ex) {
+                        //ignore
+                    }
+                    rowWriter.setVarchar(json);
                 }
-                ps.setString(parameterIndex++, json);
-            }
-            if(databaseParameters.exportAttenuationMatrix) {
-                double globalValue = sumDbArray(row.aGlobal);
-                ps.setDouble(parameterIndex++, globalValue);
-            }
-            if(exportPeriod) {
-                ps.setString(parameterIndex++, row.getTimePeriod());
-            }
-            ps.addBatch();
-            batchSize++;
-            if (batchSize >= BATCH_MAX_SIZE) {
-                ps.executeBatch();
-                ps.clearBatch();
-                batchSize = 0;
+                if(databaseParameters.exportAttenuationMatrix) {
+                    double globalValue = sumDbArray(row.aGlobal);
+                    rowWriter.setDoublePrecision(globalValue);
+                }
+                if(exportPeriod) {
+                    rowWriter.setVarchar(row.getTimePeriod());
+                }
+                rowWriter.endRow();
             }
         }
-        if (batchSize > 0) {
-            ps.executeBatch();
-        }
-
     }
 
     /**
-     * Pop values from stack and insert rows
-     * @param tableName Table to feed
-     * @param stack Stack to pop from
-     * @throws SQLException Got an error
+     * Columns of the receivers level table, in the order of the values given by {@link #processStack(String, List)}
+     * @param columns Column names
+     * @param types Storage type of each column
      */
-    void processStack(String tableName, ConcurrentLinkedDeque<ReceiverNoiseLevel> stack) throws SQLException {
-        if(stack.isEmpty()) {
-            return;
-        }
+    void forgeReceiversLevelColumns(List<String> columns, List<ColumnarFileWriter.ColumnType> types) {
         // If we compute attenuation only there is no period field
         boolean exportPeriod = !noiseMapByReceiverMaker.getSceneInputSettings().getInputMode().
-                        equals(SceneDatabaseInputSettings.INPUT_MODE.INPUT_MODE_ATTENUATION);
-        StringBuilder query = new StringBuilder("INSERT INTO ");
-        query.append(tableName);
-        query.append(" VALUES (? "); // ID_RECEIVER
+                equals(SceneDatabaseInputSettings.INPUT_MODE.INPUT_MODE_ATTENUATION);
+        columns.add("IDRECEIVER");
+        types.add(ColumnarFileWriter.ColumnType.BIGINT);
         if(!databaseParameters.mergeSources) {
-            query.append(", ?"); // ID_SOURCE
+            columns.add("IDSOURCE");
+            types.add(ColumnarFileWriter.ColumnType.BIGINT);
         }
         if(exportPeriod) {
-            query.append(", ?"); // PERIOD
+            columns.add("PERIOD");
+            types.add(ColumnarFileWriter.ColumnType.VARCHAR);
         }
         if(databaseParameters.exportReceiverPosition) {
-            query.append(", ?"); // THE_GEOM
+            columns.add("THE_GEOM");
+            types.add(ColumnarFileWriter.ColumnType.POINTZ);
         }
         if (!databaseParameters.computeLAEQOnly) {
-            query.append(", ?".repeat(aWeightingArray.length)); // freq value LWXX
-            query.append(", ?, ?);"); // laeq, leq
-        }else{
-            query.append(", ?);"); // laeq, leq
-        }
-        PreparedStatement ps;
-        if(sqlFilePath == null) {
-            ps = connection.prepareStatement(query.toString());
+            for (int idfreq = 0; idfreq < aWeightingArray.length; idfreq++) {
+                columns.add(noiseMapByReceiverMaker.getLwFrequencyPrepend() + frequencyArray.get(idfreq));
+                types.add(ColumnarFileWriter.ColumnType.REAL);
+            }
+            columns.add("LAEQ");
+            types.add(ColumnarFileWriter.ColumnType.REAL);
+            columns.add("LEQ");
+            types.add(ColumnarFileWriter.ColumnType.REAL);
         } else {
-            ps = new StringPreparedStatements(writer, query.toString());
+            columns.add("LAEQ");
+            types.add(ColumnarFileWriter.ColumnType.REAL);
         }
-        int batchSize = 0;
+    }
+
+    /**
+     * Insert rows
+     * @param tableName Table to feed
+     * @param rows Receiver levels to insert
+     * @throws SQLException Got an error
+     */
+    void processStack(String tableName, List<ReceiverNoiseLevel> rows) throws SQLException {
+        if(rows.isEmpty()) {
+            return;
+        }
+        // If we compute attenuation only there is no period field
+        boolean exportPeriod = !noiseMapByReceiverMaker.getSceneInputSettings().getInputMode().
+                        equals(SceneDatabaseInputSettings.INPUT_MODE.INPUT_MODE_ATTENUATION);
+        List<String> columns = new ArrayList<>();
+        forgeReceiversLevelColumns(columns, new ArrayList<>());
         GeometryFactory factory = new GeometryFactory(new PrecisionModel(), srid);
-        while(!stack.isEmpty()) {
-            ReceiverNoiseLevel row = stack.pop();
-            resultsCache.queueSize.decrementAndGet();
-            int parameterIndex = 1;
-            ps.setLong(parameterIndex++, row.receiver.receiverPk);
-            if(!databaseParameters.mergeSources) {
-                ps.setLong(parameterIndex++, row.source.sourcePk);
-            }
-            if(exportPeriod) {
-                ps.setString(parameterIndex++, row.period);
-            }
-            if(databaseParameters.exportReceiverPosition) {
-                ps.setObject(parameterIndex++,  row.receiver.position != null ?
-                        factory.createPoint(row.receiver.position):
-                        factory.createPoint());
-            }
-            if (!databaseParameters.computeLAEQOnly){
-                for(int idfreq = 0; idfreq < aWeightingArray.length; idfreq++) {
-                    double value = row.levels[idfreq];
-                    if(!Double.isFinite(value)) {
-                        value = -99.0;
-                        row.levels[idfreq] = value;
+        try(RowWriter rowWriter = receiversLevelFileWriter != null ? receiversLevelFileWriter.createChunk() :
+                createRowWriter(tableName, columns, rows.size())) {
+            for (ReceiverNoiseLevel row : rows) {
+                rowWriter.setBigint(row.receiver.receiverPk);
+                if(!databaseParameters.mergeSources) {
+                    rowWriter.setBigint(row.source.sourcePk);
+                }
+                if(exportPeriod) {
+                    rowWriter.setVarchar(row.period);
+                }
+                if(databaseParameters.exportReceiverPosition) {
+                    rowWriter.setGeometry(row.receiver.position != null ?
+                            factory.createPoint(row.receiver.position):
+                            factory.createPoint());
+                }
+                if (!databaseParameters.computeLAEQOnly){
+                    for(int idfreq = 0; idfreq < aWeightingArray.length; idfreq++) {
+                        double value = row.levels[idfreq];
+                        if(!Double.isFinite(value)) {
+                            value = -99.0;
+                            row.levels[idfreq] = value;
+                        }
+                        rowWriter.setReal(value);
                     }
-                    ps.setDouble(parameterIndex++, value);
                 }
-            }
-            // laeq value
-            double value = wToDb(sumArray(AcousticIndicatorsFunctions.dBToW(sumArray(row.levels, aWeightingArray))));
-            if(!Double.isFinite(value)) {
-                value = -99;
-            }
-            ps.setDouble(parameterIndex++, value);
-
-            // leq value
-            if (!databaseParameters.computeLAEQOnly) {
-                ps.setDouble(parameterIndex++, wToDb(sumArray(AcousticIndicatorsFunctions.dBToW(row.levels))));
-            }
+                // laeq value
+                double value = wToDb(sumArray(AcousticIndicatorsFunctions.dBToW(sumArray(row.levels, aWeightingArray))));
+                if(!Double.isFinite(value)) {
+                    value = -99;
+                }
+                rowWriter.setReal(value);
 
-            ps.addBatch();
-            batchSize++;
-            if (batchSize >= BATCH_MAX_SIZE) {
-                ps.executeBatch();
-                ps.clearBatch();
-                batchSize = 0;
+                // leq value
+                if (!databaseParameters.computeLAEQOnly) {
+                    rowWriter.setReal(wToDb(sumArray(AcousticIndicatorsFunctions.dBToW(row.levels))));
+                }
+                rowWriter.endRow();
             }
         }
-        if (batchSize > 0) {
-            ps.executeBatch();
-        }
     }
 
     /**
      * Generates the SQL statement for creating a table based on the specified table name and configuration parameters.
      * @param tableName the name of the table to create
+     * @param ifNotExists if true the existing table is kept
      * @return the SQL statement for creating the table
      */
-    private String forgeCreateTable(String tableName) {
+    private String forgeCreateTable(String tableName, boolean ifNotExists) {
         // If we compute attenuation only there is no period field
         boolean exportPeriod = !noiseMapByReceiverMaker.getSceneInputSettings().getInputMode().
                 equals(SceneDatabaseInputSettings.INPUT_MODE.INPUT_MODE_ATTENUATION);
-        StringBuilder sb = new StringBuilder("create table ");
+        StringBuilder sb = new StringBuilder(ifNotExists ? "create table if not exists " : "create table ");
         sb.append(tableName);
         if(!databaseParameters.mergeSources) {
             sb.append(" (IDRECEIVER bigint NOT NULL");
@@ -350,14 +383,20 @@ public class NoiseMapWriter implements Callable<Boolean> {
 
     /**
      * Initializes the noise map calculation by setting up required database tables based on the specified parameters.
+     * If the run is resumed from a {@link RunJournal}, the tables are kept and the rows of the receivers that are not
+     * in the committed cells are deleted.
      * @throws SQLException
      * @throws IOException
      */
     public void init() throws SQLException, IOException {
+        RunJournal runJournal = noiseMapByReceiverMaker.getRunJournal();
+        boolean resume = runJournal != null && runJournal.isResumed();
+        resumed = resume;
+        boolean dropResultsTable = databaseParameters.dropResultsTable && !resume;
         if(databaseParameters.getExportRaysMethod() == NoiseMapDatabaseParameters.ExportRaysMethods.TO_RAYS_TABLE) {
             boolean exportPeriod = !noiseMapByReceiverMaker.getSceneInputSettings().getInputMode().
                     equals(SceneDatabaseInputSettings.INPUT_MODE.INPUT_MODE_ATTENUATION);
-            if(databaseParameters.dropResultsTable) {
+            if(dropResultsTable) {
                 String q = String.format("DROP TABLE IF EXISTS %s;", databaseParameters.raysTable);
                 processQuery(q);
             }
@@ -376,13 +415,20 @@ public class NoiseMapWriter implements Callable<Boolean> {
             }
             sb.append(");");
             processQuery(sb.toString());
+            if(resume) {
+                runJournal.deleteUncommittedRows(connection, databaseParameters.raysTable);
+            }
         }
-        if(databaseParameters.dropResultsTable) {
+        if(dropResultsTable) {
             String q = String.format("DROP TABLE IF EXISTS %s;", databaseParameters.receiversLevelTable);
             processQuery(q);
         }
-        String q = forgeCreateTable(databaseParameters.receiversLevelTable);
+        String q = forgeCreateTable(databaseParameters.receiversLevelTable, resume);
         processQuery(q);
+        if(resume) {
+            LOGGER.info("Resume the computation, remove the rows of the cells not committed in the run journal");
+            runJournal.deleteUncommittedRows(connection, databaseParameters.receiversLevelTable);
+        }
     }
 
     /**
@@ -391,17 +437,24 @@ public class NoiseMapWriter implements Callable<Boolean> {
      * @throws IOException
      */
     void mainLoop() throws SQLException, IOException {
+        List<ReceiverNoiseLevel> receiverLevels = new ArrayList<>(DRAIN_MAX_SIZE);
+        List<CnossosPath> cnossosPaths = new ArrayList<>(DRAIN_MAX_SIZE);
         while (!aborted.get()) {
             try {
-                if(!resultsCache.receiverLevels.isEmpty()) {
-                    processStack(databaseParameters.receiversLevelTable, resultsCache.receiverLevels);
-                } else if(!resultsCache.cnossosPaths.isEmpty()) {
-                    processRaysStack(resultsCache.cnossosPaths);
+                if(resultsCache.drainReceiverLevels(receiverLevels, DRAIN_MAX_SIZE) > 0) {
+                    processStack(databaseParameters.receiversLevelTable, receiverLevels);
+                    resultsCache.markReceiverLevelsWritten(receiverLevels.size());
+                    receiverLevels.clear();
+                } else if(resultsCache.drainCnossosPaths(cnossosPaths, DRAIN_MAX_SIZE) > 0) {
+                    processRaysStack(cnossosPaths);
+                    resultsCache.markCnossosPathsWritten(cnossosPaths.size());
+                    cnossosPaths.clear();
                 } else {
                     if(exitWhenDone.get()) {
                         break;
                     } else {
-                        Thread.sleep(50);
+                        // Signaled by the computation threads when new results are pushed
+                        resultsCache.awaitData(IDLE_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
                     }
                 }
             } catch (InterruptedException ex) {
@@ -417,12 +470,44 @@ public class NoiseMapWriter implements Callable<Boolean> {
      * @throws IOException
      */
     void createKeys()  throws SQLException, IOException {
+        if(resumed && sqlFilePath == null && hasKeys(databaseParameters.receiversLevelTable)) {
+            // The keys have been created by the previous run
+            LOGGER.info("Write done, the primary keys are already applied");
+            return;
+        }
         // Set primary keys
         LOGGER.info("Write done, apply primary keys");
         processQuery(forgePkTable(databaseParameters.receiversLevelTable));
         LOGGER.info("Primary keys applied");
     }
 
+    /**
+     * @param tableName Table name
+     * @return True if the primary key or the index created by {@link #forgePkTable(String)} exists
+     * @throws SQLException Sql exception instance
+     */
+    private boolean hasKeys(String tableName) throws SQLException {
+        TableLocation tableLocation = TableLocation.parse(tableName,
+                DBUtils.getDBType(connection.unwrap(Connection.class)));
+        DatabaseMetaData metaData = connection.getMetaData();
+        String catalog = tableLocation.getCatalog(null);
+        String schema = tableLocation.getSchema(null);
+        if (databaseParameters.mergeSources) {
+            try (ResultSet rs = metaData.getPrimaryKeys(catalog, schema, tableLocation.getTable())) {
+                return rs.next();
+            }
+        } else {
+            try (ResultSet rs = metaData.getIndexInfo(catalog, schema, tableLocation.getTable(), false, true)) {
+                while (rs.next()) {
+                    if ("IDRECEIVER".equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
     /**
      * Gets an OutputStreamWriter for writing data to a file stream.
      * @return an OutputStreamWriter for writing data to a file stream
@@ -445,18 +530,24 @@ public class NoiseMapWriter implements Callable<Boolean> {
         if(sqlFilePath == null) {
             try {
                 mainLoop();
-                createKeys();
+                if(createKeys) {
+                    createKeys();
+                }
             } catch (Exception e) {
                 aborted.set(true);
+                resultsCache.wakeUp();
                 throw e;
             }
         } else {
             try(OutputStreamWriter bw = getStream()) {
                 writer = bw;
                 mainLoop();
-                createKeys();
+                if(createKeys) {
+                    createKeys();
+                }
             } catch (Exception e) {
                 aborted.set(true);
+                resultsCache.wakeUp();
                 throw e;
             }
         }
@@ -0,0 +1,147 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Insert rows using the PostgreSQL COPY command with the binary format, much faster than insert queries.
+ * The rows are encoded in memory then sent at once on {@link #close()}.
+ */
+class PostgreSQLCopyRowWriter implements RowWriter {
+    private static final byte[] SIGNATURE = new byte[] {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private final CopyManager copyManager;
+    private final String copyQuery;
+    private final int columnCount;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(NoiseMapWriter.WRITER_CACHE);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    // geometry_recv expects EWKB
+    private final WKBWriter wkbWriter = new WKBWriter(3, true);
+    private int fieldIndex = 0;
+
+    /**
+     * @param connection PostgreSQL connection
+     * @param tableName Table to feed
+     * @param columns Columns of the table
+     * @throws SQLException The connection is not a PostgreSQL connection
+     */
+    PostgreSQLCopyRowWriter(Connection connection, String tableName, List<String> columns) throws SQLException {
+        copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        copyQuery = "COPY " + tableName + "(" + String.join(", ", columns) + ") FROM STDIN (FORMAT binary)";
+        columnCount = columns.size();
+        try {
+            out.write(SIGNATURE);
+            // flags
+            out.writeInt(0);
+            // header extension length
+            out.writeInt(0);
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    private void startField(int length) throws SQLException {
+        try {
+            if (fieldIndex == 0) {
+                out.writeShort(columnCount);
+            }
+            fieldIndex++;
+            out.writeInt(length);
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    @Override
+    public void setBigint(long value) throws SQLException {
+        startField(Long.BYTES);
+        try {
+            out.writeLong(value);
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    private void setBytes(byte[] value) throws SQLException {
+        if (value == null) {
+            // null value
+            startField(-1);
+            return;
+        }
+        startField(value.length);
+        try {
+            out.write(value);
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    @Override
+    public void setVarchar(String value) throws SQLException {
+        setBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void setGeometry(Geometry value) throws SQLException {
+        setBytes(value == null ? null : wkbWriter.write(value));
+    }
+
+    @Override
+    public void setReal(double value) throws SQLException {
+        startField(Float.BYTES);
+        try {
+            out.writeFloat((float) value);
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    @Override
+    public void setDoublePrecision(double value) throws SQLException {
+        startField(Double.BYTES);
+        try {
+            out.writeDouble(value);
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    @Override
+    public void endRow() throws SQLException {
+        if (fieldIndex != columnCount) {
+            throw new SQLException("Expected " + columnCount + " values, got " + fieldIndex);
+        }
+        fieldIndex = 0;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            // file trailer
+            out.writeShort(-1);
+            copyManager.copyIn(copyQuery, new ByteArrayInputStream(buffer.toByteArray()));
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+}
@@ -13,13 +13,29 @@ import org.noise_planet.noisemodelling.pathfinder.utils.profiler.ProfilerThread;
 import org.noise_planet.noisemodelling.propagation.ReceiverNoiseLevel;
 import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPath;
 
+import java.util.Collection;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 /**
- * Store results in memory, awaiting writing on sql database
+ * Store results in memory, awaiting writing on sql database.
+ * The number of elements is bounded, the computation threads are blocked when the maximum size is reached and are
+ * signaled as soon as the writer thread drains some elements. The writer thread is signaled when new elements are
+ * pushed.
  */
 public class ResultsCache implements ProfilerThread.Metric {
+    /**
+     * Maximum time in milliseconds a blocked thread waits before checking again the abort flag
+     */
+    public static final long ABORT_CHECK_INTERVAL = 100;
+    static final int RECEIVER_LEVELS = 0;
+    static final int CNOSSOS_PATHS = 1;
     /**
      * As reading the size of the queue is a O(n) operation, this attribute store the current number of elements in the stacks
      */
@@ -27,17 +43,234 @@ public class ResultsCache implements ProfilerThread.Metric {
     public final AtomicLong totalRaysInserted = new AtomicLong(0);
     public final ConcurrentLinkedDeque<ReceiverNoiseLevel> receiverLevels = new ConcurrentLinkedDeque<>();
     public final ConcurrentLinkedDeque<CnossosPath> cnossosPaths = new ConcurrentLinkedDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    /** Time in nanoseconds spent by the computation threads waiting for a free slot since the last metric line */
+    private final AtomicLong producerStallTime = new AtomicLong(0);
+    /** Time in nanoseconds spent by the writer thread waiting for new elements since the last metric line */
+    private final AtomicLong consumerIdleTime = new AtomicLong(0);
+    /** Number of receiver levels and propagation paths pushed, drained and stored, guarded by the lock */
+    private final long[] pushedCount = new long[2];
+    private final long[] drainedCount = new long[2];
+    private final long[] writtenCount = new long[2];
+    /** All the elements of each queue up to this count are stored */
+    private final long[] storedCount = new long[2];
+
+    /**
+     * Wait until the number of elements is not greater than the maximum. The lock must be held.
+     * @return False if the computation has been aborted while waiting
+     */
+    private boolean awaitFreeSlot(int maximumQueueSize, AtomicBoolean aborted) throws InterruptedException {
+        if(queueSize.get() <= maximumQueueSize) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            while (queueSize.get() > maximumQueueSize) {
+                if (aborted.get()) {
+                    return false;
+                }
+                notFull.await(ABORT_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            producerStallTime.addAndGet(System.nanoTime() - start);
+        }
+        return true;
+    }
 
+    /**
+     * Push a receiver level, wait if the cache is full
+     * @param receiverNoiseLevel Level to push
+     * @param maximumQueueSize Maximum number of elements in the cache
+     * @param aborted Abort flag checked while waiting
+     * @return False if the computation has been aborted while waiting, the level is not pushed
+     * @throws InterruptedException The thread has been interrupted while waiting
+     */
+    public boolean push(ReceiverNoiseLevel receiverNoiseLevel, int maximumQueueSize, AtomicBoolean aborted)
+            throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if(!awaitFreeSlot(maximumQueueSize, aborted)) {
+                return false;
+            }
+            receiverLevels.add(receiverNoiseLevel);
+            queueSize.incrementAndGet();
+            pushedCount[RECEIVER_LEVELS]++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Push propagation paths, wait if the cache is full
+     * @param paths Paths to push
+     * @param maximumQueueSize Maximum number of elements in the cache
+     * @param aborted Abort flag checked while waiting
+     * @return False if the computation has been aborted while waiting, the paths are not pushed
+     * @throws InterruptedException The thread has been interrupted while waiting
+     */
+    public boolean push(Collection<CnossosPath> paths, int maximumQueueSize, AtomicBoolean aborted)
+            throws InterruptedException {
+        if(paths.isEmpty()) {
+            return true;
+        }
+        lock.lockInterruptibly();
+        try {
+            if(!awaitFreeSlot(maximumQueueSize, aborted)) {
+                return false;
+            }
+            cnossosPaths.addAll(paths);
+            queueSize.addAndGet(paths.size());
+            pushedCount[CNOSSOS_PATHS] += paths.size();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> int drain(Queue<T> queue, int queueIndex, Collection<? super T> destination, int maximumElements) {
+        lock.lock();
+        try {
+            int count = 0;
+            T element;
+            while (count < maximumElements && (element = queue.poll()) != null) {
+                destination.add(element);
+                count++;
+            }
+            if(count > 0) {
+                drainedCount[queueIndex] += count;
+                queueSize.addAndGet(-count);
+                notFull.signalAll();
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move receiver levels into the provided collection
+     * @param destination Collection to feed
+     * @param maximumElements Maximum number of elements to move
+     * @return Number of elements moved
+     */
+    public int drainReceiverLevels(Collection<? super ReceiverNoiseLevel> destination, int maximumElements) {
+        return drain(receiverLevels, RECEIVER_LEVELS, destination, maximumElements);
+    }
+
+    /**
+     * Move propagation paths into the provided collection
+     * @param destination Collection to feed
+     * @param maximumElements Maximum number of elements to move
+     * @return Number of elements moved
+     */
+    public int drainCnossosPaths(Collection<? super CnossosPath> destination, int maximumElements) {
+        return drain(cnossosPaths, CNOSSOS_PATHS, destination, maximumElements);
+    }
+
+    private void markWritten(int queueIndex, int count) {
+        lock.lock();
+        try {
+            writtenCount[queueIndex] += count;
+            // With several writers the drained elements are stored once no other batch is being written
+            if(writtenCount[queueIndex] == drainedCount[queueIndex]) {
+                storedCount[queueIndex] = drainedCount[queueIndex];
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by the writer once the drained receiver levels are stored
+     * @param count Number of receiver levels stored
+     */
+    public void markReceiverLevelsWritten(int count) {
+        markWritten(RECEIVER_LEVELS, count);
+    }
+
+    /**
+     * Called by the writer once the drained propagation paths are stored
+     * @param count Number of propagation paths stored
+     */
+    public void markCnossosPathsWritten(int count) {
+        markWritten(CNOSSOS_PATHS, count);
+    }
+
+    /**
+     * @return Condition that becomes true once all the elements pushed until now are stored
+     */
+    public BooleanSupplier getStoredCondition() {
+        lock.lock();
+        try {
+            final long[] pushed = pushedCount.clone();
+            return () -> {
+                lock.lock();
+                try {
+                    return storedCount[RECEIVER_LEVELS] >= pushed[RECEIVER_LEVELS] &&
+                            storedCount[CNOSSOS_PATHS] >= pushed[CNOSSOS_PATHS];
+                } finally {
+                    lock.unlock();
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until elements are pushed, {@link #wakeUp()} is called or the timeout elapsed
+     * @param timeout Maximum time to wait
+     * @param unit Unit of timeout
+     * @return True if the cache contains elements
+     * @throws InterruptedException The thread has been interrupted while waiting
+     */
+    public boolean awaitData(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if(queueSize.get() > 0) {
+                return true;
+            }
+            long start = System.nanoTime();
+            try {
+                notEmpty.await(timeout, unit);
+            } finally {
+                consumerIdleTime.addAndGet(System.nanoTime() - start);
+            }
+            return queueSize.get() > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wake up all waiting threads, called when the computation state changed (done or aborted)
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
 
     @Override
     public String[] getColumnNames() {
-        return new String[] {"jdbc_stack"};
+        return new String[] {"jdbc_stack", "jdbc_producer_stall_milliseconds", "jdbc_writer_idle_milliseconds"};
     }
 
     @Override
     public String[] getCurrentValues() {
         // Metric that return unprocessed data (not yet recorded in the database)
-        return new String[] {Long.toString(queueSize.get())};
+        return new String[] {Long.toString(queueSize.get()),
+                Long.toString(TimeUnit.NANOSECONDS.toMillis(producerStallTime.getAndSet(0))),
+                Long.toString(TimeUnit.NANOSECONDS.toMillis(consumerIdleTime.getAndSet(0)))};
     }
 
     @Override
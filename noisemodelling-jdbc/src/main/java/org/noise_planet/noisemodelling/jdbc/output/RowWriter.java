@@ -0,0 +1,46 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.SQLException;
+
+/**
+ * Destination of the rows inserted in a result table. The values of a row are given in the order of the columns
+ * provided when creating the writer, then {@link #endRow()} is called. The pending rows are sent to the database on
+ * {@link #close()}.
+ */
+interface RowWriter extends AutoCloseable {
+    void setBigint(long value) throws SQLException;
+
+    void setVarchar(String value) throws SQLException;
+
+    /**
+     * @param value Geometry with the SRID of the column
+     */
+    void setGeometry(Geometry value) throws SQLException;
+
+    /**
+     * Value of a single precision column
+     */
+    void setReal(double value) throws SQLException;
+
+    /**
+     * Value of a double precision column
+     */
+    void setDoublePrecision(double value) throws SQLException;
+
+    void endRow() throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+}
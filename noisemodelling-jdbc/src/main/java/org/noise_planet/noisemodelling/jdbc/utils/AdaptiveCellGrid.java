@@ -0,0 +1,318 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.utils;
+
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Quadtree decomposition of the computation area, the cells of the regular gridDim x gridDim grid are split where the
+ * estimated computation cost or the amount of loaded geometries is too high.
+ * <p>
+ * The receivers, sources and buildings are counted at their location on a fine grid of
+ * (gridDim * 2^subdivisionDepth) cells per side, at most {@link #MAXIMUM_CELL_GRID_DIM}. A source is counted once,
+ * at the center of its envelope, so the cost of the cells crossed by a long road is under-estimated. Then the
+ * estimated cost of a cell is:
+ * receivers x sources within the propagation distance x (1 + buildings per hectare within the propagation distance).
+ * The unit of the cost is arbitrary, it is only used to compare the cells.
+ * <p>
+ * The cells are identified by the {@link CellIndex} of their first fine cell, and their size in fine cells. As in
+ * the rest of the computation the latitude index of {@link CellIndex} is the column (X axis).
+ * @author Nicolas Fortin
+ */
+public class AdaptiveCellGrid {
+    /** Maximum side count of the fine grid, each fine cell holds 3 counters */
+    public static final int MAXIMUM_CELL_GRID_DIM = 4096;
+
+    private final Envelope mainEnvelope;
+    private final int gridDim;
+    private final int subdivisionDepth;
+    private final int cellGridDim;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final long[] receivers;
+    private final long[] sources;
+    private final long[] buildings;
+
+    /**
+     * @param mainEnvelope Computation area
+     * @param gridDim Side count of the regular grid, root cells of the quadtree
+     * @param subdivisionDepth Maximum number of subdivisions of the root cells
+     * @throws IllegalArgumentException If the depth is negative or if the fine grid has more than
+     * {@link #MAXIMUM_CELL_GRID_DIM} cells per side
+     */
+    public AdaptiveCellGrid(Envelope mainEnvelope, int gridDim, int subdivisionDepth) {
+        checkCellGridDim(gridDim, subdivisionDepth);
+        this.mainEnvelope = mainEnvelope;
+        this.gridDim = gridDim;
+        this.subdivisionDepth = subdivisionDepth;
+        this.cellGridDim = gridDim << subdivisionDepth;
+        this.cellWidth = mainEnvelope.getWidth() / cellGridDim;
+        this.cellHeight = mainEnvelope.getHeight() / cellGridDim;
+        receivers = new long[cellGridDim * cellGridDim];
+        sources = new long[cellGridDim * cellGridDim];
+        buildings = new long[cellGridDim * cellGridDim];
+    }
+
+    /**
+     * @param gridDim Side count of the regular grid
+     * @param subdivisionDepth Maximum number of subdivisions of the root cells
+     * @throws IllegalArgumentException If the depth is negative or if the fine grid has more than
+     * {@link #MAXIMUM_CELL_GRID_DIM} cells per side
+     */
+    public static void checkCellGridDim(int gridDim, int subdivisionDepth) {
+        if(subdivisionDepth < 0) {
+            throw new IllegalArgumentException("The subdivision depth must be positive, got " + subdivisionDepth);
+        }
+        if(gridDim < 1) {
+            throw new IllegalArgumentException("The grid dimension must be at least 1, got " + gridDim);
+        }
+        if(subdivisionDepth > 31 || ((long) gridDim << subdivisionDepth) > MAXIMUM_CELL_GRID_DIM) {
+            throw new IllegalArgumentException("The fine grid of " + gridDim + " cells subdivided " +
+                    subdivisionDepth + " times exceeds " + MAXIMUM_CELL_GRID_DIM + " cells per side");
+        }
+    }
+
+    /**
+     * @return Side count of the fine grid
+     */
+    public int getCellGridDim() {
+        return cellGridDim;
+    }
+
+    private int getCell(double x, double y) {
+        int column = Math.max(0, Math.min(cellGridDim - 1, (int) ((x - mainEnvelope.getMinX()) / cellWidth)));
+        int row = Math.max(0, Math.min(cellGridDim - 1, (int) ((y - mainEnvelope.getMinY()) / cellHeight)));
+        return row * cellGridDim + column;
+    }
+
+    /**
+     * @param x Receiver location
+     * @param y Receiver location
+     */
+    public void addReceiver(double x, double y) {
+        receivers[getCell(x, y)]++;
+    }
+
+    /**
+     * A line source is counted in the single fine cell of its center, not in all the cells it crosses
+     * @param x Center of the envelope of the source geometry
+     * @param y Center of the envelope of the source geometry
+     */
+    public void addSource(double x, double y) {
+        sources[getCell(x, y)]++;
+    }
+
+    /**
+     * @param x Center of the envelope of the building geometry
+     * @param y Center of the envelope of the building geometry
+     */
+    public void addBuilding(double x, double y) {
+        buildings[getCell(x, y)]++;
+    }
+
+    /**
+     * @param values Count per fine cell
+     * @return Summed area table of (cellGridDim + 1)^2 values
+     */
+    private long[] sumTable(long[] values) {
+        int side = cellGridDim + 1;
+        long[] table = new long[side * side];
+        for (int row = 0; row < cellGridDim; row++) {
+            long rowSum = 0;
+            for (int column = 0; column < cellGridDim; column++) {
+                rowSum += values[row * cellGridDim + column];
+                table[(row + 1) * side + column + 1] = table[row * side + column + 1] + rowSum;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return Sum of the values of the fine cells [column0, column1) x [row0, row1), clamped to the grid
+     */
+    private long sum(long[] table, int column0, int row0, int column1, int row1) {
+        int side = cellGridDim + 1;
+        column0 = Math.max(0, column0);
+        row0 = Math.max(0, row0);
+        column1 = Math.min(cellGridDim, column1);
+        row1 = Math.min(cellGridDim, row1);
+        return table[row1 * side + column1] - table[row0 * side + column1] - table[row1 * side + column0] +
+                table[row0 * side + column0];
+    }
+
+    /**
+     * Split the root cells until the estimated cost and the geometry count of each cell are below the maximums, or
+     * the subdivision depth is reached.
+     * @param propagationDistance Distance of the sources and buildings taken into account in the cost
+     * @param haloDistance Distance of the geometries loaded with the cell
+     * @param maximumCellCost Maximum estimated cost of a cell, 0 to use the average cost of the root cells
+     * @param maximumCellGeometries Maximum number of receivers, sources and buildings loaded with a cell, 0 for no
+     *                              limit
+     * @return The cells that contain receivers
+     */
+    public List<CellCost> decompose(double propagationDistance, double haloDistance, double maximumCellCost,
+                                    long maximumCellGeometries) {
+        long[] receiversTable = sumTable(receivers);
+        long[] sourcesTable = sumTable(sources);
+        long[] buildingsTable = sumTable(buildings);
+        int rootSize = 1 << subdivisionDepth;
+        if (maximumCellCost <= 0) {
+            double totalCost = 0;
+            int populatedRoots = 0;
+            for (int row = 0; row < gridDim; row++) {
+                for (int column = 0; column < gridDim; column++) {
+                    CellCost cellCost = evaluate(column * rootSize, row * rootSize, rootSize, propagationDistance,
+                            haloDistance, receiversTable, sourcesTable, buildingsTable);
+                    if (cellCost.getReceiverCount() > 0) {
+                        totalCost += cellCost.getEstimatedCost();
+                        populatedRoots++;
+                    }
+                }
+            }
+            maximumCellCost = populatedRoots > 0 ? totalCost / populatedRoots : Double.MAX_VALUE;
+        }
+        List<CellCost> cells = new ArrayList<>();
+        for (int row = 0; row < gridDim; row++) {
+            for (int column = 0; column < gridDim; column++) {
+                split(column * rootSize, row * rootSize, rootSize, propagationDistance, haloDistance,
+                        maximumCellCost, maximumCellGeometries, receiversTable, sourcesTable, buildingsTable, cells);
+            }
+        }
+        return cells;
+    }
+
+    private void split(int column, int row, int size, double propagationDistance, double haloDistance,
+                       double maximumCellCost, long maximumCellGeometries, long[] receiversTable,
+                       long[] sourcesTable, long[] buildingsTable, List<CellCost> cells) {
+        CellCost cellCost = evaluate(column, row, size, propagationDistance, haloDistance, receiversTable,
+                sourcesTable, buildingsTable);
+        if (cellCost.getReceiverCount() == 0) {
+            return;
+        }
+        if (size > 1 && (cellCost.getEstimatedCost() > maximumCellCost ||
+                (maximumCellGeometries > 0 && cellCost.getGeometryCount() > maximumCellGeometries))) {
+            int half = size / 2;
+            split(column, row, half, propagationDistance, haloDistance, maximumCellCost, maximumCellGeometries,
+                    receiversTable, sourcesTable, buildingsTable, cells);
+            split(column + half, row, half, propagationDistance, haloDistance, maximumCellCost,
+                    maximumCellGeometries, receiversTable, sourcesTable, buildingsTable, cells);
+            split(column, row + half, half, propagationDistance, haloDistance, maximumCellCost,
+                    maximumCellGeometries, receiversTable, sourcesTable, buildingsTable, cells);
+            split(column + half, row + half, half, propagationDistance, haloDistance, maximumCellCost,
+                    maximumCellGeometries, receiversTable, sourcesTable, buildingsTable, cells);
+        } else {
+            cells.add(cellCost);
+        }
+    }
+
+    private CellCost evaluate(int column, int row, int size, double propagationDistance, double haloDistance,
+                              long[] receiversTable, long[] sourcesTable, long[] buildingsTable) {
+        long receiverCount = sum(receiversTable, column, row, column + size, row + size);
+        // Fine cells within the distances, rounded up
+        int propagationColumns = (int) Math.ceil(propagationDistance / cellWidth);
+        int propagationRows = (int) Math.ceil(propagationDistance / cellHeight);
+        int haloColumns = (int) Math.ceil(haloDistance / cellWidth);
+        int haloRows = (int) Math.ceil(haloDistance / cellHeight);
+        long sourceCount = sum(sourcesTable, column - propagationColumns, row - propagationRows,
+                column + size + propagationColumns, row + size + propagationRows);
+        long buildingCount = sum(buildingsTable, column - propagationColumns, row - propagationRows,
+                column + size + propagationColumns, row + size + propagationRows);
+        double areaHectare = (size + 2 * propagationColumns) * cellWidth * (size + 2 * propagationRows) *
+                cellHeight / 10000;
+        double estimatedCost = receiverCount * Math.max(1, sourceCount) *
+                (1 + (areaHectare > 0 ? buildingCount / areaHectare : 0));
+        long geometryCount = receiverCount +
+                sum(sourcesTable, column - haloColumns, row - haloRows, column + size + haloColumns,
+                        row + size + haloRows) +
+                sum(buildingsTable, column - haloColumns, row - haloRows, column + size + haloColumns,
+                        row + size + haloRows);
+        return new CellCost(new CellIndex(row, column, size), receiverCount, sourceCount, buildingCount,
+                geometryCount, estimatedCost);
+    }
+
+    /**
+     * Estimated and measured cost of a computation cell
+     */
+    public static class CellCost {
+        private final CellIndex cellIndex;
+        private final long receiverCount;
+        private final long sourceCount;
+        private final long buildingCount;
+        private final long geometryCount;
+        private final double estimatedCost;
+        private long computationTime = -1;
+
+        public CellCost(CellIndex cellIndex, long receiverCount, long sourceCount, long buildingCount,
+                        long geometryCount, double estimatedCost) {
+            this.cellIndex = cellIndex;
+            this.receiverCount = receiverCount;
+            this.sourceCount = sourceCount;
+            this.buildingCount = buildingCount;
+            this.geometryCount = geometryCount;
+            this.estimatedCost = estimatedCost;
+        }
+
+        public CellIndex getCellIndex() {
+            return cellIndex;
+        }
+
+        /**
+         * @return Number of receivers located in the cell
+         */
+        public long getReceiverCount() {
+            return receiverCount;
+        }
+
+        /**
+         * @return Number of sources within the propagation distance
+         */
+        public long getSourceCount() {
+            return sourceCount;
+        }
+
+        /**
+         * @return Number of buildings within the propagation distance
+         */
+        public long getBuildingCount() {
+            return buildingCount;
+        }
+
+        /**
+         * @return Number of receivers, sources and buildings loaded with the cell
+         */
+        public long getGeometryCount() {
+            return geometryCount;
+        }
+
+        /**
+         * @return Estimated cost, in an arbitrary unit
+         */
+        public double getEstimatedCost() {
+            return estimatedCost;
+        }
+
+        /**
+         * @return Measured computation time in milliseconds, -1 if the cell has not been evaluated
+         */
+        public long getComputationTime() {
+            return computationTime;
+        }
+
+        /**
+         * @param computationTime Measured computation time in milliseconds
+         */
+        public void setComputationTime(long computationTime) {
+            this.computationTime = computationTime;
+        }
+    }
+}
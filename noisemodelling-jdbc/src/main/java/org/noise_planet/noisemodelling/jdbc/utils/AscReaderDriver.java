@@ -17,6 +17,7 @@ import org.h2gis.utilities.TableLocation;
 import org.h2gis.utilities.dbtypes.DBTypes;
 import org.h2gis.utilities.dbtypes.DBUtils;
 import org.locationtech.jts.geom.*;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ElevationGrid;
 
 import java.io.*;
 import java.sql.*;
@@ -238,6 +239,91 @@ public class AscReaderDriver {
         }
     }
 
+    /**
+     * Read an asc file as a regular elevation grid, without creating a table. The grid can be given to
+     * {@link org.noise_planet.noisemodelling.jdbc.GridMapMaker#setDemGrid(ElevationGrid)} in place of the
+     * DEM table. The nodes of the grid are the centers of the raster cells. The extract envelope and the down scale
+     * parameters are applied, the no data values are replaced by the average altitude.
+     *
+     * @param fileName asc file or gz compressed asc file
+     * @return The elevation grid
+     * @throws IOException Error while reading the file
+     */
+    public ElevationGrid readGrid(File fileName) throws IOException {
+        String name = fileName.getName().toLowerCase();
+        if (!name.endsWith(".asc") && !name.endsWith(".gz")) {
+            throw new IOException("The asc read driver supports only asc or gz extensions");
+        }
+        try (InputStream fileStream = new FileInputStream(fileName)) {
+            InputStream inputStream = name.endsWith(".gz") ? new GZIPInputStream(fileStream) : fileStream;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new BufferedInputStream(inputStream,
+                    BUFFER_SIZE), encoding));
+            Scanner scanner = new Scanner(reader);
+            try {
+                readHeader(scanner);
+                // Rows and columns of the raster to keep
+                int firstRow = 0;
+                int firstCol = 0;
+                int lastRow = nrows - 1;
+                int lastCol = ncols - 1;
+                if (extractEnvelope != null) {
+                    firstCol = Math.max(0, (int) Math.floor((extractEnvelope.getMinX() - xValue) / cellSize));
+                    lastCol = Math.min(ncols - 1, (int) Math.ceil((extractEnvelope.getMaxX() - xValue) / cellSize));
+                    firstRow = Math.max(0, nrows - (int) Math.ceil((extractEnvelope.getMaxY() -
+                            (yValue - cellSize * nrows)) / cellSize));
+                    lastRow = Math.min(nrows - 1, nrows - (int) Math.ceil((extractEnvelope.getMinY() -
+                            (yValue - cellSize * nrows)) / cellSize));
+                }
+                // Align the first kept cell on the down scale
+                firstRow = (firstRow + downScale - 1) / downScale * downScale;
+                firstCol = (firstCol + downScale - 1) / downScale * downScale;
+                int gridColumns = lastCol >= firstCol ? (lastCol - firstCol) / downScale + 1 : 0;
+                int gridRows = lastRow >= firstRow ? (lastRow - firstRow) / downScale + 1 : 0;
+                if (gridColumns < 2 || gridRows < 2) {
+                    throw new IOException("The extracted grid must contain at least 2 rows and 2 columns");
+                }
+                float[] heights = new float[gridColumns * gridRows];
+                double sumZ = 0;
+                long validCount = 0;
+                for (int i = 0; i <= lastRow; i++) {
+                    for (int j = 0; j < ncols; j++) {
+                        if (readFirst) {
+                            lastWord = scanner.next();
+                        } else {
+                            readFirst = true;
+                        }
+                        if (i >= firstRow && (i - firstRow) % downScale == 0 && j >= firstCol && j <= lastCol &&
+                                (j - firstCol) % downScale == 0) {
+                            double z = Double.parseDouble(lastWord);
+                            // the first row of the file is the highest y
+                            int gridRow = gridRows - 1 - (i - firstRow) / downScale;
+                            int gridColumn = (j - firstCol) / downScale;
+                            if (Math.abs(noData - z) != 0) {
+                                heights[gridRow * gridColumns + gridColumn] = (float) z;
+                                sumZ += z;
+                                validCount++;
+                            } else {
+                                heights[gridRow * gridColumns + gridColumn] = Float.NaN;
+                            }
+                        }
+                    }
+                }
+                float averageZ = validCount > 0 ? (float) (sumZ / validCount) : 0;
+                for (int i = 0; i < heights.length; i++) {
+                    if (Float.isNaN(heights[i])) {
+                        heights[i] = averageZ;
+                    }
+                }
+                double lowestRow = firstRow + (gridRows - 1) * downScale;
+                return new ElevationGrid(xValue + firstCol * cellSize + cellSize / 2,
+                        yValue - lowestRow * cellSize - cellSize / 2, cellSize * downScale, gridColumns,
+                        gridRows, heights);
+            } catch (NoSuchElementException | NumberFormatException ex) {
+                throw new IOException("Unexpected word " + lastWord, ex);
+            }
+        }
+    }
+
     /**
      * Read the ascii file from inpustream
      *
@@ -16,14 +16,30 @@ import java.util.Objects;
 public class CellIndex implements Comparable<CellIndex> {
     int longitudeIndex;
     int latitudeIndex;
+    /** Number of grid cells covered along each axis, greater than 1 for the merged cells of an adaptive grid */
+    int size = 1;
 
     public CellIndex(int longitudeIndex, int latitudeIndex) {
         this.longitudeIndex = longitudeIndex;
         this.latitudeIndex = latitudeIndex;
     }
 
+    /**
+     * @param longitudeIndex Index of the first grid cell
+     * @param latitudeIndex Index of the first grid cell
+     * @param size Number of grid cells covered along each axis
+     */
+    public CellIndex(int longitudeIndex, int latitudeIndex, int size) {
+        this.longitudeIndex = longitudeIndex;
+        this.latitudeIndex = latitudeIndex;
+        this.size = size;
+    }
+
     @Override
     public String toString() {
+        if(size != 1) {
+            return String.format("CellIndex(%d, %d, %d);", longitudeIndex, latitudeIndex, size);
+        }
         return String.format("CellIndex(%d, %d);", longitudeIndex, latitudeIndex);
     }
 
@@ -35,17 +51,25 @@ public class CellIndex implements Comparable<CellIndex> {
         return latitudeIndex;
     }
 
+    /**
+     * @return Number of grid cells covered along each axis
+     */
+    public int getSize() {
+        return size;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         CellIndex cellIndex = (CellIndex) o;
-        return longitudeIndex == cellIndex.longitudeIndex && latitudeIndex == cellIndex.latitudeIndex;
+        return longitudeIndex == cellIndex.longitudeIndex && latitudeIndex == cellIndex.latitudeIndex &&
+                size == cellIndex.size;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(longitudeIndex, latitudeIndex);
+        return Objects.hash(longitudeIndex, latitudeIndex, size);
     }
 
     /**
@@ -56,10 +80,14 @@ public class CellIndex implements Comparable<CellIndex> {
     @Override
     public int compareTo(CellIndex o) {
         int comp = Integer.compare(latitudeIndex, o.latitudeIndex);
+        if(comp != 0) {
+            return comp;
+        }
+        comp = Integer.compare(longitudeIndex, o.longitudeIndex);
         if(comp != 0) {
             return comp;
         } else {
-            return Integer.compare(longitudeIndex, o.longitudeIndex);
+            return Integer.compare(size, o.size);
         }
     }
 }
@@ -0,0 +1,306 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of long values stored without boxing, used to track the primary keys of the processed receivers.
+ * <p>
+ * The values are split in chunks of 65536 consecutive values (roaring bitmap layout). A chunk stores its values in a
+ * sorted array of 16 bits integers while it is sparse, and in a bitmap of 8 KiB once it holds more than
+ * {@link #ARRAY_MAX_CARDINALITY} values. The primary keys of a receivers table are mostly consecutive, so a set of
+ * N keys uses about N / 8 bytes instead of more than 50 bytes per key with a {@link java.util.HashSet}.
+ * <p>
+ * This class is not thread safe and its iterator does not support the modification of the set.
+ * @author Nicolas Fortin
+ */
+public class CompactLongSet extends AbstractSet<Long> {
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /** Over this cardinality a bitmap is smaller than the array of values */
+    static final int ARRAY_MAX_CARDINALITY = 4096;
+
+    /** Sorted keys (value >> CHUNK_BITS) of the chunks */
+    private long[] chunkKeys = new long[4];
+    private Chunk[] chunks = new Chunk[4];
+    private int chunkCount = 0;
+    private long cardinality = 0;
+    /** Index of the last accessed chunk, consecutive keys are usually in the same chunk */
+    private int lastChunk = -1;
+
+    /**
+     * @param chunkKey Chunk key
+     * @return Index of the chunk, or (-(insertion point) - 1) if there is no chunk with this key
+     */
+    private int findChunk(long chunkKey) {
+        if (lastChunk >= 0 && lastChunk < chunkCount && chunkKeys[lastChunk] == chunkKey) {
+            return lastChunk;
+        }
+        int index = Arrays.binarySearch(chunkKeys, 0, chunkCount, chunkKey);
+        if (index >= 0) {
+            lastChunk = index;
+        }
+        return index;
+    }
+
+    /**
+     * @param value Value
+     * @return True if the set contains the value
+     */
+    public boolean contains(long value) {
+        int index = findChunk(value >> CHUNK_BITS);
+        return index >= 0 && chunks[index].contains((int) (value & (CHUNK_SIZE - 1)));
+    }
+
+    /**
+     * @param value Value to add
+     * @return True if the value was not already in the set
+     */
+    public boolean add(long value) {
+        long chunkKey = value >> CHUNK_BITS;
+        int index = findChunk(chunkKey);
+        if (index < 0) {
+            index = -index - 1;
+            if (chunkCount == chunkKeys.length) {
+                chunkKeys = Arrays.copyOf(chunkKeys, chunkCount * 2);
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            System.arraycopy(chunkKeys, index, chunkKeys, index + 1, chunkCount - index);
+            System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+            chunkKeys[index] = chunkKey;
+            chunks[index] = new Chunk();
+            chunkCount++;
+            lastChunk = index;
+        }
+        if (chunks[index].add((int) (value & (CHUNK_SIZE - 1)))) {
+            cardinality++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add all the values of the range
+     * @param first First value of the range
+     * @param last Last value of the range, inclusive
+     */
+    public void addRange(long first, long last) {
+        for (long value = first; value <= last; value++) {
+            add(value);
+        }
+    }
+
+    /**
+     * @param value Value to remove
+     * @return True if the set contained the value
+     */
+    public boolean remove(long value) {
+        int index = findChunk(value >> CHUNK_BITS);
+        if (index < 0 || !chunks[index].remove((int) (value & (CHUNK_SIZE - 1)))) {
+            return false;
+        }
+        cardinality--;
+        if (chunks[index].cardinality == 0) {
+            System.arraycopy(chunkKeys, index + 1, chunkKeys, index, chunkCount - index - 1);
+            System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+            chunkCount--;
+            chunks[chunkCount] = null;
+            lastChunk = -1;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && contains((long) (Long) o);
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add((long) value);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long && remove((long) (Long) o);
+    }
+
+    @Override
+    public void clear() {
+        chunkKeys = new long[4];
+        chunks = new Chunk[4];
+        chunkCount = 0;
+        cardinality = 0;
+        lastChunk = -1;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(cardinality, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Number of values, that may exceed {@link Integer#MAX_VALUE}
+     */
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return Estimation of the memory used by this set in bytes
+     */
+    public long getMemoryUsage() {
+        // Object headers and the arrays of chunks
+        long bytes = 40 + 16 + 8L * chunkKeys.length + 16 + 4L * chunks.length;
+        for (int i = 0; i < chunkCount; i++) {
+            Chunk chunk = chunks[i];
+            bytes += 24 + (chunk.bitmap != null ? 16 + 8L * chunk.bitmap.length : 16 + 2L * chunk.values.length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            int chunkIndex = 0;
+            /** Next value in the current chunk to look for */
+            int from = 0;
+            /** Next value, -1 if not looked for yet */
+            int next = -1;
+
+            private boolean lookForNext() {
+                while (next < 0 && chunkIndex < chunkCount) {
+                    next = from < CHUNK_SIZE ? chunks[chunkIndex].next(from) : -1;
+                    if (next < 0) {
+                        chunkIndex++;
+                        from = 0;
+                    }
+                }
+                return next >= 0;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return lookForNext();
+            }
+
+            @Override
+            public Long next() {
+                if (!lookForNext()) {
+                    throw new NoSuchElementException();
+                }
+                long value = (chunkKeys[chunkIndex] << CHUNK_BITS) | next;
+                from = next + 1;
+                next = -1;
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Values of the set that share the same chunk key, stored in a sorted array or in a bitmap
+     */
+    private static final class Chunk {
+        char[] values = new char[4];
+        long[] bitmap = null;
+        int cardinality = 0;
+
+        boolean contains(int value) {
+            if (bitmap != null) {
+                return (bitmap[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, (char) value) >= 0;
+        }
+
+        boolean add(int value) {
+            if (bitmap != null) {
+                long word = bitmap[value >>> 6];
+                long mask = 1L << value;
+                if ((word & mask) != 0) {
+                    return false;
+                }
+                bitmap[value >>> 6] = word | mask;
+                cardinality++;
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) value);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX_CARDINALITY) {
+                toBitmap();
+                return add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX_CARDINALITY));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = (char) value;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(int value) {
+            if (bitmap != null) {
+                long word = bitmap[value >>> 6];
+                long mask = 1L << value;
+                if ((word & mask) == 0) {
+                    return false;
+                }
+                bitmap[value >>> 6] = word & ~mask;
+                cardinality--;
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        private void toBitmap() {
+            bitmap = new long[CHUNK_SIZE / Long.SIZE];
+            for (int i = 0; i < cardinality; i++) {
+                bitmap[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        /**
+         * @param from First value to look for
+         * @return Smallest value of the chunk greater or equal to from, -1 if there is none
+         */
+        int next(int from) {
+            if (bitmap != null) {
+                int wordIndex = from >>> 6;
+                long word = bitmap[wordIndex] & (-1L << from);
+                while (word == 0) {
+                    if (++wordIndex == bitmap.length) {
+                        return -1;
+                    }
+                    word = bitmap[wordIndex];
+                }
+                return wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < cardinality ? values[index] : -1;
+        }
+    }
+}
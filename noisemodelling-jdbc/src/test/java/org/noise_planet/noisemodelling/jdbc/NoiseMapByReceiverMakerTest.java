@@ -9,12 +9,14 @@
 
 package org.noise_planet.noisemodelling.jdbc;
 
+import org.h2.jdbcx.JdbcDataSource;
 import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.functions.factory.H2GISDBFactory;
 import org.h2gis.utilities.JDBCUtilities;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -22,7 +24,9 @@ import org.locationtech.jts.io.WKTWriter;
 import org.noise_planet.noisemodelling.jdbc.input.DefaultTableLoader;
 import org.noise_planet.noisemodelling.jdbc.input.SceneDatabaseInputSettings;
 import org.noise_planet.noisemodelling.jdbc.input.SceneWithEmission;
+import org.noise_planet.noisemodelling.jdbc.output.DefaultCutPlaneProcessing;
 import org.noise_planet.noisemodelling.jdbc.output.NoiseMapWriter;
+import org.noise_planet.noisemodelling.jdbc.utils.AdaptiveCellGrid;
 import org.noise_planet.noisemodelling.jdbc.utils.CellIndex;
 import org.noise_planet.noisemodelling.jdbc.utils.IsoSurface;
 import org.noise_planet.noisemodelling.pathfinder.utils.profiler.RootProgressVisitor;
@@ -31,11 +35,16 @@ import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPath;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.GroundAbsorption;
 import org.noise_planet.noisemodelling.pathfinder.utils.geometry.Orientation;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -398,4 +407,366 @@ public class NoiseMapByReceiverMakerTest {
             assertEquals(receiversRowCount * 3, resultRowCount);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCellPrefetch() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute(String.format("CALL SHPREAD('%s', 'LW_ROADS')", NoiseMapByReceiverMakerTest.class.getResource("lw_roads.shp").getFile()));
+            st.execute("CREATE TABLE SOURCES_GEOM(PK SERIAL PRIMARY KEY, THE_GEOM GEOMETRY) AS SELECT PK, THE_GEOM FROM LW_ROADS");
+            st.execute("CREATE TABLE SOURCES_EMISSION(PERIOD VARCHAR, IDSOURCE INT, LW63 REAL, LW125 REAL, LW250 REAL, LW500 REAL, LW1000 REAL, LW2000 REAL, LW4000 REAL, LW8000 REAL)");
+            st.execute("INSERT INTO SOURCES_EMISSION SELECT 'D', PK, LWD63, LWD125, LWD250, LWD500, LWD1000, LWD2000, LWD4000, LWD8000 FROM LW_ROADS");
+
+            st.execute(String.format("CALL SHPREAD('%s', 'BUILDINGS')", NoiseMapByReceiverMakerTest.class.getResource("buildings.shp").getFile()));
+
+            int srid = org.h2gis.utilities.GeometryTableUtilities.getSRID(connection, "BUILDINGS");
+            IsoSurface isoSurface = new IsoSurface(IsoSurface.NF31_133_ISO, srid);
+            DelaunayReceiversMaker delaunayReceiversMaker = new DelaunayReceiversMaker("BUILDINGS", "SOURCES_GEOM");
+            delaunayReceiversMaker.setMaximumArea(800);
+            delaunayReceiversMaker.setGridDim(1);
+            delaunayReceiversMaker.run(connection, "RECEIVERS", isoSurface.getTriangleTable());
+
+            NoiseMapByReceiverMaker noiseMapByReceiverMaker = new NoiseMapByReceiverMaker("BUILDINGS",
+                    "SOURCES_GEOM", "RECEIVERS");
+
+            noiseMapByReceiverMaker.setMaximumPropagationDistance(100);
+            noiseMapByReceiverMaker.setSoundReflectionOrder(0);
+            noiseMapByReceiverMaker.setComputeHorizontalDiffraction(false);
+            // Multiple cells in order to load the next cells while computing the current one
+            noiseMapByReceiverMaker.setGridDim(3);
+            noiseMapByReceiverMaker.setCellPrefetchDepth(2);
+            noiseMapByReceiverMaker.setSourcesEmissionTableName("SOURCES_EMISSION");
+
+            noiseMapByReceiverMaker.run(connection, new RootProgressVisitor(1, true, 5));
+
+            int receiversRowCount = JDBCUtilities.getRowCount(connection, "RECEIVERS");
+
+            int resultRowCount = JDBCUtilities.getRowCount(connection,
+                    noiseMapByReceiverMaker.getNoiseMapDatabaseParameters().receiversLevelTable);
+
+            // each receiver is evaluated only once for the period D
+            assertEquals(receiversRowCount, resultRowCount);
+        }
+    }
+
+    /**
+     * The subdivided cells give the same levels as the cells of the grid
+     */
+    @Test
+    public void testAdaptiveCells() throws SQLException {
+        int receiversRowCount = createRunJournalScene();
+        List<Map<Long, Double>> results = new ArrayList<>();
+        NoiseMapByReceiverMaker noiseMapByReceiverMaker = null;
+        for (int cellSubdivisionDepth : new int[]{0, 2}) {
+            noiseMapByReceiverMaker = new NoiseMapByReceiverMaker("BUILDINGS", "SOURCES_GEOM", "RECEIVERS");
+            noiseMapByReceiverMaker.setMaximumPropagationDistance(100);
+            noiseMapByReceiverMaker.setSoundReflectionOrder(0);
+            noiseMapByReceiverMaker.setComputeHorizontalDiffraction(false);
+            noiseMapByReceiverMaker.setGridDim(2);
+            noiseMapByReceiverMaker.setCellSubdivisionDepth(cellSubdivisionDepth);
+            noiseMapByReceiverMaker.setSourcesEmissionTableName("SOURCES_EMISSION");
+            noiseMapByReceiverMaker.run(connection, new RootProgressVisitor(1, true, 5));
+            Map<Long, Double> levels = fetchLAeq(noiseMapByReceiverMaker.getNoiseMapDatabaseParameters().receiversLevelTable);
+            // each receiver is evaluated only once for the period D
+            assertEquals(receiversRowCount, levels.size());
+            results.add(levels);
+        }
+        for (Map.Entry<Long, Double> entry : results.get(0).entrySet()) {
+            assertEquals(entry.getValue(), results.get(1).get(entry.getKey()), 0.01, "Receiver " + entry.getKey());
+        }
+
+        assertEquals(8, noiseMapByReceiverMaker.getCellGridDim());
+        Map<CellIndex, AdaptiveCellGrid.CellCost> cellCosts = noiseMapByReceiverMaker.getCellCosts();
+        assertFalse(cellCosts.isEmpty());
+        long receiverCount = 0;
+        for (AdaptiveCellGrid.CellCost cellCost : cellCosts.values()) {
+            assertTrue(cellCost.getComputationTime() >= 0);
+            assertTrue(cellCost.getEstimatedCost() > 0);
+            receiverCount += cellCost.getReceiverCount();
+        }
+        assertEquals(receiversRowCount, receiverCount);
+    }
+
+    private Map<Long, Double> fetchLAeq(String tableName) throws SQLException {
+        Map<Long, Double> levels = new HashMap<>();
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT IDRECEIVER, LAEQ FROM " + tableName)) {
+            while (rs.next()) {
+                assertNull(levels.put(rs.getLong(1), rs.getDouble(2)), "Duplicate receiver " + rs.getLong(1));
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Create the input tables of the run journal tests
+     * @return Number of receivers
+     */
+    private int createRunJournalScene() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute(String.format("CALL SHPREAD('%s', 'LW_ROADS')", NoiseMapByReceiverMakerTest.class.getResource("lw_roads.shp").getFile()));
+            st.execute("CREATE TABLE SOURCES_GEOM(PK SERIAL PRIMARY KEY, THE_GEOM GEOMETRY) AS SELECT PK, THE_GEOM FROM LW_ROADS");
+            st.execute("CREATE TABLE SOURCES_EMISSION(PERIOD VARCHAR, IDSOURCE INT, LW63 REAL, LW125 REAL, LW250 REAL, LW500 REAL, LW1000 REAL, LW2000 REAL, LW4000 REAL, LW8000 REAL)");
+            st.execute("INSERT INTO SOURCES_EMISSION SELECT 'D', PK, LWD63, LWD125, LWD250, LWD500, LWD1000, LWD2000, LWD4000, LWD8000 FROM LW_ROADS");
+
+            st.execute(String.format("CALL SHPREAD('%s', 'BUILDINGS')", NoiseMapByReceiverMakerTest.class.getResource("buildings.shp").getFile()));
+
+            int srid = org.h2gis.utilities.GeometryTableUtilities.getSRID(connection, "BUILDINGS");
+            IsoSurface isoSurface = new IsoSurface(IsoSurface.NF31_133_ISO, srid);
+            DelaunayReceiversMaker delaunayReceiversMaker = new DelaunayReceiversMaker("BUILDINGS", "SOURCES_GEOM");
+            delaunayReceiversMaker.setMaximumArea(800);
+            delaunayReceiversMaker.setGridDim(1);
+            delaunayReceiversMaker.run(connection, "RECEIVERS", isoSurface.getTriangleTable());
+        }
+        return JDBCUtilities.getRowCount(connection, "RECEIVERS");
+    }
+
+    /**
+     * Run the computation using the journal
+     * @return LAeq of each receiver
+     */
+    private Map<Long, Double> runWithJournal(File journalFile) throws SQLException {
+        NoiseMapByReceiverMaker noiseMapByReceiverMaker = new NoiseMapByReceiverMaker("BUILDINGS",
+                "SOURCES_GEOM", "RECEIVERS");
+        noiseMapByReceiverMaker.setMaximumPropagationDistance(100);
+        noiseMapByReceiverMaker.setSoundReflectionOrder(0);
+        noiseMapByReceiverMaker.setComputeHorizontalDiffraction(false);
+        noiseMapByReceiverMaker.setGridDim(3);
+        noiseMapByReceiverMaker.setSourcesEmissionTableName("SOURCES_EMISSION");
+        noiseMapByReceiverMaker.getNoiseMapDatabaseParameters().setRunJournalFile(journalFile);
+        noiseMapByReceiverMaker.run(connection, new RootProgressVisitor(1, true, 5));
+        return fetchLAeq(noiseMapByReceiverMaker.getNoiseMapDatabaseParameters().receiversLevelTable);
+    }
+
+    /**
+     * @return True if the table has a primary key
+     */
+    private boolean hasPrimaryKey(String tableName) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getPrimaryKeys(null, null, tableName)) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Stop a run after its first cell by rewriting its journal, the resumed run must give the same results
+     */
+    @Test
+    public void testRunJournalResume(@TempDir Path tempDir) throws Exception {
+        int receiversRowCount = createRunJournalScene();
+        File journalFile = tempDir.resolve("run.journal").toFile();
+        List<Map<Long, Double>> results = new ArrayList<>();
+        for (int run = 0; run < 3; run++) {
+            Map<Long, Double> levels = runWithJournal(journalFile);
+            // each receiver is evaluated only once for the period D
+            assertEquals(receiversRowCount, levels.size());
+            assertTrue(hasPrimaryKey("RECEIVERS_LEVEL"));
+            results.add(levels);
+            if (run == 0) {
+                // Keep the header, the grid and the first committed cell, and add an interrupted line
+                List<String> lines = Files.readAllLines(journalFile.toPath());
+                assertEquals(RunJournal.DONE, lines.get(lines.size() - 1));
+                assertTrue(lines.size() > 4);
+                Files.write(journalFile.toPath(), (String.join("\n", lines.subList(0, 3)) + "\n" +
+                        RunJournal.CELL + " 2").getBytes(StandardCharsets.UTF_8));
+                // The rows of the cells that are not committed anymore are kept in the table, they must be
+                // replaced by the resumed run
+            }
+        }
+        for (Map.Entry<Long, Double> entry : results.get(0).entrySet()) {
+            assertEquals(entry.getValue(), results.get(1).get(entry.getKey()), 1e-6);
+            assertEquals(entry.getValue(), results.get(2).get(entry.getKey()), 1e-6);
+        }
+    }
+
+    /**
+     * Resume a run that has been stopped once all its cells were committed, the results table already has its
+     * primary key
+     */
+    @Test
+    public void testRunJournalResumeCompletedRun(@TempDir Path tempDir) throws Exception {
+        int receiversRowCount = createRunJournalScene();
+        File journalFile = tempDir.resolve("run.journal").toFile();
+        Map<Long, Double> expected = runWithJournal(journalFile);
+        assertEquals(receiversRowCount, expected.size());
+        assertTrue(hasPrimaryKey("RECEIVERS_LEVEL"));
+        // Remove the last line, as if the run was stopped before writing it
+        List<String> lines = Files.readAllLines(journalFile.toPath());
+        assertEquals(RunJournal.DONE, lines.get(lines.size() - 1));
+        Files.write(journalFile.toPath(), (String.join("\n", lines.subList(0, lines.size() - 1)) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        Map<Long, Double> levels = runWithJournal(journalFile);
+        assertEquals(expected, levels);
+        assertTrue(hasPrimaryKey("RECEIVERS_LEVEL"));
+        lines = Files.readAllLines(journalFile.toPath());
+        assertEquals(RunJournal.DONE, lines.get(lines.size() - 1));
+    }
+
+    /**
+     * The levels computed with the aggregation of the far sources stay within the tolerance of the levels computed
+     * with all the sources
+     */
+    @Test
+    public void testSourceAggregation() throws Exception {
+        int receiversRowCount = createRunJournalScene();
+        double tolerance = 1.0;
+        List<Map<Long, Double>> results = new ArrayList<>();
+        for (double aggregationTolerance : new double[]{0, tolerance}) {
+            NoiseMapByReceiverMaker noiseMapByReceiverMaker = new NoiseMapByReceiverMaker("BUILDINGS",
+                    "SOURCES_GEOM", "RECEIVERS");
+            noiseMapByReceiverMaker.setMaximumPropagationDistance(300);
+            noiseMapByReceiverMaker.setSoundReflectionOrder(0);
+            noiseMapByReceiverMaker.setComputeHorizontalDiffraction(false);
+            noiseMapByReceiverMaker.setSourcesEmissionTableName("SOURCES_EMISSION");
+            noiseMapByReceiverMaker.setSourceAggregationTolerance(aggregationTolerance);
+            noiseMapByReceiverMaker.run(connection, new EmptyProgressVisitor());
+            results.add(fetchLAeq(noiseMapByReceiverMaker.getNoiseMapDatabaseParameters().receiversLevelTable));
+        }
+        assertEquals(receiversRowCount, results.get(0).size());
+        assertEquals(receiversRowCount, results.get(1).size());
+        for (Map.Entry<Long, Double> entry : results.get(0).entrySet()) {
+            assertEquals(entry.getValue(), results.get(1).get(entry.getKey()), tolerance,
+                    "Receiver " + entry.getKey());
+        }
+    }
+
+    @Test
+    public void testAttenuationMatrix(@TempDir Path tempDir) throws Exception {
+        try (Statement st = connection.createStatement()) {
+            st.execute(String.format("CALL SHPREAD('%s', 'LW_ROADS')", NoiseMapByReceiverMakerTest.class.getResource("lw_roads.shp").getFile()));
+            st.execute("CREATE TABLE SOURCES_GEOM(PK SERIAL PRIMARY KEY, THE_GEOM GEOMETRY) AS SELECT PK, THE_GEOM FROM LW_ROADS");
+            st.execute("CREATE TABLE SOURCES_EMISSION(PERIOD VARCHAR, IDSOURCE INT, LW63 REAL, LW125 REAL, LW250 REAL, LW500 REAL, LW1000 REAL, LW2000 REAL, LW4000 REAL, LW8000 REAL)");
+            st.execute("INSERT INTO SOURCES_EMISSION SELECT 'D', PK, LWD63, LWD125, LWD250, LWD500, LWD1000, LWD2000, LWD4000, LWD8000 FROM LW_ROADS");
+            st.execute("INSERT INTO SOURCES_EMISSION SELECT 'N', PK, LWN63, LWN125, LWN250, LWN500, LWN1000, LWN2000, LWN4000, LWN8000 FROM LW_ROADS");
+
+            st.execute(String.format("CALL SHPREAD('%s', 'BUILDINGS')", NoiseMapByReceiverMakerTest.class.getResource("buildings.shp").getFile()));
+
+            int srid = org.h2gis.utilities.GeometryTableUtilities.getSRID(connection, "BUILDINGS");
+            IsoSurface isoSurface = new IsoSurface(IsoSurface.NF31_133_ISO, srid);
+            DelaunayReceiversMaker delaunayReceiversMaker = new DelaunayReceiversMaker("BUILDINGS", "SOURCES_GEOM");
+            delaunayReceiversMaker.setMaximumArea(800);
+            delaunayReceiversMaker.setGridDim(1);
+            delaunayReceiversMaker.run(connection, "RECEIVERS", isoSurface.getTriangleTable());
+
+            // Compute only the attenuation and store it in the attenuation matrix file
+            File attenuationMatrixFile = tempDir.resolve("attenuation.bin").toFile();
+            NoiseMapByReceiverMaker attenuationMaker = new NoiseMapByReceiverMaker("BUILDINGS",
+                    "SOURCES_GEOM", "RECEIVERS");
+            attenuationMaker.setMaximumPropagationDistance(100);
+            attenuationMaker.setSoundReflectionOrder(0);
+            attenuationMaker.setComputeHorizontalDiffraction(false);
+            attenuationMaker.setGridDim(2);
+            attenuationMaker.getNoiseMapDatabaseParameters().setAttenuationMatrixFile(attenuationMatrixFile);
+            attenuationMaker.run(connection, new RootProgressVisitor(1, true, 5));
+            assertTrue(attenuationMatrixFile.exists());
+            assertEquals(0, JDBCUtilities.getRowCount(connection,
+                    attenuationMaker.getNoiseMapDatabaseParameters().receiversLevelTable));
+
+            AttenuationMatrixCombiner combiner = new AttenuationMatrixCombiner(attenuationMatrixFile);
+            combiner.setThreadCount(4);
+            combiner.setReceiversPerTask(10);
+            long rowCount = combiner.run(connection, "SOURCES_EMISSION", "LEVELS_FROM_MATRIX");
+            assertTrue(rowCount > 0);
+
+            // Reference levels computed with the emission
+            NoiseMapByReceiverMaker noiseMapByReceiverMaker = new NoiseMapByReceiverMaker("BUILDINGS",
+                    "SOURCES_GEOM", "RECEIVERS");
+            noiseMapByReceiverMaker.setMaximumPropagationDistance(100);
+            noiseMapByReceiverMaker.setSoundReflectionOrder(0);
+            noiseMapByReceiverMaker.setComputeHorizontalDiffraction(false);
+            noiseMapByReceiverMaker.setGridDim(2);
+            noiseMapByReceiverMaker.setSourcesEmissionTableName("SOURCES_EMISSION");
+            noiseMapByReceiverMaker.run(connection, new RootProgressVisitor(1, true, 5));
+
+            String levelsTable = noiseMapByReceiverMaker.getNoiseMapDatabaseParameters().receiversLevelTable;
+            try (ResultSet rs = st.executeQuery("SELECT R.LAEQ, M.LAEQ FROM " + levelsTable +
+                    " R INNER JOIN LEVELS_FROM_MATRIX M ON R.IDRECEIVER = M.IDRECEIVER AND R.PERIOD = M.PERIOD")) {
+                int comparedRows = 0;
+                while (rs.next()) {
+                    assertEquals(rs.getDouble(1), rs.getDouble(2), 0.01);
+                    comparedRows++;
+                }
+                assertEquals(rowCount, comparedRows);
+            }
+        }
+    }
+
+    @Test
+    public void testWriterPoolBulkInsert() throws Exception {
+        try (Statement st = connection.createStatement()) {
+            st.execute(String.format("CALL SHPREAD('%s', 'LW_ROADS')", NoiseMapByReceiverMakerTest.class.getResource("lw_roads.shp").getFile()));
+            st.execute("CREATE TABLE SOURCES_GEOM(PK SERIAL PRIMARY KEY, THE_GEOM GEOMETRY) AS SELECT PK, THE_GEOM FROM LW_ROADS");
+            st.execute("CREATE TABLE SOURCES_EMISSION(PERIOD VARCHAR, IDSOURCE INT, LW63 REAL, LW125 REAL, LW250 REAL, LW500 REAL, LW1000 REAL, LW2000 REAL, LW4000 REAL, LW8000 REAL)");
+            st.execute("INSERT INTO SOURCES_EMISSION SELECT 'D', PK, LWD63, LWD125, LWD250, LWD500, LWD1000, LWD2000, LWD4000, LWD8000 FROM LW_ROADS");
+            st.execute("INSERT INTO SOURCES_EMISSION SELECT 'N', PK, LWN63, LWN125, LWN250, LWN500, LWN1000, LWN2000, LWN4000, LWN8000 FROM LW_ROADS");
+
+            st.execute(String.format("CALL SHPREAD('%s', 'BUILDINGS')", NoiseMapByReceiverMakerTest.class.getResource("buildings.shp").getFile()));
+
+            int srid = org.h2gis.utilities.GeometryTableUtilities.getSRID(connection, "BUILDINGS");
+            IsoSurface isoSurface = new IsoSurface(IsoSurface.NF31_133_ISO, srid);
+            DelaunayReceiversMaker delaunayReceiversMaker = new DelaunayReceiversMaker("BUILDINGS", "SOURCES_GEOM");
+            delaunayReceiversMaker.setMaximumArea(800);
+            delaunayReceiversMaker.setGridDim(1);
+            delaunayReceiversMaker.run(connection, "RECEIVERS", isoSurface.getTriangleTable());
+
+            // Reference levels inserted with a single writer and batches of INSERT queries
+            NoiseMapByReceiverMaker noiseMapByReceiverMaker = new NoiseMapByReceiverMaker("BUILDINGS",
+                    "SOURCES_GEOM", "RECEIVERS");
+            noiseMapByReceiverMaker.setMaximumPropagationDistance(100);
+            noiseMapByReceiverMaker.setSoundReflectionOrder(0);
+            noiseMapByReceiverMaker.setComputeHorizontalDiffraction(false);
+            noiseMapByReceiverMaker.setGridDim(2);
+            noiseMapByReceiverMaker.getNoiseMapDatabaseParameters().exportReceiverPosition = true;
+            noiseMapByReceiverMaker.setSourcesEmissionTableName("SOURCES_EMISSION");
+            noiseMapByReceiverMaker.run(connection, new RootProgressVisitor(1, true, 5));
+
+            // Same computation with 3 writers using the bulk insertion
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL(connection.getMetaData().getURL());
+            dataSource.setUser(connection.getMetaData().getUserName());
+            dataSource.setPassword("");
+            NoiseMapByReceiverMaker bulkMaker = new NoiseMapByReceiverMaker("BUILDINGS",
+                    "SOURCES_GEOM", "RECEIVERS");
+            bulkMaker.setMaximumPropagationDistance(100);
+            bulkMaker.setSoundReflectionOrder(0);
+            bulkMaker.setComputeHorizontalDiffraction(false);
+            bulkMaker.setGridDim(2);
+            bulkMaker.setSourcesEmissionTableName("SOURCES_EMISSION");
+            NoiseMapDatabaseParameters parameters = bulkMaker.getNoiseMapDatabaseParameters();
+            parameters.exportReceiverPosition = true;
+            parameters.receiversLevelTable = "RECEIVERS_LEVEL_BULK";
+            parameters.setBulkInsert(true);
+            parameters.setWriterCount(3);
+            parameters.setWriterDataSource(dataSource);
+            bulkMaker.run(connection, new RootProgressVisitor(1, true, 5));
+
+            String levelsTable = noiseMapByReceiverMaker.getNoiseMapDatabaseParameters().receiversLevelTable;
+            int expectedRowCount = JDBCUtilities.getRowCount(connection, levelsTable);
+            assertTrue(expectedRowCount > 0);
+            assertEquals(expectedRowCount, JDBCUtilities.getRowCount(connection, "RECEIVERS_LEVEL_BULK"));
+            try (ResultSet rs = st.executeQuery("SELECT R.LAEQ, B.LAEQ, R.LW1000, B.LW1000, " +
+                    "ST_EQUALS(R.THE_GEOM, B.THE_GEOM) FROM " + levelsTable + " R INNER JOIN RECEIVERS_LEVEL_BULK B" +
+                    " ON R.IDRECEIVER = B.IDRECEIVER AND R.PERIOD = B.PERIOD")) {
+                int comparedRows = 0;
+                while (rs.next()) {
+                    assertEquals(rs.getDouble(1), rs.getDouble(2), 1e-6);
+                    assertEquals(rs.getDouble(3), rs.getDouble(4), 1e-6);
+                    assertTrue(rs.getBoolean(5));
+                    comparedRows++;
+                }
+                assertEquals(expectedRowCount, comparedRows);
+            }
+        }
+    }
+
+    /**
+     * The additional writers cannot run without their data source
+     */
+    @Test
+    public void testWriterPoolWithoutDataSource() {
+        NoiseMapDatabaseParameters parameters = new NoiseMapDatabaseParameters();
+        assertThrows(IllegalArgumentException.class, () -> parameters.setWriterCount(0));
+        parameters.setWriterCount(3);
+        DefaultCutPlaneProcessing processing = new DefaultCutPlaneProcessing(parameters, new AtomicBoolean(false),
+                new AtomicBoolean(false));
+        assertThrows(IllegalArgumentException.class, () -> processing.start(new EmptyProgressVisitor()));
+    }
+}
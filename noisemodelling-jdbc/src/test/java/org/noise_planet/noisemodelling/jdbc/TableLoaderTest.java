@@ -16,16 +16,20 @@ import org.h2gis.utilities.JDBCUtilities;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.locationtech.jts.geom.LineString;
 import org.noise_planet.noisemodelling.emission.LineSource;
 import org.noise_planet.noisemodelling.emission.railway.RailWayParameters;
 import org.noise_planet.noisemodelling.jdbc.input.DefaultTableLoader;
+import org.noise_planet.noisemodelling.jdbc.input.GeometryTileCache;
+import org.noise_planet.noisemodelling.jdbc.input.SceneWithEmission;
 import org.noise_planet.noisemodelling.jdbc.input.SceneDatabaseInputSettings;
 import org.noise_planet.noisemodelling.jdbc.railway.RailWayLWGeom;
 import org.noise_planet.noisemodelling.jdbc.railway.RailWayLWIterator;
 import org.noise_planet.noisemodelling.jdbc.utils.CellIndex;
 import org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicatorsFunctions;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -33,6 +37,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -401,6 +406,114 @@ public class TableLoaderTest {
 
 
 
+    @Test
+    public void testGeometryTileCache() throws SQLException, IOException {
+        SHPRead.importTable(connection, TableLoaderTest.class.getResource("lw_roads.shp").getFile());
+        SHPRead.importTable(connection, TableLoaderTest.class.getResource("buildings.shp").getFile());
+        SHPRead.importTable(connection, TableLoaderTest.class.getResource("receivers.shp").getFile());
+
+        NoiseMapByReceiverMaker noiseMap = new NoiseMapByReceiverMaker("BUILDINGS",
+                "LW_ROADS", "RECEIVERS");
+        noiseMap.setMaximumPropagationDistance(100);
+        noiseMap.setGridDim(3);
+        noiseMap.initialize(connection, new EmptyProgressVisitor());
+
+        DefaultTableLoader tableLoader = (DefaultTableLoader)noiseMap.getTableLoader();
+        // small tiles in order to have buildings located in several tiles
+        GeometryTileCache geometryTileCache = new GeometryTileCache(50, GeometryTileCache.DEFAULT_MAXIMUM_MEMORY);
+        Map<CellIndex, Integer> populatedCells = noiseMap.searchPopulatedCells(connection);
+        assertFalse(populatedCells.isEmpty());
+        for (CellIndex cellIndex : populatedCells.keySet()) {
+            tableLoader.setGeometryTileCache(null);
+            SceneWithEmission expected = tableLoader.create(connection, cellIndex, new HashSet<>());
+            tableLoader.setGeometryTileCache(geometryTileCache);
+            SceneWithEmission cached = tableLoader.create(connection, cellIndex, new HashSet<>());
+            assertEquals(expected.profileBuilder.getBuildings().size(), cached.profileBuilder.getBuildings().size());
+            assertEquals(expected.profileBuilder.getWalls().size(), cached.profileBuilder.getWalls().size());
+            assertEquals(expected.receivers.size(), cached.receivers.size());
+        }
+        // neighbouring cells are sharing tiles
+        assertTrue(geometryTileCache.getTileHit() > 0);
+        // all tiles are released
+        geometryTileCache.clear();
+        assertEquals(0, geometryTileCache.getTileCount());
+        assertEquals(0, geometryTileCache.getEstimatedMemory());
+    }
+
+    @Test
+    public void testProfileBuilderSnapshot(@TempDir File tempDir) throws SQLException, IOException {
+        SHPRead.importTable(connection, TableLoaderTest.class.getResource("lw_roads.shp").getFile());
+        SHPRead.importTable(connection, TableLoaderTest.class.getResource("buildings.shp").getFile());
+        SHPRead.importTable(connection, TableLoaderTest.class.getResource("receivers.shp").getFile());
+
+        NoiseMapByReceiverMaker noiseMap = new NoiseMapByReceiverMaker("BUILDINGS",
+                "LW_ROADS", "RECEIVERS");
+        noiseMap.setMaximumPropagationDistance(100);
+        noiseMap.initialize(connection, new EmptyProgressVisitor());
+
+        DefaultTableLoader tableLoader = (DefaultTableLoader)noiseMap.getTableLoader();
+        tableLoader.setProfileBuilderSnapshotDirectory(tempDir);
+        CellIndex cellIndex = noiseMap.searchPopulatedCells(connection).keySet().iterator().next();
+        SceneWithEmission expected = tableLoader.create(connection, cellIndex, new HashSet<>());
+        File[] snapshots = tempDir.listFiles();
+        assertNotNull(snapshots);
+        assertEquals(1, snapshots.length);
+        long lastModified = snapshots[0].lastModified();
+        // second run read back the processed geometries
+        SceneWithEmission restored = tableLoader.create(connection, cellIndex, new HashSet<>());
+        assertEquals(lastModified, snapshots[0].lastModified());
+        assertEquals(expected.profileBuilder.getBuildings().size(), restored.profileBuilder.getBuildings().size());
+        assertEquals(expected.profileBuilder.getProcessedWalls().size(),
+                restored.profileBuilder.getProcessedWalls().size());
+        assertEquals(expected.sourceGeometries.size(), restored.sourceGeometries.size());
+    }
+
+    /**
+     * The snapshot is kept if the rows of the buildings are only stored in another order, and is replaced by the
+     * next run if the buildings are modified
+     */
+    @Test
+    public void testProfileBuilderSnapshotModifiedTable(@TempDir File tempDir) throws SQLException, IOException {
+        SHPRead.importTable(connection, TableLoaderTest.class.getResource("lw_roads.shp").getFile());
+        SHPRead.importTable(connection, TableLoaderTest.class.getResource("buildings.shp").getFile());
+        SHPRead.importTable(connection, TableLoaderTest.class.getResource("receivers.shp").getFile());
+
+        NoiseMapByReceiverMaker noiseMap = new NoiseMapByReceiverMaker("BUILDINGS",
+                "LW_ROADS", "RECEIVERS");
+        noiseMap.setMaximumPropagationDistance(100);
+        noiseMap.initialize(connection, new EmptyProgressVisitor());
+        DefaultTableLoader tableLoader = (DefaultTableLoader)noiseMap.getTableLoader();
+        tableLoader.setProfileBuilderSnapshotDirectory(tempDir);
+        CellIndex cellIndex = noiseMap.searchPopulatedCells(connection).keySet().iterator().next();
+        SceneWithEmission expected = tableLoader.create(connection, cellIndex, new HashSet<>());
+        File[] snapshots = tempDir.listFiles();
+        assertNotNull(snapshots);
+        assertEquals(1, snapshots.length);
+        long lastModified = snapshots[0].lastModified();
+
+        // Same rows in the reverse order
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE BUILDINGS_REVERSED AS SELECT * FROM BUILDINGS ORDER BY PK DESC");
+            st.execute("DROP TABLE BUILDINGS");
+            st.execute("ALTER TABLE BUILDINGS_REVERSED RENAME TO BUILDINGS");
+            st.execute("ALTER TABLE BUILDINGS ADD PRIMARY KEY (PK)");
+        }
+        noiseMap.initialize(connection, new EmptyProgressVisitor());
+        tableLoader.create(connection, cellIndex, new HashSet<>());
+        assertEquals(lastModified, snapshots[0].lastModified());
+
+        // Higher buildings
+        try (Statement st = connection.createStatement()) {
+            st.execute("UPDATE BUILDINGS SET HEIGHT = HEIGHT + 10");
+        }
+        noiseMap.initialize(connection, new EmptyProgressVisitor());
+        SceneWithEmission modified = tableLoader.create(connection, cellIndex, new HashSet<>());
+        assertEquals(expected.profileBuilder.getBuildings().size(), modified.profileBuilder.getBuildings().size());
+        double expectedHeight = expected.profileBuilder.getBuildings().stream().mapToDouble(b -> b.getHeight()).sum();
+        double modifiedHeight = modified.profileBuilder.getBuildings().stream().mapToDouble(b -> b.getHeight()).sum();
+        assertEquals(expectedHeight + 10 * expected.profileBuilder.getBuildings().size(), modifiedHeight, 1e-6);
+    }
+
     // Check regression of finding cell i,j that contains receivers
     @Test
     public void testRegression1() throws SQLException, IOException {
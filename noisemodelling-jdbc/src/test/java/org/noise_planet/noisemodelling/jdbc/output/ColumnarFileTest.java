@@ -0,0 +1,131 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import org.h2gis.functions.factory.H2GISDBFactory;
+import org.h2gis.utilities.JDBCUtilities;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ColumnarFileTest {
+    private static final List<String> COLUMNS = Arrays.asList("IDRECEIVER", "PERIOD", "THE_GEOM", "LW500", "LAEQ");
+    private static final List<ColumnarFileWriter.ColumnType> TYPES = Arrays.asList(
+            ColumnarFileWriter.ColumnType.BIGINT, ColumnarFileWriter.ColumnType.VARCHAR,
+            ColumnarFileWriter.ColumnType.POINTZ, ColumnarFileWriter.ColumnType.REAL,
+            ColumnarFileWriter.ColumnType.REAL);
+    private static final String[] PERIODS = new String[] {"D", "E", "N"};
+
+    private static void writeRows(ColumnarFileWriter writer, int firstReceiver, int receiverCount) throws Exception {
+        GeometryFactory factory = new GeometryFactory(new PrecisionModel(), 2154);
+        try (RowWriter chunk = writer.createChunk()) {
+            for (int receiver = firstReceiver; receiver < firstReceiver + receiverCount; receiver++) {
+                for (String period : PERIODS) {
+                    chunk.setBigint(receiver);
+                    chunk.setVarchar(period);
+                    chunk.setGeometry(factory.createPoint(new Coordinate(receiver, receiver * 2, 4)));
+                    chunk.setReal(receiver + 0.5);
+                    chunk.setReal(receiver + 0.25);
+                    chunk.endRow();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAppendRead(@TempDir Path tempDir) throws Exception {
+        File file = tempDir.resolve("levels.bin").toFile();
+        try (ColumnarFileWriter writer = new ColumnarFileWriter(file, COLUMNS, TYPES, 2154, false)) {
+            writeRows(writer, 0, 100);
+            writeRows(writer, 100, 50);
+            assertEquals(450, writer.getRowCount());
+        }
+        // Add a chunk to the existing file
+        try (ColumnarFileWriter writer = new ColumnarFileWriter(file, COLUMNS, TYPES, 2154, true)) {
+            writeRows(writer, 150, 10);
+        }
+        try (ColumnarFileReader reader = new ColumnarFileReader(file)) {
+            assertEquals(COLUMNS, reader.getColumns());
+            assertEquals(TYPES, reader.getTypes());
+            assertEquals(2154, reader.getSrid());
+            int row = 0;
+            ColumnarFileReader.Chunk chunk;
+            while ((chunk = reader.next()) != null) {
+                for (int i = 0; i < chunk.getRowCount(); i++) {
+                    long receiver = row / PERIODS.length;
+                    assertEquals(receiver, chunk.getLong(0, i));
+                    assertEquals(PERIODS[row % PERIODS.length], chunk.getString(1, i));
+                    Coordinate coordinate = chunk.getCoordinate(2, i);
+                    assertNotNull(coordinate);
+                    assertEquals(receiver * 2, coordinate.y, 1e-12);
+                    assertEquals(4, coordinate.getZ(), 1e-12);
+                    assertEquals(receiver + 0.5, chunk.getDouble(3, i), 1e-3);
+                    assertEquals(receiver + 0.25, chunk.getDouble(4, i), 1e-3);
+                    row++;
+                }
+            }
+            assertEquals(480, row);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testAppendOtherColumns(@TempDir Path tempDir) throws Exception {
+        File file = tempDir.resolve("levels.bin").toFile();
+        try (ColumnarFileWriter writer = new ColumnarFileWriter(file, COLUMNS, TYPES, 2154, false)) {
+            writeRows(writer, 0, 10);
+        }
+        assertThrows(IOException.class, () -> new ColumnarFileWriter(file, COLUMNS.subList(0, 2),
+                TYPES.subList(0, 2), 2154, true));
+    }
+
+    @Test
+    public void testImportTable(@TempDir Path tempDir) throws Exception {
+        File file = tempDir.resolve("levels.bin").toFile();
+        try (ColumnarFileWriter writer = new ColumnarFileWriter(file, COLUMNS, TYPES, 2154, false)) {
+            writeRows(writer, 0, 20);
+        }
+        try (Connection connection = JDBCUtilities.wrapConnection(H2GISDBFactory.createSpatialDataBase(
+                ColumnarFileTest.class.getSimpleName(), true, ""))) {
+            try (Statement st = connection.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS IMPORTED_LEVELS");
+            }
+            try (ColumnarFileReader reader = new ColumnarFileReader(file)) {
+                assertEquals(60, reader.importTable(connection, "IMPORTED_LEVELS"));
+            }
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT THE_GEOM, LAEQ FROM IMPORTED_LEVELS WHERE IDRECEIVER = 7" +
+                         " AND PERIOD = 'N'")) {
+                assertEquals(true, rs.next());
+                Point point = (Point) rs.getObject(1);
+                assertEquals(2154, point.getSRID());
+                assertEquals(14, point.getY(), 1e-12);
+                assertEquals(7.25, rs.getDouble(2), 1e-3);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.output;
+
+import org.junit.jupiter.api.Test;
+import org.noise_planet.noisemodelling.pathfinder.PathFinder;
+import org.noise_planet.noisemodelling.propagation.ReceiverNoiseLevel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResultsCacheTest {
+
+    private static ReceiverNoiseLevel makeLevel(long receiverPk) {
+        PathFinder.ReceiverPointInfo receiver = new PathFinder.ReceiverPointInfo(0, receiverPk, null);
+        return new ReceiverNoiseLevel(new PathFinder.SourcePointInfo(), receiver, "D", new double[] {50});
+    }
+
+    @Test
+    public void testProducerBlockedUntilDrain() throws Exception {
+        ResultsCache resultsCache = new ResultsCache();
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        int maximumQueue = 10;
+        int total = 1000;
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> producer = executorService.submit(() -> {
+                for (int i = 0; i < total; i++) {
+                    if (!resultsCache.push(makeLevel(i), maximumQueue, aborted)) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+            List<ReceiverNoiseLevel> received = new ArrayList<>();
+            List<ReceiverNoiseLevel> batch = new ArrayList<>();
+            while (received.size() < total) {
+                // the producer never exceed the maximum size by more than one element
+                assertTrue(resultsCache.queueSize.get() <= maximumQueue + 1);
+                if (resultsCache.awaitData(1, TimeUnit.SECONDS)) {
+                    resultsCache.drainReceiverLevels(batch, 5);
+                    received.addAll(batch);
+                    batch.clear();
+                }
+            }
+            assertTrue(producer.get(10, TimeUnit.SECONDS));
+            assertEquals(0, resultsCache.queueSize.get());
+            for (int i = 0; i < total; i++) {
+                assertEquals(i, received.get(i).receiver.receiverPk);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAbortReleaseProducer() throws Exception {
+        ResultsCache resultsCache = new ResultsCache();
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        assertTrue(resultsCache.push(makeLevel(0), 0, aborted));
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> producer = executorService.submit(() -> resultsCache.push(makeLevel(1), 0, aborted));
+            aborted.set(true);
+            resultsCache.wakeUp();
+            assertFalse(producer.get(10, TimeUnit.SECONDS));
+            assertEquals(1, resultsCache.queueSize.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.utils;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveCellGridTest {
+    static final int GRID_DIM = 2;
+    static final int DEPTH = 3;
+
+    /**
+     * A dense district in the first root cell and a few receivers in the other root cells
+     */
+    private AdaptiveCellGrid makeGrid() {
+        Random random = new Random(42);
+        AdaptiveCellGrid adaptiveCellGrid = new AdaptiveCellGrid(new Envelope(0, 1000, 0, 1000), GRID_DIM, DEPTH);
+        for (int i = 0; i < 1000; i++) {
+            adaptiveCellGrid.addReceiver(50 + random.nextDouble() * 100, 50 + random.nextDouble() * 100);
+        }
+        for (int i = 0; i < 200; i++) {
+            adaptiveCellGrid.addSource(random.nextDouble() * 200, random.nextDouble() * 200);
+        }
+        for (int i = 0; i < 500; i++) {
+            adaptiveCellGrid.addBuilding(random.nextDouble() * 200, random.nextDouble() * 200);
+        }
+        double[][] villages = new double[][]{{750, 250}, {250, 750}, {750, 750}};
+        for (double[] village : villages) {
+            for (int i = 0; i < 10; i++) {
+                adaptiveCellGrid.addReceiver(village[0] + random.nextDouble() * 20, village[1] + random.nextDouble() * 20);
+            }
+            for (int i = 0; i < 5; i++) {
+                adaptiveCellGrid.addSource(village[0] + random.nextDouble() * 20, village[1] + random.nextDouble() * 20);
+            }
+        }
+        return adaptiveCellGrid;
+    }
+
+    /**
+     * Check that the fine cells are covered at most once, and that the cells hold all the receivers
+     */
+    private void checkCells(List<AdaptiveCellGrid.CellCost> cells, int cellGridDim) {
+        boolean[] covered = new boolean[cellGridDim * cellGridDim];
+        long receiverCount = 0;
+        for (AdaptiveCellGrid.CellCost cellCost : cells) {
+            CellIndex cellIndex = cellCost.getCellIndex();
+            for (int row = cellIndex.getLongitudeIndex(); row < cellIndex.getLongitudeIndex() + cellIndex.getSize(); row++) {
+                for (int column = cellIndex.getLatitudeIndex(); column < cellIndex.getLatitudeIndex() + cellIndex.getSize(); column++) {
+                    assertFalse(covered[row * cellGridDim + column]);
+                    covered[row * cellGridDim + column] = true;
+                }
+            }
+            assertTrue(cellCost.getReceiverCount() > 0);
+            receiverCount += cellCost.getReceiverCount();
+        }
+        assertEquals(1030, receiverCount);
+    }
+
+    @Test
+    public void testSplitExpensiveCells() {
+        AdaptiveCellGrid adaptiveCellGrid = makeGrid();
+        assertEquals(GRID_DIM << DEPTH, adaptiveCellGrid.getCellGridDim());
+        List<AdaptiveCellGrid.CellCost> cells = adaptiveCellGrid.decompose(100, 300, 0, 0);
+        checkCells(cells, adaptiveCellGrid.getCellGridDim());
+        int rootSize = 1 << DEPTH;
+        int denseCells = 0;
+        for (AdaptiveCellGrid.CellCost cellCost : cells) {
+            CellIndex cellIndex = cellCost.getCellIndex();
+            if (cellIndex.getLatitudeIndex() < rootSize && cellIndex.getLongitudeIndex() < rootSize) {
+                // the dense district is split
+                assertTrue(cellIndex.getSize() < rootSize);
+                denseCells++;
+            } else {
+                // the villages are cheap
+                assertEquals(rootSize, cellIndex.getSize());
+            }
+        }
+        assertTrue(denseCells > 1);
+    }
+
+    @Test
+    public void testMaximumCellGeometries() {
+        AdaptiveCellGrid adaptiveCellGrid = makeGrid();
+        List<AdaptiveCellGrid.CellCost> cells = adaptiveCellGrid.decompose(100, 300, Double.MAX_VALUE, 200);
+        checkCells(cells, adaptiveCellGrid.getCellGridDim());
+        for (AdaptiveCellGrid.CellCost cellCost : cells) {
+            assertTrue(cellCost.getGeometryCount() <= 200 || cellCost.getCellIndex().getSize() == 1);
+        }
+        // Without limit the root cells are kept
+        cells = adaptiveCellGrid.decompose(100, 300, Double.MAX_VALUE, 0);
+        checkCells(cells, adaptiveCellGrid.getCellGridDim());
+        assertEquals(GRID_DIM * GRID_DIM, cells.size());
+    }
+
+    @Test
+    public void testInvalidDepth() {
+        Envelope envelope = new Envelope(0, 1000, 0, 1000);
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveCellGrid(envelope, GRID_DIM, -1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveCellGrid(envelope, GRID_DIM, 12));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveCellGrid(envelope, GRID_DIM, 40));
+        // The limit is checked before the allocation of the counters
+        AdaptiveCellGrid.checkCellGridDim(GRID_DIM, 11);
+    }
+}
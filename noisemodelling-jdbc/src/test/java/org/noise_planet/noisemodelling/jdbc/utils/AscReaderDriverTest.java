@@ -29,6 +29,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Envelope;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ElevationGrid;
 
 import java.io.File;
 import java.io.IOException;
@@ -297,4 +298,28 @@ public class AscReaderDriverTest {
         }
     }
 
+    @Test
+    public void testReadGrid() throws IOException {
+        AscReaderDriver reader = new AscReaderDriver();
+        ElevationGrid grid = reader.readGrid(new File(AscReaderDriverTest.class.getResource("precip30min.asc").getPath()));
+        assertEquals(15, grid.getColumnCount());
+        assertEquals(20, grid.getRowCount());
+        assertEquals(0.5, grid.getCellSize(), 1e-12);
+        // Check first read cell
+        assertEquals(234, grid.getZ(-179.75, -80.25), 1e-6);
+        assertEquals(234, grid.getHeight(0, 19), 1e-6);
+        // Check last read cell
+        assertEquals(114, grid.getZ(-172.75, -89.75), 1e-6);
+        // nodata cell is replaced by the average value
+        assertFalse(Double.isNaN(grid.getZ(-177.25, -84.25)));
+
+        // Read one cell over two
+        reader = new AscReaderDriver();
+        reader.setDownScale(2);
+        ElevationGrid downScaledGrid = reader.readGrid(new File(AscReaderDriverTest.class.getResource("precip30min.asc").getPath()));
+        assertEquals(8, downScaledGrid.getColumnCount());
+        assertEquals(10, downScaledGrid.getRowCount());
+        assertEquals(1.0, downScaledGrid.getCellSize(), 1e-12);
+        assertEquals(234, downScaledGrid.getZ(-179.75, -80.25), 1e-6);
+    }
 }
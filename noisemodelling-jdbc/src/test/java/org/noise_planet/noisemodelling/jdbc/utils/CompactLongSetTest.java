@@ -0,0 +1,81 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.jdbc.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactLongSetTest {
+
+    /**
+     * Same content as a reference set with sparse, dense and negative values
+     */
+    @Test
+    public void testCompareWithTreeSet() {
+        Random random = new Random(42);
+        CompactLongSet set = new CompactLongSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 100000; i++) {
+            long value;
+            switch (i % 3) {
+                case 0:
+                    // dense chunk, converted into a bitmap
+                    value = random.nextInt(20000);
+                    break;
+                case 1:
+                    // sparse chunks
+                    value = random.nextLong() >> 20;
+                    break;
+                default:
+                    value = -random.nextInt(70000);
+            }
+            assertEquals(expected.add(value), set.add(value));
+            if (i % 7 == 0) {
+                long removed = random.nextInt(20000);
+                assertEquals(expected.remove(removed), set.remove(removed));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < 10000; i++) {
+            long value = random.nextInt(100000) - 50000;
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        List<Long> values = new ArrayList<>(set);
+        assertEquals(new ArrayList<>(expected), values);
+        assertEquals(expected, set);
+        for (long value : expected) {
+            assertTrue(set.remove(value));
+        }
+        assertTrue(set.isEmpty());
+        assertFalse(set.iterator().hasNext());
+    }
+
+    /**
+     * Consecutive primary keys use about one bit per key, according to the estimate of
+     * {@link CompactLongSet#getMemoryUsage()}. The heap is not measured here, see ReceiverSetBenchmark.
+     */
+    @Test
+    public void testEstimatedMemoryUsage() {
+        CompactLongSet set = new CompactLongSet();
+        set.addRange(1, 10_000_000);
+        assertEquals(10_000_000, set.getCardinality());
+        assertTrue(set.contains(1L));
+        assertTrue(set.contains(10_000_000L));
+        assertFalse(set.contains(0L));
+        assertFalse(set.contains(10_000_001L));
+        assertTrue(set.getMemoryUsage() < 10_000_000 / 8 + 50_000, Long.toString(set.getMemoryUsage()));
+    }
+}
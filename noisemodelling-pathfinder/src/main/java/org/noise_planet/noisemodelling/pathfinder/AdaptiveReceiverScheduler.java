@@ -0,0 +1,205 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.noise_planet.noisemodelling.pathfinder.path.Scene;
+import org.noise_planet.noisemodelling.pathfinder.utils.geometry.HilbertCurve;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Dynamic dispatching of receivers using batches that shrink while the remaining receivers count decrease
+ * (guided self-scheduling). A worker that evaluates cheap receivers simply comes back sooner to fetch the next batch,
+ * so all workers end at nearly the same time.
+ * Optionally the receivers are ordered by an estimated cost (number of sound sources in the propagation distance)
+ * in order to evaluate the most expensive receivers first and keep the cheap ones for the end of the computation.
+ * Else the receivers can be ordered along a Hilbert curve, consecutive receivers of a batch are then close in space
+ * and share the same buildings, sources and terrain triangles.
+ * @author Nicolas Fortin
+ */
+public class AdaptiveReceiverScheduler implements ReceiverScheduler {
+    public static final int DEFAULT_MINIMUM_BATCH_SIZE = 4;
+    public static final int DEFAULT_BATCH_PER_WORKER = 4;
+    /** Number of histogram cells along the propagation distance used for the cost estimation */
+    private static final int COST_GRID_RESOLUTION = 4;
+
+    private final AtomicInteger nextReceiver = new AtomicInteger(0);
+    private int minimumBatchSize = DEFAULT_MINIMUM_BATCH_SIZE;
+    private int batchPerWorker = DEFAULT_BATCH_PER_WORKER;
+    private boolean orderByCost = false;
+    private boolean orderBySpaceFillingCurve = false;
+    private int receiverCount = 0;
+    private int workerCount = 1;
+    /** Receivers index sorted by evaluation order, null if the scene order is kept */
+    private int[] receiverOrder = null;
+
+    public AdaptiveReceiverScheduler() {
+    }
+
+    /**
+     * @param orderByCost If true evaluate first the receivers with the highest density of sound sources
+     */
+    public AdaptiveReceiverScheduler(boolean orderByCost) {
+        this.orderByCost = orderByCost;
+    }
+
+    /**
+     * @param minimumBatchSize Minimum number of receivers fetched at once by a worker
+     */
+    public void setMinimumBatchSize(int minimumBatchSize) {
+        this.minimumBatchSize = max(1, minimumBatchSize);
+    }
+
+    public int getMinimumBatchSize() {
+        return minimumBatchSize;
+    }
+
+    /**
+     * @param batchPerWorker The batch size is the remaining receivers divided by workers count times this value.
+     *                       Greater value reduce the batch size.
+     */
+    public void setBatchPerWorker(int batchPerWorker) {
+        this.batchPerWorker = max(1, batchPerWorker);
+    }
+
+    public int getBatchPerWorker() {
+        return batchPerWorker;
+    }
+
+    /**
+     * @param orderByCost If true evaluate first the receivers with the highest density of sound sources
+     */
+    public void setOrderByCost(boolean orderByCost) {
+        this.orderByCost = orderByCost;
+    }
+
+    public boolean isOrderByCost() {
+        return orderByCost;
+    }
+
+    /**
+     * @param orderBySpaceFillingCurve If true evaluate the receivers along a Hilbert curve. The cost order has
+     *                                 precedence when more than one worker is used.
+     */
+    public void setOrderBySpaceFillingCurve(boolean orderBySpaceFillingCurve) {
+        this.orderBySpaceFillingCurve = orderBySpaceFillingCurve;
+    }
+
+    public boolean isOrderBySpaceFillingCurve() {
+        return orderBySpaceFillingCurve;
+    }
+
+    @Override
+    public void init(Scene data, int workerCount) {
+        this.workerCount = max(1, workerCount);
+        receiverCount = data.receivers.size();
+        nextReceiver.set(0);
+        if (orderByCost && this.workerCount > 1) {
+            receiverOrder = sortReceiversByCost(data);
+        } else if (orderBySpaceFillingCurve) {
+            receiverOrder = HilbertCurve.sort(data.receivers);
+        } else {
+            receiverOrder = null;
+        }
+    }
+
+    @Override
+    public int[] nextReceivers() {
+        int begin;
+        int end;
+        do {
+            begin = nextReceiver.get();
+            if (begin >= receiverCount) {
+                return NO_MORE_RECEIVERS;
+            }
+            int remaining = receiverCount - begin;
+            int batchSize = max(minimumBatchSize, remaining / (workerCount * batchPerWorker));
+            end = min(receiverCount, begin + batchSize);
+        } while (!nextReceiver.compareAndSet(begin, end));
+        int[] batch = new int[end - begin];
+        if (receiverOrder != null) {
+            System.arraycopy(receiverOrder, begin, batch, 0, batch.length);
+        } else {
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = begin + i;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Estimate the cost of each receiver with the number of sound sources geometries in the square of
+     * size maxSrcDist around the receiver. The sources are accumulated into a summed-area table in order to
+     * evaluate each receiver in constant time.
+     * @param data Scene
+     * @return Receivers index sorted by descending estimated cost
+     */
+    public static int[] sortReceiversByCost(Scene data) {
+        int receiverCount = data.receivers.size();
+        int[] order = new int[receiverCount];
+        if (receiverCount == 0) {
+            return order;
+        }
+        Envelope receiversEnvelope = new Envelope();
+        for (Coordinate receiver : data.receivers) {
+            receiversEnvelope.expandToInclude(receiver);
+        }
+        double cellSize = max(1.0, data.maxSrcDist / COST_GRID_RESOLUTION);
+        receiversEnvelope.expandBy(data.maxSrcDist);
+        int columns = max(1, (int) Math.ceil(receiversEnvelope.getWidth() / cellSize));
+        int rows = max(1, (int) Math.ceil(receiversEnvelope.getHeight() / cellSize));
+        // summed-area table with an additional empty first row and column
+        int[] summedArea = new int[(columns + 1) * (rows + 1)];
+        for (Geometry source : data.sourceGeometries) {
+            Envelope sourceEnvelope = source.getEnvelopeInternal();
+            if (sourceEnvelope.isNull()) {
+                continue;
+            }
+            int column = (int) ((sourceEnvelope.centre().x - receiversEnvelope.getMinX()) / cellSize);
+            int row = (int) ((sourceEnvelope.centre().y - receiversEnvelope.getMinY()) / cellSize);
+            if (column >= 0 && column < columns && row >= 0 && row < rows) {
+                summedArea[(row + 1) * (columns + 1) + column + 1]++;
+            }
+        }
+        for (int row = 1; row <= rows; row++) {
+            for (int column = 1; column <= columns; column++) {
+                summedArea[row * (columns + 1) + column] += summedArea[(row - 1) * (columns + 1) + column]
+                        + summedArea[row * (columns + 1) + column - 1]
+                        - summedArea[(row - 1) * (columns + 1) + column - 1];
+            }
+        }
+        // Pack cost and index in order to sort primitive values
+        long[] costIndex = new long[receiverCount];
+        for (int idReceiver = 0; idReceiver < receiverCount; idReceiver++) {
+            Coordinate receiver = data.receivers.get(idReceiver);
+            int column = (int) ((receiver.x - receiversEnvelope.getMinX()) / cellSize);
+            int row = (int) ((receiver.y - receiversEnvelope.getMinY()) / cellSize);
+            int minColumn = max(0, column - COST_GRID_RESOLUTION);
+            int maxColumn = min(columns, column + COST_GRID_RESOLUTION + 1);
+            int minRow = max(0, row - COST_GRID_RESOLUTION);
+            int maxRow = min(rows, row + COST_GRID_RESOLUTION + 1);
+            int cost = summedArea[maxRow * (columns + 1) + maxColumn] - summedArea[minRow * (columns + 1) + maxColumn]
+                    - summedArea[maxRow * (columns + 1) + minColumn] + summedArea[minRow * (columns + 1) + minColumn];
+            costIndex[idReceiver] = ((long) (Integer.MAX_VALUE - cost) << 32) | idReceiver;
+        }
+        Arrays.sort(costIndex);
+        for (int i = 0; i < receiverCount; i++) {
+            order[i] = (int) (costIndex[i] & 0xFFFFFFFFL);
+        }
+        return order;
+    }
+}
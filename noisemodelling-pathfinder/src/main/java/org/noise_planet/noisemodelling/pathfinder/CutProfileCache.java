@@ -0,0 +1,149 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutProfile;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the cut profiles of one receiver. The legs between two reflection points, between a reflection
+ * point and the receiver, or between two points of the lateral diffraction hull are the same for many sources.
+ * <p>
+ * The legs are identified by their end points rounded to a quantum, so a cached leg may have end points that differ
+ * from the query by up to half the quantum on each axis. The least recently used legs are removed when the cache is
+ * full. The cached cut points are shared between the propagation paths and must not be modified. A cache is not
+ * thread safe, the path finder uses one cache per thread that is cleared after each receiver.
+ * @author Nicolas Fortin
+ */
+public class CutProfileCache {
+    private final int maximumSize;
+    private final double quantum;
+    private final Map<LegKey, CutProfile> legs;
+    private int hitCount = 0;
+    private int missCount = 0;
+
+    /**
+     * @param maximumSize Maximum number of legs
+     * @param quantum End points closer than this distance in meters on each axis share the same leg
+     */
+    public CutProfileCache(int maximumSize, double quantum) {
+        this.maximumSize = maximumSize;
+        this.quantum = quantum;
+        this.legs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LegKey, CutProfile> eldest) {
+                return size() > CutProfileCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Fetch the leg from the cache or compute it with
+     * {@link ProfileBuilder#getProfile(Coordinate, Coordinate, double, boolean)}
+     * @param profileBuilder Profile builder
+     * @param p0 First point
+     * @param p1 Second point
+     * @param defaultGroundAttenuation Default absorption ground effect value if no ground absorption value is found
+     * @param stopAtObstacleOverSourceReceiver Stop computing on the first obstacle
+     * @return Cut profile of the leg, must not be modified
+     */
+    public CutProfile getProfile(ProfileBuilder profileBuilder, Coordinate p0, Coordinate p1,
+                                 double defaultGroundAttenuation, boolean stopAtObstacleOverSourceReceiver) {
+        LegKey key = new LegKey(quantize(p0.x), quantize(p0.y), quantize(p0.z), quantize(p1.x), quantize(p1.y),
+                quantize(p1.z), stopAtObstacleOverSourceReceiver);
+        CutProfile profile = legs.get(key);
+        if(profile != null) {
+            hitCount++;
+            return profile;
+        }
+        missCount++;
+        profile = profileBuilder.getProfile(p0, p1, defaultGroundAttenuation, stopAtObstacleOverSourceReceiver);
+        legs.put(key, profile);
+        return profile;
+    }
+
+    private long quantize(double value) {
+        return Math.round(value / quantum);
+    }
+
+    /**
+     * Remove all legs and reset the counters
+     */
+    public void clear() {
+        legs.clear();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /**
+     * @return Number of legs fetched from the cache since the last clear
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return Number of legs computed since the last clear
+     */
+    public int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return Number of legs in the cache
+     */
+    public int size() {
+        return legs.size();
+    }
+
+    private static final class LegKey {
+        final long x0;
+        final long y0;
+        final long z0;
+        final long x1;
+        final long y1;
+        final long z1;
+        final boolean stopAtObstacle;
+
+        LegKey(long x0, long y0, long z0, long x1, long y1, long z1, boolean stopAtObstacle) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.z0 = z0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.z1 = z1;
+            this.stopAtObstacle = stopAtObstacle;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LegKey)) return false;
+            LegKey other = (LegKey) o;
+            return x0 == other.x0 && y0 == other.y0 && z0 == other.z0 && x1 == other.x1 && y1 == other.y1 &&
+                    z1 == other.z1 && stopAtObstacle == other.stopAtObstacle;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = x0;
+            h = h * 31 + y0;
+            h = h * 31 + z0;
+            h = h * 31 + x1;
+            h = h * 31 + y1;
+            h = h * 31 + z1;
+            return Long.hashCode(h) * 31 + (stopAtObstacle ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.apache.commons.math3.geometry.euclidean.threed.Plane;
+import org.locationtech.jts.algorithm.Orientation;
+import org.locationtech.jts.geom.Coordinate;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.BuildingIntersectionPathVisitor;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lateral diffraction paths between two points. The convex hull of the obstacles crossed by the p1 p2 segment is
+ * grown until the edges of the requested side do not cross any obstacle.
+ * <p>
+ * The hull is updated by inserting the new obstacle points into the current hull, instead of computing the convex
+ * hull of all the points again. The edges that have been checked free of obstacles keep this state while they stay
+ * on the hull. The cut plane and the building points cut by this plane do not depend on the side, they are computed
+ * once for the left and the right paths.
+ * @author Nicolas Fortin
+ */
+public class LateralDiffractionHull {
+    private final Coordinate p1;
+    private final Coordinate p2;
+    private final ProfileBuilder profileBuilder;
+    private final double maximumRatio;
+    private final double maximumLength;
+    private final Plane cutPlane;
+    private final Map<Integer, List<Coordinate>> cutBuildingPoints = new HashMap<>();
+    private final Map<Integer, List<Coordinate>> cutWallPoints = new HashMap<>();
+
+    /** Hull vertices in clockwise order, the first vertex is not repeated */
+    private final List<Coordinate> hull = new ArrayList<>();
+    /** True if the edge from the vertex of the same index to the next vertex does not cross any obstacle */
+    private final List<Boolean> freeFieldEdges = new ArrayList<>();
+
+    /**
+     * @param p1 First point
+     * @param p2 Second point
+     * @param profileBuilder Obstacles
+     * @param maximumRatio Maximum ratio between the length of the hull and the p1 p2 distance
+     * @param maximumLength Maximum length of the hull
+     */
+    public LateralDiffractionHull(Coordinate p1, Coordinate p2, ProfileBuilder profileBuilder, double maximumRatio,
+                                  double maximumLength) {
+        this.p1 = p1;
+        this.p2 = p2;
+        this.profileBuilder = profileBuilder;
+        this.maximumRatio = maximumRatio;
+        this.maximumLength = maximumLength;
+        this.cutPlane = PathFinder.computeZeroRadPlane(p1, p2);
+    }
+
+    /**
+     * Compute the side path
+     * @param left If true return the path on the left side between p1 and p2; else on the right side
+     * @return Path from p1 to p2, empty if there is no obstacle or no valid path
+     */
+    public List<Coordinate> computeSideHull(boolean left) {
+        if (p1.equals(p2)) {
+            return new ArrayList<>();
+        }
+        resetHull();
+        List<Coordinate> newPoints = new ArrayList<>();
+        BuildingIntersectionPathVisitor visitor = new BuildingIntersectionPathVisitor(p1, p2, left,
+                profileBuilder, newPoints, cutPlane);
+        visitor.setCutPointsCache(cutBuildingPoints, cutWallPoints);
+        profileBuilder.getWallsOnPath(p1, p2, visitor);
+        insertPoints(newPoints);
+        int indexP1;
+        int indexP2;
+        while (true) {
+            if (hull.size() < 3) {
+                // The points are collinear
+                return new ArrayList<>();
+            }
+            double hullLength = getHullLength();
+            if (hullLength / p1.distance(p2) > maximumRatio || hullLength >= maximumLength) {
+                return new ArrayList<>();
+            }
+            indexP1 = indexOf(p1);
+            indexP2 = indexOf(p2);
+            if (indexP1 == -1 || indexP2 == -1) {
+                // P1 or P2 does not belong to convex vertices, cannot compute diffraction
+                // TODO handle concave path
+                return new ArrayList<>();
+            }
+            int vertexCount = hull.size();
+            // Position of p2 when walking the hull from p1
+            int stepP2 = (indexP2 - indexP1 + vertexCount) % vertexCount;
+            boolean hullIntersects = false;
+            for (int k = 0; k < vertexCount; k++) {
+                // Ignore intersection if iterating over other side (not parts of what is returned)
+                if (left && k < stepP2 || !left && k >= stepP2) {
+                    int edge = (indexP1 + k) % vertexCount;
+                    if (!freeFieldEdges.get(edge)) {
+                        // Visit buildings that are between the provided hull points
+                        profileBuilder.getWallsOnPath(hull.get(edge), hull.get((edge + 1) % vertexCount), visitor);
+                        if (newPoints.isEmpty()) {
+                            freeFieldEdges.set(edge, true);
+                        } else {
+                            insertPoints(newPoints);
+                            hullIntersects = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (!hullIntersects) {
+                break;
+            }
+        }
+        // Check for invalid coordinates
+        for (Coordinate p : hull) {
+            if (p.z < 0) {
+                return new ArrayList<>();
+            }
+        }
+        int vertexCount = hull.size();
+        List<Coordinate> sideHullPath = new ArrayList<>();
+        if (left) {
+            for (int i = indexP1; ; i = (i + 1) % vertexCount) {
+                sideHullPath.add(hull.get(i));
+                if (i == indexP2) {
+                    break;
+                }
+            }
+        } else {
+            for (int i = indexP2; ; i = (i + 1) % vertexCount) {
+                sideHullPath.add(hull.get(i));
+                if (i == indexP1) {
+                    break;
+                }
+            }
+            Collections.reverse(sideHullPath);
+        }
+        return sideHullPath;
+    }
+
+    /**
+     * Convex hull of p1, p2 and the points, computed by inserting the points one by one
+     * @param points Points to insert, the list is cleared
+     * @return Hull vertices in clockwise order, the first vertex is not repeated
+     */
+    List<Coordinate> computeHull(List<Coordinate> points) {
+        resetHull();
+        insertPoints(points);
+        return new ArrayList<>(hull);
+    }
+
+    /**
+     * The hull is the p1 p2 segment
+     */
+    private void resetHull() {
+        hull.clear();
+        freeFieldEdges.clear();
+        hull.add(p1);
+        hull.add(p2);
+        freeFieldEdges.add(false);
+        freeFieldEdges.add(false);
+    }
+
+    private int indexOf(Coordinate p) {
+        for (int i = 0; i < hull.size(); i++) {
+            if (hull.get(i).equals2D(p)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The return ray of the closed hull is not counted. As with the JTS convex hull the ring starts on the lowest
+     * vertex, the ignored edge is the one ending on this vertex.
+     * @return Length of the hull
+     */
+    private double getHullLength() {
+        int vertexCount = hull.size();
+        int lowest = 0;
+        double length = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            Coordinate vertex = hull.get(i);
+            Coordinate lowestVertex = hull.get(lowest);
+            if (vertex.y < lowestVertex.y || (vertex.y == lowestVertex.y && vertex.x < lowestVertex.x)) {
+                lowest = i;
+            }
+            length += vertex.distance(hull.get((i + 1) % vertexCount));
+        }
+        return length - hull.get((lowest - 1 + vertexCount) % vertexCount).distance(hull.get(lowest));
+    }
+
+    /**
+     * Insert the points into the hull then clear the list
+     * @param points New points
+     */
+    private void insertPoints(List<Coordinate> points) {
+        for (Coordinate point : points) {
+            if (hull.size() == 2) {
+                insertInSegment(point);
+            } else {
+                insertInPolygon(point);
+            }
+        }
+        points.clear();
+    }
+
+    /**
+     * The hull is a segment, keep the extreme points if the point is collinear, else create a triangle
+     */
+    private void insertInSegment(Coordinate point) {
+        Coordinate a = hull.get(0);
+        Coordinate b = hull.get(1);
+        int orientation = Orientation.index(a, b, point);
+        if (orientation == Orientation.COLLINEAR) {
+            double ab = a.distance(b);
+            if (point.distance(a) > ab && point.distance(a) > point.distance(b)) {
+                hull.set(1, point);
+            } else if (point.distance(b) > ab) {
+                hull.set(0, point);
+            }
+        } else if (orientation == Orientation.COUNTERCLOCKWISE) {
+            // Clockwise order
+            hull.add(1, point);
+            freeFieldEdges.add(false);
+        } else {
+            hull.add(point);
+            freeFieldEdges.add(false);
+        }
+    }
+
+    /**
+     * Replace the edges visible from the point by two edges ending on the point. The vertices that become collinear
+     * are removed.
+     */
+    private void insertInPolygon(Coordinate point) {
+        int vertexCount = hull.size();
+        // The interior of the clockwise ring is on the right of the edges
+        int firstVisible = -1;
+        for (int i = 0; i < vertexCount; i++) {
+            if (isVisible(i, point) && !isVisible((i - 1 + vertexCount) % vertexCount, point)) {
+                firstVisible = i;
+                break;
+            }
+        }
+        if (firstVisible == -1) {
+            // Inside the hull or on its boundary
+            return;
+        }
+        int visibleCount = 1;
+        while (visibleCount < vertexCount && isVisible((firstVisible + visibleCount) % vertexCount, point)) {
+            visibleCount++;
+        }
+        // Collinear edges next to the visible edges
+        while (visibleCount < vertexCount - 1 && Orientation.index(hull.get((firstVisible - 1 + vertexCount)
+                % vertexCount), hull.get(firstVisible), point) == Orientation.COLLINEAR) {
+            firstVisible = (firstVisible - 1 + vertexCount) % vertexCount;
+            visibleCount++;
+        }
+        while (visibleCount < vertexCount - 1 && Orientation.index(hull.get((firstVisible + visibleCount) %
+                vertexCount), hull.get((firstVisible + visibleCount + 1) % vertexCount), point)
+                == Orientation.COLLINEAR) {
+            visibleCount++;
+        }
+        // Keep the vertices from the end of the last visible edge to the beginning of the first visible edge
+        List<Coordinate> vertices = new ArrayList<>(vertexCount - visibleCount + 2);
+        List<Boolean> freeField = new ArrayList<>(vertexCount - visibleCount + 2);
+        for (int i = 0; i <= vertexCount - visibleCount; i++) {
+            int vertex = (firstVisible + visibleCount + i) % vertexCount;
+            vertices.add(hull.get(vertex));
+            freeField.add(vertex != firstVisible && freeFieldEdges.get(vertex));
+        }
+        vertices.add(point);
+        freeField.add(false);
+        hull.clear();
+        hull.addAll(vertices);
+        freeFieldEdges.clear();
+        freeFieldEdges.addAll(freeField);
+    }
+
+    private boolean isVisible(int edge, Coordinate point) {
+        return Orientation.index(hull.get(edge), hull.get((edge + 1) % hull.size()), point) ==
+                Orientation.COUNTERCLOCKWISE;
+    }
+}
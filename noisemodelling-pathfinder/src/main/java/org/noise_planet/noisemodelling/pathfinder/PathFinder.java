@@ -15,7 +15,6 @@ import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.api.ProgressVisitor;
 import org.locationtech.jts.algorithm.*;
 import org.locationtech.jts.geom.*;
-import org.locationtech.jts.geom.impl.CoordinateArraySequenceFactory;
 import org.locationtech.jts.io.WKTWriter;
 import org.locationtech.jts.math.Vector3D;
 import org.locationtech.jts.triangulate.quadedge.Vertex;
@@ -25,9 +24,11 @@ import org.noise_planet.noisemodelling.pathfinder.path.MirrorReceiversCompute;
 import org.noise_planet.noisemodelling.pathfinder.path.MirrorReceiver;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.*;
 import org.noise_planet.noisemodelling.pathfinder.utils.geometry.Orientation;
+import org.noise_planet.noisemodelling.pathfinder.utils.geometry.HilbertCurve;
 import org.noise_planet.noisemodelling.pathfinder.utils.geometry.JTSUtility;
 import org.noise_planet.noisemodelling.pathfinder.utils.profiler.ProfilerThread;
 import org.noise_planet.noisemodelling.pathfinder.utils.profiler.ReceiverStatsMetric;
+import org.noise_planet.noisemodelling.pathfinder.utils.profiler.WorkerIdleMetric;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +37,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.Double.isNaN;
 import static java.lang.Math.*;
@@ -67,6 +69,15 @@ public class PathFinder {
     /** Number of thread used for ray computation. */
     private int threadCount ;
     private ProfilerThread profilerThread;
+    /** Dispatch receivers to the computation threads */
+    private ReceiverScheduler receiverScheduler = new AdaptiveReceiverScheduler();
+    /** Profile legs of the current receiver of each thread, used if {@link Scene#profileCacheSize} is not 0 */
+    private final ThreadLocal<CutProfileCache> profileCaches = ThreadLocal.withInitial(
+            () -> new CutProfileCache(getData().profileCacheSize, getData().profileCacheQuantum));
+    /** Number of profile legs fetched from the caches, for all the receivers */
+    private final AtomicLong profileCacheHitCount = new AtomicLong();
+    /** Number of profile legs computed with the caches enabled, for all the receivers */
+    private final AtomicLong profileCacheMissCount = new AtomicLong();
 
     /**
      * Create new instance from the propagation data.
@@ -114,35 +125,66 @@ public class PathFinder {
         this.threadCount = threadCount;
     }
 
+    /**
+     * @return Number of profile legs fetched from the caches of the receivers, 0 if {@link Scene#profileCacheSize}
+     * is 0
+     */
+    public long getProfileCacheHitCount() {
+        return profileCacheHitCount.get();
+    }
+
+    /**
+     * @return Number of profile legs computed while the caches of the receivers are enabled
+     */
+    public long getProfileCacheMissCount() {
+        return profileCacheMissCount.get();
+    }
+
+    /**
+     * @return Dispatcher of receivers to the computation threads
+     */
+    public ReceiverScheduler getReceiverScheduler() {
+        return receiverScheduler;
+    }
+
+    /**
+     * @param receiverScheduler Dispatcher of receivers to the computation threads
+     */
+    public void setReceiverScheduler(ReceiverScheduler receiverScheduler) {
+        this.receiverScheduler = receiverScheduler;
+    }
+
     /**
      * Run computation and store the results in the given output.
      * @param computeRaysOut Result output.
      */
     public void run(CutPlaneVisitorFactory computeRaysOut) {
-        ThreadPool threadManager = new ThreadPool(threadCount, threadCount + 1, Long.MAX_VALUE, TimeUnit.SECONDS);
-        int maximumReceiverBatch = (int) ceil(data.receivers.size() / (double) threadCount);
-        int endReceiverRange = 0;
-        //Launch execution of computation by batch
-        List<Future<Boolean>> tasks = new ArrayList<>();
         ProgressVisitor cellProgress = progressVisitor == null ? new EmptyProgressVisitor() : progressVisitor.subProcess(data.receivers.size());
-        while (endReceiverRange < data.receivers.size()) {
+        int workerCount = max(1, min(threadCount, data.receivers.size()));
+        receiverScheduler.init(data, workerCount);
+        if (workerCount == 1) {
+            ThreadPathFinder worker = new ThreadPathFinder(receiverScheduler, this, cellProgress,
+                    computeRaysOut.subProcess(cellProgress), data);
+            try {
+                worker.call();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return;
+        }
+        ThreadPool threadManager = new ThreadPool(workerCount, workerCount + 1, Long.MAX_VALUE, TimeUnit.SECONDS);
+        //Launch workers, each worker fetch receivers from the scheduler until there is no more receivers
+        List<Future<Boolean>> tasks = new ArrayList<>(workerCount);
+        List<ThreadPathFinder> workers = new ArrayList<>(workerCount);
+        for (int idWorker = 0; idWorker < workerCount; idWorker++) {
             //Break if the progress visitor is cancelled
             if (cellProgress.isCanceled()) {
                 break;
             }
-            int newEndReceiver = min(endReceiverRange + maximumReceiverBatch, data.receivers.size());
-            ThreadPathFinder batchThread = new ThreadPathFinder(endReceiverRange, newEndReceiver,
-                    this, cellProgress, computeRaysOut.subProcess(cellProgress), data);
-            if (threadCount != 1) {
-                tasks.add(threadManager.submitBlocking(batchThread));
-            } else {
-                try {
-                    batchThread.call();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-            endReceiverRange = newEndReceiver;
+            ThreadPathFinder worker = new ThreadPathFinder(receiverScheduler, this, cellProgress,
+                    computeRaysOut.subProcess(cellProgress), data);
+            workers.add(worker);
+            tasks.add(threadManager.submitBlocking(worker));
         }
         //Once the execution ends, shutdown the thread manager and await termination
         threadManager.shutdown();
@@ -161,7 +203,18 @@ public class PathFinder {
                 throw new RuntimeException(e);
             }
         }
-
+        if(profilerThread != null && profilerThread.getMetric(WorkerIdleMetric.class) != null) {
+            WorkerIdleMetric workerIdleMetric = profilerThread.getMetric(WorkerIdleMetric.class);
+            long lastEndTime = 0;
+            for (ThreadPathFinder worker : workers) {
+                lastEndTime = max(lastEndTime, worker.getEndTime());
+            }
+            for (ThreadPathFinder worker : workers) {
+                workerIdleMetric.onWorkerEnd(new WorkerIdleMetric.WorkerTime(
+                        TimeUnit.MILLISECONDS.convert(worker.getBusyTime(), TimeUnit.NANOSECONDS),
+                        TimeUnit.MILLISECONDS.convert(lastEndTime - worker.getEndTime(), TimeUnit.NANOSECONDS)));
+            }
+        }
     }
 
     /**
@@ -171,7 +224,26 @@ public class PathFinder {
      * @param visitor Progress visitor used for cancellation and progression managing.
      */
     public void computeRaysAtPosition(ReceiverPointInfo receiverPointInfo, CutPlaneVisitor dataOut, ProgressVisitor visitor) {
+        try {
+            computeReceiverRays(receiverPointInfo, dataOut, visitor);
+        } finally {
+            if(data.profileCacheSize > 0) {
+                CutProfileCache profileCache = profileCaches.get();
+                profileCacheHitCount.addAndGet(profileCache.getHitCount());
+                profileCacheMissCount.addAndGet(profileCache.getMissCount());
+                if(profilerThread != null &&
+                        profilerThread.getMetric(ReceiverStatsMetric.class) != null) {
+                    profilerThread.getMetric(ReceiverStatsMetric.class).onReceiverProfileCache(
+                            receiverPointInfo.getId(), profileCache.getHitCount(), profileCache.getMissCount());
+                }
+                // The legs of the next receiver are not the same, even if this receiver failed
+                profileCache.clear();
+            }
+        }
+    }
 
+    private void computeReceiverRays(ReceiverPointInfo receiverPointInfo, CutPlaneVisitor dataOut,
+                                     ProgressVisitor visitor) {
         long start = 0;
         if(profilerThread != null) {
             start = System.nanoTime();
@@ -181,11 +253,21 @@ public class PathFinder {
 
         long reflectionPreprocessTime = 0;
         if(data.reflexionOrder > 0) {
-            Envelope receiverPropagationEnvelope = new Envelope(receiverPointInfo.getCoordinates());
-            receiverPropagationEnvelope.expandBy(data.maxSrcDist);
-            List<Wall> buildWalls = data.profileBuilder.getWallsIn(receiverPropagationEnvelope);
-            receiverMirrorIndex = new MirrorReceiversCompute(buildWalls, receiverPointInfo.position, data.reflexionOrder,
-                    data.maxSrcDist, data.maxRefDist);
+            if(data.mirrorReceiversStore != null) {
+                receiverMirrorIndex = data.mirrorReceiversStore.get(receiverPointInfo.receiverPk,
+                        receiverPointInfo.position, data.profileBuilder.getProcessedWalls(), data.maxSrcDist,
+                        data.maxRefDist);
+            }
+            if(receiverMirrorIndex == null) {
+                Envelope receiverPropagationEnvelope = new Envelope(receiverPointInfo.getCoordinates());
+                receiverPropagationEnvelope.expandBy(data.maxSrcDist);
+                List<Wall> buildWalls = data.profileBuilder.getWallsIn(receiverPropagationEnvelope);
+                receiverMirrorIndex = new MirrorReceiversCompute(buildWalls, receiverPointInfo.position,
+                        data.reflexionOrder, data.maxSrcDist, data.maxRefDist, data.mirrorReceiversStore != null);
+                if(data.mirrorReceiversStore != null) {
+                    data.mirrorReceiversStore.put(receiverPointInfo.receiverPk, receiverMirrorIndex);
+                }
+            }
             if(profilerThread != null) {
                 reflectionPreprocessTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - start,
                         TimeUnit.NANOSECONDS);
@@ -242,6 +324,10 @@ public class PathFinder {
                 }
             }
         }
+        int pointSourceCount = sourceList.size();
+        if(data.sourceAggregationTolerance > 0) {
+            sourceList = aggregateSources(receiverPointInfo, sourceList);
+        }
         // Sort sources by power contribution descending
         sourceList.sort(Comparator.comparingDouble(o -> receiverPointInfo.position.distance3D(o.position)));
 
@@ -272,7 +358,11 @@ public class PathFinder {
                 profilerThread.getMetric(ReceiverStatsMetric.class) != null) {
             ReceiverStatsMetric receiverStatsMetric = profilerThread.getMetric(ReceiverStatsMetric.class);
             receiverStatsMetric.onReceiverCutProfiles(receiverPointInfo.getId(),
-                    cutProfileCount.get(), sourceList.size(), processedSources.get());
+                    cutProfileCount.get(), pointSourceCount, processedSources.get());
+            if(data.sourceAggregationTolerance > 0) {
+                receiverStatsMetric.onReceiverSourceAggregation(receiverPointInfo.getId(), pointSourceCount,
+                        sourceList.size());
+            }
             // Save computation time for this receiver
             receiverStatsMetric.onEndComputation(new ReceiverStatsMetric.ReceiverComputationTime(receiverPointInfo.receiverIndex,
                     (int) TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS),
@@ -283,6 +373,53 @@ public class PathFinder {
         dataOut.finalizeReceiver(receiverPointInfo);
     }
 
+    /**
+     * Replace the clusters of far sources by equivalent sources, see {@link SourceAggregation}. The directional
+     * sources are not aggregated, and the aggregated sources share the same visibility of the receiver.
+     * @param receiverPointInfo Receiver
+     * @param sourceList Sources in range of the receiver
+     * @return Sources to propagate
+     */
+    private List<SourcePointInfo> aggregateSources(ReceiverPointInfo receiverPointInfo,
+                                                   List<SourcePointInfo> sourceList) {
+        List<SourcePointInfo> omnidirectionalSources = new ArrayList<>(sourceList.size());
+        List<SourcePointInfo> sourcesToPropagate = new ArrayList<>();
+        for (SourcePointInfo sourcePointInfo : sourceList) {
+            if(data.isOmnidirectional(sourcePointInfo.sourceIndex)) {
+                omnidirectionalSources.add(sourcePointInfo);
+            } else {
+                sourcesToPropagate.add(sourcePointInfo);
+            }
+        }
+        double[] weights = new double[omnidirectionalSources.size()];
+        for (int i = 0; i < weights.length; i++) {
+            SourcePointInfo sourcePointInfo = omnidirectionalSources.get(i);
+            // The line source segments are weighted by their length
+            weights[i] = data.getSourcePowerWeight(sourcePointInfo.sourcePk) * max(1.0, sourcePointInfo.li);
+        }
+        Coordinate receiver = receiverPointInfo.position;
+        sourcesToPropagate.addAll(new SourceAggregation(data.sourceAggregationTolerance,
+                position -> data.profileBuilder.isVisible(position, receiver))
+                .aggregate(receiverPointInfo.position, omnidirectionalSources, weights));
+        return sourcesToPropagate;
+    }
+
+    /**
+     * Compute the profile of a leg that does not start from the source. The leg is fetched from the cache of the
+     * receiver if it is enabled.
+     * @param data Propagation data
+     * @param p0 First point
+     * @param p1 Second point
+     * @return Cut profile, must not be modified if the cache is enabled
+     */
+    private CutProfile getLegProfile(Scene data, Coordinate p0, Coordinate p1, boolean stopAtObstacle) {
+        if(data.profileCacheSize > 0 && data == this.data) {
+            return profileCaches.get().getProfile(data.profileBuilder, p0, p1, data.defaultGroundAttenuation,
+                    stopAtObstacle);
+        }
+        return data.profileBuilder.getProfile(p0, p1, data.defaultGroundAttenuation, stopAtObstacle);
+    }
+
     /**
      * Calculation of the propagation between the given source and receiver. The result is registered in the given
      * output.
@@ -327,6 +464,7 @@ public class PathFinder {
 
         CutPlaneVisitor.PathSearchStrategy strategy = CutPlaneVisitor.PathSearchStrategy.CONTINUE;
 
+        // Without vertical diffraction the profile stops at the first obstacle, so there is no visibility pre-check
         CutProfile cutProfile = data.profileBuilder.getProfile(src.position, rcv.position, data.defaultGroundAttenuation, !verticalDiffraction);
         if(cutProfile.getSource() != null) {
             cutProfile.getSource().id = src.getSourceIndex();
@@ -357,23 +495,40 @@ public class PathFinder {
         // between source and receiver is blocked and does not penetrate the terrain profile.
         // In addition, the source must not be a mirror source due to reflection"
         if (horizontalDiffraction && !cutProfile.isFreeField()) {
-            CutProfile cutProfileRight = computeVEdgeDiffraction(rcv, src, data, RIGHT);
-            if (cutProfileRight != null) {
-                strategy = dataOut.onNewCutPlane(cutProfileRight);
-                if(strategy.equals(CutPlaneVisitor.PathSearchStrategy.SKIP_SOURCE) ||
-                        strategy.equals(CutPlaneVisitor.PathSearchStrategy.SKIP_RECEIVER)) {
-                    return strategy;
-                }
-            }
-            CutProfile cutProfileLeft = computeVEdgeDiffraction(rcv, src, data, LEFT);
-            if (cutProfileLeft != null) {
-                strategy = dataOut.onNewCutPlane(cutProfileLeft);
-            }
+            strategy = computeLateralDiffraction(src, rcv, dataOut);
         }
 
         return strategy;
     }
 
+    /**
+     * Push the right and left horizontal diffraction paths
+     * @param src Source point
+     * @param rcv Receiver point
+     * @param dataOut Where to push cut profile
+     * @return Skip or continue looking for vertical cut
+     */
+    private CutPlaneVisitor.PathSearchStrategy computeLateralDiffraction(SourcePointInfo src, ReceiverPointInfo rcv,
+                                                                         CutPlaneVisitor dataOut) {
+        CutPlaneVisitor.PathSearchStrategy strategy = CutPlaneVisitor.PathSearchStrategy.CONTINUE;
+        // The cut of the obstacles is shared by the two sides
+        LateralDiffractionHull lateralDiffractionHull = new LateralDiffractionHull(new Coordinate(src.position),
+                new Coordinate(rcv.position), data.profileBuilder, MAX_RATIO_HULL_DIRECT_PATH, data.maxSrcDist);
+        CutProfile cutProfileRight = computeVEdgeDiffraction(rcv, src, data, lateralDiffractionHull, RIGHT);
+        if (cutProfileRight != null) {
+            strategy = dataOut.onNewCutPlane(cutProfileRight);
+            if(strategy.equals(CutPlaneVisitor.PathSearchStrategy.SKIP_SOURCE) ||
+                    strategy.equals(CutPlaneVisitor.PathSearchStrategy.SKIP_RECEIVER)) {
+                return strategy;
+            }
+        }
+        CutProfile cutProfileLeft = computeVEdgeDiffraction(rcv, src, data, lateralDiffractionHull, LEFT);
+        if (cutProfileLeft != null) {
+            strategy = dataOut.onNewCutPlane(cutProfileLeft);
+        }
+        return strategy;
+    }
+
     /**
      * Compute horizontal diffraction (diffraction of vertical edge.)
      * @param rcv Receiver coordinates.
@@ -384,17 +539,33 @@ public class PathFinder {
      */
     public CutProfile computeVEdgeDiffraction(ReceiverPointInfo rcv, SourcePointInfo src,
                                                Scene data, ComputationSide side) {
+        return computeVEdgeDiffraction(rcv, src, data, new LateralDiffractionHull(new Coordinate(src.position),
+                new Coordinate(rcv.position), data.profileBuilder, MAX_RATIO_HULL_DIRECT_PATH, data.maxSrcDist), side);
+    }
 
-        List<Coordinate> coordinates = computeSideHull(side == LEFT, new Coordinate(src.position),
-                new Coordinate(rcv.position), data.profileBuilder);
+    /**
+     * Compute horizontal diffraction (diffraction of vertical edge.)
+     * @param rcv Receiver coordinates.
+     * @param src Source coordinates.
+     * @param data     Propagation data.
+     * @param lateralDiffractionHull Side hull computation from the source to the receiver
+     * @param side     Side to compute. From Source to receiver coordinates
+     * @return The propagation path of the horizontal diffraction.
+     */
+    private CutProfile computeVEdgeDiffraction(ReceiverPointInfo rcv, SourcePointInfo src, Scene data,
+                                               LateralDiffractionHull lateralDiffractionHull, ComputationSide side) {
+
+        List<Coordinate> coordinates = lateralDiffractionHull.computeSideHull(side == LEFT);
 
         List<CutPoint> cutPoints = new ArrayList<>();
 
         if(coordinates.size() > 2) {
             // Fetch vertical profile between each point of the diffraction path
             for(int i=0; i<coordinates.size()-1; i++) {
-                CutProfile profile = data.profileBuilder.getProfile(coordinates.get(i), coordinates.get(i+1), data.defaultGroundAttenuation,
-                        false);
+                // The source point of the first leg is updated, it is not shared with the other sources
+                CutProfile profile = i == 0 ? data.profileBuilder.getProfile(coordinates.get(i), coordinates.get(i+1),
+                        data.defaultGroundAttenuation, false) :
+                        getLegProfile(data, coordinates.get(i), coordinates.get(i+1), false);
 
                 // Push new plane (except duplicate points for intermediate segments)
                 if( i > 0 ) {
@@ -436,7 +607,7 @@ public class PathFinder {
      * Compute Side Hull
      * Create a line between p1 and p2. Find the first intersection of this line with a building then create a ConvexHull
      * with the points of buildings in intersection. While there is an intersection add more points to the convex hull.
-     * The side diffraction path is found when there is no more intersection.
+     * The side diffraction path is found when there is no more intersection. See {@link LateralDiffractionHull}.
      *
      * @param left If true return the path on the left side between p1 and p2; else on the right side
      * @param p1   First point
@@ -444,123 +615,8 @@ public class PathFinder {
      * @return
      */
     public List<Coordinate> computeSideHull(boolean left, Coordinate p1, Coordinate p2, ProfileBuilder profileBuilder) {
-        if (p1.equals(p2)) {
-            return new ArrayList<>();
-        }
-
-        // Intersection test cache
-        Set<LineSegment> freeFieldSegments = new HashSet<>();
-
-        List<Coordinate> input = new ArrayList<>();
-
-        Coordinate[] coordinates = new Coordinate[0];
-        int indexp1 = 0;
-        int indexp2 = 0;
-
-        boolean convexHullIntersects = true;
-
-        input.add(p1);
-        input.add(p2);
-
-        Plane cutPlane = computeZeroRadPlane(p1, p2);
-
-        BuildingIntersectionPathVisitor buildingIntersectionPathVisitor = new BuildingIntersectionPathVisitor(p1, p2, left,
-                profileBuilder, input, cutPlane);
-
-        data.profileBuilder.getWallsOnPath(p1, p2, buildingIntersectionPathVisitor);
-
-        int k;
-        while (convexHullIntersects) {
-            ConvexHull convexHull = new ConvexHull(input.toArray(new Coordinate[0]), GEOMETRY_FACTORY);
-            Geometry convexhull = convexHull.getConvexHull();
-
-            coordinates = convexhull.getCoordinates();
-            // for the length we do not count the return ray from receiver to source (closed polygon here)
-            double convexHullLength = Length.ofLine(
-                    CoordinateArraySequenceFactory.instance()
-                            .create(Arrays.copyOfRange(coordinates, 0, coordinates.length - 1)));
-            if (convexHullLength / p1.distance(p2) > MAX_RATIO_HULL_DIRECT_PATH ||
-                    convexHullLength >= data.maxSrcDist) {
-                return new ArrayList<>();
-            }
-
-            convexHullIntersects = false;
-
-            input.clear();
-            input.addAll(Arrays.asList(coordinates));
-
-            indexp1 = -1;
-            for (int i = 0; i < coordinates.length - 1; i++) {
-                if (coordinates[i].equals(p1)) {
-                    indexp1 = i;
-                    break;
-                }
-            }
-            if (indexp1 == -1) {
-                // P1 does not belong to convex vertices, cannot compute diffraction
-                // TODO handle concave path
-                return new ArrayList<>();
-            }
-            // Transform array to set p1 at index=0
-            Coordinate[] coordinatesShifted = new Coordinate[coordinates.length];
-            // Copy from P1 to end in beginning of new array
-            int len = (coordinates.length - 1) - indexp1;
-            System.arraycopy(coordinates, indexp1, coordinatesShifted, 0, len);
-            // Copy from 0 to P1 in the end of array
-            System.arraycopy(coordinates, 0, coordinatesShifted, len, coordinates.length - len - 1);
-            coordinatesShifted[coordinatesShifted.length - 1] = coordinatesShifted[0];
-            coordinates = coordinatesShifted;
-            indexp1 = 0;
-            indexp2 = -1;
-            for (int i = 1; i < coordinates.length - 1; i++) {
-                if (coordinates[i].equals(p2)) {
-                    indexp2 = i;
-                    break;
-                }
-            }
-            if (indexp2 == -1) {
-                // P2 does not belong to convex vertices, cannot compute diffraction
-                // TODO handle concave path
-                return new ArrayList<>();
-            }
-            for (k = 0; k < coordinates.length - 1; k++) {
-                LineSegment freeFieldTestSegment = new LineSegment(coordinates[k], coordinates[k + 1]);
-
-                // Ignore intersection if iterating over other side (not parts of what is returned)
-                if (left && k < indexp2 || !left && k >= indexp2) {
-                    if (!freeFieldSegments.contains(freeFieldTestSegment)) {
-
-                        int inputPointsBefore = input.size();
-
-                        // Visit buildings that are between the provided hull points
-                        profileBuilder.getWallsOnPath(coordinates[k], coordinates[k + 1], buildingIntersectionPathVisitor);
-
-                        if (inputPointsBefore == input.size()) {
-                            freeFieldSegments.add(freeFieldTestSegment);
-                        } else {
-                            convexHullIntersects = true;
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-        // Check for invalid coordinates
-        for (Coordinate p : coordinates) {
-            if (p.z < 0) {
-                return new ArrayList<>();
-            }
-        }
-
-        List<Coordinate> sideHullPath;
-        if (left) {
-            sideHullPath = Arrays.asList(Arrays.copyOfRange(coordinates, indexp1, indexp2 + 1));
-        } else {
-            List<Coordinate> inversePath = Arrays.asList(Arrays.copyOfRange(coordinates, indexp2, coordinates.length));
-            Collections.reverse(inversePath);
-            sideHullPath = inversePath;
-        }
-        return  sideHullPath;
+        return new LateralDiffractionHull(p1, p2, profileBuilder, MAX_RATIO_HULL_DIRECT_PATH, data.maxSrcDist)
+                .computeSideHull(left);
     }
 
     /**
@@ -730,48 +786,31 @@ public class PathFinder {
                     );
                 }
             }
-            // Compute direct path between source and first reflection point, add profile to the data
-            CutProfile cutProfile = data.profileBuilder.getProfile(src.position, rayPath.get(0).getReflectionPosition(),
-                    data.defaultGroundAttenuation, !data.computeVerticalDiffraction);
-            if(!cutProfile.isFreeField() && !data.computeVerticalDiffraction) {
+            if(!data.computeVerticalDiffraction && !isReflectionPathVisible(src, rcv, rayPath)) {
                 // (maybe there is a blocking building/dem, and we disabled diffraction)
                 continue;
             }
+            // Compute direct path between source and first reflection point, add profile to the data
+            CutProfile cutProfile = data.profileBuilder.getProfile(src.position, rayPath.get(0).getReflectionPosition(),
+                    data.defaultGroundAttenuation, !data.computeVerticalDiffraction);
 
             // Add points to the main profile, remove the last point, or it will be duplicated later
             List<CutPoint> mainProfileCutPoints = new ArrayList<>(
                     cutProfile.cutPoints.subList(0, cutProfile.cutPoints.size() - 1));
 
             // Add intermediate reflections
-            boolean validReflection = true;
             for (int idPt = 0; idPt < rayPath.size() - 1; idPt++) {
                 MirrorReceiver firstPoint = rayPath.get(idPt);
                 MirrorReceiver secondPoint = rayPath.get(idPt + 1);
-                cutProfile = data.profileBuilder.getProfile(firstPoint.getReflectionPosition(),
-                        secondPoint.getReflectionPosition(), data.defaultGroundAttenuation, !data.computeVerticalDiffraction);
-                if(!cutProfile.isFreeField() && !data.computeVerticalDiffraction) {
-                    // (maybe there is a blocking building/dem, and we disabled diffraction)
-                    continue;
-                }
-                if(!cutProfile.isFreeField() && !data.computeVerticalDiffraction) {
-                    // (maybe there is a blocking building/dem, and we disabled diffraction)
-                    validReflection = false;
-                    break;
-                }
+                cutProfile = getLegProfile(data, firstPoint.getReflectionPosition(),
+                        secondPoint.getReflectionPosition(), !data.computeVerticalDiffraction);
                 insertReflectionPointAttributes(cutProfile.cutPoints.get(0), mainProfileCutPoints, firstPoint);
 
                 mainProfileCutPoints.addAll(cutProfile.cutPoints.subList(1, cutProfile.cutPoints.size() - 1));
             }
-            if(!validReflection) {
-                continue;
-            }
             // Compute direct path between receiver and last reflection point, add profile to the data
-            cutProfile = data.profileBuilder.getProfile(rayPath.get(rayPath.size() - 1).getReflectionPosition(),
-                    rcv.position, data.defaultGroundAttenuation, !data.computeVerticalDiffraction);
-            if(!cutProfile.isFreeField() && !data.computeVerticalDiffraction) {
-                // (maybe there is a blocking building/dem, and we disabled diffraction)
-                continue;
-            }
+            cutProfile = getLegProfile(data, rayPath.get(rayPath.size() - 1).getReflectionPosition(),
+                    rcv.position, !data.computeVerticalDiffraction);
             insertReflectionPointAttributes(cutProfile.cutPoints.get(0), mainProfileCutPoints, rayPath.get(rayPath.size() - 1));
             mainProfileCutPoints.addAll(cutProfile.cutPoints.subList(1, cutProfile.cutPoints.size()));
 
@@ -801,6 +840,26 @@ public class PathFinder {
         return strategy;
     }
 
+    /**
+     * Test all the legs of a reflection path before building their profiles
+     * @param src Source data
+     * @param rcv Receiver data
+     * @param rayPath Reflection points from the source to the receiver
+     * @return True if no leg of the path is blocked by a building, a wall or the ground
+     */
+    private boolean isReflectionPathVisible(SourcePointInfo src, ReceiverPointInfo rcv, List<MirrorReceiver> rayPath) {
+        if(!data.profileBuilder.isVisible(src.position, rayPath.get(0).getReflectionPosition())) {
+            return false;
+        }
+        for (int idPt = 0; idPt < rayPath.size() - 1; idPt++) {
+            if(!data.profileBuilder.isVisible(rayPath.get(idPt).getReflectionPosition(),
+                    rayPath.get(idPt + 1).getReflectionPosition())) {
+                return false;
+            }
+        }
+        return data.profileBuilder.isVisible(rayPath.get(rayPath.size() - 1).getReflectionPosition(), rcv.position);
+    }
+
     /**
      * @param geom Geometry
      * @param segmentSizeConstraint Maximal distance between points
@@ -938,6 +997,14 @@ public class PathFinder {
      * Update ground Z coordinates of sound sources absolute to sea levels
      */
     public void makeSourceRelativeZToAbsolute() {
+        makeSourceRelativeZToAbsolute(data);
+    }
+
+    /**
+     * Update ground Z coordinates of sound sources absolute to sea levels
+     * @param data Scene with the sources and the ground
+     */
+    public static void makeSourceRelativeZToAbsolute(Scene data) {
         List<Geometry> sourceCopy = new ArrayList<>(data.sourceGeometries.size());
         for (Geometry source : data.sourceGeometries) {
             Geometry offsetGeometry = source.copy();
@@ -966,11 +1033,22 @@ public class PathFinder {
     }
 
     /**
-     * Update ground Z coordinates of receivers absolute to sea levels
+     * Update ground Z coordinates of receivers absolute to sea levels. The receivers are visited along a Hilbert curve
+     * so the triangle of the previous receiver is a close hint for the next one.
      */
     public void makeReceiverRelativeZToAbsolute() {
-        for(Coordinate receiver : data.receivers) {
-            receiver.setZ(receiver.getZ() + data.profileBuilder.getZGround(receiver));
+        makeReceiverRelativeZToAbsolute(data);
+    }
+
+    /**
+     * Update ground Z coordinates of receivers absolute to sea levels
+     * @param data Scene with the receivers and the ground
+     */
+    public static void makeReceiverRelativeZToAbsolute(Scene data) {
+        AtomicInteger triangleHint = new AtomicInteger(-1);
+        for(int idReceiver : HilbertCurve.sort(data.receivers)) {
+            Coordinate receiver = data.receivers.get(idReceiver);
+            receiver.setZ(receiver.getZ() + data.profileBuilder.getZGround(receiver, triangleHint));
         }
     }
 
@@ -1070,6 +1148,8 @@ public class PathFinder {
         public long sourcePk = -1;
         public Coordinate position = new Coordinate();
         public Orientation orientation = new Orientation();
+        /** Sources replaced by this equivalent source, empty if this is not an equivalent source */
+        public List<SourcePointInfo> aggregatedSources = Collections.emptyList();
 
         public SourcePointInfo() {
         }
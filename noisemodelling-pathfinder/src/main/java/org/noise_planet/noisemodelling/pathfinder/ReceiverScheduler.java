@@ -0,0 +1,37 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.noise_planet.noisemodelling.pathfinder.path.Scene;
+
+/**
+ * Dispatch the receivers of a scene to the {@link ThreadPathFinder} workers of {@link PathFinder#run}.
+ * One instance is shared by all the workers of a computation area.
+ * @author Nicolas Fortin
+ */
+public interface ReceiverScheduler {
+    /**
+     * Empty batch returned when all receivers have been dispatched
+     */
+    int[] NO_MORE_RECEIVERS = new int[0];
+
+    /**
+     * Called by {@link PathFinder#run} before the workers are started. Reset the state of the scheduler.
+     * @param data Scene with the receivers to dispatch
+     * @param workerCount Number of workers that will fetch receivers
+     */
+    void init(Scene data, int workerCount);
+
+    /**
+     * Thread-safe, called by each worker when it has no more receivers to evaluate.
+     * @return Receivers index (related to {@link Scene#receivers}) to evaluate, or {@link #NO_MORE_RECEIVERS}
+     */
+    int[] nextReceivers();
+}
@@ -0,0 +1,196 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.noise_planet.noisemodelling.pathfinder.utils.geometry.Orientation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Replace the clusters of far sources of a receiver by equivalent sources. The sources are split recursively in a
+ * binary tree (along the longest side of the bounding box of each cluster). The tree is walked from the root, a
+ * cluster is propagated as a single equivalent source located at the power weighted centroid of its sources when
+ * the maximum level difference due to the geometric divergence is below the tolerance.
+ * <p>
+ * The level of a source decreases with the square of the distance. All the sources of a cluster of radius r are
+ * between d - r and d + r from the receiver, d being the distance to the centroid, so the level of the equivalent
+ * source differs from the sum of the levels of the sources by at most 20 log10(d / (d - r)) dB. The other attenuation
+ * terms (atmospheric absorption, ground effect, obstacles) are evaluated on the path of the equivalent source. These
+ * terms vary slowly with the position of the source as long as the direct path keeps the same visibility, so a
+ * cluster is only aggregated if its sources and its equivalent source are all visible from the receiver or are all
+ * hidden. A source near the edge of the shadow of an obstacle is then propagated on its own.
+ * @author Nicolas Fortin
+ */
+public class SourceAggregation {
+    /** Index of the first equivalent source, the following equivalent sources have decreasing indices */
+    public static final int FIRST_EQUIVALENT_SOURCE_INDEX = -2;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte VISIBLE = 1;
+    private static final byte HIDDEN = 2;
+
+    private final double tolerance;
+    private final Predicate<Coordinate> visibleFromReceiver;
+    private List<PathFinder.SourcePointInfo> sources;
+    /** Visibility of each source from the receiver, evaluated on demand */
+    private byte[] visibility;
+    private double[] weights;
+    private Integer[] order;
+    private Coordinate receiver;
+    private List<PathFinder.SourcePointInfo> result;
+    private int nextIndex;
+
+    /**
+     * @param tolerance Maximum level difference in dB between an equivalent source and its sources
+     */
+    public SourceAggregation(double tolerance) {
+        this(tolerance, null);
+    }
+
+    /**
+     * @param tolerance Maximum level difference in dB between an equivalent source and its sources
+     * @param visibleFromReceiver Return true if the direct path between the source position and the receiver is
+     *                            free, only the sources with the same visibility are aggregated. Null to not check
+     *                            the visibility
+     */
+    public SourceAggregation(double tolerance, Predicate<Coordinate> visibleFromReceiver) {
+        this.tolerance = tolerance;
+        this.visibleFromReceiver = visibleFromReceiver;
+    }
+
+    /**
+     * @param distance Distance between the receiver and the centroid of the cluster
+     * @param radius Maximum distance between the centroid and the sources of the cluster
+     * @return Maximum level difference in dB between the equivalent source and the sources of the cluster
+     */
+    public static double getMaximumError(double distance, double radius) {
+        if (distance <= radius) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return 20 * Math.log10(distance / (distance - radius));
+    }
+
+    /**
+     * @param receiver Receiver position
+     * @param sources Sources of the receiver
+     * @param weights Power of each source, used to locate the equivalent sources
+     * @return The sources that are not aggregated and the equivalent sources. The equivalent sources have a negative
+     * index starting at {@link #FIRST_EQUIVALENT_SOURCE_INDEX} and hold their sources in
+     * {@link PathFinder.SourcePointInfo#aggregatedSources}
+     */
+    public List<PathFinder.SourcePointInfo> aggregate(Coordinate receiver, List<PathFinder.SourcePointInfo> sources,
+                                                      double[] weights) {
+        this.receiver = receiver;
+        this.sources = sources;
+        this.weights = weights;
+        this.visibility = new byte[sources.size()];
+        this.order = new Integer[sources.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        result = new ArrayList<>(sources.size());
+        nextIndex = FIRST_EQUIVALENT_SOURCE_INDEX;
+        try {
+            if (!sources.isEmpty()) {
+                visit(0, sources.size());
+            }
+            return result;
+        } finally {
+            this.sources = null;
+            this.weights = null;
+            this.visibility = null;
+            this.order = null;
+            this.result = null;
+        }
+    }
+
+    /**
+     * Aggregate the cluster of the sources order[from] to order[to - 1] or split it
+     */
+    private void visit(int from, int to) {
+        if (to - from == 1) {
+            result.add(sources.get(order[from]));
+            return;
+        }
+        // Power weighted centroid, the plain centroid is used if the sources have no power
+        double weightSum = 0;
+        for (int i = from; i < to; i++) {
+            weightSum += weights[order[i]];
+        }
+        Coordinate centroid = new Coordinate(0, 0, 0);
+        for (int i = from; i < to; i++) {
+            double weight = weightSum > 0 ? weights[order[i]] / weightSum : 1.0 / (to - from);
+            Coordinate position = sources.get(order[i]).position;
+            centroid.x += position.x * weight;
+            centroid.y += position.y * weight;
+            centroid.z += position.z * weight;
+        }
+        double radius = 0;
+        double minX = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            Coordinate position = sources.get(order[i]).position;
+            radius = Math.max(radius, position.distance3D(centroid));
+            minX = Math.min(minX, position.x);
+            maxX = Math.max(maxX, position.x);
+            minY = Math.min(minY, position.y);
+            maxY = Math.max(maxY, position.y);
+        }
+        if (getMaximumError(receiver.distance3D(centroid), radius) <= tolerance &&
+                isSameVisibility(from, to, centroid)) {
+            List<PathFinder.SourcePointInfo> aggregatedSources = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                aggregatedSources.add(sources.get(order[i]));
+            }
+            PathFinder.SourcePointInfo equivalentSource = new PathFinder.SourcePointInfo(nextIndex--, -1, centroid,
+                    1.0, new Orientation());
+            equivalentSource.aggregatedSources = aggregatedSources;
+            result.add(equivalentSource);
+            return;
+        }
+        // Split along the longest side
+        Comparator<Integer> comparator = maxX - minX >= maxY - minY ?
+                Comparator.comparingDouble(i -> sources.get(i).position.x) :
+                Comparator.comparingDouble(i -> sources.get(i).position.y);
+        Arrays.sort(order, from, to, comparator);
+        int middle = (from + to) / 2;
+        visit(from, middle);
+        visit(middle, to);
+    }
+
+    /**
+     * @return True if the sources order[from] to order[to - 1] and the centroid are all visible from the receiver or
+     * all hidden
+     */
+    private boolean isSameVisibility(int from, int to, Coordinate centroid) {
+        if (visibleFromReceiver == null) {
+            return true;
+        }
+        byte centroidVisibility = visibleFromReceiver.test(centroid) ? VISIBLE : HIDDEN;
+        for (int i = from; i < to; i++) {
+            int sourceIndex = order[i];
+            if (visibility[sourceIndex] == UNKNOWN) {
+                visibility[sourceIndex] = visibleFromReceiver.test(sources.get(sourceIndex).position) ?
+                        VISIBLE : HIDDEN;
+            }
+            if (visibility[sourceIndex] != centroidVisibility) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
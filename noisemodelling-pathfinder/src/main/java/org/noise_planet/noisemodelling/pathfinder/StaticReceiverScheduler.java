@@ -0,0 +1,48 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.noise_planet.noisemodelling.pathfinder.path.Scene;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.ceil;
+import static java.lang.Math.min;
+
+/**
+ * Split the receivers into one contiguous range per worker.
+ * Each worker evaluate a single batch, this is the behaviour of NoiseModelling before the adaptive scheduler.
+ */
+public class StaticReceiverScheduler implements ReceiverScheduler {
+    private final AtomicInteger nextReceiver = new AtomicInteger(0);
+    private int receiverCount = 0;
+    private int batchSize = 1;
+
+    @Override
+    public void init(Scene data, int workerCount) {
+        receiverCount = data.receivers.size();
+        batchSize = Math.max(1, (int) ceil(receiverCount / (double) Math.max(1, workerCount)));
+        nextReceiver.set(0);
+    }
+
+    @Override
+    public int[] nextReceivers() {
+        int begin = nextReceiver.getAndAdd(batchSize);
+        if (begin >= receiverCount) {
+            return NO_MORE_RECEIVERS;
+        }
+        int end = min(begin + batchSize, receiverCount);
+        int[] batch = new int[end - begin];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = begin + i;
+        }
+        return batch;
+    }
+}
@@ -23,10 +23,13 @@ import static org.noise_planet.noisemodelling.pathfinder.PathFinder.LOGGER;
 public final class ThreadPathFinder implements Callable<Boolean> {
     int startReceiver; // Included
     int endReceiver; // Excluded
+    ReceiverScheduler receiverScheduler;
     PathFinder propagationProcess;
     ProgressVisitor visitor;
     CutPlaneVisitor dataOut;
     Scene data;
+    long busyTime = 0;
+    long endTime = 0;
 
 
     /**
@@ -50,28 +53,87 @@ public final class ThreadPathFinder implements Callable<Boolean> {
     }
 
     /**
-     * Executes the computation of ray paths for each receiver in the specified range.
+     * Create the ThreadPathFinder constructor, receivers are fetched from the scheduler until there is no more
+     * receivers to evaluate
+     * @param receiverScheduler Receivers dispatcher shared with the other workers
+     * @param propagationProcess
+     * @param visitor
+     * @param dataOut
+     * @param data
+     */
+    public ThreadPathFinder(ReceiverScheduler receiverScheduler, PathFinder propagationProcess,
+                            ProgressVisitor visitor, CutPlaneVisitor dataOut,
+                            Scene data) {
+        this.receiverScheduler = receiverScheduler;
+        this.propagationProcess = propagationProcess;
+        this.visitor = visitor;
+        this.dataOut = dataOut;
+        this.data = data;
+    }
+
+    /**
+     * @return Time in nanoseconds spent by this worker evaluating receivers
+     */
+    public long getBusyTime() {
+        return busyTime;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when this worker ended
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Compute the ray paths of one receiver
+     * @param idReceiver Receiver index
+     * @return False if the computation has been canceled
+     */
+    private boolean computeReceiver(int idReceiver) {
+        if (visitor != null) {
+            if (visitor.isCanceled()) {
+                return false;
+            }
+        }
+        long receiverPk = idReceiver;
+        if(idReceiver < data.receiversPk.size()) {
+            receiverPk = data.receiversPk.get(idReceiver);
+        }
+        PathFinder.ReceiverPointInfo rcv = new PathFinder.ReceiverPointInfo(idReceiver, receiverPk, data.receivers.get(idReceiver));
+
+
+        propagationProcess.computeRaysAtPosition(rcv, dataOut, visitor);
+
+        if (visitor != null) {
+            visitor.endStep();
+        }
+        return true;
+    }
+
+    /**
+     * Executes the computation of ray paths for each receiver in the specified range or provided by the scheduler.
      */
     @Override
     public Boolean call() throws Exception {
+        long start = System.nanoTime();
         try {
-            for (int idReceiver = startReceiver; idReceiver < endReceiver; idReceiver++) {
-                if (visitor != null) {
-                    if (visitor.isCanceled()) {
+            if (receiverScheduler == null) {
+                for (int idReceiver = startReceiver; idReceiver < endReceiver; idReceiver++) {
+                    if (!computeReceiver(idReceiver)) {
                         break;
                     }
                 }
-                long receiverPk = idReceiver;
-                if(idReceiver < data.receiversPk.size()) {
-                    receiverPk = data.receiversPk.get(idReceiver);
-                }
-                PathFinder.ReceiverPointInfo rcv = new PathFinder.ReceiverPointInfo(idReceiver, receiverPk, data.receivers.get(idReceiver));
-
-
-                propagationProcess.computeRaysAtPosition(rcv, dataOut, visitor);
-
-                if (visitor != null) {
-                    visitor.endStep();
+            } else {
+                int[] receivers = receiverScheduler.nextReceivers();
+                fetchLoop:
+                while (receivers.length > 0) {
+                    for (int idReceiver : receivers) {
+                        if (!computeReceiver(idReceiver)) {
+                            break fetchLoop;
+                        }
+                    }
+                    receivers = receiverScheduler.nextReceivers();
                 }
             }
         } catch (Exception ex) {
@@ -80,7 +142,10 @@ public final class ThreadPathFinder implements Callable<Boolean> {
                 visitor.cancel();
             }
             throw ex;
+        } finally {
+            endTime = System.nanoTime();
+            busyTime = endTime - start;
         }
         return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,216 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder.delaunay;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.LineString;
+import org.tinfour.common.IConstraint;
+import org.tinfour.common.LinearConstraint;
+import org.tinfour.common.Vertex;
+import org.tinfour.interpolation.TriangularFacetInterpolator;
+import org.tinfour.standard.IncrementalTin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simplification of the digital elevation model points before the triangulation.
+ * <p>
+ * Greedy insertion: the triangulation starts with the extreme points, then on each pass the points that are further
+ * than the tolerance from the current triangulated surface are inserted. Only the point with the largest error of
+ * each area (of the size of a triangle) is inserted on a pass, so the inserted points are the most significant ones.
+ * The process stops when all the remaining points are within the vertical tolerance of the surface.
+ * <p>
+ * The topographic lines are constraints of the final triangulation, and a constrained triangulation is not the
+ * Delaunay triangulation of the same vertices. So when there are topographic lines the error of the removed points
+ * is then checked against the constrained triangulation of the kept points, and the points out of the tolerance are
+ * inserted until the final surface is within the tolerance.
+ * @author Nicolas Fortin
+ */
+public class TinDecimation {
+    private TinDecimation() {}
+
+    /**
+     * @param points Digital elevation model points
+     * @param constraintLines Topographic lines, constraints of the final triangulation. Their vertices are always part
+     *                        of the triangulation, they are not included in the result
+     * @param tolerance Maximum vertical distance in meters between a removed point and the triangulated surface
+     * @return The kept points, in the same order as the input points
+     */
+    public static List<Coordinate> decimate(List<Coordinate> points, List<LineString> constraintLines,
+                                            double tolerance) {
+        int pointCount = points.size();
+        if(pointCount < 4) {
+            return new ArrayList<>(points);
+        }
+        boolean[] kept = new boolean[pointCount];
+        IncrementalTin tin = new IncrementalTin();
+        int vertexCount = 0;
+        for (LineString constraintLine : constraintLines) {
+            for (Coordinate fixedPoint : constraintLine.getCoordinates()) {
+                tin.add(new Vertex(fixedPoint.x, fixedPoint.y, fixedPoint.z, -1));
+                vertexCount++;
+            }
+        }
+        // Start with the extreme points in 8 directions
+        Envelope envelope = new Envelope();
+        int[] extremes = new int[8];
+        double[] extremeValues = new double[8];
+        Arrays.fill(extremeValues, Double.NEGATIVE_INFINITY);
+        double[] values = new double[8];
+        for (int i = 0; i < pointCount; i++) {
+            Coordinate point = points.get(i);
+            if(Double.isNaN(point.z)) {
+                // No altitude, can not be evaluated
+                kept[i] = true;
+                continue;
+            }
+            envelope.expandToInclude(point);
+            values[0] = point.x;
+            values[1] = -point.x;
+            values[2] = point.y;
+            values[3] = -point.y;
+            values[4] = point.x + point.y;
+            values[5] = -point.x - point.y;
+            values[6] = point.x - point.y;
+            values[7] = point.y - point.x;
+            for (int direction = 0; direction < values.length; direction++) {
+                if(values[direction] > extremeValues[direction]) {
+                    extremeValues[direction] = values[direction];
+                    extremes[direction] = i;
+                }
+            }
+        }
+        if(envelope.isNull()) {
+            return new ArrayList<>(points);
+        }
+        for (int extreme : extremes) {
+            if(!kept[extreme]) {
+                kept[extreme] = true;
+                Coordinate point = points.get(extreme);
+                tin.add(new Vertex(point.x, point.y, point.z, extreme));
+                vertexCount++;
+            }
+        }
+        double area = Math.max(envelope.getArea(), 1.0);
+        double[] errors = new double[pointCount];
+        Map<Long, Integer> bucketBestPoint = new HashMap<>();
+        while (true) {
+            // About the size of a triangle of the current triangulation
+            double bucketSize = Math.sqrt(area / vertexCount);
+            if(!selectPoints(tin, points, kept, errors, envelope, bucketSize, tolerance, bucketBestPoint)) {
+                break;
+            }
+            for (int index : bucketBestPoint.values()) {
+                kept[index] = true;
+                Coordinate point = points.get(index);
+                tin.add(new Vertex(point.x, point.y, point.z, index));
+                vertexCount++;
+            }
+        }
+        tin.dispose();
+        if(!constraintLines.isEmpty()) {
+            // Tinfour can not insert vertices once the constraints are added, rebuild the constrained triangulation
+            // on each pass. Few points are expected to be inserted here.
+            while (true) {
+                IncrementalTin constrainedTin = makeConstrainedTin(points, kept, constraintLines);
+                double bucketSize = Math.sqrt(area / vertexCount);
+                boolean inserted = selectPoints(constrainedTin, points, kept, errors, envelope, bucketSize, tolerance,
+                        bucketBestPoint);
+                constrainedTin.dispose();
+                if(!inserted) {
+                    break;
+                }
+                for (int index : bucketBestPoint.values()) {
+                    kept[index] = true;
+                    vertexCount++;
+                }
+            }
+        }
+        List<Coordinate> keptPoints = new ArrayList<>(vertexCount);
+        for (int i = 0; i < pointCount; i++) {
+            if(kept[i]) {
+                keptPoints.add(points.get(i));
+            }
+        }
+        return keptPoints;
+    }
+
+    /**
+     * Evaluate the error of the points that are not kept, and select the point with the largest error of each bucket
+     * @param bucketBestPoint Selected point index by bucket
+     * @return True if some points are out of the tolerance
+     */
+    private static boolean selectPoints(IncrementalTin tin, List<Coordinate> points, boolean[] kept, double[] errors,
+                                        Envelope envelope, double bucketSize, double tolerance,
+                                        Map<Long, Integer> bucketBestPoint) {
+        TriangularFacetInterpolator interpolator = tin.isBootstrapped() ? new TriangularFacetInterpolator(tin) : null;
+        bucketBestPoint.clear();
+        for (int i = 0; i < points.size(); i++) {
+            if(kept[i]) {
+                continue;
+            }
+            Coordinate point = points.get(i);
+            double z = interpolator != null ? interpolator.interpolate(point.x, point.y, null) : Double.NaN;
+            // Outside of the triangulation the error is unknown
+            double error = Double.isNaN(z) ? Double.POSITIVE_INFINITY : Math.abs(z - point.z);
+            if(error > tolerance) {
+                errors[i] = error;
+                long column = (long) Math.floor((point.x - envelope.getMinX()) / bucketSize);
+                long row = (long) Math.floor((point.y - envelope.getMinY()) / bucketSize);
+                Long bucket = (column << 32) ^ (row & 0xFFFFFFFFL);
+                Integer best = bucketBestPoint.get(bucket);
+                if(best == null || errors[best] < error) {
+                    bucketBestPoint.put(bucket, i);
+                }
+            }
+        }
+        return !bucketBestPoint.isEmpty();
+    }
+
+    /**
+     * Triangulation of the kept points and of the topographic lines, with the lines as constraints as in
+     * {@link LayerTinfour}
+     */
+    private static IncrementalTin makeConstrainedTin(List<Coordinate> points, boolean[] kept,
+                                                     List<LineString> constraintLines) {
+        IncrementalTin tin = new IncrementalTin();
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            if(kept[i]) {
+                Coordinate point = points.get(i);
+                vertices.add(new Vertex(point.x, point.y, point.z, i));
+            }
+        }
+        List<IConstraint> constraints = new ArrayList<>(constraintLines.size());
+        for (LineString constraintLine : constraintLines) {
+            List<Vertex> lineVertices = new ArrayList<>(constraintLine.getNumPoints());
+            for (Coordinate coordinate : constraintLine.getCoordinates()) {
+                Vertex vertex = new Vertex(coordinate.x, coordinate.y, coordinate.z, -1);
+                vertices.add(vertex);
+                lineVertices.add(vertex);
+            }
+            LinearConstraint constraint = new LinearConstraint(lineVertices);
+            constraint.complete();
+            if(constraint.isValid()) {
+                constraints.add(constraint);
+            }
+        }
+        tin.add(vertices, null);
+        if(!constraints.isEmpty()) {
+            tin.addConstraints(constraints, false);
+        }
+        return tin;
+    }
+}
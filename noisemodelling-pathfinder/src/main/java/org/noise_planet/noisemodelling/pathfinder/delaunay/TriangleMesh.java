@@ -0,0 +1,148 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder.delaunay;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.noise_planet.noisemodelling.pathfinder.utils.geometry.JTSUtility;
+
+import java.util.List;
+
+/**
+ * Triangulated irregular network stored in primitive arrays. The vertex coordinates are kept in x, y, z arrays and
+ * the three vertex indices and the three neighbor indices of each triangle are packed in int arrays.
+ * Compared to the lists of {@link Triangle} and {@link Coordinate} the mesh does not need any object dereference
+ * while walking from a triangle to its neighbor. The mesh is immutable and can be shared between threads.
+ * @author Nicolas Fortin
+ */
+public class TriangleMesh {
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    /** Vertex indices a, b, c of each triangle */
+    private final int[] triangleVertices;
+    /** Neighbor triangle index opposite to the vertex a, b, c of each triangle, -1 if there is no neighbor */
+    private final int[] triangleNeighbors;
+
+    /**
+     * @param vertices Vertices of the mesh
+     * @param triangles Triangles vertex indices
+     * @param neighbors Triangles neighbor indices, see {@link LayerDelaunay#getNeighbors()}
+     */
+    public TriangleMesh(List<Coordinate> vertices, List<Triangle> triangles, List<Triangle> neighbors) {
+        if(neighbors.size() != triangles.size()) {
+            throw new IllegalArgumentException("Expected " + triangles.size() + " triangle neighbors, got " +
+                    neighbors.size());
+        }
+        x = new double[vertices.size()];
+        y = new double[vertices.size()];
+        z = new double[vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            Coordinate vertex = vertices.get(i);
+            x[i] = vertex.x;
+            y[i] = vertex.y;
+            z[i] = vertex.z;
+        }
+        triangleVertices = new int[triangles.size() * 3];
+        triangleNeighbors = new int[triangles.size() * 3];
+        for (int i = 0; i < triangles.size(); i++) {
+            Triangle triangle = triangles.get(i);
+            Triangle triangleNeighbor = neighbors.get(i);
+            for (int corner = 0; corner < 3; corner++) {
+                triangleVertices[i * 3 + corner] = triangle.get(corner);
+                triangleNeighbors[i * 3 + corner] = triangleNeighbor.get(corner);
+            }
+        }
+    }
+
+    /**
+     * @return Number of triangles
+     */
+    public int getTriangleCount() {
+        return triangleVertices.length / 3;
+    }
+
+    /**
+     * @return Number of vertices
+     */
+    public int getVertexCount() {
+        return x.length;
+    }
+
+    /**
+     * @param triangle Triangle index
+     * @param corner 0, 1 or 2 for the vertex a, b or c
+     * @return Vertex index
+     */
+    public int getVertex(int triangle, int corner) {
+        return triangleVertices[triangle * 3 + corner];
+    }
+
+    /**
+     * @param triangle Triangle index
+     * @param side 0, 1 or 2 for the side opposite to the vertex a, b or c
+     * @return Neighbor triangle index or -1 if there is no neighbor on this side
+     */
+    public int getNeighbor(int triangle, int side) {
+        return triangleNeighbors[triangle * 3 + side];
+    }
+
+    public double getX(int vertex) {
+        return x[vertex];
+    }
+
+    public double getY(int vertex) {
+        return y[vertex];
+    }
+
+    public double getZ(int vertex) {
+        return z[vertex];
+    }
+
+    /**
+     * Copy the vertex of a triangle into an existing coordinate
+     * @param triangle Triangle index
+     * @param corner 0, 1 or 2 for the vertex a, b or c
+     * @param out Coordinate to update
+     */
+    public void copyVertex(int triangle, int corner, Coordinate out) {
+        int vertex = triangleVertices[triangle * 3 + corner];
+        out.x = x[vertex];
+        out.y = y[vertex];
+        out.z = z[vertex];
+    }
+
+    /**
+     * @param triangle Triangle index
+     * @return Envelope of the triangle
+     */
+    public Envelope getEnvelope(int triangle) {
+        int a = triangleVertices[triangle * 3];
+        int b = triangleVertices[triangle * 3 + 1];
+        int c = triangleVertices[triangle * 3 + 2];
+        return new Envelope(Math.min(x[a], Math.min(x[b], x[c])), Math.max(x[a], Math.max(x[b], x[c])),
+                Math.min(y[a], Math.min(y[b], y[c])), Math.max(y[a], Math.max(y[b], y[c])));
+    }
+
+    /**
+     * Compute the barycentric coordinates of a point in a triangle
+     * @see JTSUtility#barycentric
+     * @param triangle Triangle index
+     * @param px Point x
+     * @param py Point y
+     * @param uv Output barycentric coordinates
+     */
+    public void barycentric(int triangle, double px, double py, double[] uv) {
+        int a = triangleVertices[triangle * 3];
+        int b = triangleVertices[triangle * 3 + 1];
+        int c = triangleVertices[triangle * 3 + 2];
+        JTSUtility.barycentric(px, py, x[a], y[a], x[b], y[b], x[c], y[c], uv);
+    }
+}
@@ -25,6 +25,10 @@ import org.locationtech.jts.operation.buffer.BufferParameters;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.Wall;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,6 +42,7 @@ public class MirrorReceiversCompute {
     private final double maximumDistanceFromWall;
     private final double maximumPropagationDistance;
     int numberOfImageReceivers = 0;
+    private ImageReceiversRecord imageReceiversRecord = null;
 
     public static Polygon createWallReflectionVisibilityCone(Coordinate receiverImage, LineSegment wall,
                                                              double maximumPropagationDistance,
@@ -95,19 +100,40 @@ public class MirrorReceiversCompute {
     public MirrorReceiversCompute(List<Wall> buildWalls, Coordinate receiverCoordinates,
                                   int reflectionOrder, double maximumPropagationDistance,
                                   double maximumDistanceFromWall) {
-        GeometryFactory gf = new GeometryFactory();
+        this(buildWalls, receiverCoordinates, reflectionOrder, maximumPropagationDistance, maximumDistanceFromWall,
+                false);
+    }
+
+    /**
+     * Generate all image receivers from the provided list of walls
+     * @param buildWalls
+     * @param receiverCoordinates
+     * @param reflectionOrder
+     * @param recordImageReceivers Keep a compact copy of the image receivers, see {@link #getImageReceiversRecord()}
+     */
+    public MirrorReceiversCompute(List<Wall> buildWalls, Coordinate receiverCoordinates,
+                                  int reflectionOrder, double maximumPropagationDistance,
+                                  double maximumDistanceFromWall, boolean recordImageReceivers) {
         this.receiverCoordinate = receiverCoordinates;
         this.buildWalls = buildWalls;
         this.maximumDistanceFromWall = maximumDistanceFromWall;
         this.maximumPropagationDistance = maximumPropagationDistance;
         mirrorReceiverTree = new STRtree();
+        if(recordImageReceivers) {
+            imageReceiversRecord = new ImageReceiversRecord(receiverCoordinates);
+        }
         ArrayList<MirrorReceiver> parentsToProcess = new ArrayList<>();
+        // index of the parents in the record
+        ArrayList<Integer> parentsRecordIndex = new ArrayList<>();
         for(int currentDepth = 0; currentDepth < reflectionOrder; currentDepth++) {
             if(currentDepth == 0) {
                 parentsToProcess.add(null);
+                parentsRecordIndex.add(-1);
             }
             ArrayList<MirrorReceiver> nextParentsToProcess = new ArrayList<>();
-            for(MirrorReceiver parent : parentsToProcess) {
+            ArrayList<Integer> nextParentsRecordIndex = new ArrayList<>();
+            for(int idParent = 0; idParent < parentsToProcess.size(); idParent++) {
+                MirrorReceiver parent = parentsToProcess.get(idParent);
                 for (Wall wall : buildWalls) {
                     if(parent != null) {
                         // check if the wall is visible from the previous image receiver
@@ -149,6 +175,11 @@ public class MirrorReceiversCompute {
                     receiverResultNext.setImageReceiverVisibilityCone(imageReceiverVisibilityCone);
                     mirrorReceiverTree.insert(imageReceiverVisibilityCone.getEnvelopeInternal(),receiverResultNext.copyWithoutCone());
                     nextParentsToProcess.add(receiverResultNext);
+                    if(imageReceiversRecord != null) {
+                        nextParentsRecordIndex.add(imageReceiversRecord.add(
+                                imageReceiverVisibilityCone.getEnvelopeInternal(), rcvMirror,
+                                wall.getProcessedWallIndex(), parentsRecordIndex.get(idParent)));
+                    }
                     numberOfImageReceivers++;
                     if(numberOfImageReceivers >= mirrorReceiverCapacity) {
                         return;
@@ -156,9 +187,124 @@ public class MirrorReceiversCompute {
                 }
             }
             parentsToProcess = nextParentsToProcess;
+            parentsRecordIndex = nextParentsRecordIndex;
         }
         mirrorReceiverTree.build();
     }
+
+    /**
+     * Restore the image receivers from a record made by a previous computation with the same walls and parameters.
+     * The record comes from a file, so its content is checked against the walls before being used.
+     * @param processedWalls All walls of the profile builder, {@link ProfileBuilder#getProcessedWalls()}
+     * @param receiverCoordinates Receiver position
+     * @param maximumPropagationDistance Maximum propagation distance
+     * @param maximumDistanceFromWall Maximum distance of the walls from the source-receiver segment
+     * @param record Content of {@link ImageReceiversRecord#toByteArray()}, the limit of the buffer is the end of the
+     *               record
+     * @return The image receivers index, or null if the record is truncated or does not match the walls
+     */
+    public static MirrorReceiversCompute fromRecord(List<Wall> processedWalls, Coordinate receiverCoordinates,
+                                                    double maximumPropagationDistance,
+                                                    double maximumDistanceFromWall, ByteBuffer record) {
+        if(record.remaining() < 3 * Double.BYTES + Integer.BYTES) {
+            return null;
+        }
+        // skip receiver position
+        record.position(record.position() + 3 * Double.BYTES);
+        int count = record.getInt();
+        if(count < 0 || record.remaining() / ImageReceiversRecord.IMAGE_RECEIVER_SIZE < count) {
+            return null;
+        }
+        MirrorReceiversCompute mirrorReceiversCompute = new MirrorReceiversCompute(processedWalls,
+                receiverCoordinates, 0, maximumPropagationDistance, maximumDistanceFromWall);
+        mirrorReceiversCompute.mirrorReceiverTree = new STRtree();
+        MirrorReceiver[] imageReceivers = new MirrorReceiver[count];
+        for (int i = 0; i < count; i++) {
+            Envelope coneEnvelope = new Envelope(record.getDouble(), record.getDouble(), record.getDouble(),
+                    record.getDouble());
+            Coordinate position = new Coordinate(record.getDouble(), record.getDouble(), record.getDouble());
+            int wallIndex = record.getInt();
+            int parentIndex = record.getInt();
+            // The walls may have been changed since the record has been made, and the parents come first
+            if(wallIndex < 0 || wallIndex >= processedWalls.size() ||
+                    processedWalls.get(wallIndex).getProcessedWallIndex() != wallIndex ||
+                    parentIndex < -1 || parentIndex >= i) {
+                return null;
+            }
+            Wall wall = processedWalls.get(wallIndex);
+            // parents are never modified so they are shared with the children image receivers
+            imageReceivers[i] = new MirrorReceiver(position, parentIndex >= 0 ? imageReceivers[parentIndex] : null,
+                    wall);
+            mirrorReceiversCompute.mirrorReceiverTree.insert(coneEnvelope, imageReceivers[i]);
+        }
+        mirrorReceiversCompute.numberOfImageReceivers = count;
+        mirrorReceiversCompute.mirrorReceiverTree.build();
+        return mirrorReceiversCompute;
+    }
+
+    /**
+     * @return Compact copy of the image receivers or null if not recorded
+     */
+    public ImageReceiversRecord getImageReceiversRecord() {
+        return imageReceiversRecord;
+    }
+
+    public int getNumberOfImageReceivers() {
+        return numberOfImageReceivers;
+    }
+
+    /**
+     * Image receivers stored as primitive values. The walls are referenced by their processed wall index.
+     * Record layout: receiver x,y,z, image receivers count, then for each image receiver the visibility cone
+     * envelope (minX, maxX, minY, maxY), the position x,y,z, the processed wall index and the parent index
+     * in the record (-1 for the first reflection).
+     */
+    public static class ImageReceiversRecord {
+        public static final int IMAGE_RECEIVER_SIZE = 7 * Double.BYTES + 2 * Integer.BYTES;
+        private final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(byteArrayOutputStream);
+        private final Coordinate receiver;
+        private int count = 0;
+
+        public ImageReceiversRecord(Coordinate receiver) {
+            this.receiver = receiver;
+        }
+
+        int add(Envelope coneEnvelope, Coordinate position, int wallIndex, int parentIndex) {
+            try {
+                out.writeDouble(coneEnvelope.getMinX());
+                out.writeDouble(coneEnvelope.getMaxX());
+                out.writeDouble(coneEnvelope.getMinY());
+                out.writeDouble(coneEnvelope.getMaxY());
+                out.writeDouble(position.x);
+                out.writeDouble(position.y);
+                out.writeDouble(position.z);
+                out.writeInt(wallIndex);
+                out.writeInt(parentIndex);
+            } catch (IOException ex) {
+                // not thrown by ByteArrayOutputStream
+                throw new IllegalStateException(ex);
+            }
+            return count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return Record bytes, to be read with {@link #fromRecord(List, Coordinate, double, double, ByteBuffer)}
+         */
+        public byte[] toByteArray() {
+            ByteBuffer buffer = ByteBuffer.allocate(3 * Double.BYTES + Integer.BYTES + byteArrayOutputStream.size());
+            buffer.putDouble(receiver.x);
+            buffer.putDouble(receiver.y);
+            buffer.putDouble(receiver.z);
+            buffer.putInt(count);
+            buffer.put(byteArrayOutputStream.toByteArray());
+            return buffer.array();
+        }
+    }
     /**
      * Occlusion test between one wall and a viewer.
      * Simple Feature Access (ISO 19125-1) say that:
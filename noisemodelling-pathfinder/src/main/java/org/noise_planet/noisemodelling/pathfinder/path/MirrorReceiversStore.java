@@ -0,0 +1,208 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder.path;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.Wall;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keep the image receivers of each receiver of a computation area in a file, in order to skip the reflection
+ * preprocessing on the next runs with the same geometries (other emission scenario, recomputation of attenuation).
+ * The file is identified by a hash of the geometry and of the reflection parameters provided by the caller, the
+ * content of a file with another hash is ignored.
+ * The file is memory mapped, the new image receivers are kept in memory until {@link #save()} is called.
+ * @author Nicolas Fortin
+ */
+public class MirrorReceiversStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MirrorReceiversStore.class);
+    private static final int MAGIC = 0x4E4D4D52; // NMMR
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final String geometryHash;
+    private ByteBuffer storedRecords = null;
+    /** receiver primary key to the position of the record in storedRecords */
+    private final Map<Long, Integer> storedRecordsIndex = new HashMap<>();
+    private final Map<Long, byte[]> newRecords = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Open the store file if it exists and have been made with the same geometry
+     * @param file Store file
+     * @param geometryHash Hash of the walls and of the reflection parameters
+     */
+    public MirrorReceiversStore(File file, String geometryHash) {
+        this.file = file;
+        this.geometryHash = geometryHash;
+        if(file.exists()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if(buffer.getInt() == MAGIC && buffer.getInt() == VERSION) {
+                    byte[] hash = new byte[buffer.getInt()];
+                    buffer.get(hash);
+                    if(geometryHash.equals(new String(hash, StandardCharsets.UTF_8))) {
+                        int recordCount = buffer.getInt();
+                        for (int i = 0; i < recordCount; i++) {
+                            long receiverPk = buffer.getLong();
+                            int length = buffer.getInt();
+                            storedRecordsIndex.put(receiverPk, buffer.position());
+                            buffer.position(buffer.position() + length);
+                        }
+                        storedRecords = buffer;
+                    }
+                }
+            } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+                LOGGER.warn(String.format("Unable to read the image receivers file %s", file), ex);
+                storedRecordsIndex.clear();
+                storedRecords = null;
+            }
+        }
+    }
+
+    /**
+     * Fetch the image receivers of a receiver
+     * @param receiverPk Receiver primary key
+     * @param receiver Receiver position
+     * @param processedWalls All walls of the profile builder
+     * @param maximumPropagationDistance Maximum propagation distance
+     * @param maximumDistanceFromWall Maximum distance of the walls from the source-receiver segment
+     * @return The image receivers index or null if this receiver is not stored or its record is not valid
+     */
+    public MirrorReceiversCompute get(long receiverPk, Coordinate receiver, List<Wall> processedWalls,
+                                      double maximumPropagationDistance, double maximumDistanceFromWall) {
+        ByteBuffer record = null;
+        byte[] newRecord = newRecords.get(receiverPk);
+        if(newRecord != null) {
+            record = ByteBuffer.wrap(newRecord);
+        } else {
+            Integer position = storedRecordsIndex.get(receiverPk);
+            if(position != null) {
+                // duplicate the shared buffer in order to have a thread local position
+                record = storedRecords.duplicate();
+                record.limit(position + record.getInt(position - Integer.BYTES));
+                record.position(position);
+            }
+        }
+        // The receiver position may have been changed
+        if(record == null || record.remaining() < 3 * Double.BYTES ||
+                record.getDouble(record.position()) != receiver.x ||
+                record.getDouble(record.position() + Double.BYTES) != receiver.y ||
+                Double.compare(record.getDouble(record.position() + 2 * Double.BYTES), receiver.z) != 0) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        MirrorReceiversCompute mirrorReceiversCompute = MirrorReceiversCompute.fromRecord(processedWalls, receiver,
+                maximumPropagationDistance, maximumDistanceFromWall, record);
+        if(mirrorReceiversCompute == null) {
+            // Stale or corrupted record, the image receivers are computed again
+            LOGGER.warn("Invalid image receivers of the receiver {} in {}", receiverPk, file);
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return mirrorReceiversCompute;
+    }
+
+    /**
+     * Keep the image receivers of the receiver, they will be written with {@link #save()}
+     * @param receiverPk Receiver primary key
+     * @param mirrorReceiversCompute Image receivers computed with the record option
+     */
+    public void put(long receiverPk, MirrorReceiversCompute mirrorReceiversCompute) {
+        MirrorReceiversCompute.ImageReceiversRecord record = mirrorReceiversCompute.getImageReceiversRecord();
+        if(record != null) {
+            newRecords.put(receiverPk, record.toByteArray());
+        }
+    }
+
+    /**
+     * @return Number of receivers that have been fetched from the store
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return Number of receivers not found in the store
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Write the stored and new image receivers into the file. Nothing is done if there is no new image receivers.
+     * @throws IOException Error while writing the file
+     */
+    public synchronized void save() throws IOException {
+        if(newRecords.isEmpty()) {
+            return;
+        }
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                tmpFile.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] hash = geometryHash.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(hash.length);
+            out.write(hash);
+            int recordCount = newRecords.size();
+            for (Long receiverPk : storedRecordsIndex.keySet()) {
+                if(!newRecords.containsKey(receiverPk)) {
+                    recordCount++;
+                }
+            }
+            out.writeInt(recordCount);
+            for (Map.Entry<Long, Integer> entry : storedRecordsIndex.entrySet()) {
+                if(!newRecords.containsKey(entry.getKey())) {
+                    ByteBuffer record = storedRecords.duplicate();
+                    int length = record.getInt(entry.getValue() - Integer.BYTES);
+                    byte[] recordBytes = new byte[length];
+                    record.position(entry.getValue());
+                    record.get(recordBytes);
+                    out.writeLong(entry.getKey());
+                    out.writeInt(length);
+                    out.write(recordBytes);
+                }
+            }
+            for (Map.Entry<Long, byte[]> entry : newRecords.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -58,8 +58,21 @@ public class Scene {
     /** Maximum reflexion order */
     public int reflexionOrder = 1;
 
+    /** Image receivers of a previous computation with the same geometry, null if disabled */
+    public MirrorReceiversStore mirrorReceiversStore = null;
+
     public double defaultGroundAttenuation = 0;
 
+    /** Maximum number of profile legs kept in the cache of each receiver, 0 to disable the cache */
+    public int profileCacheSize = 0;
+    /** Profile legs with end points closer than this distance (meters) on each axis share the same cached profile */
+    public double profileCacheQuantum = 0.01;
+    /**
+     * Maximum level difference (dB) due to the geometric divergence when a cluster of far sources is propagated as a
+     * single equivalent source, 0 to propagate every source
+     */
+    public double sourceAggregationTolerance = 0;
+
     public Scene() {
         this.profileBuilder = new ProfileBuilder();
     }
@@ -170,6 +183,23 @@ public class Scene {
         this.defaultGroundAttenuation = gS;
     }
 
+    /**
+     * Checks if the noise source at the specified index is omnidirectional.
+     * @param srcIndex Source index in the list sourceGeometries
+     * @return True if the source does not have orientation dependant attenuation
+     */
+    public boolean isOmnidirectional(int srcIndex) {
+        return true;
+    }
+
+    /**
+     * @param sourcePk Source primary key
+     * @return Relative power of the source, used to locate the equivalent source of a cluster of sources
+     */
+    public double getSourcePowerWeight(long sourcePk) {
+        return 1.0;
+    }
+
     public void clearSources() {
         sourceGeometries.clear();
         sourceOrientation.clear();
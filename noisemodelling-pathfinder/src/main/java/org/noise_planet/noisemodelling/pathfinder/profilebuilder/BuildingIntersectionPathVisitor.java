@@ -18,8 +18,10 @@ import org.locationtech.jts.index.ItemVisitor;
 import org.locationtech.jts.math.Vector2D;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.noise_planet.noisemodelling.pathfinder.PathFinder.cutRoofPointsWithPlane;
@@ -39,6 +41,9 @@ public final class BuildingIntersectionPathVisitor implements ItemVisitor {
     Plane cutPlane;
     List<Coordinate> input;
     LineSegment intersectionLine = new LineSegment();
+    /** Building and wall points cut by the plane, by building or wall id. Shared by the left and right sides */
+    Map<Integer, List<Coordinate>> cutBuildingPoints = new HashMap<>();
+    Map<Integer, List<Coordinate>> cutWallPoints = new HashMap<>();
     private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
 
 
@@ -54,6 +59,17 @@ public final class BuildingIntersectionPathVisitor implements ItemVisitor {
         seg = new PreparedLineString(GEOMETRY_FACTORY.createLineString(new Coordinate[]{p1, p2}));
     }
 
+    /**
+     * Share the points cut by the plane with another visitor of the same p1 p2 segment (the other side)
+     * @param cutBuildingPoints Building points cut by the plane, by building id
+     * @param cutWallPoints Wall points cut by the plane, by wall id
+     */
+    public void setCutPointsCache(Map<Integer, List<Coordinate>> cutBuildingPoints,
+                                  Map<Integer, List<Coordinate>> cutWallPoints) {
+        this.cutBuildingPoints = cutBuildingPoints;
+        this.cutWallPoints = cutWallPoints;
+    }
+
     /**
      * @param segment When visit an item, only add the walls in the hull points input if it intersects with the segment
      *                in argument
@@ -92,13 +108,18 @@ public final class BuildingIntersectionPathVisitor implements ItemVisitor {
                 // This building has already been pushed to input hull
                 return;
             }
-            List<Coordinate> roofPoints = profileBuilder.getPrecomputedWideAnglePoints(processedWall.originId + 1);
+            List<Coordinate> roofPoints = cutBuildingPoints.get(processedWall.originId);
             if(roofPoints == null) {
-                // weird building, no diffraction point
-                return;
+                roofPoints = profileBuilder.getPrecomputedWideAnglePoints(processedWall.originId + 1);
+                if(roofPoints == null) {
+                    // weird building, no diffraction point
+                    return;
+                }
+                // Create a cut of the building volume
+                roofPoints = cutRoofPointsWithPlane(cutPlane, roofPoints);
+                cutBuildingPoints.put(processedWall.originId, roofPoints);
             }
-            // Create a cut of the building volume
-            roofPoints = filterPointsBySide(p1Top2, left, cutRoofPointsWithPlane(cutPlane, roofPoints));
+            roofPoints = filterPointsBySide(p1Top2, left, roofPoints);
             if (!roofPoints.isEmpty()) {
                 input.addAll(roofPoints);
                 pushedBuildingsWideAnglePoints.add(processedWall.originId);
@@ -111,17 +132,21 @@ public final class BuildingIntersectionPathVisitor implements ItemVisitor {
                 // This wall has already been pushed to input hull
                 return;
             }
-            // Create the diffraction point outside the wall segment
-            // Diffraction point must not intersect with wall
-            Vector2D translationVector = new Vector2D(processedWall.p0, processedWall.p1).normalize()
-                    .multiply(ProfileBuilder.wideAngleTranslationEpsilon);
-            Coordinate extendedP0 = new Coordinate(processedWall.p0.x - translationVector.getX(),
-                    processedWall.p0.y - translationVector.getY(), processedWall.p0.z);
-            Coordinate extendedP1 = new Coordinate(processedWall.p1.x + translationVector.getX(),
-                    processedWall.p1.y + translationVector.getY(), processedWall.p1.z);
-            List<Coordinate> roofPoints = Arrays.asList(extendedP0, extendedP1);
-            // Create a cut of the building volume
-            roofPoints = filterPointsBySide(p1Top2, left, cutRoofPointsWithPlane(cutPlane, roofPoints));
+            List<Coordinate> roofPoints = cutWallPoints.get(id);
+            if(roofPoints == null) {
+                // Create the diffraction point outside the wall segment
+                // Diffraction point must not intersect with wall
+                Vector2D translationVector = new Vector2D(processedWall.p0, processedWall.p1).normalize()
+                        .multiply(ProfileBuilder.wideAngleTranslationEpsilon);
+                Coordinate extendedP0 = new Coordinate(processedWall.p0.x - translationVector.getX(),
+                        processedWall.p0.y - translationVector.getY(), processedWall.p0.z);
+                Coordinate extendedP1 = new Coordinate(processedWall.p1.x + translationVector.getX(),
+                        processedWall.p1.y + translationVector.getY(), processedWall.p1.z);
+                // Create a cut of the building volume
+                roofPoints = cutRoofPointsWithPlane(cutPlane, Arrays.asList(extendedP0, extendedP1));
+                cutWallPoints.put(id, roofPoints);
+            }
+            roofPoints = filterPointsBySide(p1Top2, left, roofPoints);
             if (!roofPoints.isEmpty()) {
                 pushedWallsPoints.add(processedWall.originId);
                 input.addAll(roofPoints);
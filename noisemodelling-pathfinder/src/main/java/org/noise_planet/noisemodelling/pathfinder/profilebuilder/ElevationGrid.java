@@ -0,0 +1,373 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder.profilebuilder;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Digital elevation model stored as a regular grid of altitudes. It is used by the {@link ProfileBuilder} in place of
+ * the triangulation of the topographic points, see {@link ProfileBuilder#setElevationGrid(ElevationGrid)}.
+ * <p>
+ * The altitudes are given on the nodes of the grid. Each grid cell is split into two triangles along the diagonal
+ * from the lower left node to the upper right node, the altitude is linearly interpolated in each triangle. This is
+ * the same surface as the triangulation of the grid points, so a terrain profile is exactly described by its
+ * intersections with the grid lines and the diagonals. Outside the grid the altitude of the nearest border is used.
+ * <p>
+ * The altitudes are stored in float32, on the heap or in a memory mapped file (see {@link #write(File)} and
+ * {@link #map(File)}). Altitudes must not be NaN. The grid is immutable and can be shared between threads and cells.
+ * @author Nicolas Fortin
+ */
+public class ElevationGrid {
+    private static final int MAGIC = 0x4E4D4547; // NMEG
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * 4 + 3 * 8;
+    /** Two crossings closer than this parametric distance on the profile line are merged */
+    private static final double T_EPSILON = 1e-12;
+
+    private final double xOrigin;
+    private final double yOrigin;
+    private final double cellSize;
+    private final int columnCount;
+    private final int rowCount;
+    private final FloatBuffer heights;
+    /** Hash of the content, computed on the first call of {@link #getContentHash()} */
+    private volatile String contentHash = null;
+
+    /**
+     * @param xOrigin X of the lower left node
+     * @param yOrigin Y of the lower left node
+     * @param cellSize Distance between two nodes
+     * @param columnCount Number of nodes on the X axis
+     * @param rowCount Number of nodes on the Y axis
+     * @param heights Altitudes of the nodes, row by row from the lowest Y. Index is row * columnCount + column
+     */
+    public ElevationGrid(double xOrigin, double yOrigin, double cellSize, int columnCount, int rowCount,
+                         FloatBuffer heights) {
+        if(columnCount < 2 || rowCount < 2) {
+            throw new IllegalArgumentException("The elevation grid must have at least 2 columns and 2 rows");
+        }
+        if(!(cellSize > 0)) {
+            throw new IllegalArgumentException("The cell size must be strictly positive");
+        }
+        if(heights.limit() < (long) columnCount * rowCount) {
+            throw new IllegalArgumentException("Expected " + (long) columnCount * rowCount + " heights, got " +
+                    heights.limit());
+        }
+        this.xOrigin = xOrigin;
+        this.yOrigin = yOrigin;
+        this.cellSize = cellSize;
+        this.columnCount = columnCount;
+        this.rowCount = rowCount;
+        this.heights = heights;
+    }
+
+    /**
+     * @param xOrigin X of the lower left node
+     * @param yOrigin Y of the lower left node
+     * @param cellSize Distance between two nodes
+     * @param columnCount Number of nodes on the X axis
+     * @param rowCount Number of nodes on the Y axis
+     * @param heights Altitudes of the nodes, row by row from the lowest Y. Index is row * columnCount + column
+     */
+    public ElevationGrid(double xOrigin, double yOrigin, double cellSize, int columnCount, int rowCount,
+                         float[] heights) {
+        this(xOrigin, yOrigin, cellSize, columnCount, rowCount, FloatBuffer.wrap(heights));
+    }
+
+    /**
+     * Open a grid written by {@link #write(File)}. The altitudes are not loaded in the java heap, the file is memory
+     * mapped.
+     * @param file Grid file
+     * @return The elevation grid
+     * @throws IOException Error while reading the file or not an elevation grid file
+     */
+    public static ElevationGrid map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(channel.size() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(String.format("%s is not an elevation grid file", file));
+            }
+            double xOrigin = buffer.getDouble();
+            double yOrigin = buffer.getDouble();
+            double cellSize = buffer.getDouble();
+            int columnCount = buffer.getInt();
+            int rowCount = buffer.getInt();
+            buffer.position(HEADER_SIZE);
+            try {
+                return new ElevationGrid(xOrigin, yOrigin, cellSize, columnCount, rowCount,
+                        buffer.slice().asFloatBuffer());
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(String.format("Invalid elevation grid file %s", file), ex);
+            }
+        }
+    }
+
+    /**
+     * Write the grid into a file that can be memory mapped with {@link #map(File)}
+     * @param file Destination file
+     * @throws IOException Error while writing the file
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                file.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeDouble(xOrigin);
+            out.writeDouble(yOrigin);
+            out.writeDouble(cellSize);
+            out.writeInt(columnCount);
+            out.writeInt(rowCount);
+            int size = columnCount * rowCount;
+            for (int i = 0; i < size; i++) {
+                out.writeFloat(heights.get(i));
+            }
+        }
+    }
+
+    public double getXOrigin() {
+        return xOrigin;
+    }
+
+    public double getYOrigin() {
+        return yOrigin;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Identify the content of the grid, in order to know if the data computed with a previous grid can be reused.
+     * The hash is computed over all the altitudes on the first call only.
+     * @return SHA-256 hash of the location, of the size and of the altitudes of the grid
+     */
+    public String getContentHash() {
+        String hash = contentHash;
+        if(hash == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            buffer.putDouble(xOrigin).putDouble(yOrigin).putDouble(cellSize).putInt(columnCount).putInt(rowCount);
+            int size = columnCount * rowCount;
+            for (int i = 0; i < size; i++) {
+                if(buffer.remaining() < Float.BYTES) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+                buffer.putFloat(heights.get(i));
+            }
+            buffer.flip();
+            digest.update(buffer);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            hash = sb.toString();
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * @param column Column index
+     * @param row Row index
+     * @return Altitude of the node
+     */
+    public double getHeight(int column, int row) {
+        return heights.get(row * columnCount + column);
+    }
+
+    /**
+     * @return Envelope of the grid nodes
+     */
+    public Envelope getEnvelope() {
+        return new Envelope(xOrigin, xOrigin + (columnCount - 1) * cellSize, yOrigin,
+                yOrigin + (rowCount - 1) * cellSize);
+    }
+
+    /**
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return Interpolated altitude at this location
+     */
+    public double getZ(double x, double y) {
+        double u = Math.max(0, Math.min(columnCount - 1, (x - xOrigin) / cellSize));
+        double v = Math.max(0, Math.min(rowCount - 1, (y - yOrigin) / cellSize));
+        int column = Math.min(columnCount - 2, (int) u);
+        int row = Math.min(rowCount - 2, (int) v);
+        double fu = u - column;
+        double fv = v - row;
+        int index = row * columnCount + column;
+        double h00 = heights.get(index);
+        double h11 = heights.get(index + columnCount + 1);
+        if(fu >= fv) {
+            // lower right triangle
+            double h10 = heights.get(index + 1);
+            return h00 + fu * (h10 - h00) + fv * (h11 - h10);
+        } else {
+            // upper left triangle
+            double h01 = heights.get(index + columnCount);
+            return h00 + fv * (h01 - h00) + fu * (h11 - h01);
+        }
+    }
+
+    /**
+     * Fetch the terrain profile between two points. The points are p1, the intersections of the segment with the
+     * grid lines and cell diagonals and p2.
+     * @param profile Output points, the buffer is cleared before the computation
+     * @param p1 first point
+     * @param p2 second point
+     * @param stopAtObstacleOverSourceReceiver Stop fetching intersections if the segment p1-p2 is under the ground
+     * @return True if the segment p1-p2 is not intersecting with the ground
+     */
+    public boolean fetchProfile(TopographicProfileBuffer profile, Coordinate p1, Coordinate p2,
+                                boolean stopAtObstacleOverSourceReceiver) {
+        profile.clear();
+        profile.add(p1.x, p1.y, getZ(p1.x, p1.y));
+        double dx = p2.x - p1.x;
+        double dy = p2.y - p1.y;
+        boolean freeField = true;
+        if(dx != 0 || dy != 0) {
+            // Position of the segment in grid units
+            double u0 = (p1.x - xOrigin) / cellSize;
+            double v0 = (p1.y - yOrigin) / cellSize;
+            double du = dx / cellSize;
+            double dv = dy / cellSize;
+            // The diagonals are only plane changes inside the grid
+            double[] inside = new double[] {0, 1};
+            clipParametric(u0, du, columnCount - 1, inside);
+            clipParametric(v0, dv, rowCount - 1, inside);
+            GridLines columns = new GridLines(u0, du, 0, columnCount - 1, 0, 1);
+            GridLines rows = new GridLines(v0, dv, 0, rowCount - 1, 0, 1);
+            GridLines diagonals = inside[0] < inside[1] ?
+                    new GridLines(u0 - v0, du - dv, Integer.MIN_VALUE, Integer.MAX_VALUE, inside[0], inside[1]) :
+                    new GridLines(0, 0, 0, 0, 0, 0);
+            double lastT = 0;
+            double dz = p2.z - p1.z;
+            while (true) {
+                double t = Math.min(columns.t, Math.min(rows.t, diagonals.t));
+                if(t >= 1) {
+                    break;
+                }
+                if(columns.t == t) {
+                    columns.next();
+                } else if(rows.t == t) {
+                    rows.next();
+                } else {
+                    diagonals.next();
+                }
+                if(t - lastT < T_EPSILON) {
+                    continue;
+                }
+                lastT = t;
+                double x = p1.x + t * dx;
+                double y = p1.y + t * dy;
+                double z = getZ(x, y);
+                profile.add(x, y, z);
+                if(p1.z + t * dz < z) {
+                    freeField = false;
+                    if(stopAtObstacleOverSourceReceiver) {
+                        return false;
+                    }
+                }
+            }
+        }
+        profile.add(p2.x, p2.y, getZ(p2.x, p2.y));
+        return freeField;
+    }
+
+    /**
+     * Restrict the parametric range to the part where a0 + da * t is in [0, max]
+     */
+    private static void clipParametric(double a0, double da, double max, double[] range) {
+        if(da == 0) {
+            if(a0 < 0 || a0 > max) {
+                range[1] = range[0];
+            }
+            return;
+        }
+        double t0 = (0 - a0) / da;
+        double t1 = (max - a0) / da;
+        range[0] = Math.max(range[0], Math.min(t0, t1));
+        range[1] = Math.min(range[1], Math.max(t0, t1));
+    }
+
+    /**
+     * Parametric position of the crossings of the segment with a family of parallel lines a = k, k integer
+     */
+    private static final class GridLines {
+        final double a0;
+        final double da;
+        final long kMin;
+        final long kMax;
+        final double tMax;
+        long k;
+        double t = Double.POSITIVE_INFINITY;
+
+        GridLines(double a0, double da, long kMin, long kMax, double tMin, double tMax) {
+            this.a0 = a0;
+            this.da = da;
+            this.kMin = kMin;
+            this.kMax = kMax;
+            this.tMax = tMax;
+            if(da > 0) {
+                k = Math.max(kMin, (long) Math.floor(a0 + tMin * da) + 1) - 1;
+            } else if(da < 0) {
+                k = Math.min(kMax, (long) Math.ceil(a0 + tMin * da) - 1) + 1;
+            } else {
+                return;
+            }
+            next();
+        }
+
+        void next() {
+            if(da > 0) {
+                k++;
+            } else {
+                k--;
+            }
+            if(da == 0 || k < kMin || k > kMax) {
+                t = Double.POSITIVE_INFINITY;
+                return;
+            }
+            t = (k - a0) / da;
+            if(t > tMax) {
+                t = Double.POSITIVE_INFINITY;
+            }
+        }
+    }
+}
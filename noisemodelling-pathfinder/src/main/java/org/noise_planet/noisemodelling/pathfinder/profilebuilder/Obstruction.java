@@ -35,6 +35,13 @@ public class Obstruction {
         return alphas;
     }
 
+    /**
+     * @return The absorption coefficients, empty if not computed from the global alpha or impedance yet
+     */
+    List<Double> getAlphas() {
+        return alphas;
+    }
+
     /**
      * @return Obstruction global alpha or impedance
      */
@@ -11,6 +11,8 @@ package org.noise_planet.noisemodelling.pathfinder.profilebuilder;
 
 import org.locationtech.jts.algorithm.Angle;
 import org.locationtech.jts.algorithm.CGAlgorithms3D;
+import org.locationtech.jts.algorithm.LineIntersector;
+import org.locationtech.jts.algorithm.RobustLineIntersector;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.index.strtree.STRtree;
 import org.locationtech.jts.math.Vector2D;
@@ -20,17 +22,17 @@ import org.locationtech.jts.triangulate.quadedge.Vertex;
 import org.noise_planet.noisemodelling.pathfinder.delaunay.LayerDelaunay;
 import org.noise_planet.noisemodelling.pathfinder.delaunay.LayerDelaunayError;
 import org.noise_planet.noisemodelling.pathfinder.delaunay.LayerTinfour;
+import org.noise_planet.noisemodelling.pathfinder.delaunay.TinDecimation;
 import org.noise_planet.noisemodelling.pathfinder.delaunay.Triangle;
+import org.noise_planet.noisemodelling.pathfinder.delaunay.TriangleMesh;
 import org.noise_planet.noisemodelling.pathfinder.path.Scene;
 import org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicatorsFunctions;
-import org.noise_planet.noisemodelling.pathfinder.utils.IntegerTuple;
 import org.noise_planet.noisemodelling.pathfinder.utils.geometry.JTSUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.Double.NaN;
 import static java.lang.Double.isNaN;
@@ -51,6 +53,8 @@ public class ProfileBuilder {
     /** {@link Geometry} factory. */
     private static final GeometryFactory FACTORY = new GeometryFactory();
     private static final double DELTA = 1e-3;
+    /** Maximum number of triangles visited from the triangle hint before querying the R-Tree */
+    private static final int MAX_TRIANGLE_WALK_STEPS = 64;
 
     /** If true, no more data can be add. */
     private boolean isFeedingFinished = false;
@@ -78,6 +82,13 @@ public class ProfileBuilder {
     /** RTree with Buildings's walls linestrings, walls linestring, GroundEffect linestrings
      * The object is an integer. It's an index of the array {@link #processedWalls} */
     public STRtree rtree;
+    /** Uniform grid with the same content as {@link #rtree}, used for the segment queries of the profiles */
+    private WallGridIndex wallGridIndex;
+    /** If false the profiles query the {@link #rtree} for each part of maxLineLength of the profile segment */
+    private boolean useWallGridIndex = true;
+    /** Wall query buffer of each thread */
+    private final ThreadLocal<WallGridIndex.QueryBuffer> wallQueryBuffers =
+            ThreadLocal.withInitial(WallGridIndex.QueryBuffer::new);
     private STRtree groundEffectsRtree = new STRtree(TREE_NODE_CAPACITY);
 
 
@@ -85,14 +96,19 @@ public class ProfileBuilder {
     private final List<Coordinate> topoPoints = new ArrayList<>();
     /** List of topographic lines. */
     private final List<LineString> topoLines = new ArrayList<>();
-    /** Topographic triangle facets. */
-    private List<Triangle> topoTriangles = new ArrayList<>();
-    /** Topographic triangle neighbors. */
-    private List<Triangle> topoNeighbors = new ArrayList<>();
-    /** Topographic Vertices .*/
-    private List<Coordinate> vertices = new ArrayList<>();
+    /** Topographic triangles and vertices packed in arrays, null if there is no triangulated topography. */
+    private TriangleMesh topoMesh;
     /** Topographic RTree. */
     private STRtree topoTree;
+    /** Vertical tolerance in meters of the topographic points simplification, 0 to keep all points. */
+    private double topographicTolerance = 0;
+    /** Number of topographic points removed by the simplification. */
+    private int removedTopographicPointCount = 0;
+    /** Regular elevation grid, used in place of the topographic triangles if set. */
+    private ElevationGrid elevationGrid;
+    /** Profile buffer of each thread used by {@link #addTopoCutPts(Coordinate, Coordinate, CutProfile, boolean)} */
+    private final ThreadLocal<TopographicProfileBuffer> topographicProfileBuffers =
+            ThreadLocal.withInitial(TopographicProfileBuffer::new);
 
     /** List of ground effects. */
     private final List<GroundAbsorption> groundAbsorptions = new ArrayList<>();
@@ -129,6 +145,13 @@ public class ProfileBuilder {
         return this;
     }
 
+    /**
+     * @return if true take into account z value on Buildings Polygons
+     */
+    public boolean iszBuildings() {
+        return zBuildings;
+    }
+
 
     /**
      * Main empty constructor.
@@ -651,21 +674,116 @@ public class ProfileBuilder {
     }
 
     /**
-     * Retrieve the topographic triangles.
+     * Retrieve the topographic triangles. The list is built from the packed mesh on each call.
      * @return The topographic triangles.
      */
     public List<Triangle> getTriangles() {
-        return topoTriangles;
+        int triangleCount = topoMesh == null ? 0 : topoMesh.getTriangleCount();
+        List<Triangle> triangles = new ArrayList<>(triangleCount);
+        for (int i = 0; i < triangleCount; i++) {
+            triangles.add(new Triangle(topoMesh.getVertex(i, 0), topoMesh.getVertex(i, 1),
+                    topoMesh.getVertex(i, 2)));
+        }
+        return triangles;
     }
 
     /**
-     * Retrieve the topographic vertices.
+     * Retrieve the topographic triangles neighbors. The list is built from the packed mesh on each call.
+     * @return The neighbors triangle index of each topographic triangle.
+     */
+    public List<Triangle> getTriangleNeighbors() {
+        int triangleCount = topoMesh == null ? 0 : topoMesh.getTriangleCount();
+        List<Triangle> neighbors = new ArrayList<>(triangleCount);
+        for (int i = 0; i < triangleCount; i++) {
+            neighbors.add(new Triangle(topoMesh.getNeighbor(i, 0), topoMesh.getNeighbor(i, 1),
+                    topoMesh.getNeighbor(i, 2)));
+        }
+        return neighbors;
+    }
+
+    /**
+     * Retrieve the topographic vertices. The list is built from the packed mesh on each call.
      * @return The topographic vertices.
      */
     public List<Coordinate> getVertices() {
+        int vertexCount = topoMesh == null ? 0 : topoMesh.getVertexCount();
+        List<Coordinate> vertices = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            vertices.add(new Coordinate(topoMesh.getX(i), topoMesh.getY(i), topoMesh.getZ(i)));
+        }
         return vertices;
     }
 
+    /**
+     * Use a regular grid as digital elevation model. The grid is used in place of the triangulation of the
+     * topographic points and lines, the grid is not triangulated and the terrain profiles are computed by walking
+     * through the grid cells. If a grid is set the topographic points and lines are ignored.
+     * @param elevationGrid Elevation grid, can be shared with other profile builders
+     * @return this
+     */
+    public ProfileBuilder setElevationGrid(ElevationGrid elevationGrid) {
+        if(!isFeedingFinished) {
+            this.elevationGrid = elevationGrid;
+        } else {
+            LOGGER.warn("Cannot set the elevation grid, feeding is finished.");
+        }
+        return this;
+    }
+
+    /**
+     * Simplify the topographic points before the triangulation. The points that are within the tolerance of the
+     * triangulation of the other points are removed, this reduces the number of triangles on flat areas.
+     * @see TinDecimation
+     * @param topographicTolerance Maximum vertical error in meters, 0 to keep all the topographic points
+     * @return this
+     */
+    public ProfileBuilder setTopographicTolerance(double topographicTolerance) {
+        this.topographicTolerance = topographicTolerance;
+        return this;
+    }
+
+    /**
+     * @return Maximum vertical error in meters of the topographic points simplification, 0 if disabled
+     */
+    public double getTopographicTolerance() {
+        return topographicTolerance;
+    }
+
+    /**
+     * @return Number of topographic points removed by the simplification in {@link #finishFeeding()}
+     */
+    public int getRemovedTopographicPointCount() {
+        return removedTopographicPointCount;
+    }
+
+    /**
+     * @param useWallGridIndex If true (default) the walls and ground effect borders crossing a profile are fetched
+     *                         with a {@link WallGridIndex}, else the RTree is queried for each part of the profile
+     * @return this
+     */
+    public ProfileBuilder setUseWallGridIndex(boolean useWallGridIndex) {
+        if(!isFeedingFinished) {
+            this.useWallGridIndex = useWallGridIndex;
+        } else {
+            LOGGER.warn("Cannot change the wall index after the finish of the feeding");
+        }
+        return this;
+    }
+
+    /**
+     * @return True if the walls and ground effect borders crossing a profile are fetched with a {@link WallGridIndex}
+     */
+    public boolean isUseWallGridIndex() {
+        return useWallGridIndex;
+    }
+
+    /**
+     * @return Regular grid digital elevation model or null if the topographic triangles are used
+     */
+    public ElevationGrid getElevationGrid() {
+        return elevationGrid;
+    }
+
     /**
      * Retrieve the receivers list.
      * @return The receivers list.
@@ -694,12 +812,24 @@ public class ProfileBuilder {
         isFeedingFinished = true;
 
         //Process topographic points and lines
-        if(topoPoints.size()+topoLines.size() > 1) {
+        if(elevationGrid != null) {
+            if(!topoPoints.isEmpty() || !topoLines.isEmpty()) {
+                LOGGER.warn("The topographic points and lines are ignored, the elevation grid is used");
+            }
+        } else if(topoPoints.size()+topoLines.size() > 1) {
             //Feed the Delaunay layer
             LayerDelaunay layerDelaunay = new LayerTinfour();
             layerDelaunay.setRetrieveNeighbors(true);
+            List<Coordinate> meshPoints = topoPoints;
+            if(topographicTolerance > 0) {
+                meshPoints = TinDecimation.decimate(topoPoints, topoLines, topographicTolerance);
+                removedTopographicPointCount = topoPoints.size() - meshPoints.size();
+                LOGGER.info(String.format(Locale.ROOT, "DEM simplification with a tolerance of %.2f m: %d points " +
+                        "kept, %d points removed", topographicTolerance, meshPoints.size(),
+                        removedTopographicPointCount));
+            }
             try {
-                for (Coordinate topoPoint : topoPoints) {
+                for (Coordinate topoPoint : meshPoints) {
                     layerDelaunay.addVertex(topoPoint);
                 }
             } catch (LayerDelaunayError e) {
@@ -722,39 +852,71 @@ public class ProfileBuilder {
                 LOGGER.error("Error while processing Delaunay.", e);
                 return null;
             }
+            List<Triangle> triangles;
+            List<Triangle> neighbors;
             try {
-                topoTriangles = layerDelaunay.getTriangles();
-                topoNeighbors = layerDelaunay.getNeighbors();
+                triangles = layerDelaunay.getTriangles();
+                neighbors = layerDelaunay.getNeighbors();
             } catch (LayerDelaunayError e) {
                 LOGGER.error("Error while getting triangles", e);
                 return null;
             }
-            //Feed the RTree
-            topoTree = new STRtree(topoNodeCapacity);
+            List<Coordinate> vertices;
             try {
                 vertices = layerDelaunay.getVertices();
             } catch (LayerDelaunayError e) {
                 LOGGER.error("Error while getting vertices", e);
                 return null;
             }
-            // wallIndex set will merge shared triangle segments
-            Set<IntegerTuple> wallIndex = new HashSet<>();
-            for (int i = 0; i < topoTriangles.size(); i++) {
-                final Triangle tri = topoTriangles.get(i);
-                wallIndex.add(new IntegerTuple(tri.getA(), tri.getB(), i));
-                wallIndex.add(new IntegerTuple(tri.getB(), tri.getC(), i));
-                wallIndex.add(new IntegerTuple(tri.getC(), tri.getA(), i));
-                // Insert triangle in rtree
-                Coordinate vA = vertices.get(tri.getA());
-                Coordinate vB = vertices.get(tri.getB());
-                Coordinate vC = vertices.get(tri.getC());
-                Envelope env = FACTORY.createLineString(new Coordinate[]{vA, vB, vC}).getEnvelopeInternal();
-                topoTree.insert(env, i);
-            }
-            topoTree.build();
+            indexTopography(vertices, triangles, neighbors);
+        }
+        updateObstaclesZ();
+        indexObstacles();
+        return this;
+    }
+
+    /**
+     * Finish the data feeding using an already processed digital elevation model mesh. The buildings and walls
+     * must have been added with their final Z values.
+     * @see ProfileBuilderSnapshot
+     * @param meshEnvelope Global envelope of the builder
+     * @param vertices Topographic vertices
+     * @param triangles Topographic triangle facets
+     * @param neighbors Topographic triangle neighbors
+     * @return this
+     */
+    ProfileBuilder finishFeeding(Envelope meshEnvelope, List<Coordinate> vertices, List<Triangle> triangles,
+                                 List<Triangle> neighbors) {
+        isFeedingFinished = true;
+        this.envelope = meshEnvelope;
+        if(!triangles.isEmpty()) {
+            indexTopography(vertices, triangles, neighbors);
         }
-        //Update building z
-        if(topoTree != null) {
+        indexObstacles();
+        return this;
+    }
+
+    /**
+     * Pack the topographic triangles into the mesh and insert them into the RTree
+     * @param vertices Topographic vertices
+     * @param triangles Topographic triangle facets
+     * @param neighbors Topographic triangle neighbors
+     */
+    private void indexTopography(List<Coordinate> vertices, List<Triangle> triangles, List<Triangle> neighbors) {
+        topoMesh = new TriangleMesh(vertices, triangles, neighbors);
+        topoTree = new STRtree(topoNodeCapacity);
+        for (int i = 0; i < topoMesh.getTriangleCount(); i++) {
+            // Insert triangle in rtree
+            topoTree.insert(topoMesh.getEnvelope(i), i);
+        }
+        topoTree.build();
+    }
+
+    /**
+     * Update the Z value of the buildings and walls according to the digital elevation model
+     */
+    private void updateObstaclesZ() {
+        if(topoTree != null || elevationGrid != null) {
             for (Building b : buildings) {
                 if(isNaN(b.poly.getCoordinate().z) || b.poly.getCoordinate().z == 0.0 || !zBuildings) {
                     b.poly2D_3D();
@@ -788,6 +950,12 @@ public class ProfileBuilder {
                 }
             }
         }
+    }
+
+    /**
+     * Build the walls and ground effects RTree, and the wide angle points of buildings
+     */
+    private void indexObstacles() {
         //Process buildings
         rtree = new STRtree(buildingNodeCapacity);
         buildingsWideAnglePoints.clear();
@@ -849,7 +1017,7 @@ public class ProfileBuilder {
         }
         rtree.build();
         groundEffectsRtree.build();
-        return this;
+        wallGridIndex = useWallGridIndex ? new WallGridIndex(processedWalls) : null;
     }
 
 
@@ -956,7 +1124,7 @@ public class ProfileBuilder {
         }
 
         //Fetch topography evolution between sourceCoordinate and receiverCoordinate
-        if(topoTree != null) {
+        if(topoTree != null || elevationGrid != null) {
             addTopoCutPts(sourceCoordinate, receiverCoordinate, profile, stopAtObstacleOverSourceReceiver);
             if(stopAtObstacleOverSourceReceiver && profile.hasTopographyIntersection) {
                 return profile;
@@ -1146,56 +1314,45 @@ public class ProfileBuilder {
      *                                        receiverCoordinate, stop computing and set #CutProfile.hasBuildingInter to buildings in profile data
      */
     private void addGroundBuildingCutPts(LineSegment fullLine, CutProfile profile, boolean stopAtObstacleOverSourceReceiver) {
-        // Collect all objects where envelope intersects all sub-segments of fullLine
-        Set<Integer> processed = new HashSet<>();
-
-        // Segmented fullLine, this is the query for rTree indexes
-        // Split line into segments for structures based on RTree in order to limit the number of queries
-        // (for large area of the line segment envelope)
-        List<LineSegment> lines = splitSegment(fullLine.p0, fullLine.p1, maxLineLength);
+        // The walls are visited from p0 so the first obstacle is found early, the cut points are sorted by distance
+        // when inserted in the profile
+        WallGridIndex.QueryBuffer candidates = fetchWallCandidates(fullLine.p0, fullLine.p1);
         List<CutPoint> newCutPoints = new LinkedList<>();
         try {
-            for (int j = 0; j < lines.size()
+            for (int j = 0; j < candidates.size()
                     && !(profile.hasBuildingIntersection && stopAtObstacleOverSourceReceiver); j++) {
-                LineSegment line = lines.get(j);
-                for (Object result : rtree.query(new Envelope(line.p0, line.p1))) {
-                    if (!(result instanceof Integer) || processed.contains((Integer) result)) {
-                        continue;
+                int i = candidates.get(j);
+                Wall facetLine = processedWalls.get(i);
+                Coordinate intersection = fullLine.intersection(facetLine.ls);
+                if (intersection != null) {
+                    intersection = new Coordinate(intersection);
+                    if (!isNaN(facetLine.p0.z) && !isNaN(facetLine.p1.z)) {
+                        // same z in the line, so useless to compute interpolation between points
+                        if (Double.compare(facetLine.p0.z, facetLine.p1.z) == 0) {
+                            intersection.z = facetLine.p0.z;
+                        } else {
+                            intersection.z = Vertex.interpolateZ(intersection, facetLine.p0, facetLine.p1);
+                        }
                     }
-                    processed.add((Integer) result);
-                    int i = (Integer) result;
-                    Wall facetLine = processedWalls.get(i);
-                    Coordinate intersection = fullLine.intersection(facetLine.ls);
-                    if (intersection != null) {
-                        intersection = new Coordinate(intersection);
-                        if (!isNaN(facetLine.p0.z) && !isNaN(facetLine.p1.z)) {
-                            // same z in the line, so useless to compute interpolation between points
-                            if (Double.compare(facetLine.p0.z, facetLine.p1.z) == 0) {
-                                intersection.z = facetLine.p0.z;
-                            } else {
-                                intersection.z = Vertex.interpolateZ(intersection, facetLine.p0, facetLine.p1);
+                    switch (facetLine.type) {
+                        case BUILDING:
+                            if (!processBuilding(i, intersection, facetLine, fullLine, newCutPoints,
+                                    stopAtObstacleOverSourceReceiver, profile)) {
+                                return;
                             }
-                        }
-                        switch (facetLine.type) {
-                            case BUILDING:
-                                if (!processBuilding(i, intersection, facetLine, fullLine, newCutPoints,
-                                        stopAtObstacleOverSourceReceiver, profile)) {
-                                    return;
-                                }
-                                break;
-                            case WALL:
-                                if (!processWall(i, intersection, facetLine, fullLine, newCutPoints,
-                                        stopAtObstacleOverSourceReceiver, profile)) {
-                                    return;
-                                }
-                                break;
-                            case GROUND_EFFECT:
-                                if (!processGroundEffect(i, intersection, facetLine, fullLine, newCutPoints,
-                                        stopAtObstacleOverSourceReceiver, profile)) {
-                                    return;
-                                }
-                                break;
-                        }
+                            break;
+                        case WALL:
+                            if (!processWall(i, intersection, facetLine, fullLine, newCutPoints,
+                                    stopAtObstacleOverSourceReceiver, profile)) {
+                                return;
+                            }
+                            break;
+                        case GROUND_EFFECT:
+                            if (!processGroundEffect(i, intersection, facetLine, fullLine, newCutPoints,
+                                    stopAtObstacleOverSourceReceiver, profile)) {
+                                return;
+                            }
+                            break;
                     }
                 }
             }
@@ -1204,93 +1361,192 @@ public class ProfileBuilder {
         }
     }
 
+    /**
+     * Collect all objects where envelope intersects the segment p0 p1, each object is returned once
+     * @return Indices of {@link #processedWalls}, the buffer is owned by the current thread
+     */
+    private WallGridIndex.QueryBuffer fetchWallCandidates(Coordinate p0, Coordinate p1) {
+        WallGridIndex.QueryBuffer candidates = wallQueryBuffers.get();
+        if(wallGridIndex != null) {
+            wallGridIndex.query(p0, p1, candidates);
+        } else {
+            // Segmented fullLine, this is the query for rTree indexes
+            // Split line into segments for structures based on RTree in order to limit the number of queries
+            // (for large area of the line segment envelope)
+            candidates.newQuery(processedWalls.size());
+            for (LineSegment line : splitSegment(p0, p1, maxLineLength)) {
+                for (Object result : rtree.query(new Envelope(line.p0, line.p1))) {
+                    if (result instanceof Integer) {
+                        candidates.add((Integer) result);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Test if the segment between two points is not blocked by the buildings, the walls or the ground. The result
+     * is the same as {@link CutProfile#isFreeField()} of {@link #getProfile(Coordinate, Coordinate, double, boolean)}
+     * with stopAtObstacleOverSourceReceiver, but the cut profile is not built: the ground absorption is not fetched,
+     * no cut point is created and the test stops on the first obstacle. The walls are tested before the ground.
+     * @param p0 First point
+     * @param p1 Second point
+     * @return True if nothing is higher than the segment p0 p1
+     */
+    public boolean isVisible(Coordinate p0, Coordinate p1) {
+        TopographicProfileBuffer topographicProfile = topographicProfileBuffers.get();
+        if(rtree != null) {
+            WallGridIndex.QueryBuffer candidates = fetchWallCandidates(p0, p1);
+            RobustLineIntersector lineIntersector = topographicProfile.lineIntersector;
+            for (int j = 0; j < candidates.size(); j++) {
+                Wall facetLine = processedWalls.get(candidates.get(j));
+                if(facetLine.type == GROUND_EFFECT) {
+                    continue;
+                }
+                lineIntersector.computeIntersection(p0, p1, facetLine.ls.p0, facetLine.ls.p1);
+                if(!lineIntersector.hasIntersection()) {
+                    continue;
+                }
+                // Same altitude of the wall as in addGroundBuildingCutPts
+                Coordinate intersection = lineIntersector.getIntersection(0);
+                double zWall = intersection.z;
+                if (!isNaN(facetLine.p0.z) && !isNaN(facetLine.p1.z)) {
+                    if (Double.compare(facetLine.p0.z, facetLine.p1.z) == 0) {
+                        zWall = facetLine.p0.z;
+                    } else {
+                        zWall = Vertex.interpolateZ(intersection, facetLine.p0, facetLine.p1);
+                    }
+                }
+                if(Vertex.interpolateZ(intersection, p0, p1) <= zWall) {
+                    return false;
+                }
+            }
+        }
+        return fetchTopographicProfile(topographicProfile, p0, p1, true);
+    }
+
     Coordinate[] getTriangleVertices(int triIndex) {
-        final Triangle tri = topoTriangles.get(triIndex);
-        return new Coordinate[] {this.vertices.get(tri.getA()), this.vertices.get(tri.getB()), this.vertices.get(tri.getC())};
+        return getTriangle(triIndex);
+    }
+
+    /**
+     * @param triIndex Index of triangle
+     * @param corner 0, 1 or 2 for the vertex a, b or c
+     * @return New coordinate of the triangle vertex
+     */
+    private Coordinate getTriangleVertex(int triIndex, int corner) {
+        Coordinate vertex = new Coordinate();
+        topoMesh.copyVertex(triIndex, corner, vertex);
+        return vertex;
     }
     /**
      * Compute the next triangle index.Find the shortest intersection point of
      * triIndex segments to the p1 coordinate
      *
      * @param triIndex        Triangle index
-     * @param propagationLine Propagation line
+     * @param profile         Walk working objects, the propagation line and the visited triangles. The intersection
+     *                        point is written into {@link TopographicProfileBuffer#nearestIntersection}
      * @return Next triangle to the specified direction, -1 if there is no
      * triangle neighbor.
      */
-    private int getNextTri(final int triIndex,
-                           final LineSegment propagationLine,
-                           HashSet<Integer> navigationHistory, final Coordinate segmentIntersection) {
-        final Triangle tri = topoTriangles.get(triIndex);
-        final Triangle triNeighbors = topoNeighbors.get(triIndex);
+    private int getNextTri(final int triIndex, TopographicProfileBuffer profile) {
         int nearestIntersectionSide = -1;
         int idNeighbor;
 
         double nearestIntersectionPtDist = Double.MAX_VALUE;
         // Find intersection pt
-        final Coordinate aTri = this.vertices.get(tri.getA());
-        final Coordinate bTri = this.vertices.get(tri.getB());
-        final Coordinate cTri = this.vertices.get(tri.getC());
+        final Coordinate aTri = profile.triangleA;
+        final Coordinate bTri = profile.triangleB;
+        final Coordinate cTri = profile.triangleC;
+        topoMesh.copyVertex(triIndex, 0, aTri);
+        topoMesh.copyVertex(triIndex, 1, bTri);
+        topoMesh.copyVertex(triIndex, 2, cTri);
         double distline_line;
         // Intersection First Side
-        idNeighbor = triNeighbors.get(2);
-        if (!navigationHistory.contains(idNeighbor)) {
-            LineSegment triSegment = new LineSegment(aTri, bTri);
-            Coordinate[] closestPoints = propagationLine.closestPoints(triSegment);
-            Coordinate intersectionTest = null;
-            if(closestPoints.length == 2 && closestPoints[0].distance(closestPoints[1]) < JTSUtility.TRIANGLE_INTERSECTION_EPSILON) {
-                intersectionTest = new Coordinate(closestPoints[0].x, closestPoints[0].y, Vertex.interpolateZ(closestPoints[0], triSegment.p0, triSegment.p1));
-            }
-            if(intersectionTest != null) {
-                distline_line = propagationLine.p1.distance(intersectionTest);
-                if (distline_line < nearestIntersectionPtDist) {
-                    segmentIntersection.setCoordinate(intersectionTest);
-                    nearestIntersectionPtDist = distline_line;
-                    nearestIntersectionSide = 2;
-                }
+        idNeighbor = topoMesh.getNeighbor(triIndex, 2);
+        if (!profile.isVisited(idNeighbor) && computeSideIntersection(profile, aTri, bTri)) {
+            distline_line = profile.propagationLine.p1.distance(profile.sideIntersection);
+            if (distline_line < nearestIntersectionPtDist) {
+                profile.nearestIntersection.setCoordinate(profile.sideIntersection);
+                nearestIntersectionPtDist = distline_line;
+                nearestIntersectionSide = 2;
             }
         }
         // Intersection Second Side
-        idNeighbor = triNeighbors.get(0);
-        if (!navigationHistory.contains(idNeighbor)) {
-            LineSegment triSegment = new LineSegment(bTri, cTri);
-            Coordinate[] closestPoints = propagationLine.closestPoints(triSegment);
-            Coordinate intersectionTest = null;
-            if(closestPoints.length == 2 && closestPoints[0].distance(closestPoints[1]) < JTSUtility.TRIANGLE_INTERSECTION_EPSILON) {
-                intersectionTest = new Coordinate(closestPoints[0].x, closestPoints[0].y, Vertex.interpolateZ(closestPoints[0], triSegment.p0, triSegment.p1));
-            }
-            if(intersectionTest != null) {
-                distline_line = propagationLine.p1.distance(intersectionTest);
-                if (distline_line < nearestIntersectionPtDist) {
-                    segmentIntersection.setCoordinate(intersectionTest);
-                    nearestIntersectionPtDist = distline_line;
-                    nearestIntersectionSide = 0;
-                }
+        idNeighbor = topoMesh.getNeighbor(triIndex, 0);
+        if (!profile.isVisited(idNeighbor) && computeSideIntersection(profile, bTri, cTri)) {
+            distline_line = profile.propagationLine.p1.distance(profile.sideIntersection);
+            if (distline_line < nearestIntersectionPtDist) {
+                profile.nearestIntersection.setCoordinate(profile.sideIntersection);
+                nearestIntersectionPtDist = distline_line;
+                nearestIntersectionSide = 0;
             }
         }
         // Intersection Third Side
-        idNeighbor = triNeighbors.get(1);
-        if (!navigationHistory.contains(idNeighbor)) {
-            LineSegment triSegment = new LineSegment(cTri, aTri);
-            Coordinate[] closestPoints = propagationLine.closestPoints(triSegment);
-            Coordinate intersectionTest = null;
-            if(closestPoints.length == 2 && closestPoints[0].distance(closestPoints[1]) < JTSUtility.TRIANGLE_INTERSECTION_EPSILON) {
-                intersectionTest = new Coordinate(closestPoints[0].x, closestPoints[0].y, Vertex.interpolateZ(closestPoints[0], triSegment.p0, triSegment.p1));
-            }
-            if(intersectionTest != null) {
-                distline_line = propagationLine.p1.distance(intersectionTest);
-                if (distline_line < nearestIntersectionPtDist) {
-                    segmentIntersection.setCoordinate(intersectionTest);
-                    nearestIntersectionSide = 1;
-                }
+        idNeighbor = topoMesh.getNeighbor(triIndex, 1);
+        if (!profile.isVisited(idNeighbor) && computeSideIntersection(profile, cTri, aTri)) {
+            distline_line = profile.propagationLine.p1.distance(profile.sideIntersection);
+            if (distline_line < nearestIntersectionPtDist) {
+                profile.nearestIntersection.setCoordinate(profile.sideIntersection);
+                nearestIntersectionSide = 1;
             }
         }
         if(nearestIntersectionSide > -1) {
-            return triNeighbors.get(nearestIntersectionSide);
+            return topoMesh.getNeighbor(triIndex, nearestIntersectionSide);
         } else {
             return -1;
         }
     }
 
+    /**
+     * Compute the intersection of the propagation line with a triangle side. Same result as
+     * {@link LineSegment#closestPoints(LineSegment)} with a distance lower than
+     * {@link JTSUtility#TRIANGLE_INTERSECTION_EPSILON} but without allocation for the common cases.
+     * @param profile Walk working objects, the intersection is written into
+     * {@link TopographicProfileBuffer#sideIntersection}
+     * @param p0 Side first vertex
+     * @param p1 Side second vertex
+     * @return True if the propagation line intersects the side
+     */
+    private static boolean computeSideIntersection(TopographicProfileBuffer profile, Coordinate p0, Coordinate p1) {
+        final LineSegment propagationLine = profile.propagationLine;
+        final LineSegment triSegment = profile.triangleSide;
+        triSegment.p0 = p0;
+        triSegment.p1 = p1;
+        // Fast rejection, the side is far from the propagation line and on the same side of it
+        double dx = propagationLine.p1.x - propagationLine.p0.x;
+        double dy = propagationLine.p1.y - propagationLine.p0.y;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        if(length > 0) {
+            double d0 = (dx * (p0.y - propagationLine.p0.y) - dy * (p0.x - propagationLine.p0.x)) / length;
+            double d1 = (dx * (p1.y - propagationLine.p0.y) - dy * (p1.x - propagationLine.p0.x)) / length;
+            final double margin = JTSUtility.TRIANGLE_INTERSECTION_EPSILON * 10;
+            if((d0 > margin && d1 > margin) || (d0 < -margin && d1 < -margin)) {
+                return false;
+            }
+        }
+        // Same computation as LineSegment#intersection without the allocation of the line intersector
+        LineIntersector lineIntersector = profile.lineIntersector;
+        lineIntersector.computeIntersection(propagationLine.p0, propagationLine.p1, triSegment.p0, triSegment.p1);
+        Coordinate closestPoint;
+        if(lineIntersector.hasIntersection()) {
+            closestPoint = lineIntersector.getIntersection(0);
+        } else {
+            Coordinate[] closestPoints = propagationLine.closestPoints(triSegment);
+            if(closestPoints.length == 2 &&
+                    closestPoints[0].distance(closestPoints[1]) < JTSUtility.TRIANGLE_INTERSECTION_EPSILON) {
+                closestPoint = closestPoints[0];
+            } else {
+                return false;
+            }
+        }
+        profile.sideIntersection.x = closestPoint.x;
+        profile.sideIntersection.y = closestPoint.y;
+        profile.sideIntersection.z = Vertex.interpolateZ(closestPoint, triSegment.p0, triSegment.p1);
+        return true;
+    }
+
 
     /**
      * Get coordinates of triangle vertices
@@ -1298,9 +1554,8 @@ public class ProfileBuilder {
      * @return triangle vertices
      */
     Coordinate[] getTriangle(int triIndex) {
-        final Triangle tri = this.topoTriangles.get(triIndex);
-        return new Coordinate[]{this.vertices.get(tri.getA()),
-                this.vertices.get(tri.getB()), this.vertices.get(tri.getC())};
+        return new Coordinate[]{getTriangleVertex(triIndex, 0), getTriangleVertex(triIndex, 1),
+                getTriangleVertex(triIndex, 2)};
     }
 
 
@@ -1310,9 +1565,8 @@ public class ProfileBuilder {
      * @return triangle vertices
      */
     Coordinate[] getClosedTriangle(int triIndex) {
-        final Triangle tri = this.topoTriangles.get(triIndex);
-        return new Coordinate[]{this.vertices.get(tri.getA()), this.vertices.get(tri.getB()),
-                this.vertices.get(tri.getC()), this.vertices.get(tri.getA())};
+        Coordinate a = getTriangleVertex(triIndex, 0);
+        return new Coordinate[]{a, getTriangleVertex(triIndex, 1), getTriangleVertex(triIndex, 2), a};
     }
 
     /**
@@ -1325,16 +1579,16 @@ public class ProfileBuilder {
     public int getTriangleIdByCoordinate(Coordinate pt) {
         Envelope ptEnv = new Envelope(pt);
         ptEnv.expandBy(1);
-        var res = topoTree.query(new Envelope(ptEnv));
+        var res = topoTree.query(ptEnv);
         double minDistance = Double.MAX_VALUE;
         int minDistanceTriangle = -1;
+        double[] uv = new double[2];
         for(Object objInd : res) {
             int triId = (Integer) objInd;
-            Coordinate[] tri = getTriangle(triId);
-            AtomicReference<Double> err = new AtomicReference<>(0.);
-            JTSUtility.dotInTri(pt, tri[0], tri[1], tri[2], err);
-            if (err.get() < minDistance) {
-                minDistance = err.get();
+            topoMesh.barycentric(triId, pt.x, pt.y, uv);
+            double err = JTSUtility.dotInTriError(uv[0], uv[1]);
+            if (err < minDistance) {
+                minDistance = err;
                 minDistanceTriangle = triId;
             }
         }
@@ -1348,11 +1602,11 @@ public class ProfileBuilder {
      * @param profile
      */
     public void addTopoCutPts(Coordinate p1, Coordinate p2, CutProfile profile, boolean stopAtObstacleOverSourceReceiver) {
-        List<Coordinate> coordinates = new ArrayList<>();
+        TopographicProfileBuffer coordinates = topographicProfileBuffers.get();
         boolean freeField = fetchTopographicProfile(coordinates, p1, p2, stopAtObstacleOverSourceReceiver);
         if(coordinates.size() >= 2) {
-            profile.getSource().zGround = coordinates.get(0).z;
-            profile.getReceiver().zGround = coordinates.get(coordinates.size() - 1).z;
+            profile.getSource().zGround = coordinates.getZ(0);
+            profile.getReceiver().zGround = coordinates.getZ(coordinates.size() - 1);
         } else {
             LOGGER.warn(String.format(Locale.ROOT, "Propagation out of the DEM area from %s to %s",
                     p1.toString(), p2.toString()));
@@ -1361,14 +1615,22 @@ public class ProfileBuilder {
         profile.hasTopographyIntersection = !freeField;
 
         List<CutPointTopography> topographyList = new ArrayList<>(coordinates.size());
+        Coordinate previous = new Coordinate();
+        Coordinate current = new Coordinate();
+        Coordinate next = new Coordinate();
+        coordinates.copyCoordinate(0, current);
+        coordinates.copyCoordinate(1, next);
         for(int idPoint = 1; idPoint < coordinates.size() - 1; idPoint++) {
-            final Coordinate previous = coordinates.get(idPoint - 1);
-            final Coordinate current = coordinates.get(idPoint);
-            final Coordinate next = coordinates.get(idPoint+1);
+            // shift the points
+            Coordinate swap = previous;
+            previous = current;
+            current = next;
+            next = swap;
+            coordinates.copyCoordinate(idPoint + 1, next);
             // Do not add topographic points which are simply the linear interpolation between two points
             // triangulation add a lot of interpolated lines from line segment DEM
             if(CGAlgorithms3D.distancePointSegment(current, previous, next) >= DELTA) {
-                topographyList.add(new CutPointTopography(current));
+                topographyList.add(new CutPointTopography(new Coordinate(current)));
             }
         }
         profile.insertCutPoint(true, topographyList.toArray(CutPoint[]::new));
@@ -1429,12 +1691,35 @@ public class ProfileBuilder {
      * @return True if the segment p1-p2 is not intersecting with DEM
      */
     public boolean fetchTopographicProfile(List<Coordinate> outputPoints,Coordinate p1, Coordinate p2, boolean stopAtObstacleOverSourceReceiver) {
+        TopographicProfileBuffer profile = topographicProfileBuffers.get();
+        boolean freeField = fetchTopographicProfile(profile, p1, p2, stopAtObstacleOverSourceReceiver);
+        profile.toCoordinates(outputPoints);
+        return freeField;
+    }
+
+    /**
+     * Fetch all intersections with TIN. For simplification only plane change are pushed.
+     * The walk through the triangles does not allocate objects, the points are written into the profile buffer.
+     * @param profile Output points, the buffer is cleared before the walk
+     * @param p1 first point
+     * @param p2 second point
+     * @param stopAtObstacleOverSourceReceiver Stop fetching intersections if the segment p1-p2 is intersecting with TIN
+     * @return True if the segment p1-p2 is not intersecting with DEM
+     */
+    public boolean fetchTopographicProfile(TopographicProfileBuffer profile, Coordinate p1, Coordinate p2,
+                                           boolean stopAtObstacleOverSourceReceiver) {
+        if(elevationGrid != null) {
+            return elevationGrid.fetchProfile(profile, p1, p2, stopAtObstacleOverSourceReceiver);
+        }
+        profile.clear();
         if(topoTree == null) {
             return true;
         }
         //get origin triangle id
         int curTriP1 = getTriangleIdByCoordinate(p1);
-        LineSegment propaLine = new LineSegment(p1, p2);
+        LineSegment propaLine = profile.propagationLine;
+        propaLine.p0 = p1;
+        propaLine.p1 = p2;
         if(curTriP1 == -1) {
             // we are outside the bounds of the triangles
             // Find the closest triangle to p1 on the line p1 to p2
@@ -1442,34 +1727,53 @@ public class ProfileBuilder {
             AtomicInteger minDistanceTriangle = new AtomicInteger();
             if(findClosestTriangleIntersection(propaLine, intersectionPt, minDistanceTriangle)) {
                 Coordinate[] triangleVertex = getTriangleVertices(minDistanceTriangle.get());
-                outputPoints.add(new Coordinate(p1.x, p1.y,
-                        Vertex.interpolateZ(p2, triangleVertex[0], triangleVertex[1], triangleVertex[2])));
+                profile.add(p1.x, p1.y,
+                        Vertex.interpolateZ(p2, triangleVertex[0], triangleVertex[1], triangleVertex[2]));
                 curTriP1 = minDistanceTriangle.get();
             } else {
                 // out of DEM propagation area
                 return true;
             }
         }
-        HashSet<Integer> navigationHistory = new HashSet<Integer>();
+        profile.newWalk(topoMesh.getTriangleCount());
         int navigationTri = curTriP1;
         // Add p1 coordinate
-        Coordinate[] triangleVertex = getTriangleVertices(curTriP1);
-        outputPoints.add(new Coordinate(p1.x, p1.y, Vertex.interpolateZ(p1, triangleVertex[0], triangleVertex[1], triangleVertex[2])));
+        topoMesh.copyVertex(curTriP1, 0, profile.triangleA);
+        topoMesh.copyVertex(curTriP1, 1, profile.triangleB);
+        topoMesh.copyVertex(curTriP1, 2, profile.triangleC);
+        profile.add(p1.x, p1.y, Vertex.interpolateZ(p1, profile.triangleA, profile.triangleB, profile.triangleC));
         boolean freeField = true;
+        final Coordinate intersectionPt = profile.nearestIntersection;
         while (navigationTri != -1) {
-            navigationHistory.add(navigationTri);
-            Coordinate intersectionPt = new Coordinate();
-            int propaTri = this.getNextTri(navigationTri, propaLine, navigationHistory, intersectionPt);
+            profile.setVisited(navigationTri);
+            intersectionPt.x = 0;
+            intersectionPt.y = 0;
+            intersectionPt.z = NaN;
+            int propaTri = this.getNextTri(navigationTri, profile);
             if(propaTri == -1) {
                 // Add p2 coordinate
-                triangleVertex = getTriangleVertices(navigationTri);
-                outputPoints.add(new Coordinate(p2.x, p2.y, Vertex.interpolateZ(p2, triangleVertex[0], triangleVertex[1], triangleVertex[2])));
+                topoMesh.copyVertex(navigationTri, 0, profile.triangleA);
+                topoMesh.copyVertex(navigationTri, 1, profile.triangleB);
+                topoMesh.copyVertex(navigationTri, 2, profile.triangleC);
+                profile.add(p2.x, p2.y, Vertex.interpolateZ(p2, profile.triangleA, profile.triangleB,
+                        profile.triangleC));
             } else {
                 // Found next triangle (if propaTri >= 0)
                 // extract X,Y,Z values of intersection with triangle segment
                 if(!Double.isNaN(intersectionPt.z)) {
-                    outputPoints.add(intersectionPt);
-                    Coordinate closestPointOnPropagationLine = propaLine.closestPoint(intersectionPt);
+                    profile.add(intersectionPt.x, intersectionPt.y, intersectionPt.z);
+                    // Same as propaLine.closestPoint(intersectionPt) without allocation
+                    Coordinate closestPointOnPropagationLine;
+                    double factor = propaLine.projectionFactor(intersectionPt);
+                    if(factor > 0 && factor < 1) {
+                        closestPointOnPropagationLine = profile.closestPoint;
+                        closestPointOnPropagationLine.x = propaLine.p0.x + factor * (propaLine.p1.x - propaLine.p0.x);
+                        closestPointOnPropagationLine.y = propaLine.p0.y + factor * (propaLine.p1.y - propaLine.p0.y);
+                    } else if(propaLine.p0.distance(intersectionPt) < propaLine.p1.distance(intersectionPt)) {
+                        closestPointOnPropagationLine = propaLine.p0;
+                    } else {
+                        closestPointOnPropagationLine = propaLine.p1;
+                    }
                     double interpolatedZ = Vertex.interpolateZ(closestPointOnPropagationLine, propaLine.p0, propaLine.p1);
                     if(interpolatedZ < intersectionPt.z) {
                         freeField = false;
@@ -1497,7 +1801,7 @@ public class ProfileBuilder {
      * @return True if digital elevation model has been added
      */
     public boolean hasDem() {
-        return topoTree != null && !topoTree.isEmpty();
+        return elevationGrid != null || (topoTree != null && !topoTree.isEmpty());
     }
 
     /**
@@ -1505,9 +1809,30 @@ public class ProfileBuilder {
      */
     public MultiPolygon demAsMultiPolygon() {
         GeometryFactory GF = new GeometryFactory();
-        if(!topoTriangles.isEmpty()) {
-            List<Polygon> polyTri = new ArrayList<>(topoTriangles.size());
-            for (int i = 0; i < topoTriangles.size(); i++) {
+        if(elevationGrid != null) {
+            // two triangles for each grid cell
+            int columnCount = elevationGrid.getColumnCount();
+            int rowCount = elevationGrid.getRowCount();
+            List<Polygon> polyTri = new ArrayList<>((columnCount - 1) * (rowCount - 1) * 2);
+            Coordinate[] nodes = new Coordinate[4];
+            for (int row = 0; row < rowCount - 1; row++) {
+                for (int column = 0; column < columnCount - 1; column++) {
+                    for (int corner = 0; corner < 4; corner++) {
+                        int nodeColumn = column + (corner == 1 || corner == 2 ? 1 : 0);
+                        int nodeRow = row + (corner >= 2 ? 1 : 0);
+                        nodes[corner] = new Coordinate(
+                                elevationGrid.getXOrigin() + nodeColumn * elevationGrid.getCellSize(),
+                                elevationGrid.getYOrigin() + nodeRow * elevationGrid.getCellSize(),
+                                elevationGrid.getHeight(nodeColumn, nodeRow));
+                    }
+                    polyTri.add(GF.createPolygon(new Coordinate[]{nodes[0], nodes[1], nodes[2], nodes[0]}));
+                    polyTri.add(GF.createPolygon(new Coordinate[]{nodes[0], nodes[2], nodes[3], nodes[0]}));
+                }
+            }
+            return GF.createMultiPolygon(polyTri.toArray(Polygon[]::new));
+        } else if(topoMesh != null) {
+            List<Polygon> polyTri = new ArrayList<>(topoMesh.getTriangleCount());
+            for (int i = 0; i < topoMesh.getTriangleCount(); i++) {
                 polyTri.add(GF.createPolygon(getClosedTriangle(i)));
             }
             return GF.createMultiPolygon(polyTri.toArray(Polygon[]::new));
@@ -1532,18 +1857,16 @@ public class ProfileBuilder {
      * @return Altitude in meters from sea level
      */
     public double getZGround(Coordinate coordinate, AtomicInteger triangleHint) {
+        if(elevationGrid != null) {
+            return elevationGrid.getZ(coordinate.x, coordinate.y);
+        }
         if(topoTree == null) {
             return 0.0;
         }
         int i = triangleHint.get();
-        if(i >= 0 && i < topoTriangles.size()) {
-            final Triangle tri = topoTriangles.get(i);
-            final Coordinate p1 = vertices.get(tri.getA());
-            final Coordinate p2 = vertices.get(tri.getB());
-            final Coordinate p3 = vertices.get(tri.getC());
-            if(!JTSUtility.dotInTri(coordinate, p1, p2, p3)) {
-                i = -1;
-            }
+        double[] uv = new double[2];
+        if(i >= 0 && i < topoMesh.getTriangleCount()) {
+            i = walkToTriangle(i, coordinate, uv);
         }
         if(i < 0) {
             i = getTriangleIdByCoordinate(coordinate);
@@ -1551,18 +1874,46 @@ public class ProfileBuilder {
                 return 0.0;
             }
         }
-        final Triangle tri = topoTriangles.get(i);
-        final Coordinate p1 = vertices.get(tri.getA());
-        final Coordinate p2 = vertices.get(tri.getB());
-        final Coordinate p3 = vertices.get(tri.getC());
-        if(JTSUtility.dotInTri(coordinate, p1, p2, p3)) {
+        topoMesh.barycentric(i, coordinate.x, coordinate.y, uv);
+        if(JTSUtility.dotInTri(uv[0], uv[1])) {
             triangleHint.set(i);
-            return Vertex.interpolateZ(coordinate, p1, p2, p3);
+            return Vertex.interpolateZ(coordinate, getTriangleVertex(i, 0), getTriangleVertex(i, 1),
+                    getTriangleVertex(i, 2));
         } else {
             return 0.0;
         }
     }
 
+    /**
+     * Walk the triangulation from the start triangle toward the location, crossing at each step the side of the most
+     * negative barycentric coordinate. The hint of the previous location is usually the triangle or one of its close
+     * neighbors when consecutive locations are close, so the R-Tree query is avoided.
+     * @param triangle Start triangle index
+     * @param coordinate Location
+     * @param uv Barycentric coordinates buffer
+     * @return Triangle index that contains the location or -1 if not found in {@link #MAX_TRIANGLE_WALK_STEPS}
+     */
+    private int walkToTriangle(int triangle, Coordinate coordinate, double[] uv) {
+        for(int step = 0; step < MAX_TRIANGLE_WALK_STEPS && triangle >= 0; step++) {
+            topoMesh.barycentric(triangle, coordinate.x, coordinate.y, uv);
+            if(JTSUtility.dotInTri(uv[0], uv[1])) {
+                return triangle;
+            }
+            // uv[0] is the weight of the vertex c and uv[1] is the weight of the vertex b
+            double w = 1 - uv[0] - uv[1];
+            int side;
+            if(uv[0] <= uv[1] && uv[0] <= w) {
+                side = 2;
+            } else if(uv[1] <= w) {
+                side = 1;
+            } else {
+                side = 0;
+            }
+            triangle = topoMesh.getNeighbor(triangle, side);
+        }
+        return -1;
+    }
+
     /**
      * Different type of intersection.
      */
@@ -0,0 +1,267 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder.profilebuilder;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineSegment;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.noise_planet.noisemodelling.pathfinder.delaunay.Triangle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary file of a finished {@link ProfileBuilder}. Storing the digital elevation model triangulation and the
+ * elevation of buildings and walls avoid to process again the same geometries when only the sound sources changed.
+ * The file contains a hash of the input data provided by the caller, the snapshot is rejected if the hash is not the
+ * expected one. The file is memory mapped when read back.
+ * @author Nicolas Fortin
+ */
+public class ProfileBuilderSnapshot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileBuilderSnapshot.class);
+    private static final int MAGIC = 0x4E4D5042; // NMPB
+    private static final int VERSION = 1;
+
+    private ProfileBuilderSnapshot() {}
+
+    /**
+     * Write the finished profile builder into a file. The file is written in a temporary file then moved in order to
+     * never leave an incomplete snapshot.
+     * @param profileBuilder Profile builder, {@link ProfileBuilder#finishFeeding()} must have been called
+     * @param file Destination file
+     * @param inputHash Hash of the input data used to build the profile builder
+     * @throws IOException Error while writing the file
+     */
+    public static void write(ProfileBuilder profileBuilder, File file, String inputHash) throws IOException {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        WKBWriter wkbWriter = new WKBWriter(3);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                tmpFile.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] hash = inputHash.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(hash.length);
+            out.write(hash);
+            out.writeBoolean(profileBuilder.iszBuildings());
+            Envelope envelope = profileBuilder.getMeshEnvelope();
+            out.writeBoolean(envelope != null);
+            if(envelope != null) {
+                out.writeDouble(envelope.getMinX());
+                out.writeDouble(envelope.getMaxX());
+                out.writeDouble(envelope.getMinY());
+                out.writeDouble(envelope.getMaxY());
+            }
+            // Digital elevation model
+            List<Coordinate> vertices = profileBuilder.getVertices();
+            out.writeInt(vertices.size());
+            for (Coordinate vertex : vertices) {
+                writeCoordinate(out, vertex);
+            }
+            writeTriangles(out, profileBuilder.getTriangles());
+            writeTriangles(out, profileBuilder.getTriangleNeighbors());
+            // Buildings with the final elevation
+            List<Building> buildings = profileBuilder.getBuildings();
+            out.writeInt(buildings.size());
+            for (Building building : buildings) {
+                out.writeDouble(building.height);
+                out.writeDouble(building.minimumZDEM);
+                out.writeLong(building.primaryKey);
+                writeObstruction(out, building);
+                writeGeometry(out, wkbWriter, building.poly);
+            }
+            List<Wall> walls = profileBuilder.getWalls();
+            out.writeInt(walls.size());
+            for (Wall wall : walls) {
+                writeCoordinate(out, wall.p0);
+                writeCoordinate(out, wall.p1);
+                out.writeInt(wall.originId);
+                out.writeInt(wall.type.ordinal());
+                out.writeDouble(wall.height);
+                out.writeLong(wall.primaryKey);
+                writeObstruction(out, wall);
+            }
+            List<GroundAbsorption> groundAbsorptions = profileBuilder.getGroundEffects();
+            out.writeInt(groundAbsorptions.size());
+            for (GroundAbsorption groundAbsorption : groundAbsorptions) {
+                out.writeDouble(groundAbsorption.coef);
+                writeGeometry(out, wkbWriter, groundAbsorption.geom);
+            }
+        }
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read a profile builder from a snapshot file
+     * @param file Snapshot file
+     * @param expectedInputHash Hash of the current input data
+     * @return The finished profile builder or null if the file does not exist, is invalid or have been created
+     * with other input data
+     */
+    public static ProfileBuilder read(File file, String expectedInputHash) {
+        if(!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            byte[] hash = new byte[buffer.getInt()];
+            buffer.get(hash);
+            if(!expectedInputHash.equals(new String(hash, StandardCharsets.UTF_8))) {
+                return null;
+            }
+            return readProfileBuilder(buffer);
+        } catch (IOException | BufferUnderflowException | ParseException | IllegalArgumentException ex) {
+            LOGGER.warn(String.format("Unable to read the profile builder snapshot %s", file), ex);
+            return null;
+        }
+    }
+
+    private static ProfileBuilder readProfileBuilder(MappedByteBuffer buffer) throws ParseException {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        WKBReader wkbReader = new WKBReader(geometryFactory);
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        profileBuilder.setzBuildings(buffer.get() != 0);
+        Envelope envelope = null;
+        if(buffer.get() != 0) {
+            envelope = new Envelope(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+        int vertexCount = buffer.getInt();
+        List<Coordinate> vertices = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            vertices.add(readCoordinate(buffer));
+        }
+        List<Triangle> triangles = readTriangles(buffer);
+        List<Triangle> neighbors = readTriangles(buffer);
+        int buildingCount = buffer.getInt();
+        for (int i = 0; i < buildingCount; i++) {
+            double height = buffer.getDouble();
+            double minimumZDEM = buffer.getDouble();
+            long primaryKey = buffer.getLong();
+            double g = buffer.getDouble();
+            List<Double> alphas = readAlphas(buffer);
+            Polygon polygon = (Polygon) readGeometry(buffer, wkbReader);
+            Building building = new Building(polygon, height, g, primaryKey, profileBuilder.iszBuildings());
+            building.minimumZDEM = minimumZDEM;
+            if(!alphas.isEmpty()) {
+                building.setAlpha(alphas);
+            }
+            profileBuilder.addBuilding(building);
+        }
+        int wallCount = buffer.getInt();
+        for (int i = 0; i < wallCount; i++) {
+            Coordinate p0 = readCoordinate(buffer);
+            Coordinate p1 = readCoordinate(buffer);
+            int originId = buffer.getInt();
+            ProfileBuilder.IntersectionType type = ProfileBuilder.IntersectionType.values()[buffer.getInt()];
+            Wall wall = new Wall(new LineSegment(p0, p1), originId, type);
+            wall.setHeight(buffer.getDouble());
+            wall.setPrimaryKey(buffer.getLong());
+            wall.setG(buffer.getDouble());
+            List<Double> alphas = readAlphas(buffer);
+            if(!alphas.isEmpty()) {
+                wall.setAlpha(alphas);
+            }
+            profileBuilder.addWall(wall);
+        }
+        int groundCount = buffer.getInt();
+        for (int i = 0; i < groundCount; i++) {
+            double coefficient = buffer.getDouble();
+            profileBuilder.addGroundEffect(readGeometry(buffer, wkbReader), coefficient);
+        }
+        return profileBuilder.finishFeeding(envelope, vertices, triangles, neighbors);
+    }
+
+    private static void writeCoordinate(DataOutputStream out, Coordinate coordinate) throws IOException {
+        out.writeDouble(coordinate.x);
+        out.writeDouble(coordinate.y);
+        out.writeDouble(coordinate.z);
+    }
+
+    private static Coordinate readCoordinate(MappedByteBuffer buffer) {
+        return new Coordinate(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+
+    private static void writeTriangles(DataOutputStream out, List<Triangle> triangles) throws IOException {
+        out.writeInt(triangles.size());
+        for (Triangle triangle : triangles) {
+            out.writeInt(triangle.getA());
+            out.writeInt(triangle.getB());
+            out.writeInt(triangle.getC());
+            out.writeInt(triangle.getAttribute());
+        }
+    }
+
+    private static List<Triangle> readTriangles(MappedByteBuffer buffer) {
+        int triangleCount = buffer.getInt();
+        List<Triangle> triangles = new ArrayList<>(triangleCount);
+        for (int i = 0; i < triangleCount; i++) {
+            triangles.add(new Triangle(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt()));
+        }
+        return triangles;
+    }
+
+    private static void writeObstruction(DataOutputStream out, Obstruction obstruction) throws IOException {
+        out.writeDouble(obstruction.getG());
+        List<Double> alphas = obstruction.getAlphas();
+        out.writeInt(alphas.size());
+        for (double alpha : alphas) {
+            out.writeDouble(alpha);
+        }
+    }
+
+    private static List<Double> readAlphas(MappedByteBuffer buffer) {
+        int alphaCount = buffer.getInt();
+        List<Double> alphas = new ArrayList<>(alphaCount);
+        for (int i = 0; i < alphaCount; i++) {
+            alphas.add(buffer.getDouble());
+        }
+        return alphas;
+    }
+
+    private static void writeGeometry(DataOutputStream out, WKBWriter wkbWriter, Geometry geometry)
+            throws IOException {
+        byte[] wkb = wkbWriter.write(geometry);
+        out.writeInt(wkb.length);
+        out.write(wkb);
+    }
+
+    private static Geometry readGeometry(MappedByteBuffer buffer, WKBReader wkbReader) throws ParseException {
+        byte[] wkb = new byte[buffer.getInt()];
+        buffer.get(wkb);
+        return wkbReader.read(wkb);
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder.profilebuilder;
+
+import org.locationtech.jts.algorithm.RobustLineIntersector;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineSegment;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Points of a topographic profile fetched by
+ * {@link ProfileBuilder#fetchTopographicProfile(TopographicProfileBuffer, Coordinate, Coordinate, boolean)}.
+ * The buffer also holds the working objects of the walk through the triangles, so it can be reused for each
+ * profile without allocation. A buffer is not thread safe and must be used with only one ProfileBuilder.
+ * @author Nicolas Fortin
+ */
+public class TopographicProfileBuffer {
+    private double[] x = new double[16];
+    private double[] y = new double[16];
+    private double[] z = new double[16];
+    private int size = 0;
+
+    // Walk working objects
+    /** Stamp of the last walk that visited each triangle */
+    int[] visitedTriangles = new int[0];
+    int visitStamp = 0;
+    final LineSegment propagationLine = new LineSegment();
+    final LineSegment triangleSide = new LineSegment();
+    final Coordinate triangleA = new Coordinate();
+    final Coordinate triangleB = new Coordinate();
+    final Coordinate triangleC = new Coordinate();
+    final Coordinate sideIntersection = new Coordinate();
+    final Coordinate nearestIntersection = new Coordinate();
+    final Coordinate closestPoint = new Coordinate();
+    final RobustLineIntersector lineIntersector = new RobustLineIntersector();
+    final double[] uv = new double[2];
+
+    /**
+     * Start a new walk
+     * @param triangleCount Number of triangles of the mesh
+     */
+    void newWalk(int triangleCount) {
+        if(visitedTriangles.length != triangleCount) {
+            visitedTriangles = new int[triangleCount];
+            visitStamp = 0;
+        }
+        visitStamp++;
+        if(visitStamp == Integer.MAX_VALUE) {
+            Arrays.fill(visitedTriangles, 0);
+            visitStamp = 1;
+        }
+    }
+
+    /**
+     * @param triangle Triangle index or -1
+     * @return True if the triangle has been visited by the current walk
+     */
+    boolean isVisited(int triangle) {
+        return triangle >= 0 && visitedTriangles[triangle] == visitStamp;
+    }
+
+    void setVisited(int triangle) {
+        visitedTriangles[triangle] = visitStamp;
+    }
+
+    /**
+     * Remove all points
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Append a point
+     */
+    public void add(double px, double py, double pz) {
+        if(size == x.length) {
+            int capacity = size * 2;
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            z = Arrays.copyOf(z, capacity);
+        }
+        x[size] = px;
+        y[size] = py;
+        z[size] = pz;
+        size++;
+    }
+
+    /**
+     * @return Number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    public double getX(int index) {
+        return x[index];
+    }
+
+    public double getY(int index) {
+        return y[index];
+    }
+
+    public double getZ(int index) {
+        return z[index];
+    }
+
+    /**
+     * Copy a point into an existing coordinate
+     * @param index Point index
+     * @param out Coordinate to update
+     */
+    public void copyCoordinate(int index, Coordinate out) {
+        out.x = x[index];
+        out.y = y[index];
+        out.z = z[index];
+    }
+
+    /**
+     * Append a copy of all points into a list
+     * @param coordinates List to feed
+     */
+    public void toCoordinates(List<Coordinate> coordinates) {
+        for (int i = 0; i < size; i++) {
+            coordinates.add(new Coordinate(x[i], y[i], z[i]));
+        }
+    }
+}
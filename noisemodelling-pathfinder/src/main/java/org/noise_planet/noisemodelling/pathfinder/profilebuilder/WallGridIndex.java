@@ -0,0 +1,283 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder.profilebuilder;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.LineSegment;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Uniform grid index of the processed walls (building walls, walls and ground effect area borders) specialised for
+ * segment queries. Each grid cell holds the indices of the walls crossing it, the indices of all cells are packed in
+ * a single int array. A query walks the cells crossed by the segment, column by column from the first point, and
+ * returns each candidate wall once thanks to the visit stamps of a {@link QueryBuffer}.
+ * <p>
+ * The cells are rasterized conservatively (with a small margin), so every wall intersecting the query segment is
+ * returned. Some returned walls may not intersect the segment. The index is immutable and can be shared between
+ * threads, each thread must use its own {@link QueryBuffer}.
+ * @author Nicolas Fortin
+ */
+public class WallGridIndex {
+    /** Limit the memory used by the index */
+    private static final int MAX_CELLS_PER_SIDE = 4096;
+    private static final double MAX_CELL_COUNT = 1 << 20;
+    /** Expected average number of walls per cell */
+    private static final double TARGET_WALLS_PER_CELL = 4;
+    /** Margin of the rasterization, relative to the cell size */
+    private static final double MARGIN_RATIO = 1e-6;
+
+    private final double xOrigin;
+    private final double yOrigin;
+    private final double cellSize;
+    private final double margin;
+    private final int columnCount;
+    private final int rowCount;
+    private final int wallCount;
+    /** Position of the first wall of each cell in {@link #cellWalls}, the last value is the size of cellWalls */
+    private final int[] cellStart;
+    /** Wall indices of all cells */
+    private final int[] cellWalls;
+
+    /**
+     * @param walls Walls to index, the wall index is the position in this list
+     */
+    public WallGridIndex(List<Wall> walls) {
+        wallCount = walls.size();
+        Envelope envelope = new Envelope();
+        double totalLength = 0;
+        for (Wall wall : walls) {
+            envelope.expandToInclude(wall.ls.p0);
+            envelope.expandToInclude(wall.ls.p1);
+            totalLength += wall.ls.getLength();
+        }
+        if(envelope.isNull()) {
+            envelope.expandToInclude(0, 0);
+        }
+        double side = Math.max(envelope.getWidth(), envelope.getHeight());
+        // A cell contains TARGET_WALLS_PER_CELL walls on average
+        double size = wallCount > 0 ? TARGET_WALLS_PER_CELL * totalLength / wallCount : side;
+        size = Math.max(size, Math.max(side / MAX_CELLS_PER_SIDE, Math.sqrt(envelope.getArea() / MAX_CELL_COUNT)));
+        if(!(size > 0)) {
+            size = 1;
+        }
+        cellSize = size;
+        margin = cellSize * MARGIN_RATIO;
+        xOrigin = envelope.getMinX();
+        yOrigin = envelope.getMinY();
+        columnCount = Math.max(1, (int) Math.ceil(envelope.getWidth() / cellSize));
+        rowCount = Math.max(1, (int) Math.ceil(envelope.getHeight() / cellSize));
+        // Count the walls of each cell then fill the cells
+        int[] cellCount = new int[columnCount * rowCount + 1];
+        for (Wall wall : walls) {
+            visitCells(wall.ls.p0, wall.ls.p1, cell -> {
+                cellCount[cell]++;
+                return true;
+            });
+        }
+        cellStart = new int[cellCount.length];
+        for (int cell = 1; cell < cellStart.length; cell++) {
+            cellStart[cell] = cellStart[cell - 1] + cellCount[cell - 1];
+        }
+        cellWalls = new int[cellStart[cellStart.length - 1]];
+        int[] cellPosition = Arrays.copyOf(cellStart, cellStart.length);
+        for (int wallIndex = 0; wallIndex < wallCount; wallIndex++) {
+            final int item = wallIndex;
+            LineSegment ls = walls.get(wallIndex).ls;
+            visitCells(ls.p0, ls.p1, cell -> {
+                cellWalls[cellPosition[cell]++] = item;
+                return true;
+            });
+        }
+    }
+
+    /**
+     * @return Size of the cells in meters
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Fetch the walls that may intersect the segment p0 p1. The walls are sorted by the order of the crossed cells,
+     * from p0 to p1.
+     * @param p0 First point of the segment
+     * @param p1 Last point of the segment
+     * @param result Candidate walls (out), the buffer is cleared before the query
+     */
+    public void query(Coordinate p0, Coordinate p1, QueryBuffer result) {
+        result.newQuery(wallCount);
+        result.index = this;
+        try {
+            visitCells(p0, p1, result);
+        } finally {
+            result.index = null;
+        }
+    }
+
+    private int column(double x) {
+        return Math.max(0, Math.min(columnCount - 1, (int) Math.floor((x - xOrigin) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rowCount - 1, (int) Math.floor((y - yOrigin) / cellSize)));
+    }
+
+    /**
+     * Visit the cells crossed by the segment p0 p1 (with a margin). The columns are walked from p0 to p1, for each
+     * column the rows crossed by the part of the segment inside the column are visited.
+     * @return False if the visitor stopped the walk
+     */
+    private boolean visitCells(Coordinate p0, Coordinate p1, CellVisitor visitor) {
+        double xMin = Math.min(p0.x, p1.x);
+        double xMax = Math.max(p0.x, p1.x);
+        double yMin = Math.min(p0.y, p1.y);
+        double yMax = Math.max(p0.y, p1.y);
+        if(xMax + margin < xOrigin || xMin - margin > xOrigin + columnCount * cellSize ||
+                yMax + margin < yOrigin || yMin - margin > yOrigin + rowCount * cellSize) {
+            // Outside the grid
+            return true;
+        }
+        double dx = p1.x - p0.x;
+        double dy = p1.y - p0.y;
+        int firstColumn = column(xMin - margin);
+        int lastColumn = column(xMax + margin);
+        int columnStep = 1;
+        if(dx < 0) {
+            int swap = firstColumn;
+            firstColumn = lastColumn;
+            lastColumn = swap;
+            columnStep = -1;
+        }
+        for (int column = firstColumn; ; column += columnStep) {
+            // Part of the segment inside the column, the border columns extend to the infinity
+            double cx0 = column == 0 ? xMin : Math.max(xMin, Math.min(xMax, xOrigin + column * cellSize));
+            double cx1 = column == columnCount - 1 ? xMax :
+                    Math.max(xMin, Math.min(xMax, xOrigin + (column + 1) * cellSize));
+            double ya;
+            double yb;
+            if(dx == 0) {
+                ya = yMin;
+                yb = yMax;
+            } else {
+                ya = p0.y + (cx0 - p0.x) * dy / dx;
+                yb = p0.y + (cx1 - p0.x) * dy / dx;
+            }
+            int firstRow = row(Math.min(ya, yb) - margin);
+            int lastRow = row(Math.max(ya, yb) + margin);
+            if(dy < 0) {
+                for (int row = lastRow; row >= firstRow; row--) {
+                    if(!visitor.visit(row * columnCount + column)) {
+                        return false;
+                    }
+                }
+            } else {
+                for (int row = firstRow; row <= lastRow; row++) {
+                    if(!visitor.visit(row * columnCount + column)) {
+                        return false;
+                    }
+                }
+            }
+            if(column == lastColumn) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private interface CellVisitor {
+        /**
+         * @param cell Cell index row * columnCount + column
+         * @return False to stop the walk
+         */
+        boolean visit(int cell);
+    }
+
+    /**
+     * Candidate walls of a query. The buffer holds the visit stamps of the walls so it can be reused for each query
+     * without allocation. A buffer is not thread safe.
+     */
+    public static final class QueryBuffer implements CellVisitor {
+        private int[] walls = new int[64];
+        private int size = 0;
+        /** Stamp of the last query that returned each wall */
+        private int[] visitedWalls = new int[0];
+        private int visitStamp = 0;
+        /** Index of the running query */
+        private WallGridIndex index;
+
+        /**
+         * Clear the buffer and start a new query
+         * @param wallCount Number of indexed walls
+         */
+        public void newQuery(int wallCount) {
+            size = 0;
+            if(visitedWalls.length != wallCount) {
+                visitedWalls = new int[wallCount];
+                visitStamp = 0;
+            }
+            visitStamp++;
+            if(visitStamp == Integer.MAX_VALUE) {
+                Arrays.fill(visitedWalls, 0);
+                visitStamp = 1;
+            }
+        }
+
+        /**
+         * Append a wall if it has not been added since the beginning of the query
+         * @param wall Wall index
+         * @return True if the wall has been added
+         */
+        public boolean add(int wall) {
+            if(visitedWalls[wall] == visitStamp) {
+                return false;
+            }
+            visitedWalls[wall] = visitStamp;
+            if(size == walls.length) {
+                walls = Arrays.copyOf(walls, size * 2);
+            }
+            walls[size++] = wall;
+            return true;
+        }
+
+        /**
+         * @return Number of candidate walls
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param i Candidate index
+         * @return Wall index
+         */
+        public int get(int i) {
+            return walls[i];
+        }
+
+        @Override
+        public boolean visit(int cell) {
+            for (int i = index.cellStart[cell]; i < index.cellStart[cell + 1]; i++) {
+                add(index.cellWalls[i]);
+            }
+            return true;
+        }
+    }
+}
@@ -15,6 +15,9 @@ import java.util.Locale;
  * A utility class providing acoustic indicator functions for computations,
  * including conversions between decibels and energy, summation and multiplication of arrays,
  * and operations specific to octave bands.
+ * <p>
+ * The array functions that take a destination array do not allocate, the destination may be one of the input arrays.
+ * They are used by the attenuation and receiver level computations that run for each propagation path.
  */
 public class AcousticIndicatorsFunctions {
 
@@ -33,11 +36,35 @@ public class AcousticIndicatorsFunctions {
      * @return Watt value
      */
     public static double[] dBToW(double[] dB) {
-        double[] ret = new double[dB.length];
+        return dBToW(dB, new double[dB.length]);
+    }
+
+    /**
+     * Convert Decibel to Watt
+     * @param dB Sound power spectrum in dB (or dBa , no weighting is done here)
+     * @param destination Watt values, can be the dB array
+     * @return destination
+     */
+    public static double[] dBToW(double[] dB, double[] destination) {
+        checkSameSize(dB, destination);
         for (int i = 0; i < dB.length; i++) {
-            ret[i] = dBToW(dB[i]);
+            destination[i] = dBToW(dB[i]);
         }
-        return ret;
+        return destination;
+    }
+
+    /**
+     * Convert Decibel to Watt and add it to the destination
+     * @param destination Watt values to increment
+     * @param dB Sound power spectrum in dB
+     * @return destination
+     */
+    public static double[] accumulateDbToW(double[] destination, double[] dB) {
+        checkSameSize(dB, destination);
+        for (int i = 0; i < dB.length; i++) {
+            destination[i] += dBToW(dB[i]);
+        }
+        return destination;
     }
 
     /**
@@ -56,11 +83,21 @@ public class AcousticIndicatorsFunctions {
      * @return Decibel value
      */
     public static double[] wToDb(double[] w) {
-        double[] ret = new double[w.length];
+        return wToDb(w, new double[w.length]);
+    }
+
+    /**
+     * Convert Watt to Decibel
+     * @param w Watt values
+     * @param destination Decibel values, can be the w array
+     * @return destination
+     */
+    public static double[] wToDb(double[] w, double[] destination) {
+        checkSameSize(w, destination);
         for (int i = 0; i < w.length; i++) {
-            ret[i] = wToDb(w[i]);
+            destination[i] = wToDb(w[i]);
         }
-        return ret;
+        return destination;
     }
 
     public static double[] twoDgtAftrComma(double[] valeurs) {
@@ -83,14 +120,31 @@ public class AcousticIndicatorsFunctions {
      * @return
      */
     public static double[] sumArrayWithPonderation(double[] array1, double[] array2, double p) {
-        if (array1.length != array2.length) {
-            throw new IllegalArgumentException("Not same size array");
-        }
-        double[] sum = new double[array1.length];
-        for (int i = 0; i < array1.length; i++) {
-            sum[i] = wToDb(p * dBToW(array1[i]) + (1 - p) * dBToW(array2[i]));
+        return sumArrayWithPonderation(array1, array2, p, new double[array1.length]);
+    }
+
+    /**
+     * Eq 2.5.9
+     * @see #sumArrayWithPonderation(double[], double[], double)
+     * @param array1 double array
+     * @param array2 double array
+     * @param p the mean occurrence p of favourable conditions in the direction of the path (S,R)
+     * @param destination Result, can be one of the input arrays
+     * @return destination
+     */
+    public static double[] sumArrayWithPonderation(double[] array1, double[] array2, double p, double[] destination) {
+        checkSameSize(array1, array2);
+        checkSameSize(array1, destination);
+        if (p == 0) {
+            System.arraycopy(array2, 0, destination, 0, array2.length);
+        } else if (p == 1) {
+            System.arraycopy(array1, 0, destination, 0, array1.length);
+        } else {
+            for (int i = 0; i < array1.length; i++) {
+                destination[i] = wToDb(p * dBToW(array1[i]) + (1 - p) * dBToW(array2[i]));
+            }
         }
-        return sum;
+        return destination;
     }
 
     /**
@@ -101,14 +155,24 @@ public class AcousticIndicatorsFunctions {
      * @return
      */
     public static double[] sumDbArray(double[] array1, double[] array2) {
-        if (array1.length != array2.length) {
-            throw new IllegalArgumentException("Not same size array");
-        }
-        double[] sum = new double[array1.length];
+        return sumDbArray(array1, array2, new double[array1.length]);
+    }
+
+    /**
+     * energetic Sum of two same size dB array
+     *
+     * @param array1 Levels in dB
+     * @param array2 Levels in dB
+     * @param destination Result in dB, can be one of the input arrays
+     * @return destination
+     */
+    public static double[] sumDbArray(double[] array1, double[] array2, double[] destination) {
+        checkSameSize(array1, array2);
+        checkSameSize(array1, destination);
         for (int i = 0; i < array1.length; i++) {
-            sum[i] = wToDb(dBToW(array1[i]) + dBToW(array2[i]));
+            destination[i] = wToDb(dBToW(array1[i]) + dBToW(array2[i]));
         }
-        return sum;
+        return destination;
     }
 
     /**
@@ -134,12 +198,74 @@ public class AcousticIndicatorsFunctions {
      * @return
      */
     public static double[] multiplicationArray(double[] array1, double[] array2) {
-        if (array1.length != array2.length) {
-            throw new IllegalArgumentException("Not same size array");
+        return multiplicationArray(array1, array2, new double[array1.length]);
+    }
+
+    /**
+     * Multiply component of two same size array
+     *
+     * @param array1 First array
+     * @param array2 Second array
+     * @param destination Result, can be one of the input arrays
+     * @return destination
+     */
+    public static double[] multiplicationArray(double[] array1, double[] array2, double[] destination) {
+        checkSameSize(array1, array2);
+        checkSameSize(array1, destination);
+        for (int i = 0; i < array1.length; i++) {
+            destination[i] = array1[i] * array2[i];
         }
-        double[] sum = new double[array1.length];
+        return destination;
+    }
+
+    /**
+     * Multiply component of two same size array and a coefficient then add the result to the destination
+     *
+     * @param destination Values to increment
+     * @param array1 First array
+     * @param array2 Second array
+     * @param coefficient number to multiply at each index
+     * @return destination
+     */
+    public static double[] accumulateMultiplication(double[] destination, double[] array1, double[] array2,
+                                                    double coefficient) {
+        checkSameSize(array1, array2);
+        checkSameSize(array1, destination);
+        for (int i = 0; i < array1.length; i++) {
+            destination[i] += array1[i] * array2[i] * coefficient;
+        }
+        return destination;
+    }
+
+    /**
+     * Multiply each component of an array by a coefficient then add the result to the destination
+     *
+     * @param destination Values to increment
+     * @param array Array input
+     * @param coefficient number to multiply at each index
+     * @return destination
+     */
+    public static double[] accumulateMultiplication(double[] destination, double[] array, double coefficient) {
+        checkSameSize(array, destination);
+        for (int i = 0; i < array.length; i++) {
+            destination[i] += array[i] * coefficient;
+        }
+        return destination;
+    }
+
+    /**
+     * Sum of the products of the components of two same size array, equivalent to
+     * sumArray(multiplicationArray(array1, array2)) without allocation
+     *
+     * @param array1 First array
+     * @param array2 Second array
+     * @return the sum value
+     */
+    public static double multiplicationSum(double[] array1, double[] array2) {
+        checkSameSize(array1, array2);
+        double sum = 0;
         for (int i = 0; i < array1.length; i++) {
-            sum[i] = array1[i] * array2[i];
+            sum += array1[i] * array2[i];
         }
         return sum;
     }
@@ -152,11 +278,23 @@ public class AcousticIndicatorsFunctions {
      * @return Array multiplied
      */
     public static double[] multiplicationArray(double[] array, double coefficient) {
-        double[] result = new double[array.length];
+        return multiplicationArray(array, coefficient, new double[array.length]);
+    }
+
+    /**
+     * Multiply each component of an array
+     *
+     * @param array Array input
+     * @param coefficient number to multiply at each index
+     * @param destination Result, can be the input array
+     * @return destination
+     */
+    public static double[] multiplicationArray(double[] array, double coefficient, double[] destination) {
+        checkSameSize(array, destination);
         for (int i = 0; i < array.length; i++) {
-            result[i] = array[i] * coefficient;
+            destination[i] = array[i] * coefficient;
         }
-        return result;
+        return destination;
     }
 
     /**
@@ -203,20 +341,51 @@ public class AcousticIndicatorsFunctions {
             }
             throw new IllegalArgumentException("Arrays with different size");
         }
-        double[] ret = new double[array1.length];
+        return sumArray(array1, array2, new double[array1.length]);
+    }
+
+    /**
+     * Element wise sum array without any other operations.
+     *
+     * @param array1 First array
+     * @param array2 Second array
+     * @param destination Sum of the two arrays, can be one of the input arrays
+     * @return destination
+     */
+    public static double[] sumArray(double[] array1, double[] array2, double[] destination) {
+        checkSameSize(array1, array2);
+        checkSameSize(array1, destination);
         for (int idfreq = 0; idfreq < array1.length; idfreq++) {
-            ret[idfreq] = array1[idfreq] + array2[idfreq];
+            destination[idfreq] = array1[idfreq] + array2[idfreq];
         }
-        return ret;
+        return destination;
     }
 
     
     public static double[] sumArray(double[] array, double number) {
-        double[] ret = new double[array.length];
+        return sumArray(array, number, new double[array.length]);
+    }
+
+    /**
+     * Add a number to each component of an array
+     *
+     * @param array Array input
+     * @param number Number to add at each index
+     * @param destination Result, can be the input array
+     * @return destination
+     */
+    public static double[] sumArray(double[] array, double number, double[] destination) {
+        checkSameSize(array, destination);
         for (int idfreq = 0; idfreq < array.length; idfreq++) {
-            ret[idfreq] = array[idfreq] + number;
+            destination[idfreq] = array[idfreq] + number;
+        }
+        return destination;
+    }
+
+    private static void checkSameSize(double[] array1, double[] array2) {
+        if (array1.length != array2.length) {
+            throw new IllegalArgumentException("Not same size array");
         }
-        return ret;
     }
 
 
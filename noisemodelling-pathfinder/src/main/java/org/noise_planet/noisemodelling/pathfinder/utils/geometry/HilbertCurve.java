@@ -0,0 +1,87 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder.utils.geometry;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hilbert space filling curve. Consecutive points along the curve are close in space, so evaluating locations in the
+ * curve order keeps the same parts of the spatial indexes and of the triangulation in the processor caches.
+ * @author Nicolas Fortin
+ */
+public final class HilbertCurve {
+    /** Number of bits of each axis, the curve covers a grid of 2^16 x 2^16 cells */
+    public static final int ORDER = 16;
+
+    private HilbertCurve() {
+    }
+
+    /**
+     * @param x Cell column in [0, 2^ORDER)
+     * @param y Cell row in [0, 2^ORDER)
+     * @return Position of the cell along the curve
+     */
+    public static long index(int x, int y) {
+        long d = 0;
+        for (int s = 1 << (ORDER - 1); s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // Rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * @param coordinates Locations
+     * @return Indices of the locations sorted along the curve
+     */
+    public static int[] sort(List<Coordinate> coordinates) {
+        int count = coordinates.size();
+        int[] order = new int[count];
+        if (count == 0) {
+            return order;
+        }
+        Envelope envelope = new Envelope();
+        for (Coordinate coordinate : coordinates) {
+            envelope.expandToInclude(coordinate);
+        }
+        double cellSize = Math.max(envelope.getWidth(), envelope.getHeight()) / ((1 << ORDER) - 1);
+        if (!(cellSize > 0)) {
+            cellSize = 1;
+        }
+        // Pack the curve position (32 bits) and the index (31 bits) in order to sort primitive values
+        long[] curveIndex = new long[count];
+        for (int i = 0; i < count; i++) {
+            Coordinate coordinate = coordinates.get(i);
+            int x = (int) ((coordinate.x - envelope.getMinX()) / cellSize);
+            int y = (int) ((coordinate.y - envelope.getMinY()) / cellSize);
+            curveIndex[i] = (index(x, y) << 31) | i;
+        }
+        Arrays.sort(curveIndex);
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) (curveIndex[i] & 0x7FFFFFFFL);
+        }
+        return order;
+    }
+}
@@ -16,7 +16,6 @@ import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineSegment;
 import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.math.Vector2D;
 import org.locationtech.jts.math.Vector3D;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
 
@@ -209,34 +208,65 @@ public class JTSUtility {
      */
     public static boolean dotInTri(Coordinate p, Coordinate a, Coordinate b,
                                    Coordinate c, AtomicReference<Double> error) {
-        Vector2D v0 = new Vector2D(c.x - a.x, c.y - a.y);
-        Vector2D v1 = new Vector2D(b.x - a.x, b.y - a.y);
-        Vector2D v2 = new Vector2D(p.x - a.x, p.y - a.y);
+        double[] uv = new double[2];
+        barycentric(p.x, p.y, a.x, a.y, b.x, b.y, c.x, c.y, uv);
+        double u = uv[0];
+        double v = uv[1];
+        if(error != null) {
+            error.set(dotInTriError(u, v));
+        }
+
+        // Check if point is in triangle
+        return dotInTri(u, v);
+    }
+
+    /**
+     * Barycentric coordinates of the point p in the triangle abc
+     * @param uv Output u (weight of c) and v (weight of b)
+     */
+    public static void barycentric(double px, double py, double ax, double ay, double bx, double by, double cx,
+                                   double cy, double[] uv) {
+        double v0x = cx - ax;
+        double v0y = cy - ay;
+        double v1x = bx - ax;
+        double v1y = by - ay;
+        double v2x = px - ax;
+        double v2y = py - ay;
 
         // Compute dot products
-        double dot00 = v0.dot(v0);
-        double dot01 = v0.dot(v1);
-        double dot02 = v0.dot(v2);
-        double dot11 = v1.dot(v1);
-        double dot12 = v1.dot(v2);
+        double dot00 = v0x * v0x + v0y * v0y;
+        double dot01 = v0x * v1x + v0y * v1y;
+        double dot02 = v0x * v2x + v0y * v2y;
+        double dot11 = v1x * v1x + v1y * v1y;
+        double dot12 = v1x * v2x + v1y * v2y;
 
         // Compute barycentric coordinates
         double invDenom = 1 / (dot00 * dot11 - dot01 * dot01);
-        double u = (dot11 * dot02 - dot01 * dot12) * invDenom;
-        double v = (dot00 * dot12 - dot01 * dot02) * invDenom;
-
-        if(error != null) {
-            double err = 0;
-            err += Math.max(0, -u);
-            err += Math.max(0, -v);
-            err += Math.max(0, (u + v) - 1);
-            error.set(err);
-        }
+        uv[0] = (dot11 * dot02 - dot01 * dot12) * invDenom;
+        uv[1] = (dot00 * dot12 - dot01 * dot02) * invDenom;
+    }
 
-        // Check if point is in triangle
+    /**
+     * @param u Barycentric coordinate
+     * @param v Barycentric coordinate
+     * @return True if the barycentric coordinates are inside the triangle
+     */
+    public static boolean dotInTri(double u, double v) {
         return (u > (0. - TRIANGLE_INTERSECTION_EPSILON)) && (v > (0. - TRIANGLE_INTERSECTION_EPSILON))
                 && (u + v < (1. + TRIANGLE_INTERSECTION_EPSILON));
+    }
 
+    /**
+     * @param u Barycentric coordinate
+     * @param v Barycentric coordinate
+     * @return Distance of the barycentric coordinates to the triangle, 0 if inside
+     */
+    public static double dotInTriError(double u, double v) {
+        double err = 0;
+        err += Math.max(0, -u);
+        err += Math.max(0, -v);
+        err += Math.max(0, (u + v) - 1);
+        return err;
     }
 
     /**
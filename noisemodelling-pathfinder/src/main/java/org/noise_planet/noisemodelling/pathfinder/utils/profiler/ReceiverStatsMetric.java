@@ -19,12 +19,16 @@ import java.util.concurrent.ConcurrentLinkedDeque;
 public class ReceiverStatsMetric implements ProfilerThread.Metric {
     private ConcurrentLinkedDeque<ReceiverComputationTime> receiverComputationTimes = new ConcurrentLinkedDeque<>();
     private ConcurrentLinkedDeque<ReceiverCutProfiles> receiverCutProfilesDeque = new ConcurrentLinkedDeque<>();
+    private ConcurrentLinkedDeque<ReceiverProfileCache> receiverProfileCacheDeque = new ConcurrentLinkedDeque<>();
+    private ConcurrentLinkedDeque<ReceiverSourceAggregation> receiverSourceAggregationDeque = new ConcurrentLinkedDeque<>();
     private DescriptiveStatistics computationTime = new DescriptiveStatistics();
     private DescriptiveStatistics computationCutProfiles = new DescriptiveStatistics();
     private DescriptiveStatistics computationProcessSourcesPercentage = new DescriptiveStatistics();
     private DescriptiveStatistics collectSourcesTime = new DescriptiveStatistics();
     private DescriptiveStatistics precomputeReflectionTime = new DescriptiveStatistics();
     private DescriptiveStatistics sourcesPerReceiver = new DescriptiveStatistics();
+    private DescriptiveStatistics profileCacheHitPercentage = new DescriptiveStatistics();
+    private DescriptiveStatistics savedSourcesPercentage = new DescriptiveStatistics();
 
     public ReceiverStatsMetric() {
     }
@@ -45,11 +49,26 @@ public class ReceiverStatsMetric implements ProfilerThread.Metric {
                 computationProcessSourcesPercentage.addValue(((double) receiverProfile.numberOfProcessSources / receiverProfile.numberOfSources) * 100);
             }
         }
+        while (!receiverProfileCacheDeque.isEmpty()) {
+            ReceiverProfileCache receiverProfileCache = receiverProfileCacheDeque.pop();
+            int requests = receiverProfileCache.hitCount + receiverProfileCache.missCount;
+            if(requests > 0) {
+                profileCacheHitPercentage.addValue(((double) receiverProfileCache.hitCount / requests) * 100);
+            }
+        }
+        while (!receiverSourceAggregationDeque.isEmpty()) {
+            ReceiverSourceAggregation receiverSourceAggregation = receiverSourceAggregationDeque.pop();
+            if(receiverSourceAggregation.numberOfSources > 0) {
+                savedSourcesPercentage.addValue(((double) (receiverSourceAggregation.numberOfSources -
+                        receiverSourceAggregation.numberOfPropagatedSources) /
+                        receiverSourceAggregation.numberOfSources) * 100);
+            }
+        }
     }
 
     @Override
     public String[] getColumnNames() {
-        return new String[] {"receiver_min_milliseconds","receiver_median_milliseconds","receiver_mean_milliseconds","receiver_max_milliseconds", "receiver_collect_sources_max_milliseconds", "receiver_precompute_reflection_max_milliseconds", "receiver_median_profiles_count", "receiver_max_profiles_count", "receiver_processed_sources_percentage_mean", "receiver_median_point_sources_in_range"};
+        return new String[] {"receiver_min_milliseconds","receiver_median_milliseconds","receiver_mean_milliseconds","receiver_max_milliseconds", "receiver_collect_sources_max_milliseconds", "receiver_precompute_reflection_max_milliseconds", "receiver_median_profiles_count", "receiver_max_profiles_count", "receiver_processed_sources_percentage_mean", "receiver_median_point_sources_in_range", "receiver_profile_cache_hit_percentage_mean", "receiver_saved_sources_percentage_mean"};
     }
 
     public void onEndComputation(ReceiverComputationTime receiverComputationTime) {
@@ -62,6 +81,25 @@ public class ReceiverStatsMetric implements ProfilerThread.Metric {
                 numberOfProcessSources));
     }
 
+    /**
+     * @param receiverId Receiver identifier
+     * @param hitCount Number of profile legs fetched from the cache of the receiver
+     * @param missCount Number of profile legs computed for the receiver
+     */
+    public void onReceiverProfileCache(int receiverId, int hitCount, int missCount) {
+        receiverProfileCacheDeque.add(new ReceiverProfileCache(receiverId, hitCount, missCount));
+    }
+
+    /**
+     * @param receiverId Receiver identifier
+     * @param numberOfSources Number of sources in range of the receiver
+     * @param numberOfPropagatedSources Number of sources after the aggregation of the far sources
+     */
+    public void onReceiverSourceAggregation(int receiverId, int numberOfSources, int numberOfPropagatedSources) {
+        receiverSourceAggregationDeque.add(new ReceiverSourceAggregation(receiverId, numberOfSources,
+                numberOfPropagatedSources));
+    }
+
     @Override
     public String[] getCurrentValues() {
         String[] res = new String[] {
@@ -74,7 +112,9 @@ public class ReceiverStatsMetric implements ProfilerThread.Metric {
                 Integer.toString((int) computationCutProfiles.getPercentile(50)),
                 Integer.toString((int) computationCutProfiles.getMax()),
                 Integer.toString((int) computationProcessSourcesPercentage.getMean()),
-                Integer.toString((int) sourcesPerReceiver.getPercentile(50))
+                Integer.toString((int) sourcesPerReceiver.getPercentile(50)),
+                Integer.toString((int) profileCacheHitPercentage.getMean()),
+                Integer.toString((int) savedSourcesPercentage.getMean())
         };
         computationTime.clear();
         computationCutProfiles.clear();
@@ -82,6 +122,8 @@ public class ReceiverStatsMetric implements ProfilerThread.Metric {
         collectSourcesTime.clear();
         precomputeReflectionTime.clear();
         sourcesPerReceiver.clear();
+        profileCacheHitPercentage.clear();
+        savedSourcesPercentage.clear();
         return res;
     }
 
@@ -125,4 +167,40 @@ public class ReceiverStatsMetric implements ProfilerThread.Metric {
             this.numberOfProcessSources = numberOfProcessSources;
         }
     }
+
+    public static class ReceiverProfileCache {
+        public int receiverId;
+        public int hitCount;
+        public int missCount;
+
+        /**
+         * Create the ReceiverProfileCache constructor
+         * @param receiverId
+         * @param hitCount
+         * @param missCount
+         */
+        public ReceiverProfileCache(int receiverId, int hitCount, int missCount) {
+            this.receiverId = receiverId;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+        }
+    }
+
+    public static class ReceiverSourceAggregation {
+        public int receiverId;
+        public int numberOfSources;
+        public int numberOfPropagatedSources;
+
+        /**
+         * Create the ReceiverSourceAggregation constructor
+         * @param receiverId
+         * @param numberOfSources
+         * @param numberOfPropagatedSources
+         */
+        public ReceiverSourceAggregation(int receiverId, int numberOfSources, int numberOfPropagatedSources) {
+            this.receiverId = receiverId;
+            this.numberOfSources = numberOfSources;
+            this.numberOfPropagatedSources = numberOfPropagatedSources;
+        }
+    }
 }
\ No newline at end of file
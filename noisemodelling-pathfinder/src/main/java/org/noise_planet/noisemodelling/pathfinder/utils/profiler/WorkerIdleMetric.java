@@ -0,0 +1,79 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder.utils.profiler;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Generate stats about the idle time of the path finder workers. A worker is idle when it has no more
+ * receivers to evaluate while other workers of the same computation area are still running.
+ */
+public class WorkerIdleMetric implements ProfilerThread.Metric {
+    private ConcurrentLinkedDeque<WorkerTime> workerTimes = new ConcurrentLinkedDeque<>();
+    private DescriptiveStatistics idleTime = new DescriptiveStatistics();
+    private long busyTimeSum = 0;
+    private long idleTimeSum = 0;
+
+    public WorkerIdleMetric() {
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return new String[] {"worker_idle_mean_milliseconds", "worker_idle_max_milliseconds", "worker_busy_percentage"};
+    }
+
+    /**
+     * Called when all workers of a computation area are done
+     * @param workerTime Time spent by one worker
+     */
+    public void onWorkerEnd(WorkerTime workerTime) {
+        workerTimes.add(workerTime);
+    }
+
+    @Override
+    public String[] getCurrentValues() {
+        long total = busyTimeSum + idleTimeSum;
+        String[] res = new String[] {
+                Integer.toString((int) idleTime.getMean()),
+                Integer.toString((int) idleTime.getMax()),
+                Integer.toString(total > 0 ? (int) ((busyTimeSum * 100) / total) : 100)
+        };
+        idleTime.clear();
+        busyTimeSum = 0;
+        idleTimeSum = 0;
+        return res;
+    }
+
+    @Override
+    public void tick(long currentMillis) {
+        while (!workerTimes.isEmpty()) {
+            WorkerTime workerTime = workerTimes.pop();
+            idleTime.addValue(workerTime.idleTime);
+            busyTimeSum += workerTime.busyTime;
+            idleTimeSum += workerTime.idleTime;
+        }
+    }
+
+    public static class WorkerTime {
+        public long busyTime;
+        public long idleTime;
+
+        /**
+         * @param busyTime Time in milliseconds spent evaluating receivers
+         * @param idleTime Time in milliseconds between the end of this worker and the end of the last worker
+         */
+        public WorkerTime(long busyTime, long idleTime) {
+            this.busyTime = busyTime;
+            this.idleTime = idleTime;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+import org.noise_planet.noisemodelling.pathfinder.path.Scene;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutPoint;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutProfile;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class dedicated to {@link CutProfileCache}.
+ */
+public class CutProfileCacheTest {
+
+    private static ProfileBuilder createProfileBuilder() throws ParseException {
+        WKTReader reader = new WKTReader();
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        profileBuilder.addBuilding(reader.read("POLYGON((20 20,60 20,60 30,20 30,20 20))"), 12, -1);
+        profileBuilder.addBuilding(reader.read("POLYGON((20 60,60 60,60 70,20 70,20 60))"), 12, -1);
+        profileBuilder.finishFeeding();
+        return profileBuilder;
+    }
+
+    @Test
+    public void testCache() throws ParseException {
+        ProfileBuilder profileBuilder = createProfileBuilder();
+        CutProfileCache cache = new CutProfileCache(2, 0.01);
+        Coordinate p0 = new Coordinate(0, 40, 2);
+        Coordinate p1 = new Coordinate(80, 45, 2);
+        CutProfile profile = cache.getProfile(profileBuilder, p0, p1, 0, false);
+        assertSame(profile, cache.getProfile(profileBuilder, p0, p1, 0, false));
+        // Same leg within the quantum
+        assertSame(profile, cache.getProfile(profileBuilder, new Coordinate(0.001, 40, 2), p1, 0, false));
+        // Not the same leg
+        assertNotSame(profile, cache.getProfile(profileBuilder, p1, p0, 0, false));
+        assertNotSame(profile, cache.getProfile(profileBuilder, p0, p1, 0, true));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        // Bounded size, the least recently used leg has been removed
+        assertEquals(2, cache.size());
+        assertNotSame(profile, cache.getProfile(profileBuilder, p0, p1, 0, false));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    /**
+     * The cache does not change the propagation paths
+     */
+    @Test
+    public void testPathFinder() throws ParseException {
+        GeometryFactory factory = new GeometryFactory();
+        WKTReader reader = new WKTReader();
+        List<List<CutProfile>> cutProfiles = new ArrayList<>();
+        long[] hitCount = new long[2];
+        for (int i = 0; i < 2; i++) {
+            ProfileBuilder profileBuilder = new ProfileBuilder();
+            profileBuilder.addBuilding(reader.read("POLYGON((20 20,60 20,60 30,20 30,20 20))"), 12, -1);
+            profileBuilder.addBuilding(reader.read("POLYGON((20 60,60 60,60 70,20 70,20 60))"), 12, -1);
+            // Hide the receivers from the sources, the legs around this building are shared by the sources
+            profileBuilder.addBuilding(reader.read("POLYGON((40 38,50 38,50 52,40 52,40 38))"), 12, -1);
+            profileBuilder.finishFeeding();
+            Scene scene = new Scene(profileBuilder);
+            for (int idSource = 0; idSource < 10; idSource++) {
+                scene.addSource(factory.createPoint(new Coordinate(5 + idSource * 2, 45, 0.5)));
+            }
+            scene.addReceiver(new Coordinate(75, 42, 4));
+            scene.addReceiver(new Coordinate(78, 48, 4));
+            scene.setReflexionOrder(2);
+            scene.setComputeHorizontalDiffraction(true);
+            scene.setComputeVerticalDiffraction(true);
+            scene.profileCacheSize = i == 0 ? 0 : 100;
+            DefaultCutPlaneVisitor propDataOut = new DefaultCutPlaneVisitor(true);
+            PathFinder pathFinder = new PathFinder(scene);
+            pathFinder.setThreadCount(1);
+            pathFinder.run(propDataOut);
+            hitCount[i] = pathFinder.getProfileCacheHitCount();
+            cutProfiles.add(new ArrayList<>(propDataOut.cutProfiles));
+        }
+        assertEquals(0, hitCount[0]);
+        assertTrue(hitCount[1] > 0);
+        // Same paths with and without the cache
+        assertEquals(cutProfiles.get(0).size(), cutProfiles.get(1).size());
+        for (int idPath = 0; idPath < cutProfiles.get(0).size(); idPath++) {
+            List<CutPoint> expected = cutProfiles.get(0).get(idPath).cutPoints;
+            List<CutPoint> actual = cutProfiles.get(1).get(idPath).cutPoints;
+            assertEquals(expected.size(), actual.size());
+            for (int idPoint = 0; idPoint < expected.size(); idPoint++) {
+                assertEquals(expected.get(idPoint).getClass(), actual.get(idPoint).getClass());
+                assertEquals(expected.get(idPoint).coordinate.x, actual.get(idPoint).coordinate.x, 1e-6);
+                assertEquals(expected.get(idPoint).coordinate.y, actual.get(idPoint).coordinate.y, 1e-6);
+                assertEquals(expected.get(idPoint).coordinate.z, actual.get(idPoint).coordinate.z, 1e-6);
+                assertEquals(expected.get(idPoint).zGround, actual.get(idPoint).zGround, 1e-6);
+                assertEquals(expected.get(idPoint).groundCoefficient, actual.get(idPoint).groundCoefficient, 1e-6);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutProfile;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ElevationGrid;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.TopographicProfileBuffer;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class dedicated to {@link ElevationGrid}.
+ */
+public class ElevationGridTest {
+    private static final double DELTA = 1e-6;
+
+    /**
+     * @return Grid of 10x8 nodes, 5 m apart, with irregular altitudes
+     */
+    private static ElevationGrid createGrid() {
+        int columnCount = 10;
+        int rowCount = 8;
+        float[] heights = new float[columnCount * rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < columnCount; column++) {
+                heights[row * columnCount + column] = (float) (10 + 3 * Math.sin(column * 0.9) * Math.cos(row * 1.3));
+            }
+        }
+        return new ElevationGrid(100, 200, 5, columnCount, rowCount, heights);
+    }
+
+    @Test
+    public void testInterpolation() {
+        ElevationGrid grid = createGrid();
+        // On the nodes
+        assertEquals(grid.getHeight(3, 2), grid.getZ(115, 210), DELTA);
+        assertEquals(grid.getHeight(9, 7), grid.getZ(145, 235), DELTA);
+        // On the diagonal of a cell
+        assertEquals((grid.getHeight(3, 2) + grid.getHeight(4, 3)) / 2, grid.getZ(117.5, 212.5), DELTA);
+        // Outside the grid the border is used
+        assertEquals(grid.getHeight(0, 0), grid.getZ(50, 150), DELTA);
+        assertEquals(grid.getZ(145, 222.5), grid.getZ(500, 222.5), DELTA);
+    }
+
+    /**
+     * The surface is linear between two consecutive points of the profile
+     */
+    @Test
+    public void testProfile() {
+        ElevationGrid grid = createGrid();
+        TopographicProfileBuffer profile = new TopographicProfileBuffer();
+        Coordinate[][] segments = new Coordinate[][] {
+                {new Coordinate(101.2, 201.7, 100), new Coordinate(143.1, 233.9, 100)},
+                {new Coordinate(143.1, 233.9, 100), new Coordinate(101.2, 201.7, 100)},
+                {new Coordinate(80, 210, 100), new Coordinate(170, 215, 100)},
+                {new Coordinate(112.5, 190, 100), new Coordinate(112.5, 250, 100)},
+                {new Coordinate(102.5, 202.5, 100), new Coordinate(142.5, 242.5, 100)}};
+        for (Coordinate[] segment : segments) {
+            assertTrue(grid.fetchProfile(profile, segment[0], segment[1], false));
+            assertTrue(profile.size() >= 2);
+            assertEquals(segment[0].x, profile.getX(0), DELTA);
+            assertEquals(segment[0].y, profile.getY(0), DELTA);
+            assertEquals(segment[1].x, profile.getX(profile.size() - 1), DELTA);
+            assertEquals(segment[1].y, profile.getY(profile.size() - 1), DELTA);
+            double previousDistance = -1;
+            for (int i = 0; i < profile.size(); i++) {
+                assertEquals(grid.getZ(profile.getX(i), profile.getY(i)), profile.getZ(i), DELTA);
+                double distance = segment[0].distance(new Coordinate(profile.getX(i), profile.getY(i)));
+                assertTrue(distance > previousDistance);
+                previousDistance = distance;
+                if(i > 0) {
+                    for (double ratio : new double[] {0.25, 0.5, 0.75}) {
+                        double x = profile.getX(i - 1) + ratio * (profile.getX(i) - profile.getX(i - 1));
+                        double y = profile.getY(i - 1) + ratio * (profile.getY(i) - profile.getY(i - 1));
+                        double z = profile.getZ(i - 1) + ratio * (profile.getZ(i) - profile.getZ(i - 1));
+                        assertEquals(z, grid.getZ(x, y), DELTA);
+                    }
+                }
+            }
+        }
+        // Line under the ground
+        assertFalse(grid.fetchProfile(profile, new Coordinate(101.2, 201.7, 0), new Coordinate(143.1, 233.9, 0),
+                false));
+        assertFalse(grid.fetchProfile(profile, new Coordinate(101.2, 201.7, 0), new Coordinate(143.1, 233.9, 0),
+                true));
+    }
+
+    @Test
+    public void testMapFile(@TempDir File tempDir) throws IOException {
+        ElevationGrid grid = createGrid();
+        File file = new File(tempDir, "dem.bin");
+        grid.write(file);
+        ElevationGrid mapped = ElevationGrid.map(file);
+        assertEquals(grid.getEnvelope(), mapped.getEnvelope());
+        for (int row = 0; row < grid.getRowCount(); row++) {
+            for (int column = 0; column < grid.getColumnCount(); column++) {
+                assertEquals(grid.getHeight(column, row), mapped.getHeight(column, row), 0);
+            }
+        }
+        // Same content, same hash
+        assertEquals(grid.getContentHash(), mapped.getContentHash());
+        float[] heights = new float[grid.getColumnCount() * grid.getRowCount()];
+        heights[5] = 1;
+        assertFalse(grid.getContentHash().equals(new ElevationGrid(grid.getXOrigin(), grid.getYOrigin(),
+                grid.getCellSize(), grid.getColumnCount(), grid.getRowCount(), heights).getContentHash()));
+    }
+
+    @Test
+    public void testProfileBuilder() throws ParseException {
+        ElevationGrid grid = createGrid();
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        profileBuilder.addBuilding(new WKTReader().read("POLYGON((120 215,125 215,125 220,120 220,120 215))"), 10, 1);
+        profileBuilder.setElevationGrid(grid);
+        profileBuilder.finishFeeding();
+        assertTrue(profileBuilder.hasDem());
+        assertEquals(grid.getZ(110, 205), profileBuilder.getZGround(new Coordinate(110, 205)), DELTA);
+        // The building altitude is the building height over the lowest ground altitude
+        double minimumZ = Double.MAX_VALUE;
+        for (Coordinate coordinate : profileBuilder.getBuilding(0).getGeometry().getCoordinates()) {
+            minimumZ = Math.min(minimumZ, grid.getZ(coordinate.x, coordinate.y));
+        }
+        assertEquals(minimumZ + 10, profileBuilder.getBuilding(0).getZ(), DELTA);
+        CutProfile profile = profileBuilder.getProfile(new Coordinate(102, 203, 20), new Coordinate(143, 212, 20));
+        assertEquals(grid.getZ(102, 203), profile.getSource().zGround, DELTA);
+        assertEquals(grid.getZ(143, 212), profile.getReceiver().zGround, DELTA);
+        assertFalse(profile.hasTopographyIntersection);
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.algorithm.ConvexHull;
+import org.locationtech.jts.algorithm.Orientation;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineSegment;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class dedicated to {@link LateralDiffractionHull}.
+ */
+public class LateralDiffractionHullTest {
+
+    /**
+     * The left and right paths computed with the same hull instance are the paths computed separately
+     */
+    @Test
+    public void testSharedSides() throws ParseException {
+        WKTReader reader = new WKTReader();
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        Random random = new Random(42);
+        for (int i = 0; i < 40; i++) {
+            double x = random.nextDouble() * 200;
+            double y = random.nextDouble() * 200;
+            double width = 5 + random.nextDouble() * 15;
+            double height = 5 + random.nextDouble() * 15;
+            profileBuilder.addBuilding(reader.read(String.format(Locale.ROOT,
+                    "POLYGON((%f %f,%f %f,%f %f,%f %f,%f %f))", x, y, x + width, y, x + width, y + height, x,
+                    y + height, x, y)), 5 + random.nextDouble() * 10, -1);
+        }
+        profileBuilder.finishFeeding();
+        int pathCount = 0;
+        for (int i = 0; i < 50; i++) {
+            Coordinate p1 = new Coordinate(random.nextDouble() * 200, random.nextDouble() * 200, 1);
+            Coordinate p2 = new Coordinate(random.nextDouble() * 200, random.nextDouble() * 200, 4);
+            LateralDiffractionHull shared = new LateralDiffractionHull(p1, p2, profileBuilder, 4, 1000);
+            for (boolean left : new boolean[] {false, true}) {
+                List<Coordinate> expected = new LateralDiffractionHull(p1, p2, profileBuilder, 4, 1000)
+                        .computeSideHull(left);
+                List<Coordinate> path = shared.computeSideHull(left);
+                assertEquals(expected, path);
+                if (!path.isEmpty()) {
+                    pathCount++;
+                    assertTrue(path.get(0).equals2D(p1));
+                    assertTrue(path.get(path.size() - 1).equals2D(p2));
+                    // The diffraction points are on the requested side
+                    LineSegment p1Top2 = new LineSegment(p1, p2);
+                    for (Coordinate point : path.subList(1, path.size() - 1)) {
+                        assertEquals(left ? 1 : -1, p1Top2.orientationIndex(point));
+                    }
+                }
+            }
+        }
+        assertTrue(pathCount > 0);
+    }
+
+    /**
+     * The incremental hull has the vertices of the JTS convex hull, on random points with collinear and duplicate
+     * points
+     */
+    @Test
+    public void testSameAsConvexHull() {
+        GeometryFactory factory = new GeometryFactory();
+        ProfileBuilder profileBuilder = new ProfileBuilder().finishFeeding();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            // Small integer grids give collinear and duplicate points
+            int gridSize = 3 + random.nextInt(8);
+            Coordinate p1 = new Coordinate(random.nextInt(gridSize + 1), random.nextInt(gridSize + 1), 0);
+            Coordinate p2 = new Coordinate(random.nextInt(gridSize + 1), random.nextInt(gridSize + 1), 0);
+            if (p1.equals2D(p2)) {
+                continue;
+            }
+            int pointCount = random.nextInt(16);
+            List<Coordinate> points = new ArrayList<>();
+            for (int j = 0; j < pointCount; j++) {
+                if (i % 3 == 0) {
+                    // On the p1 p2 line
+                    int k = random.nextInt(6) - 2;
+                    points.add(new Coordinate(p1.x + k * (p2.x - p1.x), p1.y + k * (p2.y - p1.y), 0));
+                } else {
+                    points.add(new Coordinate(random.nextInt(gridSize + 1), random.nextInt(gridSize + 1), 0));
+                }
+            }
+            if (!points.isEmpty()) {
+                points.add(new Coordinate(points.get(random.nextInt(points.size()))));
+            }
+            List<Coordinate> allPoints = new ArrayList<>(points);
+            allPoints.add(p1);
+            allPoints.add(p2);
+            Geometry expected = new ConvexHull(allPoints.toArray(new Coordinate[0]), factory).getConvexHull();
+            Set<Coordinate> expectedVertices = new HashSet<>(Arrays.asList(expected.getCoordinates()));
+
+            List<Coordinate> hull = new LateralDiffractionHull(p1, p2, profileBuilder, 4, 1000)
+                    .computeHull(points);
+            assertEquals(expectedVertices.size(), hull.size(), allPoints.toString());
+            assertEquals(expectedVertices, new HashSet<>(hull), allPoints.toString());
+            if (hull.size() > 2) {
+                List<Coordinate> ring = new ArrayList<>(hull);
+                ring.add(hull.get(0));
+                assertFalse(Orientation.isCCW(ring.toArray(new Coordinate[0])), allPoints.toString());
+            }
+        }
+    }
+}
@@ -10,24 +10,38 @@
 package org.noise_planet.noisemodelling.pathfinder;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.algorithm.Orientation;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
+import org.locationtech.jts.triangulate.quadedge.Vertex;
+import org.noise_planet.noisemodelling.pathfinder.delaunay.Triangle;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.Building;
 import org.noise_planet.noisemodelling.pathfinder.path.Scene;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutPoint;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutProfile;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilderSnapshot;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.TopographicProfileBuffer;
+import org.noise_planet.noisemodelling.pathfinder.utils.geometry.HilbertCurve;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.noise_planet.noisemodelling.pathfinder.PathFinderTest.assertZProfil;
 
 /**
@@ -149,6 +163,315 @@ public class ProfileBuilderTest {
         assertEquals(0.3, pts.get(pts.size() - 1).getCoordinate().z, DELTA);
     }
 
+    /**
+     * Test the topographic profile written into a reused buffer. The expected profile is computed without the
+     * triangle walk, from the crossings of the segment with all the sides of the triangles.
+     * @throws ParseException JTS WKT parsing exception.
+     */
+    @Test
+    public void topoProfileBufferTest() throws ParseException {
+        ProfileBuilder profileBuilder = new ProfileBuilder(3, 3, 3, 2);
+        profileBuilder.addTopographicLine((LineString) READER.read("LINESTRING (4 1 1.5, 5 7 1.0, 8 9 1.5)"));
+        profileBuilder.addTopographicPoint(new Coordinate(7, 9, 2.5));
+        profileBuilder.addTopographicPoint(new Coordinate(2, 4, 2.5));
+        profileBuilder.addTopographicPoint(new Coordinate(6, 1, 3.0));
+        profileBuilder.addTopographicPoint(new Coordinate(4, 4, 3.0));
+        profileBuilder.addTopographicPoint(new Coordinate(2, 5, 3.0));
+        profileBuilder.addTopographicPoint(new Coordinate(1, 9, 2.0));
+        profileBuilder.addTopographicPoint(new Coordinate(8, 2, 2.0));
+        profileBuilder.finishFeeding();
+
+        // Segments within the triangulation that do not go through a vertex
+        Coordinate[][] segments = new Coordinate[][] {
+                {new Coordinate(3, 5, 10), new Coordinate(7, 7, 10)},
+                {new Coordinate(7, 7, 10), new Coordinate(3, 5, 10)},
+                {new Coordinate(6.5, 8.5, 10), new Coordinate(4.5, 2, 10)},
+                {new Coordinate(3, 8, 10), new Coordinate(7.5, 3, 10)}};
+        List<Coordinate> vertices = profileBuilder.getVertices();
+        List<Triangle> triangles = profileBuilder.getTriangles();
+        TopographicProfileBuffer buffer = new TopographicProfileBuffer();
+        for (int loop = 0; loop < 2; loop++) {
+            for (Coordinate[] segment : segments) {
+                assertTrue(profileBuilder.fetchTopographicProfile(buffer, segment[0], segment[1], false));
+                List<Coordinate> expected = crossTriangleSides(vertices, triangles, segment[0], segment[1]);
+                // Starts and ends on the segment ends
+                assertTrue(expected.size() > 1);
+                assertEquals(segment[0].x, buffer.getX(0), DELTA);
+                assertEquals(segment[0].y, buffer.getY(0), DELTA);
+                assertEquals(segment[1].x, buffer.getX(buffer.size() - 1), DELTA);
+                assertEquals(segment[1].y, buffer.getY(buffer.size() - 1), DELTA);
+                // The profile holds the crossings of all the triangle sides, in order, and nothing else
+                int expectedIndex = 0;
+                double lastDistance = -1;
+                for (int i = 0; i < buffer.size(); i++) {
+                    Coordinate point = new Coordinate(buffer.getX(i), buffer.getY(i), buffer.getZ(i));
+                    double distance = point.distance(segment[0]);
+                    assertTrue(distance >= lastDistance - DELTA);
+                    lastDistance = distance;
+                    if (expectedIndex < expected.size() && expected.get(expectedIndex).distance(point) < 1e-6) {
+                        assertEquals(expected.get(expectedIndex).z, point.z, 1e-6);
+                        expectedIndex++;
+                    } else {
+                        // Duplicate of the previous crossing
+                        assertTrue(expectedIndex > 0 && expected.get(expectedIndex - 1).distance(point) < 1e-6,
+                                "Unexpected profile point " + point);
+                        assertEquals(expected.get(expectedIndex - 1).z, point.z, 1e-6);
+                    }
+                }
+                // No crossing is missing
+                assertEquals(expected.size(), expectedIndex);
+                // The List based profile is a copy of the buffer
+                List<Coordinate> profile = new ArrayList<>();
+                assertTrue(profileBuilder.fetchTopographicProfile(profile, segment[0], segment[1], false));
+                assertEquals(buffer.size(), profile.size());
+                for (int i = 0; i < profile.size(); i++) {
+                    assertEquals(buffer.getX(i), profile.get(i).x, 0);
+                    assertEquals(buffer.getY(i), profile.get(i).y, 0);
+                    assertEquals(buffer.getZ(i), profile.get(i).z, 0);
+                }
+            }
+        }
+        // Segment under the ground
+        assertEquals(false, profileBuilder.fetchTopographicProfile(buffer, new Coordinate(3, 5, 0),
+                new Coordinate(7, 7, 0), false));
+    }
+
+    /**
+     * @return The segment ends and the crossings of the segment with the sides of the triangles, with the altitude of
+     * the ground, sorted by distance from p0
+     */
+    private static List<Coordinate> crossTriangleSides(List<Coordinate> vertices, List<Triangle> triangles,
+                                                       Coordinate p0, Coordinate p1) {
+        LineSegment segment = new LineSegment(p0, p1);
+        List<Coordinate> crossings = new ArrayList<>();
+        for (Triangle triangle : triangles) {
+            Coordinate[] corners = new Coordinate[] {vertices.get(triangle.getA()), vertices.get(triangle.getB()),
+                    vertices.get(triangle.getC())};
+            for (int side = 0; side < 3; side++) {
+                LineSegment triangleSide = new LineSegment(corners[side], corners[(side + 1) % 3]);
+                Coordinate intersection = segment.intersection(triangleSide);
+                if (intersection != null) {
+                    crossings.add(new Coordinate(intersection.x, intersection.y,
+                            Vertex.interpolateZ(intersection, triangleSide.p0, triangleSide.p1)));
+                }
+            }
+            // Altitude of the segment ends
+            for (Coordinate end : new Coordinate[] {p0, p1}) {
+                if (isInTriangle(end, corners)) {
+                    crossings.add(new Coordinate(end.x, end.y,
+                            Vertex.interpolateZ(end, corners[0], corners[1], corners[2])));
+                }
+            }
+        }
+        crossings.sort(Comparator.comparingDouble(c -> c.distance(p0)));
+        // Each side is shared by two triangles
+        List<Coordinate> profile = new ArrayList<>();
+        for (Coordinate crossing : crossings) {
+            if (profile.isEmpty() || profile.get(profile.size() - 1).distance(crossing) > 1e-9) {
+                profile.add(crossing);
+            }
+        }
+        return profile;
+    }
+
+    private static boolean isInTriangle(Coordinate point, Coordinate[] corners) {
+        return Orientation.index(corners[0], corners[1], point) * Orientation.index(corners[0], corners[1],
+                corners[2]) >= 0 &&
+                Orientation.index(corners[1], corners[2], point) * Orientation.index(corners[1], corners[2],
+                        corners[0]) >= 0 &&
+                Orientation.index(corners[2], corners[0], point) * Orientation.index(corners[2], corners[0],
+                        corners[1]) >= 0;
+    }
+
+    /**
+     * The visibility test gives the same result as the free field status of the cut profile
+     * @throws ParseException JTS WKT parsing exception.
+     */
+    @Test
+    public void isVisibleTest() throws ParseException {
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        profileBuilder.addBuilding(READER.read("POLYGON((20 20,40 20,40 40,20 40,20 20))"), 10, -1);
+        profileBuilder.addBuilding(READER.read("POLYGON((60 10,70 10,70 60,60 60,60 10))"), 4, -1);
+        profileBuilder.addWall((LineString) READER.read("LINESTRING(10 60, 50 90)"), 6, -1);
+        profileBuilder.addGroundEffect(READER.read("POLYGON((0 0,100 0,100 100,0 100,0 0))"), 0.5);
+        // Hill on the east side
+        for (int i = 0; i <= 10; i++) {
+            for (int j = 0; j <= 10; j++) {
+                double x = i * 10;
+                double y = j * 10;
+                profileBuilder.addTopographicPoint(new Coordinate(x, y, x > 80 && y > 40 && y < 80 ? 8 : 0));
+            }
+        }
+        profileBuilder.finishFeeding();
+        Random random = new Random(7);
+        int visibleCount = 0;
+        for (int i = 0; i < 300; i++) {
+            Coordinate p0 = new Coordinate(random.nextDouble() * 100, random.nextDouble() * 100,
+                    random.nextDouble() * 12);
+            Coordinate p1 = new Coordinate(random.nextDouble() * 100, random.nextDouble() * 100,
+                    random.nextDouble() * 12);
+            boolean visible = profileBuilder.isVisible(p0, p1);
+            assertEquals(profileBuilder.getProfile(p0, p1, 0, true).isFreeField(), visible);
+            if(visible) {
+                visibleCount++;
+            }
+        }
+        // Both cases are tested
+        assertTrue(visibleCount > 0 && visibleCount < 300);
+        assertTrue(profileBuilder.isVisible(new Coordinate(5, 5, 2), new Coordinate(5, 95, 2)));
+        assertEquals(false, profileBuilder.isVisible(new Coordinate(10, 30, 2), new Coordinate(50, 30, 2)));
+    }
+
+    /**
+     * The simplified topography stays within the tolerance of the original points
+     */
+    @Test
+    public void topoDecimationTest() {
+        List<Coordinate> points = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 40; j++) {
+                double x = i * 5;
+                double y = j * 5;
+                // Flat area with a hill in the middle
+                double z = 10 + 8 * Math.exp(-(Math.pow(x - 100, 2) + Math.pow(y - 100, 2)) / 800);
+                points.add(new Coordinate(x, y, z));
+            }
+        }
+        ProfileBuilder reference = new ProfileBuilder();
+        ProfileBuilder simplified = new ProfileBuilder();
+        simplified.setTopographicTolerance(0.1);
+        for (Coordinate point : points) {
+            reference.addTopographicPoint(point);
+            simplified.addTopographicPoint(point);
+        }
+        reference.finishFeeding();
+        simplified.finishFeeding();
+        assertEquals(0, reference.getRemovedTopographicPointCount());
+        assertTrue(simplified.getRemovedTopographicPointCount() > points.size() / 2);
+        assertTrue(simplified.getTriangles().size() < reference.getTriangles().size() / 2);
+        for (Coordinate point : points) {
+            assertEquals(point.z, simplified.getZGround(point), 0.1 + DELTA);
+        }
+    }
+
+    /**
+     * With topographic lines the final triangulation is constrained, the full resolution points are still within
+     * the tolerance of the final mesh
+     */
+    @Test
+    public void topoDecimationConstrainedTest() {
+        List<Coordinate> points = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 40; j++) {
+                double x = i * 5;
+                double y = j * 5;
+                points.add(new Coordinate(x, y, hillAltitude(x, y)));
+            }
+        }
+        ProfileBuilder simplified = new ProfileBuilder();
+        simplified.setTopographicTolerance(0.1);
+        for (Coordinate point : points) {
+            simplified.addTopographicPoint(point);
+        }
+        // Long lines that cross the hill, their segments are forced into the triangulation
+        Coordinate[][] lines = new Coordinate[][]{
+                {new Coordinate(2.5, 12.5), new Coordinate(102.5, 97.5), new Coordinate(192.5, 182.5)},
+                {new Coordinate(7.5, 187.5), new Coordinate(187.5, 17.5)},
+                {new Coordinate(97.5, 2.5), new Coordinate(102.5, 192.5)}};
+        for (Coordinate[] line : lines) {
+            for (Coordinate coordinate : line) {
+                coordinate.z = hillAltitude(coordinate.x, coordinate.y);
+            }
+            simplified.addTopographicLine(new GeometryFactory().createLineString(line));
+        }
+        simplified.finishFeeding();
+        assertTrue(simplified.getRemovedTopographicPointCount() > points.size() / 2);
+        // Sample the final mesh against the full resolution points
+        for (Coordinate point : points) {
+            assertEquals(point.z, simplified.getZGround(point), 0.1 + DELTA);
+        }
+    }
+
+    /**
+     * @return Flat area with a hill in the middle
+     */
+    private static double hillAltitude(double x, double y) {
+        return 10 + 8 * Math.exp(-(Math.pow(x - 100, 2) + Math.pow(y - 100, 2)) / 800);
+    }
+
+    /**
+     * The triangle hint of the previous location gives the same altitude as the R-Tree query
+     */
+    @Test
+    public void testZGroundTriangleHint() {
+        Random random = new Random(42);
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        for (int i = 0; i < 500; i++) {
+            profileBuilder.addTopographicPoint(new Coordinate(random.nextDouble() * 500, random.nextDouble() * 500,
+                    random.nextDouble() * 20));
+        }
+        profileBuilder.finishFeeding();
+        List<Coordinate> locations = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            locations.add(new Coordinate(random.nextDouble() * 500, random.nextDouble() * 500));
+        }
+        // Close consecutive locations then distant consecutive locations
+        AtomicInteger triangleHint = new AtomicInteger(-1);
+        for (int idLocation : HilbertCurve.sort(locations)) {
+            Coordinate location = locations.get(idLocation);
+            assertEquals(profileBuilder.getZGround(location), profileBuilder.getZGround(location, triangleHint),
+                    DELTA);
+        }
+        for (Coordinate location : locations) {
+            assertEquals(profileBuilder.getZGround(location), profileBuilder.getZGround(location, triangleHint),
+                    DELTA);
+        }
+    }
+
+    /**
+     * Test the write and read of a finished {@link ProfileBuilder}
+     * @throws ParseException JTS WKT parsing exception.
+     */
+    @Test
+    public void snapshotTest(@TempDir File tempDir) throws ParseException, IOException {
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        profileBuilder.addBuilding(READER.read("POLYGON((4 3,5 3,5 5,4 5,4 3))"), 10, 1);
+        profileBuilder.addWall(new Coordinate[]{new Coordinate(1, 8), new Coordinate(3, 9)}, 4, 2);
+        profileBuilder.addTopographicLine((LineString) READER.read("LINESTRING (4 1 1.5, 5 7 1.0, 8 9 1.5)"));
+        profileBuilder.addTopographicPoint(new Coordinate(7, 9, 2.5));
+        profileBuilder.addTopographicPoint(new Coordinate(2, 4, 2.5));
+        profileBuilder.addTopographicPoint(new Coordinate(6, 1, 3.0));
+        profileBuilder.addTopographicPoint(new Coordinate(2, 5, 3.0));
+        profileBuilder.addTopographicPoint(new Coordinate(1, 9, 2.0));
+        profileBuilder.addTopographicPoint(new Coordinate(8, 2, 2.0));
+        profileBuilder.addGroundEffect(READER.read("POLYGON((8 1, 7 2, 7 4.5, 8 5, 9 4.5, 10 3.5, 9.5 2, 8 1))"), 0.25);
+        profileBuilder.finishFeeding();
+
+        File snapshotFile = new File(tempDir, "profile.bin");
+        ProfileBuilderSnapshot.write(profileBuilder, snapshotFile, "hash1");
+        // the input data changed
+        assertNull(ProfileBuilderSnapshot.read(snapshotFile, "hash2"));
+        ProfileBuilder restored = ProfileBuilderSnapshot.read(snapshotFile, "hash1");
+        assertNotNull(restored);
+
+        assertEquals(profileBuilder.getTriangles().size(), restored.getTriangles().size());
+        assertEquals(profileBuilder.getVertices().size(), restored.getVertices().size());
+        assertEquals(profileBuilder.getProcessedWalls().size(), restored.getProcessedWalls().size());
+        assertEquals(profileBuilder.getGroundEffects().size(), restored.getGroundEffects().size());
+        assertEquals(profileBuilder.getMeshEnvelope(), restored.getMeshEnvelope());
+        assertEquals(profileBuilder.getBuilding(0).getZ(), restored.getBuilding(0).getZ(), DELTA);
+        assertEquals(profileBuilder.getZGround(new Coordinate(5, 5)),
+                restored.getZGround(new Coordinate(5, 5)), DELTA);
+
+        CutProfile expected = profileBuilder.getProfile(new Coordinate(0, 1, 0.1), new Coordinate(8, 10, 0.3));
+        CutProfile profile = restored.getProfile(new Coordinate(0, 1, 0.1), new Coordinate(8, 10, 0.3));
+        assertEquals(expected.cutPoints.size(), profile.cutPoints.size());
+        for (int i = 0; i < expected.cutPoints.size(); i++) {
+            assertEquals(expected.cutPoints.get(i).getCoordinate().distance3D(
+                    profile.cutPoints.get(i).getCoordinate()), 0, DELTA);
+        }
+    }
+
     /**
      * Test the ground adding to a {@link ProfileBuilder}.
      * @throws ParseException JTS WKT parsing exception.
@@ -0,0 +1,159 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.noise_planet.noisemodelling.pathfinder.path.Scene;
+import org.noise_planet.noisemodelling.pathfinder.utils.geometry.HilbertCurve;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReceiverSchedulerTest {
+
+    private static Scene makeScene(int receiverCount) {
+        Scene scene = new Scene();
+        scene.maxSrcDist = 100;
+        for (int i = 0; i < receiverCount; i++) {
+            scene.addReceiver(i, new Coordinate(i * 10, 0, 4));
+        }
+        return scene;
+    }
+
+    private static int[] dispatchAll(ReceiverScheduler scheduler, int receiverCount) {
+        int[] visitCount = new int[receiverCount];
+        int[] batch = scheduler.nextReceivers();
+        while (batch.length > 0) {
+            for (int idReceiver : batch) {
+                visitCount[idReceiver]++;
+            }
+            batch = scheduler.nextReceivers();
+        }
+        return visitCount;
+    }
+
+    @Test
+    public void testStaticSchedulerDispatchAllReceivers() {
+        Scene scene = makeScene(101);
+        StaticReceiverScheduler scheduler = new StaticReceiverScheduler();
+        scheduler.init(scene, 4);
+        int[] firstBatch = scheduler.nextReceivers();
+        assertEquals(26, firstBatch.length);
+        scheduler.init(scene, 4);
+        for (int count : dispatchAll(scheduler, 101)) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void testAdaptiveSchedulerDispatchAllReceivers() {
+        Scene scene = makeScene(1000);
+        AdaptiveReceiverScheduler scheduler = new AdaptiveReceiverScheduler();
+        scheduler.init(scene, 4);
+        int previousSize = Integer.MAX_VALUE;
+        int[] batch = scheduler.nextReceivers();
+        int dispatched = 0;
+        while (batch.length > 0) {
+            // batches are shrinking
+            assertTrue(batch.length <= previousSize);
+            previousSize = batch.length;
+            dispatched += batch.length;
+            batch = scheduler.nextReceivers();
+        }
+        assertEquals(1000, dispatched);
+        assertTrue(previousSize <= AdaptiveReceiverScheduler.DEFAULT_MINIMUM_BATCH_SIZE);
+        scheduler.init(scene, 4);
+        for (int count : dispatchAll(scheduler, 1000)) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void testAdaptiveSchedulerOrderByCost() {
+        Scene scene = makeScene(50);
+        GeometryFactory factory = new GeometryFactory();
+        // sound sources near the last receiver
+        for (int i = 0; i < 20; i++) {
+            scene.addSource((long) i, factory.createPoint(new Coordinate(490 + i * 0.5, 5, 0.05)));
+        }
+        AdaptiveReceiverScheduler scheduler = new AdaptiveReceiverScheduler(true);
+        scheduler.init(scene, 2);
+        int[] firstBatch = scheduler.nextReceivers();
+        // the first receivers to be evaluated are the ones close to the sound sources
+        for (int idReceiver : firstBatch) {
+            assertTrue(scene.receivers.get(idReceiver).x > 300);
+        }
+        scheduler.init(scene, 2);
+        for (int count : dispatchAll(scheduler, 50)) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void testAdaptiveSchedulerOrderBySpaceFillingCurve() {
+        // The first 16 cells of the curve are the 4x4 cells in the corner, each cell is next to the previous one
+        int[][] cells = new int[16][];
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                long index = HilbertCurve.index(x, y);
+                assertTrue(index < 16);
+                cells[(int) index] = new int[] {x, y};
+            }
+        }
+        for (int i = 1; i < cells.length; i++) {
+            assertEquals(1, Math.abs(cells[i][0] - cells[i - 1][0]) + Math.abs(cells[i][1] - cells[i - 1][1]));
+        }
+        // Receivers of a regular grid inserted in random order
+        Scene scene = new Scene();
+        scene.maxSrcDist = 100;
+        Random random = new Random(42);
+        int side = 64;
+        int[] shuffled = new int[side * side];
+        for (int i = 0; i < shuffled.length; i++) {
+            shuffled[i] = i;
+        }
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        for (int i = 0; i < shuffled.length; i++) {
+            scene.addReceiver(i, new Coordinate((shuffled[i] % side) * 10, (shuffled[i] / side) * 10, 4));
+        }
+        AdaptiveReceiverScheduler scheduler = new AdaptiveReceiverScheduler();
+        scheduler.setOrderBySpaceFillingCurve(true);
+        scheduler.init(scene, 1);
+        int[] visitCount = new int[shuffled.length];
+        Coordinate previous = null;
+        double distance = 0;
+        int[] batch = scheduler.nextReceivers();
+        while (batch.length > 0) {
+            for (int idReceiver : batch) {
+                visitCount[idReceiver]++;
+                Coordinate receiver = scene.receivers.get(idReceiver);
+                if (previous != null) {
+                    distance += previous.distance(receiver);
+                }
+                previous = receiver;
+            }
+            batch = scheduler.nextReceivers();
+        }
+        for (int count : visitCount) {
+            assertEquals(1, count);
+        }
+        // Consecutive receivers are close, the scene order would give about 0.5 * side * 10 meters
+        assertTrue(distance / (shuffled.length - 1) < 15);
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.noise_planet.noisemodelling.pathfinder.path.Scene;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.noise_planet.noisemodelling.pathfinder.utils.geometry.Orientation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class dedicated to {@link SourceAggregation}.
+ */
+public class SourceAggregationTest {
+
+    /**
+     * Each source is propagated once, directly or by an equivalent source, and the error bound is respected
+     */
+    @Test
+    public void testAggregate() {
+        Random random = new Random(42);
+        List<PathFinder.SourcePointInfo> sources = new ArrayList<>();
+        // Road segments every 2 meters
+        for (int road = 0; road < 20; road++) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double distance = 200 + random.nextDouble() * 1000;
+            double direction = random.nextDouble() * 2 * Math.PI;
+            for (int i = 0; i < 100; i++) {
+                int sourceIndex = sources.size();
+                sources.add(new PathFinder.SourcePointInfo(sourceIndex, sourceIndex, new Coordinate(
+                        Math.cos(angle) * distance + Math.cos(direction) * i * 2,
+                        Math.sin(angle) * distance + Math.sin(direction) * i * 2, 0.05), 1.0, new Orientation()));
+            }
+        }
+        // Close sources
+        for (int i = 0; i < 10; i++) {
+            int sourceIndex = sources.size();
+            sources.add(new PathFinder.SourcePointInfo(sourceIndex, sourceIndex, new Coordinate(5 + i, 3, 0.05), 1.0,
+                    new Orientation()));
+        }
+        double[] weights = new double[sources.size()];
+        Arrays.fill(weights, 1.0);
+        Coordinate receiver = new Coordinate(0, 0, 4);
+        double tolerance = 0.5;
+        List<PathFinder.SourcePointInfo> result = new SourceAggregation(tolerance).aggregate(receiver, sources,
+                weights);
+        assertTrue(result.size() < sources.size() / 2);
+        Set<Integer> sourceIndices = new HashSet<>();
+        Set<Integer> equivalentSourceIndices = new HashSet<>();
+        for (PathFinder.SourcePointInfo source : result) {
+            if (source.aggregatedSources.isEmpty()) {
+                assertTrue(sourceIndices.add(source.sourceIndex));
+                continue;
+            }
+            assertTrue(source.sourceIndex <= SourceAggregation.FIRST_EQUIVALENT_SOURCE_INDEX);
+            assertTrue(equivalentSourceIndices.add(source.sourceIndex));
+            // Sum of the levels of the sources compared to the level of the equivalent source
+            double expected = 0;
+            for (PathFinder.SourcePointInfo aggregatedSource : source.aggregatedSources) {
+                assertTrue(sourceIndices.add(aggregatedSource.sourceIndex));
+                expected += 1 / Math.pow(receiver.distance3D(aggregatedSource.position), 2);
+            }
+            double equivalent = source.aggregatedSources.size() / Math.pow(receiver.distance3D(source.position), 2);
+            assertTrue(Math.abs(10 * Math.log10(equivalent / expected)) <= tolerance);
+        }
+        assertEquals(sources.size(), sourceIndices.size());
+    }
+
+    /**
+     * The sources hidden from the receiver are not aggregated with the visible sources
+     */
+    @Test
+    public void testAggregateSameVisibility() {
+        List<PathFinder.SourcePointInfo> sources = new ArrayList<>();
+        // A road behind a wall for x > 500
+        for (int i = 0; i < 100; i++) {
+            sources.add(new PathFinder.SourcePointInfo(i, i, new Coordinate(450 + i, 300, 0.05), 1.0,
+                    new Orientation()));
+        }
+        double[] weights = new double[sources.size()];
+        Arrays.fill(weights, 1.0);
+        Coordinate receiver = new Coordinate(0, 0, 4);
+        List<PathFinder.SourcePointInfo> result = new SourceAggregation(1.0, position -> position.x < 500)
+                .aggregate(receiver, sources, weights);
+        int sourceCount = 0;
+        for (PathFinder.SourcePointInfo source : result) {
+            if (source.aggregatedSources.isEmpty()) {
+                sourceCount++;
+                continue;
+            }
+            boolean visible = source.position.x < 500;
+            for (PathFinder.SourcePointInfo aggregatedSource : source.aggregatedSources) {
+                assertEquals(visible, aggregatedSource.position.x < 500);
+                sourceCount++;
+            }
+        }
+        assertEquals(sources.size(), sourceCount);
+        assertTrue(result.size() < sources.size() / 2);
+    }
+
+    @Test
+    public void testMaximumError() {
+        assertEquals(Double.POSITIVE_INFINITY, SourceAggregation.getMaximumError(10, 10));
+        assertEquals(0, SourceAggregation.getMaximumError(10, 0), 1e-12);
+        assertEquals(20 * Math.log10(2), SourceAggregation.getMaximumError(100, 50), 1e-12);
+    }
+
+    /**
+     * Fewer propagation paths are computed with the aggregation of the far sources
+     */
+    @Test
+    public void testPathFinder() {
+        GeometryFactory factory = new GeometryFactory();
+        long[] pathCount = new long[2];
+        for (int i = 0; i < 2; i++) {
+            Scene scene = new Scene(new ProfileBuilder());
+            scene.profileBuilder.finishFeeding();
+            for (int idSource = 0; idSource < 100; idSource++) {
+                scene.addSource(factory.createPoint(new Coordinate(500 + (idSource % 10) * 3,
+                        (idSource / 10) * 3, 0.5)));
+            }
+            scene.addSource(factory.createPoint(new Coordinate(10, 5, 0.5)));
+            scene.addReceiver(new Coordinate(0, 0, 4));
+            scene.setReflexionOrder(0);
+            scene.sourceAggregationTolerance = i == 0 ? 0 : 1;
+            DefaultCutPlaneVisitor propDataOut = new DefaultCutPlaneVisitor(true);
+            PathFinder pathFinder = new PathFinder(scene);
+            pathFinder.setThreadCount(1);
+            pathFinder.run(propDataOut);
+            pathCount[i] = propDataOut.pathCount.get();
+        }
+        assertEquals(101, pathCount[0]);
+        assertTrue(pathCount[1] < 10);
+    }
+}
@@ -10,11 +10,13 @@ package org.noise_planet.noisemodelling.pathfinder;
 
 import org.h2.tools.Csv;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.noise_planet.noisemodelling.pathfinder.path.MirrorReceiver;
 import org.noise_planet.noisemodelling.pathfinder.path.MirrorReceiversCompute;
+import org.noise_planet.noisemodelling.pathfinder.path.MirrorReceiversStore;
 import org.noise_planet.noisemodelling.pathfinder.path.Scene;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutPoint;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutPointReceiver;
@@ -26,12 +28,15 @@ import org.noise_planet.noisemodelling.pathfinder.profilebuilder.Wall;
 import org.noise_planet.noisemodelling.pathfinder.utils.geometry.Orientation;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestWallReflection {
@@ -126,6 +131,70 @@ public class TestWallReflection {
     }
 
 
+    @Test
+    public void testMirrorReceiversStore(@TempDir File tempDir) throws ParseException, IOException, SQLException {
+        GeometryFactory factory = new GeometryFactory();
+        ProfileBuilder profileBuilder = new ProfileBuilder();
+        Csv csv = new Csv();
+        WKTReader wktReader = new WKTReader();
+        try(ResultSet rs = csv.read(new FileReader(
+                        TestWallReflection.class.getResource("testNReflexionBuildings.csv").getFile()),
+                new String[]{"geom", "id"})) {
+            assertTrue(rs.next()); //skip column name
+            while(rs.next()) {
+                profileBuilder.addBuilding(wktReader.read(rs.getString(1)), 10, rs.getInt(2));
+            }
+        }
+        profileBuilder.finishFeeding();
+        Coordinate receiver = new Coordinate(599093.85,646227.90, 4);
+        Coordinate source = new Coordinate(599095.21, 646283.77, 1);
+        Envelope receiverPropagationEnvelope = new Envelope(receiver);
+        receiverPropagationEnvelope.expandBy(180);
+        List<Wall> buildWalls = profileBuilder.getWallsIn(receiverPropagationEnvelope);
+        MirrorReceiversCompute expected = new MirrorReceiversCompute(buildWalls, receiver,
+                2, 180, 80, true);
+
+        File storeFile = new File(tempDir, "mirror.bin");
+        MirrorReceiversStore store = new MirrorReceiversStore(storeFile, "hash");
+        assertNull(store.get(1, receiver, profileBuilder.getProcessedWalls(), 180, 80));
+        store.put(1, expected);
+        store.save();
+
+        // read back from the file
+        store = new MirrorReceiversStore(storeFile, "hash");
+        MirrorReceiversCompute restored = store.get(1, receiver, profileBuilder.getProcessedWalls(), 180, 80);
+        assertNotNull(restored);
+        assertEquals(1, store.getHitCount());
+        assertEquals(expected.getNumberOfImageReceivers(), restored.getNumberOfImageReceivers());
+        List<MirrorReceiver> expectedMirrors = expected.findCloseMirrorReceivers(source);
+        List<MirrorReceiver> restoredMirrors = restored.findCloseMirrorReceivers(source);
+        assertEquals(expectedMirrors.size(), restoredMirrors.size());
+        Set<Integer> expectedWalls = new HashSet<>();
+        for (MirrorReceiver mirrorReceiver : expectedMirrors) {
+            expectedWalls.add(mirrorReceiver.getWall().getProcessedWallIndex());
+        }
+        for (MirrorReceiver mirrorReceiver : restoredMirrors) {
+            assertTrue(expectedWalls.contains(mirrorReceiver.getWall().getProcessedWallIndex()));
+        }
+        // another geometry or moved receiver
+        assertNull(new MirrorReceiversStore(storeFile, "otherHash").get(1, receiver,
+                profileBuilder.getProcessedWalls(), 180, 80));
+        assertNull(store.get(1, new Coordinate(receiver.x, receiver.y, 5), profileBuilder.getProcessedWalls(),
+                180, 80));
+        // The walls have been changed without changing the hash, the stale record is not used
+        List<Wall> processedWalls = profileBuilder.getProcessedWalls();
+        long missCount = store.getMissCount();
+        assertTrue(expected.getNumberOfImageReceivers() > 0);
+        assertNull(store.get(1, receiver, Collections.emptyList(), 180, 80));
+        assertEquals(missCount + 1, store.getMissCount());
+        // Truncated record
+        byte[] recordBytes = expected.getImageReceiversRecord().toByteArray();
+        assertNull(MirrorReceiversCompute.fromRecord(processedWalls, receiver, 180, 80,
+                ByteBuffer.wrap(recordBytes, 0, recordBytes.length - 1)));
+        assertNotNull(MirrorReceiversCompute.fromRecord(processedWalls, receiver, 180, 80,
+                ByteBuffer.wrap(recordBytes)));
+    }
+
     @Test
     public void testNReflexionWithDem() throws ParseException, IOException, SQLException {
         GeometryFactory factory = new GeometryFactory();
@@ -0,0 +1,124 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.pathfinder;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineSegment;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutPoint;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutProfile;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.Wall;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.WallGridIndex;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class dedicated to {@link WallGridIndex}.
+ */
+public class WallGridIndexTest {
+    private static final double DELTA = 1e-8;
+
+    /**
+     * All the walls intersecting the query segment are returned, only once
+     */
+    @Test
+    public void testQuery() {
+        Random random = new Random(42);
+        List<Wall> walls = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Coordinate p0 = new Coordinate(random.nextDouble() * 1000, random.nextDouble() * 800);
+            Coordinate p1 = new Coordinate(p0.x + random.nextGaussian() * 15, p0.y + random.nextGaussian() * 15);
+            walls.add(new Wall(new LineSegment(p0, p1), i, ProfileBuilder.IntersectionType.WALL));
+        }
+        // Vertical, horizontal and long walls
+        walls.add(new Wall(new LineSegment(500, 100, 500, 700), 500, ProfileBuilder.IntersectionType.WALL));
+        walls.add(new Wall(new LineSegment(100, 400, 900, 400), 501, ProfileBuilder.IntersectionType.WALL));
+        walls.add(new Wall(new LineSegment(0, 0, 1000, 800), 502, ProfileBuilder.IntersectionType.WALL));
+        WallGridIndex index = new WallGridIndex(walls);
+        assertTrue(index.getColumnCount() > 1 && index.getRowCount() > 1);
+        WallGridIndex.QueryBuffer buffer = new WallGridIndex.QueryBuffer();
+        for (int i = 0; i < 200; i++) {
+            Coordinate p0 = new Coordinate(random.nextDouble() * 1200 - 100, random.nextDouble() * 1000 - 100);
+            Coordinate p1 = i % 10 == 0 ? new Coordinate(p0.x, random.nextDouble() * 1000 - 100) :
+                    new Coordinate(random.nextDouble() * 1200 - 100, random.nextDouble() * 1000 - 100);
+            index.query(p0, p1, buffer);
+            Set<Integer> candidates = new HashSet<>();
+            for (int j = 0; j < buffer.size(); j++) {
+                assertTrue(candidates.add(buffer.get(j)));
+            }
+            LineSegment query = new LineSegment(p0, p1);
+            for (int wallIndex = 0; wallIndex < walls.size(); wallIndex++) {
+                if(query.intersection(walls.get(wallIndex).ls) != null) {
+                    assertTrue(candidates.contains(wallIndex));
+                }
+            }
+        }
+        // Segment crossing a wall end point
+        index.query(new Coordinate(400, 300), new Coordinate(600, 500), buffer);
+        Set<Integer> candidates = new HashSet<>();
+        for (int j = 0; j < buffer.size(); j++) {
+            candidates.add(buffer.get(j));
+        }
+        assertTrue(candidates.contains(500));
+        assertTrue(candidates.contains(501));
+        assertTrue(candidates.contains(502));
+    }
+
+    /**
+     * The profiles are the same with the grid index and with the RTree
+     */
+    @Test
+    public void testProfileBuilder() throws ParseException {
+        WKTReader reader = new WKTReader();
+        List<ProfileBuilder> builders = new ArrayList<>();
+        for (boolean useGrid : new boolean[] {true, false}) {
+            ProfileBuilder profileBuilder = new ProfileBuilder().setUseWallGridIndex(useGrid);
+            profileBuilder.addBuilding(reader.read("POLYGON((10 10,30 10,30 30,10 30,10 10))"), 10, -1);
+            profileBuilder.addBuilding(reader.read("POLYGON((120 40,150 40,150 90,120 90,120 40))"), 15, -1);
+            profileBuilder.addBuilding(reader.read("POLYGON((60 -20,80 -20,70 10,60 -20))"), 5, -1);
+            profileBuilder.addWall((LineString) reader.read("LINESTRING(50 50, 90 80)"), 4, -1);
+            profileBuilder.addGroundEffect(reader.read("POLYGON((0 0,200 0,200 100,0 100,0 0))"), 0.8);
+            profileBuilder.addGroundEffect(reader.read("POLYGON((40 20,100 20,100 70,40 70,40 20))"), 0.2);
+            profileBuilder.finishFeeding();
+            builders.add(profileBuilder);
+        }
+        Coordinate[][] segments = new Coordinate[][] {
+                {new Coordinate(0, 0, 1), new Coordinate(180, 95, 4)},
+                {new Coordinate(-10, 20, 1), new Coordinate(190, 60, 20)},
+                {new Coordinate(70, -30, 1), new Coordinate(70, 110, 1)},
+                {new Coordinate(5, 5, 1), new Coordinate(5, 5, 1)}};
+        for (Coordinate[] segment : segments) {
+            CutProfile expected = builders.get(1).getProfile(segment[0], segment[1], 0.5, false);
+            CutProfile profile = builders.get(0).getProfile(segment[0], segment[1], 0.5, false);
+            assertEquals(expected.cutPoints.size(), profile.cutPoints.size());
+            for (int i = 0; i < expected.cutPoints.size(); i++) {
+                CutPoint expectedPoint = expected.cutPoints.get(i);
+                CutPoint point = profile.cutPoints.get(i);
+                assertEquals(expectedPoint.getClass(), point.getClass());
+                assertEquals(expectedPoint.getCoordinate().x, point.getCoordinate().x, DELTA);
+                assertEquals(expectedPoint.getCoordinate().y, point.getCoordinate().y, DELTA);
+                assertEquals(expectedPoint.getCoordinate().z, point.getCoordinate().z, DELTA);
+                assertEquals(expectedPoint.getGroundCoefficient(), point.getGroundCoefficient(), DELTA);
+            }
+            assertEquals(expected.hasBuildingIntersection, profile.hasBuildingIntersection);
+        }
+    }
+}
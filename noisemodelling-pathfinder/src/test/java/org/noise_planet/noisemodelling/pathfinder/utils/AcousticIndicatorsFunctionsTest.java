@@ -33,4 +33,47 @@ class AcousticIndicatorsFunctionsTest {
 
         assertArrayEquals(noiseResult, AcousticIndicatorsFunctions.wToDb(wSum), 0.01);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testInPlaceOperations() {
+        double[] absOne = new double[] {-43.56, -50.59, -54.49, -56.14, -55.31, -49.77, -26.37, -25.98};
+        double[] absTwo = new double[] {-74.24, -78.34, -81.99, -85.43, -88.61, -92.80, -100.35, -119.88};
+        double[] power = AcousticIndicatorsFunctions.dBToW(new double[]{93, 90, 87, 84, 81, 78, 75, 72});
+
+        double[] result = absOne.clone();
+        AcousticIndicatorsFunctions.dBToW(result, result);
+        assertArrayEquals(AcousticIndicatorsFunctions.dBToW(absOne), result, 0);
+        AcousticIndicatorsFunctions.wToDb(result, result);
+        assertArrayEquals(absOne, result, 1e-12);
+
+        result = absOne.clone();
+        AcousticIndicatorsFunctions.sumDbArray(result, absTwo, result);
+        assertArrayEquals(AcousticIndicatorsFunctions.sumDbArray(absOne, absTwo), result, 0);
+
+        result = absOne.clone();
+        AcousticIndicatorsFunctions.sumArrayWithPonderation(result, absTwo, 0.25, result);
+        assertArrayEquals(AcousticIndicatorsFunctions.sumArrayWithPonderation(absOne, absTwo, 0.25), result, 0);
+        assertArrayEquals(absTwo, AcousticIndicatorsFunctions.sumArrayWithPonderation(absOne, absTwo, 0), 1e-12);
+
+        // Fused dB to w conversion and accumulation
+        double[] accumulated = AcousticIndicatorsFunctions.dBToW(absOne);
+        AcousticIndicatorsFunctions.accumulateDbToW(accumulated, absTwo);
+        assertArrayEquals(AcousticIndicatorsFunctions.sumArray(AcousticIndicatorsFunctions.dBToW(absOne),
+                AcousticIndicatorsFunctions.dBToW(absTwo)), accumulated, 0);
+
+        // Fused multiplication and accumulation
+        double[] attenuation = AcousticIndicatorsFunctions.dBToW(absOne);
+        double[] levels = new double[attenuation.length];
+        AcousticIndicatorsFunctions.accumulateMultiplication(levels, attenuation, power, 2);
+        assertArrayEquals(AcousticIndicatorsFunctions.multiplicationArray(
+                AcousticIndicatorsFunctions.multiplicationArray(attenuation, power), 2), levels, 1e-6);
+        levels = new double[attenuation.length];
+        AcousticIndicatorsFunctions.accumulateMultiplication(levels, attenuation, 3);
+        assertArrayEquals(AcousticIndicatorsFunctions.multiplicationArray(attenuation, 3), levels, 0);
+        assertEquals(AcousticIndicatorsFunctions.sumArray(AcousticIndicatorsFunctions.multiplicationArray(
+                attenuation, power)), AcousticIndicatorsFunctions.multiplicationSum(attenuation, power), 1e-6);
+
+        assertThrows(IllegalArgumentException.class, () -> AcousticIndicatorsFunctions.sumArray(absOne, absTwo,
+                new double[2]));
+    }
+}
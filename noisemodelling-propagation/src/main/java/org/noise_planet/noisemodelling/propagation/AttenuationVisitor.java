@@ -14,6 +14,7 @@ import org.noise_planet.noisemodelling.pathfinder.PathFinder;
 import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutProfile;
 import org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicatorsFunctions;
 import org.noise_planet.noisemodelling.propagation.cnossos.AttenuationCnossos;
+import org.noise_planet.noisemodelling.propagation.cnossos.AttenuationContext;
 import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPath;
 import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPathBuilder;
 
@@ -28,6 +29,8 @@ public class AttenuationVisitor implements CutPlaneVisitor {
     public List<ReceiverNoiseLevel> receiverAttenuationLevels = new ArrayList<>();
     public List<CnossosPath> pathParameters = new ArrayList<CnossosPath>();
     public boolean keepRays = false;
+    /** Derived values and work arrays of the attenuation computation of this thread */
+    AttenuationContext.Cache attenuationContexts = new AttenuationContext.Cache();
 
     public AttenuationVisitor(AttenuationComputeOutput multiThreadParent) {
         this.multiThreadParent = multiThreadParent;
@@ -53,7 +56,8 @@ public class AttenuationVisitor implements CutPlaneVisitor {
     }
 
     private void processPath(String period, AttenuationParameters AttenuationParameters, CnossosPath path) {
-        double[] aGlobalMeteo = AttenuationCnossos.computeCnossosAttenuation(AttenuationParameters, path,
+        double[] aGlobalMeteo = AttenuationCnossos.computeCnossosAttenuation(
+                attenuationContexts.get(AttenuationParameters), path,
                 multiThreadParent.scene, multiThreadParent.exportAttenuationMatrix);
         if (aGlobalMeteo != null && aGlobalMeteo.length > 0) {
             multiThreadParent.cnossosPathCount.addAndGet(1);
@@ -99,13 +103,12 @@ public class AttenuationVisitor implements CutPlaneVisitor {
             // Merge levels for each receiver for lines sources
             Map<PathFinder.SourcePointInfo, double[]> levelsPerSourceLines = new HashMap<>();
             for (ReceiverNoiseLevel lvl : receiverAttenuationLevels) {
-                if (!levelsPerSourceLines.containsKey(lvl.source)) {
+                double[] levels = levelsPerSourceLines.get(lvl.source);
+                if (levels == null) {
                     levelsPerSourceLines.put(lvl.source, lvl.levels);
                 } else {
-                    // merge
-                    levelsPerSourceLines.put(lvl.source,
-                            AcousticIndicatorsFunctions.sumDbArray(levelsPerSourceLines.get(lvl.source),
-                            lvl.levels));
+                    // merge, the levels are not used after this receiver so they are updated in place
+                    AcousticIndicatorsFunctions.sumDbArray(levels, lvl.levels, levels);
                 }
             }
             for (Map.Entry<PathFinder.SourcePointInfo, double[]> entry : levelsPerSourceLines.entrySet()) {
@@ -153,6 +153,7 @@ public class SceneWithAttenuation extends Scene {
      * @param srcIndex Source index in the list sourceGeometries
      * @return True if the source is omnidirectional and so does not have orientation dependant attenuation, false otherwise.
      */
+    @Override
     public boolean isOmnidirectional(int srcIndex) {
         if (srcIndex < 0 || !(srcIndex < sourcesPk.size())) {
             return true;
@@ -20,7 +20,6 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static java.lang.Math.*;
 import static org.noise_planet.noisemodelling.pathfinder.utils.AcousticIndicatorsFunctions.*;
@@ -36,13 +35,6 @@ import static org.noise_planet.noisemodelling.propagation.cnossos.PointPath.POIN
  */
 
 public class AttenuationCnossos {
-    private static double[] freq_lambda;
-    private static double[] aGlobal;
-
-    public static double[] getaGlobal() {
-        return aGlobal;
-    }
-
     private static final Logger LOGGER = LoggerFactory.getLogger(AttenuationCnossos.class);
 
     /**
@@ -52,10 +44,15 @@ public class AttenuationCnossos {
      * @return double list with the value of DeltaDif
      */
     public static double[] getDeltaDif(SegmentPath srpath, AttenuationParameters data) {
-        double[] DeltaDif = new double[data.getFrequencies().size()];
+        return getDeltaDif(srpath, new AttenuationContext(data));
+    }
+
+    private static double[] getDeltaDif(SegmentPath srpath, AttenuationContext context) {
+        double[] freq_lambda = context.lambda;
+        double[] DeltaDif = new double[context.frequencyCount];
         double cprime;
 
-        for (int idfreq = 0; idfreq < data.getFrequencies().size(); idfreq++) {
+        for (int idfreq = 0; idfreq < context.frequencyCount; idfreq++) {
             double Ch = 1; // Eq 2.5.21
             if (srpath.eLength > 0.3) {
                 double gammaPart = pow((5 * freq_lambda[idfreq]) / srpath.eLength, 2);
@@ -215,6 +212,22 @@ public class AttenuationCnossos {
         return aRef;
     }
 
+    private static double[] getARef(CnossosPath pathParameters, AttenuationContext context) {
+        double[] aRef = context.aRef;
+        Arrays.fill(aRef, 0.0);
+        for (PointPath pointPath : pathParameters.getPointList()) {
+            if(pointPath.type.equals(REFL)) {
+                List<Double> alpha = pointPath.alphaWall;
+                if (alpha != null && !alpha.isEmpty()) {
+                    for (int idf = 0; idf < context.frequencyCount; idf++) {
+                        aRef[idf] += 10 * log10(1 - alpha.get(idf));
+                    }
+                }
+            }
+        }
+        return aRef;
+    }
+
     /**
      * Compute AGround
      * @param segmentPath
@@ -269,7 +282,8 @@ public class AttenuationCnossos {
      * @param data
      * @return list double with the values of ABoundary
      */
-    private static double[] getABoundary(CnossosPath pathParameters, AttenuationParameters data) {
+    private static double[] getABoundary(CnossosPath pathParameters, AttenuationContext context) {
+        AttenuationParameters data = context.parameters;
 
         SegmentPath srPath = pathParameters.getSRSegment();
         List<SegmentPath> segments = pathParameters.getSegmentList();
@@ -311,9 +325,9 @@ public class AttenuationCnossos {
         double[] aGroundSO; // is the attenuation due to the ground effect on the source side, weighted by the diffraction on the source side; where it is understood that O = O1 in case of multiple diffractions as in Figure 2.5.f
         double[] aGroundOR; // is the attenuation due to the ground effect on the receiver side, weighted by the diffraction on the receiver side.
 
-        deltaDifSR = getDeltaDif(srPath, data);
-        DeltaDifSpR = getDeltaDif(segments.get(segments.size() - 2), data);
-        deltaDifSRp = getDeltaDif(segments.get(segments.size() - 1), data);
+        deltaDifSR = getDeltaDif(srPath, context);
+        DeltaDifSpR = getDeltaDif(segments.get(segments.size() - 2), context);
+        deltaDifSRp = getDeltaDif(segments.get(segments.size() - 1), context);
 
         // Set Gm and Gw for AGround SO - Table 2.5.b
         if (pathParameters.isFavorable()) {
@@ -352,7 +366,7 @@ public class AttenuationCnossos {
         long difVPointCount = pathParameters.getPointList().stream().
                 filter(pointPath -> pointPath.type.equals(DIFV)).count();
         if (difVPointCount > 0) {
-            aDif = getDeltaDif(srPath, data);
+            aDif = getDeltaDif(srPath, context);
             // Eq. 2.5.33 - Eq. 2.5.34
             for (int idf : noDifBands) {
                 aBoundary[idf] = aDif[idf] + aGround[idf];
@@ -361,25 +375,6 @@ public class AttenuationCnossos {
         return aBoundary;
     }
 
-    /**
-     * Initialize the instance of AttenuationCnossos
-     * @param data
-     */
-    public static void init(AttenuationParameters data) {
-        // init
-        aGlobal = new double[data.getFrequencies().size()];
-
-        // Init wave length for each frequency
-        freq_lambda = new double[data.getFrequencies().size()];
-        for (int idf = 0; idf < data.getFrequencies().size(); idf++) {
-            if (data.getFrequencies().get(idf) > 0) {
-                freq_lambda[idf] = data.getCelerity() / data.getFrequencies().get(idf);
-            } else {
-                freq_lambda[idf] = 1;
-            }
-        }
-    }
-
     /**
      * Compute ADiv the attenuation
      * @param pathParameters
@@ -429,20 +424,11 @@ public class AttenuationCnossos {
      */
     public static double[] evaluate(CnossosPath pathParameters, AttenuationParameters data) {
         // init
-        aGlobal = new double[data.getFrequencies().size()];
+        AttenuationContext context = new AttenuationContext(data);
+        double[] aGlobal = new double[data.getFrequencies().size()];
         double[] aBoundary;
         double[] aRef;
 
-        // Init wave length for each frequency
-        freq_lambda = new double[data.getFrequencies().size()];
-        for (int idf = 0; idf < data.getFrequencies().size(); idf++) {
-            if (data.getFrequencies().get(idf) > 0) {
-                freq_lambda[idf] = data.getCelerity() / data.getFrequencies().get(idf);
-            } else {
-                freq_lambda[idf] = 1;
-            }
-        }
-
         // init atmosphere
         double[] alpha_atmo = data.getAlpha_atmo();
 
@@ -458,7 +444,7 @@ public class AttenuationCnossos {
 
 
         // boundary (ground + diffration)
-        aBoundary = getABoundary(pathParameters, data);
+        aBoundary = getABoundary(pathParameters, context);
 
         // reflections
         aRef = getARef(pathParameters, data);
@@ -484,12 +470,11 @@ public class AttenuationCnossos {
     /**
      *
      * @param pp
-     * @param freq
+     * @param lambda wave length
      * @param favorable
      * @return
      */
-    private static boolean isValidRcrit(CnossosPath pp, int freq, boolean favorable) {
-        double lambda = 340.0/freq;
+    private static boolean isValidRcrit(CnossosPath pp, double lambda, boolean favorable) {
         return favorable ?
                 pp.deltaF > -lambda / 20 && pp.deltaF > lambda / 4 - pp.deltaPrimeF || pp.deltaF > 0 :
                 pp.deltaH > -lambda / 20 && pp.deltaH > lambda / 4 - pp.deltaPrimeH || pp.deltaH > 0 ;
@@ -502,25 +487,38 @@ public class AttenuationCnossos {
      * @return
      */
     public static double[] aBoundary(CnossosPath path, AttenuationParameters data) {
-        double[] aGround = new double[data.getFrequencies().size()];
-        double[] aDif = new double[data.getFrequencies().size()];
-        List<PointPath> diffPts = path.getPointList().stream().
-                filter(pointPath -> pointPath.type.equals(DIFH_RCRIT) || pointPath.type.equals(DIFH)
-                        || pointPath.type.equals(DIFV)).collect(Collectors.toList());
-        path.aBoundaryH.init(data.getFrequencies().size());
-        path.aBoundaryF.init(data.getFrequencies().size());
+        return aBoundary(path, new AttenuationContext(data), new double[data.getFrequencies().size()]);
+    }
+
+    /**
+     * Compute ABoundary
+     * @param path
+     * @param context Attenuation context of the computation thread
+     * @param aBoundary Array to fill
+     * @return aBoundary
+     */
+    static double[] aBoundary(CnossosPath path, AttenuationContext context, double[] aBoundary) {
+        double[] aGround = context.aGround;
+        double[] aDif = context.aDif;
+        List<PointPath> pointList = path.getPointList();
+        if(path.keepAbsorption) {
+            path.aBoundaryH.init(context.frequencyCount);
+            path.aBoundaryF.init(context.frequencyCount);
+        }
         // Without diff
-        for(int i=0; i<data.getFrequencies().size(); i++) {
-            int finalI = i;
-            boolean isValidRCriterion = isValidRcrit(path, data.getFrequencies().get(finalI), path.isFavorable());
-            PointPath first = diffPts.stream()
-                    .filter(pp -> pp.type.equals(PointPath.POINT_TYPE.DIFH) || pp.type.equals(DIFV) ||
-                            (pp.type.equals(DIFH_RCRIT) && isValidRCriterion ))
-                    .findFirst()
-                    .orElse(null);
+        for(int i=0; i<context.frequencyCount; i++) {
+            boolean isValidRCriterion = isValidRcrit(path, context.lambda340[i], path.isFavorable());
+            PointPath first = null;
+            for (PointPath pp : pointList) {
+                if(pp.type.equals(PointPath.POINT_TYPE.DIFH) || pp.type.equals(DIFV) ||
+                        (pp.type.equals(DIFH_RCRIT) && isValidRCriterion)) {
+                    first = pp;
+                    break;
+                }
+            }
             aGround[i] = path.isFavorable() ?
-                    aGroundF(path, path.getSRSegment(), data, i) :
-                    aGroundH(path, path.getSRSegment(), data, i);
+                    aGroundF(path, path.getSRSegment(), context, i, false) :
+                    aGroundH(path, path.getSRSegment(), context, i, false);
             if(path.groundAttenuation != null && path.groundAttenuation.aGroundF != null) {
                 if (path.isFavorable()) {
                     path.groundAttenuation.aGroundF[i] = aGround[i];
@@ -529,7 +527,7 @@ public class AttenuationCnossos {
                 }
             }
             if (first != null) {
-                aDif[i] = aDif(path, data, i, first.type);
+                aDif[i] = aDif(path, context, i, first.type);
                 if(!first.type.equals(DIFV) && isValidRCriterion) {
                     aGround[i] = 0.;
                 }
@@ -540,13 +538,12 @@ public class AttenuationCnossos {
         }
         if(path.keepAbsorption) {
             if (path.isFavorable()) {
-                path.aDifF = aDif;
+                path.aDifF = Arrays.copyOf(aDif, context.frequencyCount);
             } else {
-                path.aDifH = aDif;
+                path.aDifH = Arrays.copyOf(aDif, context.frequencyCount);
             }
         }
-        double[] aBoundary = new double[data.getFrequencies().size()];
-        for(int i=0; i<data.getFrequencies().size(); i++) {
+        for(int i=0; i<context.frequencyCount; i++) {
             aBoundary[i] = aGround[i] + aDif[i];
         }
         return aBoundary;
@@ -561,7 +558,18 @@ public class AttenuationCnossos {
      * @return list double with the values of deltaRetrodif
      */
     public static double[] deltaRetrodif(CnossosPath reflect, AttenuationParameters data) {
-        double[] retroDiff = new double[data.getFrequencies().size()];
+        return deltaRetrodif(reflect, new AttenuationContext(data), new double[data.getFrequencies().size()]);
+    }
+
+    /**
+     * Compute deltaRetrodif
+     * Figure 2.5.36
+     * @param reflect
+     * @param context Attenuation context of the computation thread
+     * @param retroDiff Array to fill
+     * @return retroDiff
+     */
+    static double[] deltaRetrodif(CnossosPath reflect, AttenuationContext context, double[] retroDiff) {
         Arrays.fill(retroDiff, 0.);
         final Coordinate originalS = reflect.getSRSegment().s;
         final Coordinate originalR = reflect.getSRSegment().r;
@@ -596,15 +604,15 @@ public class AttenuationCnossos {
                     double SpR = gamma * asin(s.distance(r) / gamma);
                     double deltaPrime = -(SpO + OpR - SpR);
                     if (e < 0.3) {
-                        for (int i = 0; i < data.getFrequencies().size(); i++) {
-                            double lambda = 340.0 / data.getFrequencies().get(i);
+                        for (int i = 0; i < context.frequencyCount; i++) {
+                            double lambda = context.lambda340[i];
                             double testForm = 40.0 / lambda * deltaPrime;
                             double dLRetro = testForm >= -2 ? 10 * ch * log10(3 + testForm) : 0; // 2.5.37
                             retroDiff[i] = dLRetro;
                         }
                     } else {
-                        for (int i = 0; i < data.getFrequencies().size(); i++) {
-                            double lambda = 340.0 / data.getFrequencies().get(i);
+                        for (int i = 0; i < context.frequencyCount; i++) {
+                            double lambda = context.lambda340[i];
                             double Csecond = 1 + (5 * lambda / e * 5 * lambda / e) / 1 / 3 + (5 * lambda / e * 5 * lambda / e);
                             double testForm = 40.0 / lambda * Csecond * deltaPrime;
                             double dLRetro = testForm >= -2 ? 10 * ch * log10(3 + testForm) : 0; // 2.5.37
@@ -615,8 +623,8 @@ public class AttenuationCnossos {
                 } else {
                     //2.5.36 altered with ISO/TR 17534-4:2020-11 Chapter  5.15
                     double deltaPrime = s.distance(r) - s.distance(p) - p.distance(r);
-                    for (int i = 0; i < data.getFrequencies().size(); i++) {
-                        double lambda = 340.0 / data.getFrequencies().get(i);
+                    for (int i = 0; i < context.frequencyCount; i++) {
+                        double lambda = context.lambda340[i];
                         double testForm = 40.0 / lambda * deltaPrime;
                         double dLRetro = testForm >= -2 ? 10 * ch * log10(3 + testForm) : 0; // 2.5.37
                         retroDiff[i] = dLRetro;
@@ -630,19 +638,26 @@ public class AttenuationCnossos {
     /**
      * Compute ADif
      * @param proPathParameters
-     * @param data
+     * @param context
      * @param i
      * @param type
      * @return the value of ADiv
      */
-    private static double aDif(CnossosPath proPathParameters, AttenuationParameters data, int i, PointPath.POINT_TYPE type) {
+    private static double aDif(CnossosPath proPathParameters, AttenuationContext context, int i, PointPath.POINT_TYPE type) {
         SegmentPath first = proPathParameters.getSegmentList().get(0);
         SegmentPath last = proPathParameters.getSegmentList().get(proPathParameters.getSegmentList().size()-1);
 
         double ch = 1.;
-        double lambda = 340.0 / data.getFrequencies().get(i);
-        long difHCount = proPathParameters.getPointList().stream().filter(pointPath -> pointPath.type.equals(DIFH)).count();
-        long difVCount = proPathParameters.getPointList().stream().filter(pointPath -> pointPath.type.equals(DIFV)).count();
+        double lambda = context.lambda340[i];
+        int difHCount = 0;
+        int difVCount = 0;
+        for (PointPath pointPath : proPathParameters.getPointList()) {
+            if(pointPath.type.equals(DIFH)) {
+                difHCount++;
+            } else if(pointPath.type.equals(DIFV)) {
+                difVCount++;
+            }
+        }
         double cSecond = (type.equals(PointPath.POINT_TYPE.DIFH) && difHCount <= 1) || (type.equals(DIFV) && difVCount <= 1) || proPathParameters.e <= 0.3 ? 1. :
                 (1+pow(5*lambda/ proPathParameters.e, 2))/(1./3+pow(5*lambda/ proPathParameters.e, 2));
 
@@ -677,8 +692,8 @@ public class AttenuationCnossos {
         testForm = 40/lambda*cSecond*_delta;
         double deltaDiffSRPrime = testForm>=-2 ? 10*ch*log10(3+testForm) : 0;
 
-        double aGroundSO = proPathParameters.isFavorable() ? aGroundF(proPathParameters, first, data, i) : aGroundH(proPathParameters, first, data, i);
-        double aGroundOR = proPathParameters.isFavorable() ? aGroundF(proPathParameters, last, data, i, true) : aGroundH(proPathParameters, last, data, i, true);
+        double aGroundSO = proPathParameters.isFavorable() ? aGroundF(proPathParameters, first, context, i, false) : aGroundH(proPathParameters, first, context, i, false);
+        double aGroundOR = proPathParameters.isFavorable() ? aGroundF(proPathParameters, last, context, i, true) : aGroundH(proPathParameters, last, context, i, true);
 
         //If the source or the receiver are under the mean plane, change the computation of deltaDffSR and deltaGround
         double deltaGroundSO = -20*log10(1+(pow(10, -aGroundSO/20)-1)*pow(10, -(deltaDiffSPrimeR-deltaDiffSR)/20));
@@ -722,36 +737,21 @@ public class AttenuationCnossos {
     }
 
     /**
-     * Calculate the value of CfK
+     * Calculate the value of Cf and w, stored in the context
      * @param proPathParameters
      * @param path
-     * @param data
-     * @param idFreq
-     * @return a double list of the value of CfK
-     */
-    private static double[] computeCfKValues(CnossosPath proPathParameters, SegmentPath path, AttenuationParameters data, int idFreq) {
-        return computeCfKValues(proPathParameters, path, data, idFreq, false);
-    }
-
-    /**
-     * Calculate the value of Cfk with checking if the absorption coefficient is
-     * @param proPathParameters
-     * @param path
-     * @param data
+     * @param context
      * @param idFreq
      * @param forceGPath
-     * @return
      */
-    private static double[] computeCfKValues(CnossosPath proPathParameters, SegmentPath path, AttenuationParameters data, int idFreq, boolean forceGPath) {
-        int fm = data.getFrequencies().get(idFreq);
-        double c = data.getCelerity();
+    private static void computeCfK(CnossosPath proPathParameters, SegmentPath path, AttenuationContext context, int idFreq, boolean forceGPath) {
         double dp = path.dp;
-        double k = 2*PI*fm/c;
         double gw = forceGPath ? path.gPath : proPathParameters.isFavorable() ? path.gPath : path.gPathPrime;
-        double w = 0.0185 * pow(fm, 2.5) * pow(gw, 2.6) /
-                (pow(fm, 1.5) * pow(gw, 2.6) + 1.3e3 * pow(fm, 0.75) * pow(gw, 1.3) + 1.16e6);
-        double cf = dp * (1 + 3 * w * dp * exp(-sqrt(w * dp))) / (1 + w * dp);
-        return new double[]{cf, k, w};
+        double gw26 = pow(gw, 2.6);
+        double w = 0.0185 * context.fm25[idFreq] * gw26 /
+                (context.fm15[idFreq] * gw26 + 1.3e3 * context.fm075[idFreq] * pow(gw, 1.3) + 1.16e6);
+        context.cf = dp * (1 + 3 * w * dp * exp(-sqrt(w * dp))) / (1 + w * dp);
+        context.w = w;
     }
 
 
@@ -777,10 +777,14 @@ public class AttenuationCnossos {
      * @return homogeneous ground Attenuation in db
      */
     public static double aGroundH(CnossosPath proPathParameters, SegmentPath path, AttenuationParameters data, int idFreq, boolean forceGPath) {
-        double[] values = computeCfKValues(proPathParameters, path, data, idFreq, forceGPath);
-        double cf = values[0];
-        double k = values[1];
-        double w = values[2];
+        return aGroundH(proPathParameters, path, new AttenuationContext(data), idFreq, forceGPath);
+    }
+
+    private static double aGroundH(CnossosPath proPathParameters, SegmentPath path, AttenuationContext context, int idFreq, boolean forceGPath) {
+        computeCfK(proPathParameters, path, context, idFreq, forceGPath);
+        double cf = context.cf;
+        double k = context.waveNumber[idFreq];
+        double w = context.w;
         if(proPathParameters.keepAbsorption && path == proPathParameters.getSRSegment()) {
             proPathParameters.groundAttenuation.wH[idFreq] = w;
             proPathParameters.groundAttenuation.cfH[idFreq] = cf;
@@ -814,10 +818,15 @@ public class AttenuationCnossos {
      * @return favorable ground Attenuation in db
      */
     public static double aGroundF(CnossosPath proPathParameters, SegmentPath path, AttenuationParameters data, int idFreq, boolean forceGPath) {
-        double[] values = computeCfKValues(proPathParameters, path, data, idFreq);
-        double cf = values[0];
-        double k = values[1];
-        double w = values[2];
+        return aGroundF(proPathParameters, path, new AttenuationContext(data), idFreq, forceGPath);
+    }
+
+    private static double aGroundF(CnossosPath proPathParameters, SegmentPath path, AttenuationContext context, int idFreq, boolean forceGPath) {
+        // forceGPath is not used for the ground factor w of the favorable conditions
+        computeCfK(proPathParameters, path, context, idFreq, false);
+        double cf = context.cf;
+        double k = context.waveNumber[idFreq];
+        double w = context.w;
         if(proPathParameters.keepAbsorption && path == proPathParameters.getSRSegment()) {
             proPathParameters.groundAttenuation.wF[idFreq] = w;
             proPathParameters.groundAttenuation.cfF[idFreq] = cf;
@@ -850,24 +859,47 @@ public class AttenuationCnossos {
         if (data == null) {
             return new double[0];
         }
-        // cache frequencies
-        double[] frequencies = new double[0];
-        if(scene != null) {
-            frequencies =  scene.profileBuilder.frequencyArray.stream().mapToDouble(value -> value).toArray();
-        }
+        return computeCnossosAttenuation(new AttenuationContext(data), proPathParameters, scene,
+                exportAttenuationMatrix);
+    }
+
+    /**
+     * Compute the Attenuation for each frequency with a given sourceId, sourceLi and sourceId.
+     * Only the returned array is allocated, the intermediate values are stored in the context.
+     * <p>
+     * The terms that do not depend on the atmospheric absorption and on the wind rose are kept in the
+     * {@link GeometricAttenuation} of the context. When the same path is computed again for another period (another
+     * {@link AttenuationParameters} instance of the same {@link AttenuationContext.Cache}), only the atmospheric
+     * absorption, the wind rose weighting and, if the celerity differs, the ground and diffraction terms are evaluated.
+     * The path must not be modified between the computations of the periods.
+     * @param context Attenuation context of the computation thread, see {@link AttenuationContext.Cache}
+     * @param proPathParameters Cnossos paths
+     * @return double list of attenuation
+     */
+    public static double[] computeCnossosAttenuation(AttenuationContext context, CnossosPath proPathParameters,
+                                                     SceneWithAttenuation scene, boolean exportAttenuationMatrix) {
+        AttenuationParameters data = context.parameters;
+        int frequencyCount = context.frequencyCount;
+        GeometricAttenuation geometric = context.geometricAttenuation;
         // Compute receiver/source attenuation
         if(exportAttenuationMatrix) {
             proPathParameters.keepAbsorption = true;
-            proPathParameters.groundAttenuation.init(data.getFrequencies().size());
-            proPathParameters.init(data.getFrequencies().size());
+            proPathParameters.groundAttenuation.init(frequencyCount);
+            proPathParameters.init(frequencyCount);
+            // The absorption terms are stored into the path while computed, do not reuse the previous values
+            geometric.clear();
         }
-        AttenuationCnossos.init(data);
-        //ADiv computation
-        double[] aDiv = AttenuationCnossos.aDiv(proPathParameters, data);
+        if(!geometric.isComputed(proPathParameters, scene)) {
+            computeGeometricAttenuation(context, proPathParameters, scene);
+        }
+        double[] aDiv = geometric.aDiv;
+        double[] aRef = geometric.aRef;
+        double[] deltaBodyScreen = geometric.deltaBodyScreen;
         //AAtm computation
-        double[] aAtm = AttenuationCnossos.aAtm(data.getAlpha_atmo(), proPathParameters.getSRSegment().d);
-        //Reflexion computation
-        double[] aRef = AttenuationCnossos.evaluateAref(proPathParameters, data);
+        double[] aAtm = context.aAtm;
+        for (int idfreq = 0; idfreq < frequencyCount; idfreq++) {
+            aAtm[idfreq] = getAAtm(proPathParameters.getSRSegment().d, context.alphaAtmospheric[idfreq]);
+        }
         //For testing purpose
         if(exportAttenuationMatrix) {
             proPathParameters.aRef = aRef.clone();
@@ -875,16 +907,110 @@ public class AttenuationCnossos {
         double[] aRetroDiff;
         //ABoundary computation
         double[] aBoundary;
-        double[] aGlobalMeteoHom = new double[data.getFrequencies().size()];
-        double[] aGlobalMeteoFav = new double[data.getFrequencies().size()];
-        double[] deltaBodyScreen = new double[data.getFrequencies().size()];
+        double[] aGlobalMeteoHom = context.aGlobalMeteoHom;
+        double[] aGlobalMeteoFav = context.aGlobalMeteoFav;
+        Arrays.fill(aGlobalMeteoHom, 0);
+        Arrays.fill(aGlobalMeteoFav, 0);
+        int roseIndex = geometric.roseIndex;
+        // Homogenous conditions
+        if (data.getWindRose()[roseIndex] != 1) {
+            proPathParameters.setFavorable(false);
+            aBoundary = geometric.getABoundary(proPathParameters, context);
+            aRetroDiff = geometric.getARetroDiff(proPathParameters, context);
+            for (int idfreq = 0; idfreq < frequencyCount; idfreq++) {
+                aGlobalMeteoHom[idfreq] = -(aDiv[idfreq] + aAtm[idfreq] + aBoundary[idfreq] - aRef[idfreq] + aRetroDiff[idfreq] - deltaBodyScreen[idfreq]); // Eq. 2.5.6
+            }
+            //For testing purpose
+            if(exportAttenuationMatrix) {
+                proPathParameters.aRetroDiffH = aRetroDiff.clone();
+                proPathParameters.double_aBoundaryH = aBoundary.clone();
+                proPathParameters.aGlobalH = aGlobalMeteoHom.clone();
+            }
+        }
+        // Favorable conditions
+        if (data.getWindRose()[roseIndex] != 0) {
+            proPathParameters.setFavorable(true);
+            aBoundary = geometric.getABoundary(proPathParameters, context);
+            aRetroDiff = geometric.getARetroDiff(proPathParameters, context);
+            for (int idfreq = 0; idfreq < frequencyCount; idfreq++) {
+                aGlobalMeteoFav[idfreq] = -(aDiv[idfreq] + aAtm[idfreq] + aBoundary[idfreq] - aRef[idfreq] + aRetroDiff[idfreq] -deltaBodyScreen[idfreq]); // Eq. 2.5.8
+            }
+            //For testing purpose
+            if(exportAttenuationMatrix) {
+                proPathParameters.double_aBoundaryF = aBoundary.clone();
+                proPathParameters.aRetroDiffF = aRetroDiff.clone();
+                proPathParameters.aGlobalF = aGlobalMeteoFav.clone();
+            }
+        }
+
+        //For testing purpose
+        if(exportAttenuationMatrix) {
+            proPathParameters.keepAbsorption = true;
+            proPathParameters.aDiv = aDiv.clone();
+            proPathParameters.aAtm = aAtm.clone();
+        }
+
+        // Compute attenuation under the wind conditions using the ray direction
+        double[] aGlobalMeteoRay = sumArrayWithPonderation(aGlobalMeteoFav, aGlobalMeteoHom,
+                data.getWindRose()[roseIndex], new double[frequencyCount]);
+
+        // Apply attenuation due to sound direction
+        double sourceLi = proPathParameters.getCutProfile().getSource().li;
 
+        if(geometric.sourceAttenuation != null) {
+            double[] attSource = geometric.sourceAttenuation;
+            if(exportAttenuationMatrix) {
+                proPathParameters.aSource = attSource.clone();
+            }
+            sumArray(aGlobalMeteoRay, attSource, aGlobalMeteoRay);
+        }
+
+        // For line source, take account of li coefficient, multiplying the power by li adds 10 log10(li) to the level
+        if(sourceLi > 1.0) {
+            sumArray(aGlobalMeteoRay, wToDb(sourceLi), aGlobalMeteoRay);
+        }
+        // Keep global attenuation
+        if(exportAttenuationMatrix) {
+            proPathParameters.aGlobal = aGlobalMeteoRay.clone();
+        }
+        return aGlobalMeteoRay;
+    }
+
+    /**
+     * Compute the terms of the path that do not depend on the atmospheric absorption and on the wind rose, the ground
+     * and diffraction terms are computed on demand by {@link GeometricAttenuation}
+     * @param context Attenuation context of the computation thread
+     * @param proPathParameters Cnossos paths
+     * @param scene Scene of the source directivity, may be null
+     */
+    private static void computeGeometricAttenuation(AttenuationContext context, CnossosPath proPathParameters,
+                                                    SceneWithAttenuation scene) {
+        AttenuationParameters data = context.parameters;
+        int frequencyCount = context.frequencyCount;
+        GeometricAttenuation geometric = context.geometricAttenuation;
+        geometric.reset(proPathParameters, scene);
         List<PointPath> ptList = proPathParameters.getPointList();
+        int difVPointCount = 0;
+        PointPath pDif = null;
+        for (PointPath pointPath : ptList) {
+            if(pointPath.type.equals(DIFV)) {
+                difVPointCount++;
+            } else if(pDif == null && pointPath.type.equals(PointPath.POINT_TYPE.DIFH)) {
+                pDif = pointPath;
+            }
+        }
+        //ADiv computation
+        double[] aDiv = geometric.aDiv;
+        Arrays.fill(aDiv, getADiv(difVPointCount == 0 ? proPathParameters.getSRSegment().d :
+                proPathParameters.getSRSegment().dc));
+        //Reflexion computation
+        System.arraycopy(getARef(proPathParameters, context), 0, geometric.aRef, 0, frequencyCount);
+        double[] deltaBodyScreen = geometric.deltaBodyScreen;
+        Arrays.fill(deltaBodyScreen, 0);
 
         // todo get hRail from input data
         double hRail = 0.5;
         Coordinate src = ptList.get(0).coordinate;
-        PointPath pDif = ptList.stream().filter(p -> p.type.equals(PointPath.POINT_TYPE.DIFH)).findFirst().orElse(null);
 
         if (pDif != null && !pDif.alphaWall.isEmpty()) {
             if (pDif.bodyBarrier){
@@ -977,7 +1103,7 @@ public class AttenuationCnossos {
                             }
                         }
                     }
-                    deltaBodyScreen = wToDb(deltaL);
+                    wToDb(deltaL, deltaBodyScreen);
                 }
             }
 
@@ -988,76 +1114,17 @@ public class AttenuationCnossos {
         // @see ComputeCnossosRays#computeOrientation
         Vector3D fieldVectorPropagation = Orientation.rotate(proPathParameters.getSourceOrientation(),
                 Orientation.toVector(proPathParameters.raySourceReceiverDirectivity), false);
-        int roseIndex = AttenuationParameters.getRoseIndex(Math.atan2(fieldVectorPropagation.getY(), fieldVectorPropagation.getX()));
-        // Homogenous conditions
-        if (data.getWindRose()[roseIndex] != 1) {
-            proPathParameters.setFavorable(false);
+        geometric.roseIndex = AttenuationParameters.getRoseIndex(Math.atan2(fieldVectorPropagation.getY(), fieldVectorPropagation.getX()));
 
-
-            aBoundary = AttenuationCnossos.aBoundary(proPathParameters, data);
-            aRetroDiff = AttenuationCnossos.deltaRetrodif(proPathParameters, data);
-            for (int idfreq = 0; idfreq < data.getFrequencies().size(); idfreq++) {
-                aGlobalMeteoHom[idfreq] = -(aDiv[idfreq] + aAtm[idfreq] + aBoundary[idfreq] - aRef[idfreq] + aRetroDiff[idfreq] - deltaBodyScreen[idfreq]); // Eq. 2.5.6
-            }
-            //For testing purpose
-            if(exportAttenuationMatrix) {
-                proPathParameters.aRetroDiffH = aRetroDiff.clone();
-                proPathParameters.double_aBoundaryH = aBoundary.clone();
-                proPathParameters.aGlobalH = aGlobalMeteoHom.clone();
-            }
-        }
-        // Favorable conditions
-        if (data.getWindRose()[roseIndex] != 0) {
-            proPathParameters.setFavorable(true);
-            aBoundary = AttenuationCnossos.aBoundary(proPathParameters, data);
-            aRetroDiff = AttenuationCnossos.deltaRetrodif(proPathParameters, data);
-            for (int idfreq = 0; idfreq < data.getFrequencies().size(); idfreq++) {
-                aGlobalMeteoFav[idfreq] = -(aDiv[idfreq] + aAtm[idfreq] + aBoundary[idfreq] - aRef[idfreq] + aRetroDiff[idfreq] -deltaBodyScreen[idfreq]); // Eq. 2.5.8
-            }
-            //For testing purpose
-            if(exportAttenuationMatrix) {
-                proPathParameters.double_aBoundaryF = aBoundary.clone();
-                proPathParameters.aRetroDiffF = aRetroDiff.clone();
-                proPathParameters.aGlobalF = aGlobalMeteoFav.clone();
-            }
-        }
-
-        //For testing purpose
-        if(exportAttenuationMatrix) {
-            proPathParameters.keepAbsorption = true;
-            proPathParameters.aDiv = aDiv.clone();
-            proPathParameters.aAtm = aAtm.clone();
-        }
-
-        // Compute attenuation under the wind conditions using the ray direction
-        double[] aGlobalMeteoRay = sumArrayWithPonderation(aGlobalMeteoFav, aGlobalMeteoHom, data.getWindRose()[roseIndex]);
-
-        // Apply attenuation due to sound direction
+        // Attenuation due to sound direction
         int sourceId = proPathParameters.getCutProfile().getSource().id;
-        double sourceLi = proPathParameters.getCutProfile().getSource().li;
-
         if(scene != null && !scene.isOmnidirectional(sourceId)) {
+            double[] frequencies = scene.profileBuilder.frequencyArray.stream().mapToDouble(value -> value).toArray();
             Orientation directivityToPick = proPathParameters.raySourceReceiverDirectivity;
-            double[] attSource = scene.getSourceAttenuation( sourceId,
+            geometric.sourceAttenuation = scene.getSourceAttenuation( sourceId,
                     frequencies, Math.toRadians(directivityToPick.yaw),
                     Math.toRadians(directivityToPick.pitch));
-            if(exportAttenuationMatrix) {
-                proPathParameters.aSource = attSource;
-            }
-            aGlobalMeteoRay = sumArray(aGlobalMeteoRay, attSource);
-        }
-
-        // For line source, take account of li coefficient
-        if(sourceLi > 1.0) {
-            for (int i = 0; i < aGlobalMeteoRay.length; i++) {
-                aGlobalMeteoRay[i] = wToDb(dBToW(aGlobalMeteoRay[i]) * sourceLi);
-            }
         }
-        // Keep global attenuation
-        if(exportAttenuationMatrix) {
-            proPathParameters.aGlobal = aGlobalMeteoRay.clone();
-        }
-        return aGlobalMeteoRay;
     }
 
 }
@@ -0,0 +1,134 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.propagation.cnossos;
+
+import org.noise_planet.noisemodelling.propagation.AttenuationParameters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Values derived from the {@link AttenuationParameters} (wave lengths, ground effect coefficients, atmospheric
+ * absorption) and work arrays used by {@link AttenuationCnossos} while computing the attenuation of a path.
+ * The derived values are computed once, the computation of a path then does not allocate the intermediate arrays.
+ * <p>
+ * This class is not thread safe, each computation thread must use its own instances, see {@link Cache}.
+ * The values are copied from the parameters on construction, a new context must be created if the parameters are
+ * modified.
+ * @author Nicolas Fortin
+ */
+public class AttenuationContext {
+    final AttenuationParameters parameters;
+    final int frequencyCount;
+    final int[] frequencies;
+    /** Celerity of the parameters, used by the wave numbers */
+    final double celerity;
+    /** Wave length using the celerity of the parameters, 1 for the non positive frequencies */
+    final double[] lambda;
+    /** Wave length using a celerity of 340 m/s as in the CNOSSOS-EU formulas of Adif */
+    final double[] lambda340;
+    /** Wave number k = 2 pi f / c */
+    final double[] waveNumber;
+    /** Frequency power used by the ground factor w of Eq. 2.5.17 */
+    final double[] fm25;
+    final double[] fm15;
+    final double[] fm075;
+    /** Atmospheric absorption dB/km */
+    final double[] alphaAtmospheric;
+
+    // Work arrays, only valid during the computation of a path
+    final double[] aAtm;
+    final double[] aRef;
+    final double[] aGround;
+    final double[] aDif;
+    final double[] aGlobalMeteoHom;
+    final double[] aGlobalMeteoFav;
+    // Result of the last computeCfK call
+    double cf;
+    double w;
+    /** Terms of the last path that do not depend on the atmospheric absorption, shared by the periods */
+    GeometricAttenuation geometricAttenuation;
+
+    /**
+     * @param parameters Attenuation parameters
+     */
+    public AttenuationContext(AttenuationParameters parameters) {
+        this.parameters = parameters;
+        List<Integer> frequencyList = parameters.getFrequencies();
+        frequencyCount = frequencyList.size();
+        frequencies = new int[frequencyCount];
+        lambda = new double[frequencyCount];
+        lambda340 = new double[frequencyCount];
+        waveNumber = new double[frequencyCount];
+        fm25 = new double[frequencyCount];
+        fm15 = new double[frequencyCount];
+        fm075 = new double[frequencyCount];
+        celerity = parameters.getCelerity();
+        for (int idf = 0; idf < frequencyCount; idf++) {
+            int fm = frequencyList.get(idf);
+            frequencies[idf] = fm;
+            lambda[idf] = fm > 0 ? celerity / fm : 1;
+            lambda340[idf] = 340.0 / fm;
+            waveNumber[idf] = 2 * Math.PI * fm / celerity;
+            fm25[idf] = Math.pow(fm, 2.5);
+            fm15[idf] = Math.pow(fm, 1.5);
+            fm075[idf] = Math.pow(fm, 0.75);
+        }
+        double[] alphaAtmo = parameters.getAlpha_atmo();
+        alphaAtmospheric = alphaAtmo == null ? new double[frequencyCount] : alphaAtmo.clone();
+        aAtm = new double[frequencyCount];
+        aRef = new double[frequencyCount];
+        aGround = new double[frequencyCount];
+        aDif = new double[frequencyCount];
+        aGlobalMeteoHom = new double[frequencyCount];
+        aGlobalMeteoFav = new double[frequencyCount];
+        geometricAttenuation = new GeometricAttenuation(frequencyCount);
+    }
+
+    /**
+     * @return Attenuation parameters of this context
+     */
+    public AttenuationParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Contexts of a computation thread, one context for each instance of attenuation parameters
+     * (one per period). The contexts with the same frequencies share the terms of the last path that do not depend
+     * on the atmospheric absorption, see {@link GeometricAttenuation}. Not thread safe.
+     */
+    public static class Cache {
+        private final Map<AttenuationParameters, AttenuationContext> contexts = new IdentityHashMap<>();
+        private final Map<List<Integer>, GeometricAttenuation> geometricAttenuations = new HashMap<>();
+
+        /**
+         * @param parameters Attenuation parameters
+         * @return The context of these parameters, created on the first call
+         */
+        public AttenuationContext get(AttenuationParameters parameters) {
+            AttenuationContext context = contexts.get(parameters);
+            if(context == null) {
+                context = new AttenuationContext(parameters);
+                GeometricAttenuation shared = geometricAttenuations.get(parameters.getFrequencies());
+                if(shared == null) {
+                    geometricAttenuations.put(new ArrayList<>(parameters.getFrequencies()),
+                            context.geometricAttenuation);
+                } else {
+                    context.geometricAttenuation = shared;
+                }
+                contexts.put(parameters, context);
+            }
+            return context;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * NoiseModelling is a library capable of producing noise maps. It can be freely used either for research and education, as well as by experts in a professional use.
+ * <p>
+ * NoiseModelling is distributed under GPL 3 license. You can read a copy of this License in the file LICENCE provided with this software.
+ * <p>
+ * Official webpage : http://noise-planet.org/noisemodelling.html
+ * Contact: contact@noise-planet.org
+ */
+
+package org.noise_planet.noisemodelling.propagation.cnossos;
+
+import org.noise_planet.noisemodelling.propagation.SceneWithAttenuation;
+
+/**
+ * Attenuation terms of the last computed path that do not depend on the atmospheric absorption and on the wind rose:
+ * geometrical divergence, reflections, body screen, retro-diffraction, wind rose sector and source directivity.
+ * The ground and diffraction terms depend on the celerity (wave number of the ground effect) and are kept
+ * with the celerity used to compute them.
+ * <p>
+ * An instance is shared by the contexts of the same {@link AttenuationContext.Cache} that have the same frequencies,
+ * so the periods of a path only compute their own atmospheric terms. This class is not thread safe.
+ * @author Nicolas Fortin
+ */
+class GeometricAttenuation {
+    final double[] aDiv;
+    final double[] aRef;
+    final double[] deltaBodyScreen;
+    int roseIndex;
+    /** Attenuation due to the source directivity, null if the source is omnidirectional */
+    double[] sourceAttenuation;
+
+    private final double[] aBoundaryH;
+    private final double[] aBoundaryF;
+    private final double[] aRetroDiffH;
+    private final double[] aRetroDiffF;
+    /** Celerity used to compute the boundary terms, NaN if not computed */
+    private double aBoundaryHCelerity = Double.NaN;
+    private double aBoundaryFCelerity = Double.NaN;
+    private boolean aRetroDiffHComputed = false;
+    private boolean aRetroDiffFComputed = false;
+    /** Path of the stored terms, compared by identity */
+    private CnossosPath path = null;
+    private SceneWithAttenuation scene = null;
+
+    /**
+     * @param frequencyCount Number of frequency bands
+     */
+    GeometricAttenuation(int frequencyCount) {
+        aDiv = new double[frequencyCount];
+        aRef = new double[frequencyCount];
+        deltaBodyScreen = new double[frequencyCount];
+        aBoundaryH = new double[frequencyCount];
+        aBoundaryF = new double[frequencyCount];
+        aRetroDiffH = new double[frequencyCount];
+        aRetroDiffF = new double[frequencyCount];
+    }
+
+    /**
+     * @param path Path
+     * @param scene Scene of the path
+     * @return True if the terms of this path have been computed
+     */
+    boolean isComputed(CnossosPath path, SceneWithAttenuation scene) {
+        return this.path != null && this.path == path && this.scene == scene;
+    }
+
+    /**
+     * Invalidate the terms and set the path of the terms that will be computed
+     * @param path Path
+     * @param scene Scene of the path
+     */
+    void reset(CnossosPath path, SceneWithAttenuation scene) {
+        this.path = path;
+        this.scene = scene;
+        sourceAttenuation = null;
+        aBoundaryHCelerity = Double.NaN;
+        aBoundaryFCelerity = Double.NaN;
+        aRetroDiffHComputed = false;
+        aRetroDiffFComputed = false;
+    }
+
+    /**
+     * Invalidate the terms
+     */
+    void clear() {
+        reset(null, null);
+    }
+
+    /**
+     * @param path Path, the favorable state of the path select the homogeneous or favorable term
+     * @param context Context of the period
+     * @return Ground and diffraction attenuation
+     */
+    double[] getABoundary(CnossosPath path, AttenuationContext context) {
+        double celerity = context.celerity;
+        if(path.isFavorable()) {
+            if(aBoundaryFCelerity != celerity) {
+                AttenuationCnossos.aBoundary(path, context, aBoundaryF);
+                aBoundaryFCelerity = celerity;
+            }
+            return aBoundaryF;
+        } else {
+            if(aBoundaryHCelerity != celerity) {
+                AttenuationCnossos.aBoundary(path, context, aBoundaryH);
+                aBoundaryHCelerity = celerity;
+            }
+            return aBoundaryH;
+        }
+    }
+
+    /**
+     * @param path Path, the favorable state of the path select the homogeneous or favorable term
+     * @param context Context of the period
+     * @return Retro-diffraction attenuation
+     */
+    double[] getARetroDiff(CnossosPath path, AttenuationContext context) {
+        if(path.isFavorable()) {
+            if(!aRetroDiffFComputed) {
+                AttenuationCnossos.deltaRetrodif(path, context, aRetroDiffF);
+                aRetroDiffFComputed = true;
+            }
+            return aRetroDiffF;
+        } else {
+            if(!aRetroDiffHComputed) {
+                AttenuationCnossos.deltaRetrodif(path, context, aRetroDiffH);
+                aRetroDiffHComputed = true;
+            }
+            return aRetroDiffH;
+        }
+    }
+}
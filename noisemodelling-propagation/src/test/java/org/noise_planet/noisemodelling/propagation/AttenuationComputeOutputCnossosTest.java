@@ -5835,6 +5835,70 @@ public class AttenuationComputeOutputCnossosTest {
         }
     }
 
+    /**
+     * The cut profiles fetched from the profile cache must give the same attenuation as the computed ones
+     */
+    @Test
+    public void testProfileCache() {
+        GeometryFactory f = new GeometryFactory();
+        List<CnossosPath> paths0 = null;
+        for (int profileCacheSize : new int[]{0, 100}) {
+            ProfileBuilder profileBuilder = new ProfileBuilder();
+            profileBuilder
+                    .addBuilding(new Coordinate[]{
+                            new Coordinate(20, 20),
+                            new Coordinate(60, 20),
+                            new Coordinate(60, 30),
+                            new Coordinate(20, 30)
+                    }, 12)
+                    .addBuilding(new Coordinate[]{
+                            new Coordinate(20, 60),
+                            new Coordinate(60, 60),
+                            new Coordinate(60, 70),
+                            new Coordinate(20, 70)
+                    }, 12)
+                    .addBuilding(new Coordinate[]{
+                            new Coordinate(40, 38),
+                            new Coordinate(50, 38),
+                            new Coordinate(50, 52),
+                            new Coordinate(40, 52)
+                    }, 12)
+                    .finishFeeding();
+
+            SceneWithAttenuation scene = new SceneWithAttenuation(profileBuilder);
+            for (int idSource = 0; idSource < 10; idSource++) {
+                scene.addSource(f.createPoint(new Coordinate(5 + idSource * 2, 45, 0.5)));
+            }
+            scene.addReceiver(new Coordinate(75, 42, 4));
+            scene.addReceiver(new Coordinate(78, 48, 4));
+            scene.setDefaultGroundAttenuation(0.5);
+            scene.setReflexionOrder(2);
+            scene.setComputeHorizontalDiffraction(true);
+            scene.setComputeVerticalDiffraction(true);
+            scene.profileCacheSize = profileCacheSize;
+            AttenuationParameters attData = new AttenuationParameters();
+            attData.setHumidity(HUMIDITY);
+            attData.setTemperature(TEMPERATURE);
+            scene.defaultCnossosParameters = attData;
+
+            AttenuationComputeOutput propDataOut = new AttenuationComputeOutput(true, true, scene);
+            PathFinder pathFinder = new PathFinder(scene);
+            pathFinder.setThreadCount(1);
+            pathFinder.run(propDataOut);
+            List<CnossosPath> paths = propDataOut.getPropagationPaths();
+            if (profileCacheSize == 0) {
+                assertEquals(0, pathFinder.getProfileCacheHitCount());
+                paths0 = paths;
+            } else {
+                assertTrue(pathFinder.getProfileCacheHitCount() > 0);
+                assertEquals(paths0.size(), paths.size());
+                for (int idPath = 0; idPath < paths.size(); idPath++) {
+                    assertArrayEquals(paths0.get(idPath).aGlobal, paths.get(idPath).aGlobal, 1e-6);
+                }
+            }
+        }
+    }
+
     @Test
     public void northSouthGroundTest() {
         //Profile building
@@ -9,14 +9,24 @@
 
 package org.noise_planet.noisemodelling.propagation;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import org.junit.jupiter.api.Test;
+import org.noise_planet.noisemodelling.pathfinder.PathFinder;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.CutProfile;
+import org.noise_planet.noisemodelling.pathfinder.profilebuilder.ProfileBuilder;
+import org.noise_planet.noisemodelling.propagation.cnossos.AttenuationContext;
 import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPath;
 import org.noise_planet.noisemodelling.propagation.cnossos.AttenuationCnossos;
+import org.noise_planet.noisemodelling.propagation.cnossos.CnossosPathBuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
 public class RayAttenuationComputeOutputTest {
@@ -45,4 +55,105 @@ public class RayAttenuationComputeOutputTest {
             assertFalse(Double.isNaN(value));
         }
     }
+
+    /**
+     * The attenuation computed with a context reused for several paths must be the same as with a new context
+     */
+    @Test
+    public void testAttenuationContextReuse() throws IOException {
+        SceneWithAttenuation scene = new SceneWithAttenuation(new ProfileBuilder().finishFeeding());
+        AttenuationParameters parameters = scene.defaultCnossosParameters;
+        ObjectMapper mapper = new ObjectMapper();
+        List<CnossosPath> paths = new ArrayList<>();
+        for (String testCase : new String[] {"TC05_Direct", "TC11_Direct", "TC16_Reflection", "TC21_Direct",
+                "TC28_Direct"}) {
+            try (InputStream inputStream = PathFinder.class.getResourceAsStream("test_cases/" + testCase + ".json")) {
+                CutProfile cutProfile = mapper.readValue(inputStream, CutProfile.class);
+                paths.add(CnossosPathBuilder.computeCnossosPathFromCutProfile(cutProfile, false,
+                        scene.profileBuilder.exactFrequencyArray, SceneWithAttenuation.DEFAULT_GS));
+            }
+        }
+        AttenuationContext.Cache contexts = new AttenuationContext.Cache();
+        for (int loop = 0; loop < 2; loop++) {
+            for (CnossosPath path : paths) {
+                double[] expected = AttenuationCnossos.computeCnossosAttenuation(parameters, path, scene, false);
+                double[] actual = AttenuationCnossos.computeCnossosAttenuation(contexts.get(parameters), path,
+                        scene, false);
+                assertArrayEquals(expected, actual, 1e-12);
+            }
+        }
+    }
+
+    /**
+     * The attenuation of the periods of a path computed with the shared geometric terms must be the same as with a
+     * new context for each period
+     */
+    @Test
+    public void testAttenuationPeriodsOfPath() throws IOException {
+        SceneWithAttenuation scene = new SceneWithAttenuation(new ProfileBuilder().finishFeeding());
+        AttenuationParameters day = new AttenuationParameters(scene.defaultCnossosParameters);
+        // Same celerity, other humidity and wind rose
+        AttenuationParameters evening = new AttenuationParameters(scene.defaultCnossosParameters);
+        evening.setHumidity(40);
+        double[] eveningWindRose = new double[AttenuationParameters.DEFAULT_WIND_ROSE.length];
+        Arrays.fill(eveningWindRose, 0.8);
+        evening.setWindRose(eveningWindRose);
+        // Other celerity
+        AttenuationParameters night = new AttenuationParameters(scene.defaultCnossosParameters);
+        night.setTemperature(5);
+        double[] nightWindRose = new double[AttenuationParameters.DEFAULT_WIND_ROSE.length];
+        Arrays.fill(nightWindRose, 1.0);
+        night.setWindRose(nightWindRose);
+        ObjectMapper mapper = new ObjectMapper();
+        List<CnossosPath> paths = new ArrayList<>();
+        for (String testCase : new String[] {"TC05_Direct", "TC11_Direct", "TC16_Reflection", "TC21_Direct",
+                "TC28_Direct"}) {
+            try (InputStream inputStream = PathFinder.class.getResourceAsStream("test_cases/" + testCase + ".json")) {
+                CutProfile cutProfile = mapper.readValue(inputStream, CutProfile.class);
+                paths.add(CnossosPathBuilder.computeCnossosPathFromCutProfile(cutProfile, false,
+                        scene.profileBuilder.exactFrequencyArray, SceneWithAttenuation.DEFAULT_GS));
+            }
+        }
+        AttenuationContext.Cache contexts = new AttenuationContext.Cache();
+        for (CnossosPath path : paths) {
+            for (AttenuationParameters parameters : new AttenuationParameters[] {day, evening, night, day}) {
+                double[] expected = AttenuationCnossos.computeCnossosAttenuation(parameters, path, scene, false);
+                double[] actual = AttenuationCnossos.computeCnossosAttenuation(contexts.get(parameters), path,
+                        scene, false);
+                assertArrayEquals(expected, actual, 1e-12);
+            }
+        }
+    }
+
+    /**
+     * The ground options are not used by the attenuation of the paths, the periods that only differ by them share the
+     * ground attenuation of a path and give the same levels
+     */
+    @Test
+    public void testAttenuationPeriodsGroundOptions() throws IOException {
+        SceneWithAttenuation scene = new SceneWithAttenuation(new ProfileBuilder().finishFeeding());
+        AttenuationParameters day = new AttenuationParameters(scene.defaultCnossosParameters);
+        // Same celerity and frequencies, other gDisc option
+        AttenuationParameters evening = new AttenuationParameters(scene.defaultCnossosParameters);
+        evening.setgDisc(!day.isgDisc());
+        ObjectMapper mapper = new ObjectMapper();
+        List<CnossosPath> paths = new ArrayList<>();
+        for (String testCase : new String[] {"TC01_Direct", "TC02_Direct", "TC05_Direct", "TC11_Direct"}) {
+            try (InputStream inputStream = PathFinder.class.getResourceAsStream("test_cases/" + testCase + ".json")) {
+                CutProfile cutProfile = mapper.readValue(inputStream, CutProfile.class);
+                paths.add(CnossosPathBuilder.computeCnossosPathFromCutProfile(cutProfile, false,
+                        scene.profileBuilder.exactFrequencyArray, SceneWithAttenuation.DEFAULT_GS));
+            }
+        }
+        AttenuationContext.Cache contexts = new AttenuationContext.Cache();
+        for (CnossosPath path : paths) {
+            double[] dayLevels = AttenuationCnossos.computeCnossosAttenuation(day, path, scene, false);
+            for (AttenuationParameters parameters : new AttenuationParameters[] {day, evening, day}) {
+                assertArrayEquals(dayLevels, AttenuationCnossos.computeCnossosAttenuation(parameters, path, scene,
+                        false), 1e-12);
+                assertArrayEquals(dayLevels, AttenuationCnossos.computeCnossosAttenuation(contexts.get(parameters),
+                        path, scene, false), 1e-12);
+            }
+        }
+    }
 }